@@ -0,0 +1,337 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.database.ClassificadorEstabelecimento;
+import com.municipios.soap.database.DatabaseConnector;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+/**
+ * Ambiente local para os benchmarks: H2 em memória (modo MySQL) com dados
+ * de tamanho semelhante ao CNES, e um servidor HTTP que responde no lugar
+ * das APIs do IBGE e do ViaCEP.
+ *
+ * Tem de ser iniciado antes de qualquer classe do servidor ser carregada,
+ * porque o servidor lê db.url, ibge.url e viacep.url em campos estáticos.
+ */
+public final class AmbienteLocal {
+
+    // Estabelecimentos a gerar (o CNES tem ~50 mil UBS e postos de saúde)
+    private static final int TOTAL_ESTABELECIMENTOS = Integer.getInteger("bench.estabelecimentos", 50_000);
+
+    // Municípios por UF, como na API de localidades do IBGE
+    private static final Map<String, Integer> MUNICIPIOS_POR_UF = new LinkedHashMap<>();
+    private static final Map<String, Integer> CODIGO_UF = new LinkedHashMap<>();
+
+    static {
+        String[][] ufs = {
+                {"RO", "11", "52"}, {"AC", "12", "22"}, {"AM", "13", "62"}, {"RR", "14", "15"},
+                {"PA", "15", "144"}, {"AP", "16", "16"}, {"TO", "17", "139"}, {"MA", "21", "217"},
+                {"PI", "22", "224"}, {"CE", "23", "184"}, {"RN", "24", "167"}, {"PB", "25", "223"},
+                {"PE", "26", "185"}, {"AL", "27", "102"}, {"SE", "28", "75"}, {"BA", "29", "417"},
+                {"MG", "31", "853"}, {"ES", "32", "78"}, {"RJ", "33", "92"}, {"SP", "35", "645"},
+                {"PR", "41", "399"}, {"SC", "42", "295"}, {"RS", "43", "497"}, {"MS", "50", "79"},
+                {"MT", "51", "142"}, {"GO", "52", "246"}, {"DF", "53", "1"}
+        };
+        for (String[] uf : ufs) {
+            CODIGO_UF.put(uf[0], Integer.parseInt(uf[1]));
+            MUNICIPIOS_POR_UF.put(uf[0], Integer.parseInt(uf[2]));
+        }
+    }
+
+    private static final String[] PREFIXOS = {
+            "UBS", "UNIDADE BÁSICA DE SAÚDE", "Unidade Basica de Saude", "POSTO DE SAUDE",
+            "CENTRO DE SAUDE", "HOSPITAL MUNICIPAL", "CLINICA DA FAMILIA", "POLICLINICA"
+    };
+
+    private static AmbienteLocal instancia;
+
+    private final int[] municipiosPorPorte; // IDs de 7 dígitos, do maior para o menor em estabelecimentos
+    private final int[] estabelecimentosPorPorte;
+    private final HttpServer stub;
+
+    private AmbienteLocal(int[] municipiosPorPorte, int[] estabelecimentosPorPorte, HttpServer stub) {
+        this.municipiosPorPorte = municipiosPorPorte;
+        this.estabelecimentosPorPorte = estabelecimentosPorPorte;
+        this.stub = stub;
+    }
+
+    /**
+     * Cria o BD e o stub HTTP (uma vez por JVM) e aponta o servidor para eles.
+     */
+    public static synchronized AmbienteLocal iniciar() throws Exception {
+        if (instancia != null) {
+            return instancia;
+        }
+
+        // Como no ServidorSOAP: sem isto cada ida HTTP local leva ~40 ms (Nagle)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        HttpServer stub = iniciarStub();
+        String urlStub = "http://localhost:" + stub.getAddress().getPort();
+        System.setProperty("ibge.url", urlStub);
+        System.setProperty("viacep.url", urlStub);
+
+        String urlBD = "jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        System.setProperty("db.url", urlBD);
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+
+        int[][] porte;
+        try (Connection conn = DriverManager.getConnection(urlBD, "sa", "")) {
+            criarTabelas(conn);
+            porte = popular(conn);
+        }
+        DatabaseConnector.iniciar();
+
+        instancia = new AmbienteLocal(porte[0], porte[1], stub);
+        return instancia;
+    }
+
+    /**
+     * ID (7 dígitos) do município com mais estabelecimentos
+     */
+    public int municipioGrande() {
+        return municipiosPorPorte[0];
+    }
+
+    /**
+     * ID (7 dígitos) de um município com o número mediano de estabelecimentos
+     */
+    public int municipioMediano() {
+        return municipiosPorPorte[municipiosPorPorte.length / 2];
+    }
+
+    public int estabelecimentos(int municipioId) {
+        for (int i = 0; i < municipiosPorPorte.length; i++) {
+            if (municipiosPorPorte[i] == municipioId) {
+                return estabelecimentosPorPorte[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * IDs de todos os municípios de uma UF
+     */
+    public int[] municipiosDaUF(String uf) {
+        int codigoUf = CODIGO_UF.get(uf);
+        int[] ids = new int[MUNICIPIOS_POR_UF.get(uf)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idMunicipio(codigoUf, i);
+        }
+        return ids;
+    }
+
+    public void parar() {
+        stub.stop(0);
+    }
+
+    // --- BD ---
+
+    private static void criarTabelas(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE demografia_municipio (" +
+                    "ibge_municipio INT PRIMARY KEY, municipio_nome VARCHAR(255), " +
+                    "populacao_total BIGINT, populacao_homens BIGINT, populacao_mulheres BIGINT, " +
+                    "faixa_0_10 BIGINT, faixa_11_20 BIGINT, faixa_21_30 BIGINT, faixa_40_mais BIGINT)");
+            st.execute("CREATE TABLE ubs_estabelecimentos (" +
+                    "cnes VARCHAR(15) NOT NULL, ibge_municipio INT NOT NULL, nome VARCHAR(255), " +
+                    "logradouro VARCHAR(255), bairro VARCHAR(100), latitude DECIMAL(12, 9), " +
+                    "longitude DECIMAL(12, 9), cep VARCHAR(9), eh_ubs TINYINT, " +
+                    "PRIMARY KEY (ibge_municipio, cnes), UNIQUE (cnes))");
+            st.execute("CREATE TABLE ubs_totais_municipio (" +
+                    "ibge_municipio INT PRIMARY KEY, total_ubs INT, total_medicos INT, total_enfermeiros INT)");
+        }
+    }
+
+    /**
+     * Distribui os estabelecimentos pelos municípios com uma lei de potência
+     * (poucas capitais com milhares, a maioria com menos de dez).
+     *
+     * @return {IDs ordenados por porte, estabelecimentos de cada um}
+     */
+    private static int[][] popular(Connection conn) throws SQLException {
+        Random random = new Random(42);
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<String, Integer> uf : MUNICIPIOS_POR_UF.entrySet()) {
+            for (int i = 0; i < uf.getValue(); i++) {
+                ids.add(idMunicipio(CODIGO_UF.get(uf.getKey()), i));
+            }
+        }
+
+        // Ordem aleatória define o porte de cada município; peso 1/rank
+        Collections.shuffle(ids, random);
+        double somaPesos = 0;
+        for (int rank = 1; rank <= ids.size(); rank++) {
+            somaPesos += 1.0 / rank;
+        }
+        int[] contagem = new int[ids.size()];
+        int restantes = TOTAL_ESTABELECIMENTOS;
+        for (int i = 0; i < ids.size(); i++) {
+            contagem[i] = Math.max(1, (int) Math.round(TOTAL_ESTABELECIMENTOS * (1.0 / (i + 1)) / somaPesos));
+            restantes -= contagem[i];
+        }
+        contagem[0] += Math.max(0, restantes);
+
+        conn.setAutoCommit(false);
+        int cnes = 1_000_000;
+        try (PreparedStatement estab = conn.prepareStatement(
+                "INSERT INTO ubs_estabelecimentos VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement totais = conn.prepareStatement(
+                     "INSERT INTO ubs_totais_municipio VALUES (?, ?, ?, ?)");
+             PreparedStatement demo = conn.prepareStatement(
+                     "INSERT INTO demografia_municipio VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+
+            for (int i = 0; i < ids.size(); i++) {
+                int codigo = ids.get(i) / 10;
+                double lat = -30 + random.nextDouble() * 33;
+                double lon = -70 + random.nextDouble() * 35;
+
+                for (int j = 0; j < contagem[i]; j++) {
+                    String prefixo = PREFIXOS[random.nextInt(PREFIXOS.length)];
+                    estab.setString(1, String.format("%07d", cnes++));
+                    estab.setInt(2, codigo);
+                    estab.setString(3, prefixo + " " + (j + 1));
+                    estab.setString(4, "RUA " + random.nextInt(5000));
+                    estab.setString(5, "BAIRRO " + random.nextInt(200));
+                    estab.setDouble(6, lat + random.nextGaussian() * 0.05);
+                    estab.setDouble(7, lon + random.nextGaussian() * 0.05);
+                    estab.setString(8, String.format("%08d", 10_000_000 + random.nextInt(89_999_999)));
+                    estab.setInt(9, ClassificadorEstabelecimento.ehUbs(prefixo) ? 1 : 0);
+                    estab.addBatch();
+                }
+                estab.executeBatch();
+
+                totais.setInt(1, codigo);
+                totais.setInt(2, contagem[i]);
+                totais.setInt(3, contagem[i] * 3);
+                totais.setInt(4, contagem[i] * 2);
+                totais.addBatch();
+
+                int populacao = 2_000 + contagem[i] * 3_000 + random.nextInt(5_000);
+                demo.setInt(1, codigo);
+                demo.setString(2, "Municipio " + ids.get(i));
+                demo.setInt(3, populacao);
+                demo.setInt(4, populacao * 49 / 100);
+                demo.setInt(5, populacao - populacao * 49 / 100);
+                demo.setInt(6, populacao * 15 / 100);
+                demo.setInt(7, populacao * 17 / 100);
+                demo.setInt(8, populacao * 18 / 100);
+                demo.setInt(9, populacao * 50 / 100);
+                demo.addBatch();
+            }
+            totais.executeBatch();
+            demo.executeBatch();
+        }
+        conn.commit();
+
+        int[] porPorte = ids.stream().mapToInt(Integer::intValue).toArray();
+        return new int[][]{porPorte, contagem};
+    }
+
+    private static int idMunicipio(int codigoUf, int sequencia) {
+        // 2 dígitos de UF + 4 de município + dígito verificador (fixo em 0 aqui)
+        return (codigoUf * 10_000 + sequencia + 1) * 10;
+    }
+
+    // --- Stub HTTP (IBGE e ViaCEP) ---
+
+    private static HttpServer iniciarStub() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+        server.createContext("/api/v1/localidades/estados/", AmbienteLocal::responderMunicipiosUF);
+        server.createContext("/api/v1/localidades/municipios", AmbienteLocal::responderTodosMunicipios);
+        server.createContext("/ws/", AmbienteLocal::responderCep);
+        server.setExecutor(Executors.newFixedThreadPool(8, r -> {
+            Thread t = new Thread(r, "stub-http");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        return server;
+    }
+
+    // /api/v1/localidades/estados/{UF}/municipios
+    private static void responderMunicipiosUF(HttpExchange exchange) throws IOException {
+        String[] partes = exchange.getRequestURI().getPath().split("/");
+        String uf = partes.length > 5 ? partes[5].toUpperCase() : "";
+        StringBuilder json = new StringBuilder().append('[');
+        if (MUNICIPIOS_POR_UF.containsKey(uf)) {
+            escreverMunicipios(json, uf);
+        }
+        responder(exchange, 200, json.append(']').toString());
+    }
+
+    // /api/v1/localidades/municipios (usado para gerar o catálogo)
+    private static void responderTodosMunicipios(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder(700_000).append('[');
+        for (String uf : MUNICIPIOS_POR_UF.keySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            escreverMunicipios(json, uf);
+        }
+        responder(exchange, 200, json.append(']').toString());
+    }
+
+    private static void escreverMunicipios(StringBuilder json, String uf) {
+        int total = MUNICIPIOS_POR_UF.get(uf);
+        for (int i = 0; i < total; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            int id = idMunicipio(CODIGO_UF.get(uf), i);
+            json.append("{\"id\":").append(id)
+                    .append(",\"nome\":\"Municipio ").append(id)
+                    .append("\",\"microrregiao\":{\"mesorregiao\":{\"UF\":{\"sigla\":\"").append(uf)
+                    .append("\",\"nome\":\"Estado ").append(uf).append("\"}}}}");
+        }
+    }
+
+    // /ws/{cep}/json/
+    private static void responderCep(HttpExchange exchange) throws IOException {
+        String[] partes = exchange.getRequestURI().getPath().split("/");
+        String cep = partes.length > 2 ? partes[2] : "";
+        if (cep.startsWith("9")) {
+            responder(exchange, 200, "{\"erro\": true}");
+            return;
+        }
+        responder(exchange, 200, "{\"cep\":\"" + cep.substring(0, 5) + "-" + cep.substring(5) + "\"," +
+                "\"logradouro\":\"Rua das Flores\",\"complemento\":\"\",\"bairro\":\"Centro\"," +
+                "\"localidade\":\"Manaus\",\"uf\":\"AM\"}");
+    }
+
+    private static void responder(HttpExchange exchange, int status, String corpo) throws IOException {
+        byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AmbienteLocal{estabelecimentos=" + TOTAL_ESTABELECIMENTOS +
+                ", grande=" + municipioGrande() + " (" + estabelecimentos(municipioGrande()) + ")" +
+                ", mediano=" + municipioMediano() + " (" + estabelecimentos(municipioMediano()) + ")" +
+                ", ufs=" + Arrays.toString(CODIGO_UF.keySet().toArray()) + "}";
+    }
+}
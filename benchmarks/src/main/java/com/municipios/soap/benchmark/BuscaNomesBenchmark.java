@@ -0,0 +1,82 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.cache.CatalogoMunicipios;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.model.ResultadoBuscaEstabelecimentos;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * buscarEstabelecimentosPorNome chamado diretamente na implementação, sobre
+ * os nomes gerados pelo AmbienteLocal ("UBS 12", "POSTO DE SAUDE 3", ...),
+ * em todo o país, numa UF (SP) e no maior município gerado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuscaNomesBenchmark {
+
+    @Param({"policlinica 12", "posto sa", "unidde basica 7", "hospitl municipl"})
+    public String termo;
+
+    private ClienteHttp clienteHttp;
+    private MunicipioWebServiceImpl servico;
+    private int municipioGrande;
+
+    @Setup
+    public void preparar() throws Exception {
+        AmbienteLocal ambiente = AmbienteLocal.iniciar();
+        CacheEstabelecimentos snapshot = new CacheEstabelecimentos();
+        if (!snapshot.recarregar()) {
+            throw new IllegalStateException("Falha ao carregar o snapshot");
+        }
+        clienteHttp = new ClienteHttp();
+        CatalogoMunicipios catalogo = CatalogoMunicipios.daApi(clienteHttp, MunicipioWebServiceImpl.IBGE_URL);
+        servico = new MunicipioWebServiceImpl(clienteHttp, snapshot, catalogo, new CacheCep());
+        municipioGrande = ambiente.municipioGrande();
+    }
+
+    @TearDown
+    public void encerrar() throws IOException {
+        clienteHttp.close();
+    }
+
+    @Benchmark
+    public ResultadoBuscaEstabelecimentos nacional() {
+        return servico.buscarEstabelecimentosPorNome(termo, "", 0, "", 20);
+    }
+
+    @Benchmark
+    public ResultadoBuscaEstabelecimentos nacionalApenasUbs() {
+        return servico.buscarEstabelecimentosPorNome(termo, "", 0, "UBS", 20);
+    }
+
+    @Benchmark
+    public ResultadoBuscaEstabelecimentos uf() {
+        return servico.buscarEstabelecimentosPorNome(termo, "SP", 0, "", 20);
+    }
+
+    @Benchmark
+    public ResultadoBuscaEstabelecimentos municipio() {
+        return servico.buscarEstabelecimentosPorNome(termo, "", municipioGrande, "", 20);
+    }
+}
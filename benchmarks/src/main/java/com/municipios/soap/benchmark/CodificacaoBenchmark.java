@@ -0,0 +1,131 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.model.DadosUBS;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Custo de (un)marshalling da resposta de listarUBSMunicipio do município
+ * grande em SOAP/XML e em Fast Infoset, pelo mesmo caminho do JAX-WS
+ * (JAXB sobre StAX). Os tamanhos em bytes, com e sem gzip, são exibidos
+ * no setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodificacaoBenchmark {
+
+    private static final QName ELEMENTO = new QName("http://service.soap.municipios.com/", "return");
+
+    @Param({"xml", "fastinfoset"})
+    public String formato;
+
+    private final XMLOutputFactory fabricaSaida = XMLOutputFactory.newInstance();
+    private final XMLInputFactory fabricaEntrada = XMLInputFactory.newInstance();
+    private final StAXDocumentSerializer serializadorFi = new StAXDocumentSerializer();
+    private final StAXDocumentParser parserFi = new StAXDocumentParser();
+
+    private Marshaller marshaller;
+    private Unmarshaller unmarshaller;
+    private JAXBElement<DadosUBS> resposta;
+    private byte[] codificada;
+    private ByteArrayOutputStream saida;
+
+    @Setup
+    public void preparar() throws Exception {
+        AmbienteLocal ambiente = AmbienteLocal.iniciar();
+        CacheEstabelecimentos snapshot = new CacheEstabelecimentos();
+        snapshot.recarregar();
+        try (ClienteHttp clienteHttp = new ClienteHttp()) {
+            MunicipioWebServiceImpl servico = new MunicipioWebServiceImpl(clienteHttp, snapshot, null, new CacheCep());
+            resposta = new JAXBElement<>(ELEMENTO, DadosUBS.class,
+                    servico.listarUBSMunicipio(ambiente.municipioGrande(), ""));
+        }
+
+        JAXBContext contexto = JAXBContext.newInstance(DadosUBS.class);
+        marshaller = contexto.createMarshaller();
+        unmarshaller = contexto.createUnmarshaller();
+
+        saida = new ByteArrayOutputStream(1 << 20);
+        codificada = marshal().toByteArray();
+        System.out.printf("%n%s: %d UBS, %,d bytes, %,d bytes com gzip (nível %d)%n", formato,
+                resposta.getValue().getListaUbs().length, codificada.length, gzip(codificada), Deflater.BEST_SPEED);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream marshal() throws JAXBException, XMLStreamException {
+        saida.reset();
+        XMLStreamWriter writer;
+        if ("fastinfoset".equals(formato)) {
+            serializadorFi.reset();
+            serializadorFi.setOutputStream(saida);
+            writer = serializadorFi;
+        } else {
+            writer = fabricaSaida.createXMLStreamWriter(saida, "UTF-8");
+        }
+        marshaller.marshal(resposta, writer);
+        writer.flush();
+        return saida;
+    }
+
+    @Benchmark
+    public DadosUBS unmarshal() throws JAXBException, XMLStreamException {
+        XMLStreamReader reader;
+        if ("fastinfoset".equals(formato)) {
+            parserFi.reset();
+            parserFi.setInputStream(new ByteArrayInputStream(codificada));
+            reader = parserFi;
+        } else {
+            reader = fabricaEntrada.createXMLStreamReader(new ByteArrayInputStream(codificada));
+        }
+        return unmarshaller.unmarshal(reader, DadosUBS.class).getValue();
+    }
+
+    private static int gzip(byte[] dados) throws IOException {
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(comprimido) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            out.write(dados);
+        }
+        return comprimido.size();
+    }
+}
@@ -0,0 +1,84 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.model.DadosUBS;
+import com.municipios.soap.model.EstabelecimentosPorTipo;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * listarUBSMunicipio e listarEstabelecimentosPorTipo chamados diretamente
+ * na implementação (sem HTTP nem JAXB), a partir do snapshot em memória e
+ * a partir do BD (consulta + mapeamento), para um município grande e um mediano.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EstabelecimentosBenchmark {
+
+    @Param({"grande", "mediano"})
+    public String porte;
+
+    private int municipioId;
+    private ClienteHttp clienteHttp;
+    private MunicipioWebServiceImpl comSnapshot;
+    private MunicipioWebServiceImpl semSnapshot;
+
+    @Setup
+    public void preparar() throws Exception {
+        AmbienteLocal ambiente = AmbienteLocal.iniciar();
+        municipioId = "grande".equals(porte) ? ambiente.municipioGrande() : ambiente.municipioMediano();
+
+        CacheEstabelecimentos snapshot = new CacheEstabelecimentos();
+        if (!snapshot.recarregar()) {
+            throw new IllegalStateException("Falha ao carregar o snapshot");
+        }
+        clienteHttp = new ClienteHttp();
+        comSnapshot = new MunicipioWebServiceImpl(clienteHttp, snapshot, null, new CacheCep());
+        semSnapshot = new MunicipioWebServiceImpl(clienteHttp, new CacheEstabelecimentos(), null, new CacheCep());
+    }
+
+    @TearDown
+    public void encerrar() throws IOException {
+        clienteHttp.close();
+    }
+
+    @Benchmark
+    public DadosUBS listarUBSMunicipioSnapshot() {
+        return comSnapshot.listarUBSMunicipio(municipioId, "");
+    }
+
+    @Benchmark
+    public DadosUBS listarUBSMunicipioBD() {
+        return semSnapshot.listarUBSMunicipio(municipioId, "");
+    }
+
+    @Benchmark
+    public EstabelecimentosPorTipo listarEstabelecimentosPorTipoSnapshot() {
+        return comSnapshot.listarEstabelecimentosPorTipo(municipioId, "");
+    }
+
+    @Benchmark
+    public EstabelecimentosPorTipo listarEstabelecimentosPorTipoBD() {
+        return semSnapshot.listarEstabelecimentosPorTipo(municipioId, "");
+    }
+}
@@ -0,0 +1,23 @@
+package com.municipios.soap.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ponto de entrada do benchmarks.jar: o mesmo que org.openjdk.jmh.Main,
+ * mas com o profiler de GC ativo por omissão (taxa de alocação por operação).
+ *
+ * Ex: java -jar target/benchmarks.jar EstabelecimentosBenchmark -p porte=grande
+ */
+public class ExecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        List<String> argumentos = new ArrayList<>(Arrays.asList(args));
+        if (!argumentos.contains("-prof")) {
+            argumentos.add("-prof");
+            argumentos.add("gc");
+        }
+        org.openjdk.jmh.Main.main(argumentos.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,88 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.model.ResultadoProximos;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * listarEstabelecimentosProximos chamado diretamente na implementação, com
+ * origens aleatórias espalhadas pelo mesmo retângulo dos dados gerados
+ * (todo o país), incluindo pontos longe de qualquer estabelecimento.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProximosBenchmark {
+
+    private static final int ORIGENS = 1024;
+
+    @Param({"10", "100"})
+    public int quantidade;
+
+    private ClienteHttp clienteHttp;
+    private MunicipioWebServiceImpl servico;
+    private final double[] latitudes = new double[ORIGENS];
+    private final double[] longitudes = new double[ORIGENS];
+    private int proxima;
+
+    @Setup
+    public void preparar() throws Exception {
+        AmbienteLocal.iniciar();
+        CacheEstabelecimentos snapshot = new CacheEstabelecimentos();
+        if (!snapshot.recarregar()) {
+            throw new IllegalStateException("Falha ao carregar o snapshot");
+        }
+        clienteHttp = new ClienteHttp();
+        servico = new MunicipioWebServiceImpl(clienteHttp, snapshot, null, new CacheCep());
+
+        Random random = new Random(7);
+        for (int i = 0; i < ORIGENS; i++) {
+            latitudes[i] = -30 + random.nextDouble() * 33;
+            longitudes[i] = -70 + random.nextDouble() * 35;
+        }
+    }
+
+    @TearDown
+    public void encerrar() throws IOException {
+        clienteHttp.close();
+    }
+
+    @Benchmark
+    public ResultadoProximos todos() {
+        int i = proxima++ & (ORIGENS - 1);
+        return servico.listarEstabelecimentosProximos(latitudes[i], longitudes[i], "", 0, quantidade);
+    }
+
+    @Benchmark
+    public ResultadoProximos apenasUbs() {
+        int i = proxima++ & (ORIGENS - 1);
+        return servico.listarEstabelecimentosProximos(latitudes[i], longitudes[i], "UBS", 0, quantidade);
+    }
+
+    @Benchmark
+    public ResultadoProximos comRaio() {
+        int i = proxima++ & (ORIGENS - 1);
+        return servico.listarEstabelecimentosProximos(latitudes[i], longitudes[i], "", 25, quantidade);
+    }
+}
@@ -0,0 +1,127 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.cache.CatalogoMunicipios;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.model.ComparacaoMunicipio;
+import com.municipios.soap.model.DadosPopulacionais;
+import com.municipios.soap.model.Endereco;
+import com.municipios.soap.model.Municipio;
+import com.municipios.soap.model.ResultadoDadosPopulacionais;
+import com.municipios.soap.model.ResultadoDadosUBS;
+import com.municipios.soap.model.ResultadoRanking;
+import com.municipios.soap.model.ResultadoTotaisRegionais;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Restantes operações chamadas diretamente na implementação (sem HTTP nem
+ * JAXB): demografia no BD, municípios pelo catálogo e pela API simulada,
+ * CEP com e sem acerto no cache, e as operações em lote de uma UF inteira.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServicoBenchmark {
+
+    private int municipioId;
+    private int[] municipiosSP;
+    private ClienteHttp clienteHttp;
+    private MunicipioWebServiceImpl comCatalogo;
+    private MunicipioWebServiceImpl semCatalogo;
+
+    // CEPs sempre novos, para medir a ida ao ViaCEP simulado
+    private final AtomicInteger proximoCep = new AtomicInteger(10_000_000);
+
+    @Setup
+    public void preparar() throws Exception {
+        AmbienteLocal ambiente = AmbienteLocal.iniciar();
+        municipioId = ambiente.municipioGrande();
+        municipiosSP = ambiente.municipiosDaUF("SP");
+
+        CacheEstabelecimentos snapshot = new CacheEstabelecimentos();
+        snapshot.recarregar();
+        clienteHttp = new ClienteHttp();
+        CatalogoMunicipios catalogo = CatalogoMunicipios.daApi(clienteHttp, MunicipioWebServiceImpl.IBGE_URL);
+        comCatalogo = new MunicipioWebServiceImpl(clienteHttp, snapshot, catalogo, new CacheCep());
+        semCatalogo = new MunicipioWebServiceImpl(clienteHttp, snapshot, null, new CacheCep());
+    }
+
+    @TearDown
+    public void encerrar() throws IOException {
+        clienteHttp.close();
+    }
+
+    @Benchmark
+    public DadosPopulacionais obterDadosPopulacionais() {
+        return comCatalogo.obterDadosPopulacionais(municipioId, "");
+    }
+
+    @Benchmark
+    public Municipio[] listarMunicipiosPorUFCatalogo() {
+        return comCatalogo.listarMunicipiosPorUF("SP");
+    }
+
+    @Benchmark
+    public Municipio[] listarMunicipiosPorUFApi() {
+        return semCatalogo.listarMunicipiosPorUF("SP");
+    }
+
+    @Benchmark
+    public Municipio[] autocompletarMunicipios() {
+        return comCatalogo.autocompletarMunicipios("municipio 35", 10);
+    }
+
+    @Benchmark
+    public Endereco consultarCEPEmCache() {
+        return comCatalogo.consultarCEP("69010-000");
+    }
+
+    @Benchmark
+    public Endereco consultarCEPApi() {
+        return semCatalogo.consultarCEP(String.valueOf(proximoCep.incrementAndGet()));
+    }
+
+    @Benchmark
+    public ResultadoDadosPopulacionais[] obterDadosPopulacionaisLoteSP() {
+        return comCatalogo.obterDadosPopulacionaisLote(municipiosSP);
+    }
+
+    @Benchmark
+    public ResultadoDadosUBS[] listarUBSMunicipioLoteSP() {
+        return comCatalogo.listarUBSMunicipioLote(municipiosSP);
+    }
+
+    @Benchmark
+    public ResultadoTotaisRegionais obterTotaisRegionais() {
+        return comCatalogo.obterTotaisRegionais("");
+    }
+
+    @Benchmark
+    public ResultadoRanking listarRankingMunicipiosSP() {
+        return comCatalogo.listarRankingMunicipios("MEDICOS_POR_MIL_HAB", "SP", "", 10);
+    }
+
+    @Benchmark
+    public ComparacaoMunicipio[] compararMunicipiosSP() {
+        return comCatalogo.compararMunicipios(municipiosSP, "UBS_POR_10MIL_HAB");
+    }
+}
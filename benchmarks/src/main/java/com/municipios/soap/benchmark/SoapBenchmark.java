@@ -0,0 +1,143 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.cache.CatalogoMunicipios;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.ws.Endpoint;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operações de ponta a ponta: envelope SOAP por HTTP até ao endpoint
+ * publicado como no ServidorSOAP, incluindo o (un)marshalling JAXB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SoapBenchmark {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Endpoint endpoint;
+    private ClienteHttp clienteHttp;
+    private URI uri;
+
+    private String listarMunicipiosPorUF;
+    private String obterDadosPopulacionais;
+    private String consultarCEP;
+    private String listarUBSMunicipio;
+    private String listarEstabelecimentosPorTipo;
+
+    @Setup
+    public void preparar() throws Exception {
+        AmbienteLocal ambiente = AmbienteLocal.iniciar();
+        int municipioId = ambiente.municipioGrande();
+
+        CacheEstabelecimentos snapshot = new CacheEstabelecimentos();
+        snapshot.recarregar();
+        clienteHttp = new ClienteHttp();
+        CatalogoMunicipios catalogo = CatalogoMunicipios.daApi(clienteHttp, MunicipioWebServiceImpl.IBGE_URL);
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 512);
+        server.setExecutor(executor);
+        endpoint = Endpoint.create(new MunicipioWebServiceImpl(clienteHttp, snapshot, catalogo, new CacheCep()));
+        endpoint.publish(server.createContext("/ws/municipios"));
+        server.start();
+
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/ws/municipios");
+
+        listarMunicipiosPorUF = envelope("<ser:listarMunicipiosPorUF><uf>SP</uf></ser:listarMunicipiosPorUF>");
+        obterDadosPopulacionais = envelope("<ser:obterDadosPopulacionais><municipioId>" + municipioId +
+                "</municipioId><municipioNome></municipioNome></ser:obterDadosPopulacionais>");
+        consultarCEP = envelope("<ser:consultarCEP><cep>69010-000</cep></ser:consultarCEP>");
+        listarUBSMunicipio = envelope("<ser:listarUBSMunicipio><municipioId>" + municipioId +
+                "</municipioId><municipioNome></municipioNome></ser:listarUBSMunicipio>");
+        listarEstabelecimentosPorTipo = envelope("<ser:listarEstabelecimentosPorTipo><municipioId>" + municipioId +
+                "</municipioId><municipioNome></municipioNome></ser:listarEstabelecimentosPorTipo>");
+    }
+
+    @TearDown
+    public void encerrar() throws IOException {
+        endpoint.stop();
+        server.stop(0);
+        executor.shutdown();
+        clienteHttp.close();
+    }
+
+    @Benchmark
+    public String listarMunicipiosPorUF() throws Exception {
+        return chamar(listarMunicipiosPorUF);
+    }
+
+    @Benchmark
+    public String obterDadosPopulacionais() throws Exception {
+        return chamar(obterDadosPopulacionais);
+    }
+
+    @Benchmark
+    public String consultarCEP() throws Exception {
+        return chamar(consultarCEP);
+    }
+
+    @Benchmark
+    public String listarUBSMunicipio() throws Exception {
+        return chamar(listarUBSMunicipio);
+    }
+
+    @Benchmark
+    public String listarEstabelecimentosPorTipo() throws Exception {
+        return chamar(listarEstabelecimentosPorTipo);
+    }
+
+    private String chamar(String corpo) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) uri.toURL().openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
+        conn.setRequestProperty("SOAPAction", "\"\"");
+        byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+        conn.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(bytes);
+        }
+        if (conn.getResponseCode() != 200) {
+            throw new IllegalStateException("HTTP " + conn.getResponseCode());
+        }
+        try (InputStream in = conn.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String envelope(String corpo) {
+        return "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" " +
+                "xmlns:ser=\"http://service.soap.municipios.com/\"><soap:Body>" + corpo +
+                "</soap:Body></soap:Envelope>";
+    }
+}
@@ -0,0 +1,331 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.cache.CodigosIbge;
+import com.municipios.soap.cache.IndiceNomes;
+import com.municipios.soap.database.ClassificadorEstabelecimento;
+import com.municipios.soap.database.DatabaseConnector;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.model.EstabelecimentoEncontrado;
+import com.municipios.soap.model.ResultadoBuscaEstabelecimentos;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Confere buscarEstabelecimentosPorNome com uma busca exaustiva: para cada
+ * termo aleatório compara todas as palavras de todos os nomes lidos do BD
+ * (palavra inteira, prefixo ou Levenshtein) e exige os mesmos
+ * estabelecimentos, pela mesma ordem, e o mesmo totalEncontrados. Os termos
+ * saem dos próprios nomes, cortados em prefixos, em minúsculas e com erros
+ * de digitação; o âmbito varia entre o país, uma UF e um município.
+ *
+ * O serviço é montado sem catálogo de municípios, por isso também confere
+ * o filtro por UF e o município de cada item sem ele.
+ *
+ * Ex: java -cp target/benchmarks.jar com.municipios.soap.benchmark.VerificacaoBuscaNomes [termos]
+ */
+public class VerificacaoBuscaNomes {
+
+    private static final int MAX_PALAVRAS_TERMO = 8;
+    private static final int ERRO = 16;
+    private static final int[] QUANTIDADES = {1, 20, 100};
+    private static final String LETRAS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    // Estabelecimentos, pela ordem (município, CNES) do snapshot
+    private final String[] cnes;
+    private final int[] municipios;
+    private final boolean[] ehUbs;
+    private final String[] nomesOriginais;
+
+    // Palavras distintas de todos os nomes e, por estabelecimento, as do seu nome
+    private final List<String> vocabulario = new ArrayList<>();
+    private final int[][] palavrasLinha;
+
+    private VerificacaoBuscaNomes(List<Object[]> linhas) {
+        int n = linhas.size();
+        cnes = new String[n];
+        municipios = new int[n];
+        ehUbs = new boolean[n];
+        nomesOriginais = new String[n];
+        palavrasLinha = new int[n][];
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Object[] linha = linhas.get(i);
+            cnes[i] = (String) linha[0];
+            municipios[i] = (Integer) linha[1];
+            nomesOriginais[i] = (String) linha[2];
+            ehUbs[i] = (Boolean) linha[3];
+            Set<Integer> distintas = new LinkedHashSet<>();
+            for (String palavra : IndiceNomes.palavras(nomesOriginais[i])) {
+                distintas.add(ids.computeIfAbsent(palavra, p -> {
+                    vocabulario.add(p);
+                    return vocabulario.size() - 1;
+                }));
+            }
+            palavrasLinha[i] = distintas.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int termos = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        AmbienteLocal.iniciar();
+        CacheEstabelecimentos cache = new CacheEstabelecimentos();
+        if (!cache.recarregar()) {
+            throw new IllegalStateException("Falha ao carregar o snapshot");
+        }
+        MunicipioWebServiceImpl servico = new MunicipioWebServiceImpl(new ClienteHttp(), cache, null, new CacheCep());
+        VerificacaoBuscaNomes verificacao = new VerificacaoBuscaNomes(lerNomes());
+
+        Random random = new Random(23);
+        int falhas = 0;
+        for (int q = 0; q < termos; q++) {
+            String termo = verificacao.sortearTermo(random);
+            int quantidade = QUANTIDADES[random.nextInt(QUANTIDADES.length)];
+            String tipo = new String[]{"", "UBS", "OUTROS"}[random.nextInt(3)];
+            String uf = "";
+            int municipioId = 0;
+            switch (random.nextInt(3)) {
+                case 0:
+                    int codigoUF = verificacao.municipios[random.nextInt(verificacao.cnes.length)] / 10_000;
+                    uf = random.nextBoolean() ? CodigosIbge.siglaUF(codigoUF) : CodigosIbge.siglaUF(codigoUF).toLowerCase();
+                    break;
+                case 1:
+                    municipioId = verificacao.municipios[random.nextInt(verificacao.cnes.length)] * 10;
+                    break;
+                default:
+                    break;
+            }
+
+            ResultadoBuscaEstabelecimentos obtido = servico.buscarEstabelecimentosPorNome(termo, uf, municipioId, tipo, quantidade);
+            String erro = verificacao.conferir(obtido, termo, uf, municipioId, tipo, quantidade);
+            if (erro != null) {
+                falhas++;
+                System.out.printf("✗ \"%s\" uf=%s municipio=%d tipo=%s k=%d: %s%n",
+                        termo, uf, municipioId, tipo, quantidade, erro);
+            }
+        }
+
+        System.out.printf("%s %,d termos, %,d estabelecimentos, %,d palavras distintas, %,d divergências%n",
+                falhas == 0 ? "✓" : "✗", termos, verificacao.cnes.length, verificacao.vocabulario.size(), falhas);
+        System.exit(falhas == 0 ? 0 : 1);
+    }
+
+    /**
+     * 1 a 3 palavras de um nome existente, cada uma talvez cortada, em
+     * minúsculas ou com 1 ou 2 erros; 1 em cada 10 termos é só letras ao acaso
+     */
+    private String sortearTermo(Random random) {
+        String termo;
+        do {
+            termo = sortearPalavras(random);
+        } while (IndiceNomes.palavras(termo).isEmpty()); // um erro pode apagar uma palavra de 1 letra
+        return termo;
+    }
+
+    private String sortearPalavras(Random random) {
+        if (random.nextInt(10) == 0) {
+            return aleatoria(random, 3 + random.nextInt(6));
+        }
+        String[] palavras = nomesOriginais[random.nextInt(nomesOriginais.length)].split(" ");
+        int quantas = 1 + random.nextInt(Math.min(3, palavras.length));
+        StringBuilder termo = new StringBuilder();
+        for (int i = 0; i < quantas; i++) {
+            String palavra = palavras[random.nextInt(palavras.length)];
+            switch (random.nextInt(5)) {
+                case 0:
+                    palavra = palavra.substring(0, 1 + random.nextInt(palavra.length()));
+                    break;
+                case 1:
+                    palavra = palavra.toLowerCase(Locale.ROOT);
+                    break;
+                case 2:
+                    palavra = editar(palavra, random);
+                    break;
+                case 3:
+                    palavra = editar(editar(palavra, random), random);
+                    break;
+                default:
+                    break;
+            }
+            termo.append(i > 0 ? " " : "").append(palavra);
+        }
+        return termo.toString();
+    }
+
+    private static String editar(String palavra, Random random) {
+        int i = random.nextInt(palavra.length() + 1);
+        char letra = LETRAS.charAt(random.nextInt(LETRAS.length()));
+        switch (random.nextInt(3)) {
+            case 0:
+                return palavra.substring(0, i) + letra + palavra.substring(i);
+            case 1:
+                return i < palavra.length() ? palavra.substring(0, i) + palavra.substring(i + 1) : palavra;
+            default:
+                return i < palavra.length() ? palavra.substring(0, i) + letra + palavra.substring(i + 1) : palavra;
+        }
+    }
+
+    private static String aleatoria(Random random, int comprimento) {
+        StringBuilder palavra = new StringBuilder();
+        for (int i = 0; i < comprimento; i++) {
+            palavra.append(LETRAS.charAt(random.nextInt(26)));
+        }
+        return palavra.toString();
+    }
+
+    /**
+     * @return null se a resposta do serviço coincide com a busca exaustiva, senão a diferença
+     */
+    private String conferir(ResultadoBuscaEstabelecimentos obtido, String termo, String uf, int municipioId,
+                            String tipo, int quantidade) {
+        if (obtido.getErro() != null) {
+            return "erro: " + obtido.getErro();
+        }
+        List<String> termos = IndiceNomes.palavras(termo);
+        if (termos.size() > MAX_PALAVRAS_TERMO) {
+            termos = termos.subList(0, MAX_PALAVRAS_TERMO);
+        }
+
+        // Custo de cada palavra do termo contra cada palavra do vocabulário (-1 se não corresponde)
+        int[][] custos = new int[termos.size()][vocabulario.size()];
+        for (int t = 0; t < termos.size(); t++) {
+            for (int p = 0; p < vocabulario.size(); p++) {
+                custos[t][p] = custo(termos.get(t), vocabulario.get(p));
+            }
+        }
+
+        int codigoUF = CodigosIbge.codigoUF(uf);
+        List<long[]> achados = new ArrayList<>();
+        for (int i = 0; i < cnes.length; i++) {
+            if (municipioId != 0 ? municipios[i] != municipioId / 10
+                    : codigoUF != 0 && municipios[i] / 10_000 != codigoUF) {
+                continue;
+            }
+            if (!tipo.isEmpty() && ehUbs[i] != tipo.equals("UBS")) {
+                continue;
+            }
+            int soma = 0;
+            for (int[] custosTermo : custos) {
+                int melhor = -1;
+                for (int p : palavrasLinha[i]) {
+                    if (custosTermo[p] >= 0 && (melhor < 0 || custosTermo[p] < melhor)) {
+                        melhor = custosTermo[p];
+                    }
+                }
+                if (melhor < 0) {
+                    soma = -1;
+                    break;
+                }
+                soma += melhor;
+            }
+            if (soma >= 0) {
+                achados.add(new long[]{soma, Math.min(255, palavrasLinha[i].length), i});
+            }
+        }
+        // Menos erros, menos prefixos, menos palavras no nome; depois a ordem (município, CNES) das linhas
+        achados.sort(Comparator.<long[]>comparingLong(a -> a[0]).thenComparingLong(a -> a[1]).thenComparingLong(a -> a[2]));
+
+        if (obtido.getTotalEncontrados() != achados.size()) {
+            return "totalEncontrados " + obtido.getTotalEncontrados() + " em vez de " + achados.size();
+        }
+        EstabelecimentoEncontrado[] itens = obtido.getEstabelecimentos();
+        int esperados = Math.min(quantidade, achados.size());
+        if (itens.length != esperados) {
+            return "devolveu " + itens.length + " em vez de " + esperados;
+        }
+        for (int j = 0; j < itens.length; j++) {
+            long[] esperado = achados.get(j);
+            int i = (int) esperado[2];
+            EstabelecimentoEncontrado item = itens[j];
+            if (!item.getEstabelecimento().getCnes().equals(cnes[i])) {
+                return "posição " + j + ": CNES " + item.getEstabelecimento().getCnes() + " em vez de " + cnes[i]
+                        + " (" + nomesOriginais[i] + ", custo " + esperado[0] + ")";
+            }
+            if (item.isAproximado() != (esperado[0] >= ERRO)) {
+                return "posição " + j + ": aproximado=" + item.isAproximado() + " com custo " + esperado[0];
+            }
+            if (item.getMunicipioId() / 10 != municipios[i]
+                    || !CodigosIbge.siglaUF(municipios[i] / 10_000).equals(item.getUfSigla())) {
+                return "posição " + j + ": município " + item.getMunicipioId() + "/" + item.getUfSigla()
+                        + " em vez de " + municipios[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Custo da palavra do termo contra uma palavra do nome: 0 igual, 1
+     * prefixo; com erros de digitação (1 a partir de 4 letras, 2 a partir de
+     * 7), 16 por erro contra a palavra inteira ou 16 por erro + 1 contra um
+     * prefixo dela, o menor dos dois; -1 se não corresponde
+     */
+    private static int custo(String termo, String palavra) {
+        if (palavra.equals(termo)) {
+            return 0;
+        }
+        if (palavra.startsWith(termo)) {
+            return 1;
+        }
+        int erros = termo.length() <= 3 ? 0 : termo.length() <= 6 ? 1 : 2;
+        int melhor = -1;
+        for (int j = 0; j <= palavra.length(); j++) {
+            int distancia = levenshtein(termo, palavra.substring(0, j));
+            if (distancia > erros) {
+                continue;
+            }
+            int custo = distancia * ERRO + (j == palavra.length() ? 0 : 1);
+            if (melhor < 0 || custo < melhor) {
+                melhor = custo;
+            }
+        }
+        return melhor;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int substituicao = d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                d[i][j] = Math.min(substituicao, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static List<Object[]> lerNomes() throws SQLException {
+        List<Object[]> linhas = new ArrayList<>();
+        try (Connection conn = DatabaseConnector.connect();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT cnes, ibge_municipio, nome, eh_ubs FROM ubs_estabelecimentos "
+                     + "ORDER BY ibge_municipio, cnes")) {
+            while (rs.next()) {
+                String nome = rs.getString(3);
+                int ehUbs = rs.getInt(4);
+                // Mesmo critério do snapshot: sem eh_ubs, classifica pelo nome
+                boolean ubs = rs.wasNull() ? ClassificadorEstabelecimento.ehUbs(nome) : ehUbs != 0;
+                linhas.add(new Object[]{rs.getString(1), rs.getInt(2), nome, ubs});
+            }
+        }
+        return linhas;
+    }
+}
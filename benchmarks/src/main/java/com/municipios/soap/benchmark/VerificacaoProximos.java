@@ -0,0 +1,172 @@
+package com.municipios.soap.benchmark;
+
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.cache.IndiceEspacial;
+import com.municipios.soap.database.DatabaseConnector;
+import com.municipios.soap.model.EstabelecimentoProximo;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Confere o IndiceEspacial com uma busca exaustiva: para cada consulta
+ * aleatória calcula a distância a todos os estabelecimentos com coordenadas
+ * lidos do BD e exige que o índice devolva os mesmos K mais próximos. Cobre
+ * a paragem antecipada pelos anéis da grelha (distanciaMinimaKm), os filtros
+ * de tipo e de raio e origens longe de qualquer estabelecimento.
+ *
+ * Ex: java -cp target/benchmarks.jar com.municipios.soap.benchmark.VerificacaoProximos [consultas]
+ */
+public class VerificacaoProximos {
+
+    private static final double RAIO_TERRA_KM = 6371.0088;
+
+    private static final int[] QUANTIDADES = {1, 10, 100};
+    private static final double[] RAIOS_KM = {0, 5, 25, 200};
+
+    private final String[] cnes;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final boolean[] ehUbs;
+
+    private VerificacaoProximos(List<Object[]> linhas) {
+        int n = linhas.size();
+        cnes = new String[n];
+        latitudes = new double[n];
+        longitudes = new double[n];
+        ehUbs = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Object[] linha = linhas.get(i);
+            cnes[i] = (String) linha[0];
+            latitudes[i] = (Double) linha[1];
+            longitudes[i] = (Double) linha[2];
+            ehUbs[i] = (Boolean) linha[3];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int consultas = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        AmbienteLocal.iniciar();
+        CacheEstabelecimentos cache = new CacheEstabelecimentos();
+        if (!cache.recarregar()) {
+            throw new IllegalStateException("Falha ao carregar o snapshot");
+        }
+        IndiceEspacial indice = cache.atual().getIndiceEspacial();
+        VerificacaoProximos verificacao = new VerificacaoProximos(lerCoordenadas());
+
+        Random random = new Random(17);
+        int falhas = 0;
+        for (int q = 0; q < consultas; q++) {
+            double latitude;
+            double longitude;
+            if (q % 2 == 0) {
+                // Origem qualquer no retângulo dos dados (muitas longe de tudo)
+                latitude = -35 + random.nextDouble() * 40;
+                longitude = -75 + random.nextDouble() * 45;
+            } else {
+                // Perto de um estabelecimento, onde as células vizinhas decidem o resultado
+                int i = random.nextInt(verificacao.cnes.length);
+                latitude = Math.max(-90, Math.min(90, verificacao.latitudes[i] + random.nextGaussian() * 0.05));
+                longitude = Math.max(-180, Math.min(180, verificacao.longitudes[i] + random.nextGaussian() * 0.05));
+            }
+            int quantidade = QUANTIDADES[random.nextInt(QUANTIDADES.length)];
+            double raioKm = RAIOS_KM[random.nextInt(RAIOS_KM.length)];
+            Boolean apenasUbs = switch (random.nextInt(3)) {
+                case 0 -> null;
+                case 1 -> Boolean.TRUE;
+                default -> Boolean.FALSE;
+            };
+
+            EstabelecimentoProximo[] obtidos = indice.buscar(latitude, longitude, quantidade, raioKm, apenasUbs);
+            String erro = verificacao.conferir(obtidos, latitude, longitude, quantidade, raioKm, apenasUbs);
+            if (erro != null) {
+                falhas++;
+                System.out.printf("✗ (%.5f, %.5f) k=%d raio=%.0f tipo=%s: %s%n",
+                        latitude, longitude, quantidade, raioKm, apenasUbs, erro);
+            }
+        }
+
+        System.out.printf("%s %,d consultas, %,d estabelecimentos com coordenadas, %,d divergências%n",
+                falhas == 0 ? "✓" : "✗", consultas, verificacao.cnes.length, falhas);
+        System.exit(falhas == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return null se o resultado do índice coincide com a busca exaustiva, senão a diferença
+     */
+    private String conferir(EstabelecimentoProximo[] obtidos, double latitude, double longitude,
+                            int quantidade, double raioKm, Boolean apenasUbs) {
+        double raio = raioKm > 0 ? raioKm : Double.POSITIVE_INFINITY;
+        Map<String, Double> distancias = new HashMap<>();
+        List<Double> todas = new ArrayList<>();
+        for (int i = 0; i < cnes.length; i++) {
+            if (apenasUbs != null && ehUbs[i] != apenasUbs) {
+                continue;
+            }
+            double distancia = haversineKm(latitude, longitude, latitudes[i], longitudes[i]);
+            if (distancia <= raio) {
+                distancias.put(cnes[i], distancia);
+                todas.add(distancia);
+            }
+        }
+        double[] esperadas = todas.stream().mapToDouble(Double::doubleValue).sorted()
+                .limit(quantidade).map(VerificacaoProximos::metros).toArray();
+
+        if (obtidos.length != esperadas.length) {
+            return "devolveu " + obtidos.length + " em vez de " + esperadas.length;
+        }
+        double[] devolvidas = Arrays.stream(obtidos).mapToDouble(EstabelecimentoProximo::getDistanciaKm).toArray();
+        // Empates na distância podem trocar qual CNES entra, mas nunca as distâncias
+        if (!Arrays.equals(devolvidas, esperadas)) {
+            return "distâncias " + Arrays.toString(devolvidas) + " em vez de " + Arrays.toString(esperadas);
+        }
+        for (EstabelecimentoProximo obtido : obtidos) {
+            Double distancia = distancias.get(obtido.getEstabelecimento().getCnes());
+            if (distancia == null || metros(distancia) != obtido.getDistanciaKm()) {
+                return "CNES " + obtido.getEstabelecimento().getCnes() + " fora do filtro ou com distância errada";
+            }
+        }
+        return null;
+    }
+
+    private static List<Object[]> lerCoordenadas() throws SQLException {
+        List<Object[]> linhas = new ArrayList<>();
+        try (Connection conn = DatabaseConnector.connect();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT cnes, latitude, longitude, eh_ubs FROM ubs_estabelecimentos "
+                     + "WHERE latitude IS NOT NULL AND longitude IS NOT NULL")) {
+            while (rs.next()) {
+                double latitude = rs.getDouble(2);
+                double longitude = rs.getDouble(3);
+                // Mesmo critério do índice: 0,0 e valores fora da faixa não são coordenadas
+                if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180 || (latitude == 0 && longitude == 0)) {
+                    continue;
+                }
+                linhas.add(new Object[]{rs.getString(1), latitude, longitude, rs.getInt(4) == 1});
+            }
+        }
+        return linhas;
+    }
+
+    // Mesma fórmula e mesma ordem das operações do índice, para não divergir no arredondamento ao metro
+    private static double haversineKm(double latitude0, double longitude0, double latitude, double longitude) {
+        double lat1 = Math.toRadians(latitude0);
+        double lat2 = Math.toRadians(latitude);
+        double senoLat = Math.sin((lat2 - lat1) / 2);
+        double senoLon = Math.sin((Math.toRadians(longitude) - Math.toRadians(longitude0)) / 2);
+        double a = senoLat * senoLat + Math.cos(lat1) * Math.cos(lat2) * senoLon * senoLon;
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double metros(double km) {
+        return Math.round(km * 1000) / 1000.0;
+    }
+}
@@ -1,8 +1,10 @@
 package com.municipios.cliente;
 
 import com.municipios.cliente.ws.*;
+import com.municipios.cliente.carga.GeradorCarga;
 import com.municipios.cliente.ws.Ubs;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
@@ -16,6 +18,12 @@ public class ClienteTerminal {
     private static final String NAMESPACE = "http://soap.municipios.com/";
     private static final String SERVICE_NAME = "MunicipioWebServiceImplService";
 
+    // Estabelecimentos por página na tela de UBS (cada um consulta também o CEP)
+    private static final int TAMANHO_PAGINA = 10;
+
+    // Sugestões pedidas a autocompletarMunicipios quando se digita parte de um nome
+    private static final int SUGESTOES_MUNICIPIO = 15;
+
     // Cores ANSI para terminal
     private static final String RESET = "\u001B[0m";
     private static final String BOLD = "\u001B[1m";
@@ -55,6 +63,7 @@ public class ClienteTerminal {
 
             MunicipioWebServiceImplService serviceFactory = new MunicipioWebServiceImplService();
             this.service = serviceFactory.getMunicipioWebServiceImplPort();
+            Codificacao.configurar(this.service);
 
             System.out.println(GREEN + BOLD + "\n  " + CHECK + " Conectado ao serviço SOAP com sucesso!" + RESET);
             Thread.sleep(800);
@@ -140,7 +149,8 @@ public class ClienteTerminal {
     }
 
     /**
-     * Tela inicial - Seleção de UF
+     * Tela inicial - Seleção de UF ou busca de município pelo nome.
+     * Devolve a UF (2 letras) ou o começo do nome digitado.
      */
     private String telaInicial() {
         limparTela();
@@ -158,34 +168,40 @@ public class ClienteTerminal {
         System.out.println(WHITE_BRIGHT + BOLD + "            Sistema de Consulta de Municípios e Unidades de Saúde" + RESET);
         printDoubleSeparator();
 
-        System.out.println(YELLOW + "\n  " + INFO + " Digite a sigla do Estado (UF) para consultar os municípios" + RESET);
+        System.out.println(YELLOW + "\n  " + INFO + " Digite a sigla do Estado (UF) para consultar os municípios," + RESET);
+        System.out.println(YELLOW + "    ou o começo do nome do município para ir direto a ele" + RESET);
         System.out.println(BLUE + "  " + BULLET + " Exemplos: " + WHITE_BRIGHT + "AM, SP, RJ, MG, BA, RS, PR, SC" + RESET);
+        System.out.println(BLUE + "  " + BULLET + " Exemplos: " + WHITE_BRIGHT + "manaus, sao jose do r, feira" + RESET);
 
         printSeparator();
-        System.out.print(GREEN + BOLD + "\n  " + ARROW + " UF: " + RESET);
-        String uf = scanner.nextLine().trim().toUpperCase();
+        System.out.print(GREEN + BOLD + "\n  " + ARROW + " UF ou município: " + RESET);
+        String entrada = scanner.nextLine().trim();
 
-        if (uf.length() != 2) {
-            System.out.println(RED + "\n  " + CROSS + " UF inválida! Digite apenas 2 letras." + RESET);
+        if (entrada.length() < 2) {
+            System.out.println(RED + "\n  " + CROSS + " Digite as 2 letras da UF ou pelo menos 3 letras do nome." + RESET);
             System.out.print(YELLOW + "\n  Pressione ENTER para continuar..." + RESET);
             scanner.nextLine();
             return telaInicial();
         }
 
-        return uf;
+        return entrada.length() == 2 ? entrada.toUpperCase() : entrada;
     }
 
     /**
-     * Tela de listagem de municípios
+     * Tela de listagem de municípios: os da UF (entrada com 2 letras) ou
+     * as sugestões de autocompletarMunicipios para o começo do nome
      */
-    private Municipio telaMunicipios(String uf) {
+    private Municipio telaMunicipios(String entrada) {
+        boolean porUF = entrada.length() == 2;
         limparTela();
-        exibirCabecalho("MUNICÍPIOS DO ESTADO: " + uf);
+        exibirCabecalho(porUF ? "MUNICÍPIOS DO ESTADO: " + entrada : "MUNICÍPIOS COM \"" + entrada + "\"");
 
         aguardarComAnimacao("Buscando municípios");
 
         try {
-            MunicipioArray municipioArray = service.listarMunicipiosPorUF(uf);
+            MunicipioArray municipioArray = porUF
+                    ? service.listarMunicipiosPorUF(entrada)
+                    : service.autocompletarMunicipios(entrada, SUGESTOES_MUNICIPIO);
             List<Municipio> municipios = municipioArray.getItem();
 
             if (municipios == null || municipios.isEmpty()) {
@@ -202,9 +218,10 @@ public class ClienteTerminal {
             // Exibe lista numerada com cores alternadas
             for (int i = 0; i < municipios.size(); i++) {
                 String cor = (i % 2 == 0) ? CYAN : BLUE;
+                Municipio municipio = municipios.get(i);
                 System.out.printf(cor + "  %3d" + RESET + " " + BULLET + " " +
                                 WHITE_BRIGHT + "%s" + RESET + "%n",
-                        (i + 1), municipios.get(i).getNome());
+                        (i + 1), porUF ? municipio.getNome() : municipio.getNome() + " - " + municipio.getUfSigla());
             }
 
             printDoubleSeparator();
@@ -223,13 +240,13 @@ public class ClienteTerminal {
                     System.out.println(RED + "\n  " + CROSS + " Número inválido!" + RESET);
                     System.out.print(YELLOW + "\n  Pressione ENTER para continuar..." + RESET);
                     scanner.nextLine();
-                    return telaMunicipios(uf);
+                    return telaMunicipios(entrada);
                 }
             } catch (NumberFormatException e) {
                 System.out.println(RED + "\n  " + CROSS + " Digite apenas números!" + RESET);
                 System.out.print(YELLOW + "\n  Pressione ENTER para continuar..." + RESET);
                 scanner.nextLine();
-                return telaMunicipios(uf);
+                return telaMunicipios(entrada);
             }
 
         } catch (Exception e) {
@@ -303,7 +320,8 @@ public class ClienteTerminal {
     }
 
     /**
-     * Tela de dados de UBS do município
+     * Tela de dados de UBS do município.
+     * Os estabelecimentos são pedidos ao servidor uma página de cada vez.
      */
     private void telaUBS(Municipio municipio) {
         limparTela();
@@ -312,13 +330,13 @@ public class ClienteTerminal {
         aguardarComAnimacao("Buscando dados de UBS");
 
         try {
-            DadosUBS dadosUBS = service.listarUBSMunicipio(
-                    municipio.getId(),
-                    municipio.getNome()
-            );
+            String tipo = "";
+            PaginaEstabelecimentos pagina = service.listarEstabelecimentosPaginado(
+                    municipio.getId(), tipo, TAMANHO_PAGINA, "");
 
-            if (dadosUBS == null) {
-                System.out.println(RED + "  " + CROSS + " Erro ao obter dados de UBS." + RESET);
+            if (pagina == null || pagina.getErro() != null) {
+                String motivo = pagina != null ? ": " + pagina.getErro() : ".";
+                System.out.println(RED + "  " + CROSS + " Erro ao obter dados de UBS" + motivo + RESET);
                 System.out.print(YELLOW + "\n  Pressione ENTER para continuar..." + RESET);
                 scanner.nextLine();
                 return;
@@ -328,61 +346,54 @@ public class ClienteTerminal {
             System.out.println(MAGENTA + BOLD + "  " + STAR + " RESUMO GERAL" + RESET);
             printSeparator();
             System.out.printf(CYAN + "  %-30s" + RESET + WHITE_BRIGHT + BOLD + "%8d" + RESET + "\n",
-                    "Total de UBS:", dadosUBS.getTotalUbs());
+                    "Total de UBS:", pagina.getTotalUbs());
             System.out.printf(GREEN + "  %-30s" + RESET + WHITE_BRIGHT + BOLD + "%8d" + RESET + "\n",
-                    "Total de Médicos:", dadosUBS.getTotalMedicos());
+                    "Total de Médicos:", pagina.getTotalMedicos());
             System.out.printf(BLUE + "  %-30s" + RESET + WHITE_BRIGHT + BOLD + "%8d" + RESET + "\n",
-                    "Total de Enfermeiros:", dadosUBS.getTotalEnfermeiros());
+                    "Total de Enfermeiros:", pagina.getTotalEnfermeiros());
 
             printDoubleSeparator();
 
-            // Lista de UBS
-            List<Ubs> listaUbs = dadosUBS.getListaUbs();
-            if (listaUbs != null && !listaUbs.isEmpty()) {
-                System.out.println(MAGENTA + BOLD + "\n  " + STAR + " LISTAGEM COMPLETA DE UBS" + RESET + "\n");
-
-                for (int i = 0; i < listaUbs.size(); i++) {
-                    Ubs ubs = listaUbs.get(i);
-
-                    printSeparator();
-                    System.out.println(CYAN + BOLD + "\n  [" + (i + 1) + "] " + WHITE_BRIGHT + ubs.getNome() + RESET);
-                    System.out.println(BLUE + "      " + BULLET + " CNES: " + RESET + ubs.getCnes());
-
-                    // Consulta endereço pelo CEP
-                    if (ubs.getCep() != null && !ubs.getCep().equals("00000-000")) {
-                        try {
-                            Endereco endereco = service.consultarCEP(ubs.getCep());
-                            if (endereco != null && endereco.getLogradouro() != null &&
-                                    !endereco.getLogradouro().isEmpty() &&
-                                    !endereco.getLogradouro().startsWith("Erro") &&
-                                    !endereco.getLogradouro().equals("CEP não encontrado")) {
-                                System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + endereco.getLogradouro());
-                                if (endereco.getBairro() != null && !endereco.getBairro().isEmpty()) {
-                                    System.out.println(GREEN + "      " + BULLET + " Bairro: " + RESET + endereco.getBairro());
-                                }
-                                System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + endereco.getCep());
-                                System.out.println(GREEN + "      " + BULLET + " Cidade: " + RESET +
-                                        endereco.getLocalidade() + " - " + endereco.getUf());
-                            } else {
-                                System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + ubs.getEndereco());
-                                System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + ubs.getCep());
-                            }
-                        } catch (Exception e) {
-                            System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + ubs.getEndereco());
-                            System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + ubs.getCep());
-                        }
-                    } else {
-                        System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + ubs.getEndereco());
-                        System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + ubs.getCep());
-                    }
+            if (pagina.getEstabelecimentos().isEmpty()) {
+                System.out.println(YELLOW + "\n  " + WARNING + " Nenhuma UBS encontrada para este município." + RESET);
+            }
 
-                    System.out.println(YELLOW + "      " + BULLET + " Coordenadas: " + RESET +
-                            "Lat " + ubs.getLatitude() + ", Long " + ubs.getLongitude());
+            int exibidos = 0;
+            while (!pagina.getEstabelecimentos().isEmpty()) {
+                System.out.println(MAGENTA + BOLD + "\n  " + STAR + " ESTABELECIMENTOS (" + descricaoTipo(tipo) + "): "
+                        + (exibidos + 1) + " a " + (exibidos + pagina.getEstabelecimentos().size())
+                        + " de " + pagina.getTotalEstabelecimentos() + RESET + "\n");
+                for (Ubs ubs : pagina.getEstabelecimentos()) {
+                    exibirEstabelecimento(++exibidos, ubs);
                 }
-
                 printDoubleSeparator();
-            } else {
-                System.out.println(YELLOW + "\n  " + WARNING + " Nenhuma UBS encontrada para este município." + RESET);
+
+                boolean haMais = pagina.getProximoCursor() != null;
+                System.out.println(WHITE_BRIGHT + "\n  " + (haMais ? "[ENTER] Próxima página  " : "")
+                        + "[T] Todos  [U] Só UBS  [O] Outros  [0] Voltar" + RESET);
+                System.out.print(YELLOW + BOLD + "  " + ARROW + " Opção: " + RESET);
+                String opcao = scanner.nextLine().trim().toUpperCase();
+
+                String cursor;
+                if (opcao.isEmpty() && haMais) {
+                    cursor = pagina.getProximoCursor();
+                } else if (opcao.equals("T") || opcao.equals("U") || opcao.equals("O")) {
+                    tipo = opcao.equals("U") ? "UBS" : opcao.equals("O") ? "OUTROS" : "";
+                    cursor = "";
+                    exibidos = 0;
+                } else {
+                    return;
+                }
+
+                aguardarComAnimacao("Buscando estabelecimentos");
+                pagina = service.listarEstabelecimentosPaginado(municipio.getId(), tipo, TAMANHO_PAGINA, cursor);
+                if (pagina.getErro() != null) {
+                    System.out.println(RED + "  " + CROSS + " Erro ao obter estabelecimentos: " + pagina.getErro() + RESET);
+                    break;
+                }
+                if (pagina.getEstabelecimentos().isEmpty()) {
+                    System.out.println(YELLOW + "\n  " + WARNING + " Nenhum estabelecimento deste tipo." + RESET);
+                }
             }
 
             System.out.println(YELLOW + "\n  " + WARNING + " NOTA: Dados do CNES (Cadastro Nacional de Estabelecimentos de Saúde)" + RESET);
@@ -397,6 +408,57 @@ public class ClienteTerminal {
         }
     }
 
+    private static String descricaoTipo(String tipo) {
+        switch (tipo) {
+            case "UBS":
+                return "só UBS";
+            case "OUTROS":
+                return "outros";
+            default:
+                return "todos";
+        }
+    }
+
+    /**
+     * Exibe um estabelecimento, com o endereço completado pelo ViaCEP quando possível
+     */
+    private void exibirEstabelecimento(int numero, Ubs ubs) {
+        printSeparator();
+        System.out.println(CYAN + BOLD + "\n  [" + numero + "] " + WHITE_BRIGHT + ubs.getNome() + RESET);
+        System.out.println(BLUE + "      " + BULLET + " CNES: " + RESET + ubs.getCnes());
+
+        // Consulta endereço pelo CEP
+        if (ubs.getCep() != null && !ubs.getCep().equals("00000-000")) {
+            try {
+                Endereco endereco = service.consultarCEP(ubs.getCep());
+                if (endereco != null && endereco.getLogradouro() != null &&
+                        !endereco.getLogradouro().isEmpty() &&
+                        !endereco.getLogradouro().startsWith("Erro") &&
+                        !endereco.getLogradouro().equals("CEP não encontrado")) {
+                    System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + endereco.getLogradouro());
+                    if (endereco.getBairro() != null && !endereco.getBairro().isEmpty()) {
+                        System.out.println(GREEN + "      " + BULLET + " Bairro: " + RESET + endereco.getBairro());
+                    }
+                    System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + endereco.getCep());
+                    System.out.println(GREEN + "      " + BULLET + " Cidade: " + RESET +
+                            endereco.getLocalidade() + " - " + endereco.getUf());
+                } else {
+                    System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + ubs.getEndereco());
+                    System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + ubs.getCep());
+                }
+            } catch (Exception e) {
+                System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + ubs.getEndereco());
+                System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + ubs.getCep());
+            }
+        } else {
+            System.out.println(GREEN + "      " + BULLET + " Endereço: " + RESET + ubs.getEndereco());
+            System.out.println(GREEN + "      " + BULLET + " CEP: " + RESET + ubs.getCep());
+        }
+
+        System.out.println(YELLOW + "      " + BULLET + " Coordenadas: " + RESET +
+                "Lat " + ubs.getLatitude() + ", Long " + ubs.getLongitude());
+    }
+
     /**
      * Menu de opções para o município selecionado
      */
@@ -436,11 +498,11 @@ public class ClienteTerminal {
      */
     public void executar() {
         while (true) {
-            // 1. Seleciona UF
-            String uf = telaInicial();
+            // 1. Seleciona UF ou digita o começo do nome
+            String entrada = telaInicial();
 
-            // 2. Lista municípios e seleciona um
-            Municipio municipio = telaMunicipios(uf);
+            // 2. Lista municípios (da UF ou sugeridos) e seleciona um
+            Municipio municipio = telaMunicipios(entrada);
 
             if (municipio != null) {
                 // 3. Menu do município
@@ -474,6 +536,18 @@ public class ClienteTerminal {
      * Método principal
      */
     public static void main(String[] args) {
+        // Modo sem interface: java -jar soap-cliente-1.0.0.jar carga
+        if (args.length > 0 && args[0].equals("carga")) {
+            try {
+                GeradorCarga.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (Exception e) {
+                System.err.println(RED + BOLD + "\n  " + CROSS + " Erro no gerador de carga: " + e.getMessage() + RESET);
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+
         try {
             ClienteTerminal cliente = new ClienteTerminal();
             cliente.executar();
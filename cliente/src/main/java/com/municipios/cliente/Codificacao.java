@@ -0,0 +1,68 @@
+package com.municipios.cliente;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.MessageContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codificação das mensagens nas portas SOAP do cliente: compressão gzip e
+ * Fast Infoset (XML binário). Sem propriedades, só se pede gzip nas
+ * respostas; as mensagens continuam em SOAP/XML.
+ *
+ * O transporte HTTP do JAX-WS já descomprime respostas com
+ * "Content-Encoding: gzip" e comprime o corpo do pedido quando esse mesmo
+ * cabeçalho é posto no pedido; aqui só se acrescentam os cabeçalhos.
+ *
+ * Com Fast Infoset, o primeiro pedido segue em XML com
+ * "Accept: application/fastinfoset"; se o servidor responder em Fast
+ * Infoset, a porta passa a enviar os pedidos seguintes também nesse formato
+ * (negociação "pessimistic" do JAX-WS). Um servidor sem suporte continua a
+ * responder em XML e nada muda.
+ *
+ * soap.gzip          pede respostas comprimidas (true)
+ * soap.gzip.pedidos  comprime também o corpo dos pedidos (false; compensa
+ *                    nas operações em lote com muitos códigos)
+ * soap.fastinfoset   negocia Fast Infoset (false)
+ */
+public final class Codificacao {
+
+    private static final boolean RESPOSTAS = Boolean.parseBoolean(System.getProperty("soap.gzip", "true"));
+    private static final boolean PEDIDOS = Boolean.getBoolean("soap.gzip.pedidos");
+    private static final boolean FAST_INFOSET = Boolean.getBoolean("soap.fastinfoset");
+
+    // ContentNegotiation.PROPERTY do JAX-WS RI
+    private static final String NEGOCIACAO = "com.sun.xml.ws.client.ContentNegotiation";
+
+    private Codificacao() {
+    }
+
+    public static void configurar(Object porta) {
+        Map<String, Object> contexto = ((BindingProvider) porta).getRequestContext();
+        if (FAST_INFOSET) {
+            contexto.put(NEGOCIACAO, "pessimistic");
+        }
+        if (!RESPOSTAS && !PEDIDOS) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, List<String>> existentes = (Map<String, List<String>>) contexto.get(MessageContext.HTTP_REQUEST_HEADERS);
+        Map<String, List<String>> cabecalhos = existentes != null ? new HashMap<>(existentes) : new HashMap<>();
+        if (RESPOSTAS) {
+            cabecalhos.put("Accept-Encoding", Collections.singletonList("gzip"));
+        }
+        if (PEDIDOS) {
+            cabecalhos.put("Content-Encoding", new ArrayList<>(Collections.singletonList("gzip")));
+        }
+        contexto.put(MessageContext.HTTP_REQUEST_HEADERS, cabecalhos);
+    }
+
+    public static String descricao() {
+        return (FAST_INFOSET ? "Fast Infoset" : "XML")
+                + ", respostas " + (RESPOSTAS ? "gzip" : "sem compressão")
+                + ", pedidos " + (PEDIDOS ? "gzip" : "sem compressão");
+    }
+}
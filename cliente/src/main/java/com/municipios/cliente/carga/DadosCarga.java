@@ -0,0 +1,99 @@
+package com.municipios.cliente.carga;
+
+import com.municipios.cliente.ws.DadosUBS;
+import com.municipios.cliente.ws.Municipio;
+import com.municipios.cliente.ws.MunicipioWebService;
+import com.municipios.cliente.ws.Ubs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Parâmetros reais para as chamadas da carga: UFs, códigos IBGE dos
+ * municípios e CEPs de estabelecimentos, obtidos do próprio servidor antes
+ * do início da medição.
+ */
+final class DadosCarga {
+
+    private static final String[] UFS = {
+            "AC", "AL", "AM", "AP", "BA", "CE", "DF", "ES", "GO", "MA", "MG", "MS", "MT", "PA",
+            "PB", "PE", "PI", "PR", "RJ", "RN", "RO", "RR", "RS", "SC", "SE", "SP", "TO"
+    };
+
+    // Municípios consultados para recolher CEPs de estabelecimentos
+    private static final int MUNICIPIOS_PARA_CEPS = 30;
+    private static final int MAXIMO_CEPS = 2000;
+
+    // Praça da Sé (SP), usado se nenhum estabelecimento tiver CEP
+    private static final String CEP_RESERVA = "01001000";
+
+    private final int[] municipios;
+    private final String[] ceps;
+
+    private DadosCarga(int[] municipios, String[] ceps) {
+        this.municipios = municipios;
+        this.ceps = ceps;
+    }
+
+    /**
+     * Lista os municípios de todas as UFs e recolhe CEPs dos estabelecimentos
+     * de uma amostra deles.
+     */
+    static DadosCarga preparar(MunicipioWebService servico, Random aleatorio) {
+        List<Integer> ids = new ArrayList<>();
+        for (String uf : UFS) {
+            for (Municipio municipio : servico.listarMunicipiosPorUF(uf).getItem()) {
+                ids.add(municipio.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("O servidor não devolveu nenhum município");
+        }
+
+        List<Integer> amostra = new ArrayList<>(ids);
+        Collections.shuffle(amostra, aleatorio);
+        Set<String> ceps = new LinkedHashSet<>();
+        for (Integer id : amostra.subList(0, Math.min(MUNICIPIOS_PARA_CEPS, amostra.size()))) {
+            DadosUBS dados = servico.listarUBSMunicipio(id, "");
+            for (Ubs ubs : dados.getListaUbs()) {
+                String cep = ubs.getCep() != null ? ubs.getCep().replaceAll("\\D", "") : "";
+                if (cep.length() == 8 && ceps.size() < MAXIMO_CEPS) {
+                    ceps.add(cep);
+                }
+            }
+        }
+        if (ceps.isEmpty()) {
+            ceps.add(CEP_RESERVA);
+        }
+
+        int[] municipios = new int[ids.size()];
+        for (int i = 0; i < municipios.length; i++) {
+            municipios[i] = ids.get(i);
+        }
+        return new DadosCarga(municipios, ceps.toArray(new String[0]));
+    }
+
+    String uf(Random aleatorio) {
+        return UFS[aleatorio.nextInt(UFS.length)];
+    }
+
+    int municipio(Random aleatorio) {
+        return municipios[aleatorio.nextInt(municipios.length)];
+    }
+
+    String cep(Random aleatorio) {
+        return ceps[aleatorio.nextInt(ceps.length)];
+    }
+
+    int getTotalMunicipios() {
+        return municipios.length;
+    }
+
+    int getTotalCeps() {
+        return ceps.length;
+    }
+}
@@ -0,0 +1,315 @@
+package com.municipios.cliente.carga;
+
+import com.municipios.cliente.Codificacao;
+import com.municipios.cliente.ws.MunicipioWebService;
+import com.municipios.cliente.ws.MunicipioWebServiceImplService;
+import org.HdrHistogram.Histogram;
+
+import javax.xml.ws.BindingProvider;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga sem interface para o servidor SOAP.
+ *
+ * Modelo aberto com taxa fixa: o pedido n tem hora marcada para
+ * inicio + n / taxa, independentemente de os anteriores já terem terminado.
+ * Os workers vão buscar o próximo pedido a uma sequência partilhada; se
+ * estiverem todos ocupados, os pedidos seguintes saem atrasados e a latência
+ * é medida a partir da hora marcada, não da hora de envio. Assim a espera
+ * causada por um servidor lento entra nos percentis (correção de
+ * coordinated omission), em vez de simplesmente reduzir o número de amostras.
+ *
+ * Configuração por propriedades do sistema:
+ * <pre>
+ * soap.url              endereço do serviço (http://localhost:8080/ws/municipios)
+ * carga.taxa            pedidos por segundo (100)
+ * carga.workers         chamadas em simultâneo no máximo (32)
+ * carga.duracaoS        duração da medição em segundos (60)
+ * carga.aquecimentoS    segundos iniciais descartados (10)
+ * carga.mix             proporção das operações (ver MixOperacoes.PADRAO)
+ * carga.timeoutMs       timeout de conexão e de leitura por chamada (10000)
+ * carga.semente         semente da escolha de municípios e CEPs (42)
+ * soap.gzip             pede respostas comprimidas (true, ver Codificacao)
+ * soap.gzip.pedidos     comprime também os pedidos (false)
+ * soap.fastinfoset      negocia Fast Infoset em vez de XML (false)
+ * </pre>
+ */
+public class GeradorCarga {
+
+    private static final String URL_SERVICO = System.getProperty("soap.url", "http://localhost:8080/ws/municipios");
+    private static final double TAXA = Double.parseDouble(System.getProperty("carga.taxa", "100"));
+    private static final int WORKERS = Integer.getInteger("carga.workers", 32);
+    private static final int DURACAO_S = Integer.getInteger("carga.duracaoS", 60);
+    private static final int AQUECIMENTO_S = Integer.getInteger("carga.aquecimentoS", 10);
+    private static final String MIX = System.getProperty("carga.mix", MixOperacoes.PADRAO);
+    private static final int TIMEOUT_MS = Integer.getInteger("carga.timeoutMs", 10000);
+    private static final long SEMENTE = Long.getLong("carga.semente", 42L);
+
+    // Latências registadas em microssegundos; acima disto ficam no limite
+    private static final long LATENCIA_MAXIMA_US = TimeUnit.MINUTES.toMicros(10);
+    private static final int INTERVALO_PROGRESSO_S = 5;
+
+    private static final double[] PERCENTIS = {50, 95, 99, 99.9};
+
+    private final MixOperacoes mix;
+    private final DadosCarga dados;
+    private final long periodoNanos;
+
+    private final AtomicLong sequencia = new AtomicLong();
+    private final LongAdder concluidas = new LongAdder();
+    private final LongAdder falhadas = new LongAdder();
+
+    private long inicio;
+    private long inicioMedicao;
+    private long fim;
+
+    private GeradorCarga(MixOperacoes mix, DadosCarga dados) {
+        this.mix = mix;
+        this.dados = dados;
+        this.periodoNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / TAXA));
+    }
+
+    public static void main(String[] args) throws Exception {
+        // O HttpURLConnection usado pelo JAX-WS só reaproveita 5 conexões por
+        // servidor; com mais workers do que isso, o resto abriria uma conexão por pedido
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(WORKERS));
+        }
+
+        MixOperacoes mix = MixOperacoes.ler(MIX);
+        System.out.println("======================================================================");
+        System.out.println("  GERADOR DE CARGA - SERVIDOR SOAP");
+        System.out.println("======================================================================");
+        System.out.println("Serviço:     " + URL_SERVICO);
+        System.out.printf("Taxa:        %.1f pedidos/s com até %d workers%n", TAXA, WORKERS);
+        System.out.printf("Duração:     %ds (+%ds de aquecimento)%n", DURACAO_S, AQUECIMENTO_S);
+        System.out.println("Mix:         " + mix);
+        System.out.println("Codificação: " + Codificacao.descricao());
+        System.out.println();
+
+        MunicipioWebServiceImplService fabrica = new MunicipioWebServiceImplService(URI.create(URL_SERVICO + "?wsdl").toURL());
+        DadosCarga dados = DadosCarga.preparar(criarPorta(fabrica), new Random(SEMENTE));
+        System.out.printf("✓ Dados de carga: %,d municípios, %,d CEPs%n", dados.getTotalMunicipios(), dados.getTotalCeps());
+
+        new GeradorCarga(mix, dados).executar(fabrica);
+    }
+
+    /**
+     * Uma porta por worker: o contexto de requisição do proxy JAX-WS não é
+     * partilhável entre threads.
+     */
+    private static MunicipioWebService criarPorta(MunicipioWebServiceImplService fabrica) {
+        MunicipioWebService porta = fabrica.getMunicipioWebServiceImplPort();
+        Map<String, Object> contexto = ((BindingProvider) porta).getRequestContext();
+        contexto.put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, URL_SERVICO);
+        contexto.put("com.sun.xml.ws.connect.timeout", TIMEOUT_MS);
+        contexto.put("com.sun.xml.ws.request.timeout", TIMEOUT_MS);
+        Codificacao.configurar(porta);
+        return porta;
+    }
+
+    private void executar(MunicipioWebServiceImplService fabrica) throws InterruptedException {
+        Trabalhador[] trabalhadores = new Trabalhador[WORKERS];
+        for (int i = 0; i < WORKERS; i++) {
+            trabalhadores[i] = new Trabalhador(criarPorta(fabrica));
+        }
+
+        inicio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        inicioMedicao = inicio + TimeUnit.SECONDS.toNanos(AQUECIMENTO_S);
+        fim = inicioMedicao + TimeUnit.SECONDS.toNanos(DURACAO_S);
+
+        Thread[] threads = new Thread[trabalhadores.length];
+        for (int i = 0; i < trabalhadores.length; i++) {
+            threads[i] = new Thread(trabalhadores[i], "carga-" + (i + 1));
+            threads[i].start();
+        }
+
+        Thread progresso = new Thread(this::mostrarProgresso, "carga-progresso");
+        progresso.setDaemon(true);
+        progresso.start();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        progresso.interrupt();
+
+        // Com atraso acumulado, os últimos pedidos terminam depois da hora de fim
+        double duracaoS = Math.max(fim, System.nanoTime()) - inicioMedicao;
+        relatorio(trabalhadores, duracaoS / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void mostrarProgresso() {
+        try {
+            while (true) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(INTERVALO_PROGRESSO_S));
+                long decorrido = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio);
+                // Pedidos com hora marcada já passada mas ainda não enviados
+                long previstos = Math.min(sequenciaAte(System.nanoTime()), sequenciaAte(fim));
+                long pendentes = Math.max(0, previstos - sequencia.get());
+                System.out.printf("  [%4ds] %,d concluídos, %,d erros, %,d em atraso%s%n",
+                        decorrido, concluidas.sum(), falhadas.sum(), pendentes,
+                        decorrido < AQUECIMENTO_S ? " (aquecimento)" : "");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long sequenciaAte(long instante) {
+        return instante <= inicio ? 0 : (instante - inicio) / periodoNanos;
+    }
+
+    private static void esperarAte(long instante) {
+        long falta;
+        while ((falta = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(falta);
+        }
+    }
+
+    private static Histogram novoHistograma() {
+        return new Histogram(LATENCIA_MAXIMA_US, 3);
+    }
+
+    private static long microssegundos(long nanos) {
+        return Math.min(LATENCIA_MAXIMA_US, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Executa pedidos da sequência partilhada até à hora de fim. Os
+     * histogramas são do worker, sem sincronização, e só são juntados no fim.
+     */
+    private final class Trabalhador implements Runnable {
+
+        private final MunicipioWebService servico;
+        // Desde a hora marcada (com a espera por um worker livre)
+        private final Map<Operacao, Histogram> latencia = new EnumMap<>(Operacao.class);
+        // Desde o envio efetivo (o que um gerador sem correção mediria)
+        private final Map<Operacao, Histogram> servicoPuro = new EnumMap<>(Operacao.class);
+        private final Map<Operacao, long[]> erros = new EnumMap<>(Operacao.class);
+        private final Map<Operacao, String> primeiroErro = new EnumMap<>(Operacao.class);
+
+        Trabalhador(MunicipioWebService servico) {
+            this.servico = servico;
+            for (Operacao operacao : Operacao.values()) {
+                latencia.put(operacao, novoHistograma());
+                servicoPuro.put(operacao, novoHistograma());
+                erros.put(operacao, new long[1]);
+            }
+        }
+
+        @Override
+        public void run() {
+            Random aleatorio = ThreadLocalRandom.current();
+            while (true) {
+                long previsto = inicio + sequencia.getAndIncrement() * periodoNanos;
+                if (previsto >= fim) {
+                    return;
+                }
+                esperarAte(previsto);
+
+                Operacao operacao = mix.sortear(aleatorio);
+                long envio = System.nanoTime();
+                boolean sucesso;
+                try {
+                    operacao.executar(servico, dados, aleatorio);
+                    sucesso = true;
+                } catch (RuntimeException e) {
+                    sucesso = false;
+                    primeiroErro.putIfAbsent(operacao, e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+                long termino = System.nanoTime();
+
+                concluidas.increment();
+                if (!sucesso) {
+                    falhadas.increment();
+                }
+                if (previsto < inicioMedicao) {
+                    continue;
+                }
+                if (sucesso) {
+                    latencia.get(operacao).recordValue(microssegundos(termino - previsto));
+                    servicoPuro.get(operacao).recordValue(microssegundos(termino - envio));
+                } else {
+                    erros.get(operacao)[0]++;
+                }
+            }
+        }
+    }
+
+    private void relatorio(Trabalhador[] trabalhadores, double duracaoS) {
+        Histogram total = novoHistograma();
+        Histogram totalServico = novoHistograma();
+        long totalErros = 0;
+
+        System.out.println();
+        System.out.println("======================================================================");
+        System.out.printf("  RESULTADOS (%.1fs de medição, latência em ms desde a hora marcada)%n", duracaoS);
+        System.out.println("======================================================================");
+        System.out.printf("%-30s %8s %7s %9s %8s %8s %8s %8s %8s%n",
+                "Operação", "OK", "Erros", "Req/s", "p50", "p95", "p99", "p99.9", "máx");
+
+        for (Operacao operacao : Operacao.values()) {
+            Histogram latencia = novoHistograma();
+            Histogram servico = novoHistograma();
+            long erros = 0;
+            String primeiroErro = null;
+            for (Trabalhador trabalhador : trabalhadores) {
+                latencia.add(trabalhador.latencia.get(operacao));
+                servico.add(trabalhador.servicoPuro.get(operacao));
+                erros += trabalhador.erros.get(operacao)[0];
+                if (primeiroErro == null) {
+                    primeiroErro = trabalhador.primeiroErro.get(operacao);
+                }
+            }
+            if (latencia.getTotalCount() == 0 && erros == 0) {
+                continue;
+            }
+            linha(operacao.getNome(), latencia, erros, duracaoS);
+            if (primeiroErro != null) {
+                System.out.println("    ✗ " + primeiroErro);
+            }
+            total.add(latencia);
+            totalServico.add(servico);
+            totalErros += erros;
+        }
+
+        System.out.println("----------------------------------------------------------------------");
+        linha("Total", total, totalErros, duracaoS);
+        System.out.printf("%-30s %8s %7s %9s %8s %8s %8s %8s %8s%n", "  sem correção (serviço)", "", "", "",
+                ms(totalServico.getValueAtPercentile(50)), ms(totalServico.getValueAtPercentile(95)),
+                ms(totalServico.getValueAtPercentile(99)), ms(totalServico.getValueAtPercentile(99.9)),
+                ms(totalServico.getMaxValue()));
+
+        double atingida = (total.getTotalCount() + totalErros) / duracaoS;
+        System.out.println();
+        System.out.printf("Taxa atingida: %.1f de %.1f pedidos/s%n", atingida, TAXA);
+        if (atingida < TAXA * 0.95) {
+            System.out.println("⚠ A taxa pedida não foi sustentada: aumente carga.workers ou o servidor está saturado.");
+        }
+        if (totalErros > 0) {
+            System.out.printf("⚠ %,d erros (%.2f%%)%n", totalErros,
+                    100.0 * totalErros / (total.getTotalCount() + totalErros));
+        }
+    }
+
+    private static void linha(String nome, Histogram latencia, long erros, double duracaoS) {
+        System.out.printf("%-30s %,8d %,7d %9.1f", nome, latencia.getTotalCount(), erros,
+                latencia.getTotalCount() / duracaoS);
+        for (double percentil : PERCENTIS) {
+            System.out.printf(" %8s", ms(latencia.getValueAtPercentile(percentil)));
+        }
+        System.out.printf(" %8s%n", ms(latencia.getMaxValue()));
+    }
+
+    private static String ms(long microssegundos) {
+        return String.format("%.2f", microssegundos / 1000.0);
+    }
+}
@@ -0,0 +1,80 @@
+package com.municipios.cliente.carga;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Proporção das operações na carga, no formato
+ * "listarMunicipiosPorUF=20,obterDadosPopulacionais=30,...".
+ * Operações omitidas não são chamadas.
+ */
+final class MixOperacoes {
+
+    static final String PADRAO = "listarMunicipiosPorUF=20,obterDadosPopulacionais=30,"
+            + "listarUBSMunicipio=20,listarEstabelecimentosPorTipo=15,consultarCEP=15";
+
+    private final Map<Operacao, Integer> pesos;
+    private final Operacao[] operacoes;
+    private final int[] acumulado;
+    private final int total;
+
+    private MixOperacoes(Map<Operacao, Integer> pesos) {
+        this.pesos = pesos;
+        this.operacoes = pesos.keySet().toArray(new Operacao[0]);
+        this.acumulado = new int[operacoes.length];
+        int soma = 0;
+        for (int i = 0; i < operacoes.length; i++) {
+            soma += pesos.get(operacoes[i]);
+            acumulado[i] = soma;
+        }
+        this.total = soma;
+    }
+
+    static MixOperacoes ler(String especificacao) {
+        Map<Operacao, Integer> pesos = new EnumMap<>(Operacao.class);
+        for (String parte : especificacao.split(",")) {
+            if (parte.isBlank()) {
+                continue;
+            }
+            String[] chaveValor = parte.split("=");
+            if (chaveValor.length != 2) {
+                throw new IllegalArgumentException("Entrada inválida no mix: " + parte.trim());
+            }
+            int peso = Integer.parseInt(chaveValor[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("Peso negativo no mix: " + parte.trim());
+            }
+            if (peso > 0) {
+                pesos.put(Operacao.porNome(chaveValor[0].trim()), peso);
+            }
+        }
+        if (pesos.isEmpty()) {
+            throw new IllegalArgumentException("O mix não tem nenhuma operação com peso positivo");
+        }
+        return new MixOperacoes(pesos);
+    }
+
+    Operacao sortear(Random aleatorio) {
+        int valor = aleatorio.nextInt(total);
+        for (int i = 0; i < acumulado.length; i++) {
+            if (valor < acumulado[i]) {
+                return operacoes[i];
+            }
+        }
+        return operacoes[operacoes.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Operacao, Integer> entrada : pesos.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entrada.getKey().getNome()).append(' ')
+                    .append(Math.round(100.0 * entrada.getValue() / total)).append('%');
+        }
+        return sb.toString();
+    }
+}
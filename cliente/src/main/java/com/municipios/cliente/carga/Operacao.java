@@ -0,0 +1,72 @@
+package com.municipios.cliente.carga;
+
+import com.municipios.cliente.ws.MunicipioWebService;
+
+import java.util.Random;
+
+/**
+ * As cinco operações do serviço, tal como são chamadas pelo gerador de carga.
+ * O nome de cada uma é o nome da operação SOAP, usado também em -Dcarga.mix.
+ */
+enum Operacao {
+
+    LISTAR_MUNICIPIOS_POR_UF("listarMunicipiosPorUF") {
+        @Override
+        void executar(MunicipioWebService servico, DadosCarga dados, Random aleatorio) {
+            servico.listarMunicipiosPorUF(dados.uf(aleatorio));
+        }
+    },
+
+    OBTER_DADOS_POPULACIONAIS("obterDadosPopulacionais") {
+        @Override
+        void executar(MunicipioWebService servico, DadosCarga dados, Random aleatorio) {
+            servico.obterDadosPopulacionais(dados.municipio(aleatorio), "");
+        }
+    },
+
+    LISTAR_UBS_MUNICIPIO("listarUBSMunicipio") {
+        @Override
+        void executar(MunicipioWebService servico, DadosCarga dados, Random aleatorio) {
+            servico.listarUBSMunicipio(dados.municipio(aleatorio), "");
+        }
+    },
+
+    LISTAR_ESTABELECIMENTOS_POR_TIPO("listarEstabelecimentosPorTipo") {
+        @Override
+        void executar(MunicipioWebService servico, DadosCarga dados, Random aleatorio) {
+            servico.listarEstabelecimentosPorTipo(dados.municipio(aleatorio), "");
+        }
+    },
+
+    CONSULTAR_CEP("consultarCEP") {
+        @Override
+        void executar(MunicipioWebService servico, DadosCarga dados, Random aleatorio) {
+            servico.consultarCEP(dados.cep(aleatorio));
+        }
+    };
+
+    private final String nome;
+
+    Operacao(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * Faz uma chamada com parâmetros sorteados dos dados de carga.
+     * Qualquer exceção (SOAP fault, timeout, conexão recusada) conta como erro.
+     */
+    abstract void executar(MunicipioWebService servico, DadosCarga dados, Random aleatorio);
+
+    String getNome() {
+        return nome;
+    }
+
+    static Operacao porNome(String nome) {
+        for (Operacao operacao : values()) {
+            if (operacao.nome.equalsIgnoreCase(nome)) {
+                return operacao;
+            }
+        }
+        throw new IllegalArgumentException("Operação desconhecida: " + nome);
+    }
+}
@@ -0,0 +1,51 @@
+package com.municipios.etl;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Chaves já gravadas, para manter só a primeira linha de cada chave
+ * (o drop_duplicates do script Python).
+ *
+ * Os CNES têm 7 dígitos, por isso cabem num BitSet de 10^7 bits (1,2 MB)
+ * em vez de um HashSet com uma String por estabelecimento; chaves com
+ * outro formato vão para o HashSet.
+ */
+final class ChavesVistas {
+
+    private static final int DIGITOS = 7;
+
+    private final BitSet numericas = new BitSet();
+    private final Set<String> outras = new HashSet<>();
+
+    /**
+     * true se a chave ainda não tinha sido vista (e passa a estar)
+     */
+    boolean adicionar(String chave) {
+        int numero = numero(chave);
+        if (numero < 0) {
+            return outras.add(chave);
+        }
+        if (numericas.get(numero)) {
+            return false;
+        }
+        numericas.set(numero);
+        return true;
+    }
+
+    private static int numero(String chave) {
+        if (chave.length() != DIGITOS) {
+            return -1;
+        }
+        int numero = 0;
+        for (int i = 0; i < DIGITOS; i++) {
+            char c = chave.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            numero = numero * 10 + (c - '0');
+        }
+        return numero;
+    }
+}
@@ -0,0 +1,199 @@
+package com.municipios.etl;
+
+import com.municipios.soap.database.ClassificadorEstabelecimento;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Conversão de uma linha de cada CSV nos valores a gravar, com as mesmas
+ * regras de scripts_ETL/importar_dados.py. Devolvem null para as linhas
+ * descartadas. Não guardam estado, por isso correm em várias threads.
+ */
+final class ConversoresCsv {
+
+    static final String[] COLUNAS_ESTABELECIMENTOS_CSV =
+            {"CNES", "IBGE", "NOME", "LOGRADOURO", "BAIRRO", "LATITUDE", "LONGITUDE", "CEP"};
+
+    static final String[] COLUNAS_PROFISSIONAIS_CSV = {"CO_UNIDADE", "CO_PROFISSIONAL_SUS", "CO_CBO"};
+
+    static final String[] COLUNAS_DEMOGRAFIA_CSV = {"CD_MUN", "NM_MUN", "V01006", "V01007", "V01008",
+            "V01018", "V01019", "V01020", "V01032", "V01033", "V01034"};
+
+    // Códigos CBO contados como médicos e enfermeiros (CBO_MEDICOS / CBO_ENFERMEIROS no script Python)
+    private static final Set<String> CBO_MEDICOS = Set.of("225125", "225142", "225135", "225124", "225130");
+    private static final Set<String> CBO_ENFERMEIROS = Set.of("223505", "223565");
+
+    static final String MEDICO = "M";
+    static final String ENFERMEIRO = "E";
+
+    // Valor que o pandas marca como ausente no CSV do Censo (na_values)
+    private static final String AUSENTE_CENSO = "...";
+
+    private static final long FNV_BASE = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+    private static final char SEPARADOR_HASH = '\u001F';
+
+    private ConversoresCsv() {
+    }
+
+    /**
+     * Estabelecimentos.csv -> (cnes, ibge_municipio, nome, logradouro, bairro, latitude, longitude, cep, eh_ubs).
+     * Sem CNES ou IBGE numérico a linha é descartada; textos vazios passam a
+     * "0" e coordenadas vazias a 0 (o fillna(0) do script).
+     */
+    static Function<String, Object[]> estabelecimentos(char separador, int[] posicoes) {
+        return linha -> {
+            String[] campos = LeitorCsv.dividir(linha, separador);
+            String cnes = campo(campos, posicoes[0]);
+            Integer ibge = codigoMunicipio(campo(campos, posicoes[1]));
+            if (cnes == null || ibge == null) {
+                return null;
+            }
+            String nome = texto(campos, posicoes[2]);
+            String cep = texto(campos, posicoes[7]).replace(".0", "");
+            return new Object[]{
+                    cnes,
+                    ibge,
+                    nome,
+                    texto(campos, posicoes[3]),
+                    texto(campos, posicoes[4]),
+                    coordenada(campo(campos, posicoes[5])),
+                    coordenada(campo(campos, posicoes[6])),
+                    cep,
+                    ClassificadorEstabelecimento.ehUbs(nome) ? 1 : 0
+            };
+        };
+    }
+
+    /**
+     * EstabelecimentoProfissionais.csv -> (cnes, profissional, tipo), só para
+     * médicos e enfermeiros. O CNES são os últimos 7 caracteres de CO_UNIDADE
+     * (IBGE com 6 dígitos + CNES).
+     */
+    static Function<String, Object[]> profissionais(char separador, int[] posicoes) {
+        return linha -> {
+            String[] campos = LeitorCsv.dividir(linha, separador);
+            String cbo = campo(campos, posicoes[2]);
+            String tipo = cbo == null ? null
+                    : CBO_MEDICOS.contains(cbo) ? MEDICO
+                    : CBO_ENFERMEIROS.contains(cbo) ? ENFERMEIRO
+                    : null;
+            String unidade = campo(campos, posicoes[0]);
+            String profissional = campo(campos, posicoes[1]);
+            if (tipo == null || unidade == null || profissional == null) {
+                return null;
+            }
+            String cnes = unidade.length() > 7 ? unidade.substring(unidade.length() - 7) : unidade;
+            return new Object[]{cnes, profissional, tipo};
+        };
+    }
+
+    /**
+     * Agregados_por_municipios_demografia_BR.csv -> (ibge_municipio, municipio_nome,
+     * populacao_total, populacao_homens, populacao_mulheres, faixa_0_10,
+     * faixa_11_20, faixa_21_30, faixa_40_mais). Linhas com algum valor
+     * ausente ("...") são descartadas, como no dropna() do script.
+     */
+    static Function<String, Object[]> demografia(char separador, int[] posicoes) {
+        return linha -> {
+            String[] campos = LeitorCsv.dividir(linha, separador);
+            String cdMun = campo(campos, posicoes[0]);
+            String nome = campo(campos, posicoes[1]);
+            long[] v = new long[posicoes.length - 2];
+            try {
+                for (int i = 0; i < v.length; i++) {
+                    String valor = campo(campos, posicoes[i + 2]);
+                    if (valor == null || AUSENTE_CENSO.equals(valor)) {
+                        return null;
+                    }
+                    v[i] = Long.parseLong(valor.trim());
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            // CD_MUN tem 7 dígitos (com o verificador); a chave usa os 6 primeiros
+            Integer codigo = cdMun == null ? null
+                    : codigoMunicipio(cdMun.length() > 6 ? cdMun.substring(0, 6) : cdMun);
+            if (codigo == null || nome == null || AUSENTE_CENSO.equals(nome)) {
+                return null;
+            }
+            // v: V01006 total, V01007 homens, V01008 mulheres, V01018..V01020 homens e V01032..V01034 mulheres por faixa
+            long faixa0a10 = v[3] + v[6];
+            long faixa11a20 = v[4] + v[7];
+            long faixa21a30 = v[5] + v[8];
+            return new Object[]{
+                    codigo,
+                    nome,
+                    v[0], v[1], v[2],
+                    faixa0a10, faixa11a20, faixa21a30,
+                    v[0] - (faixa0a10 + faixa11a20 + faixa21a30)
+            };
+        };
+    }
+
+    /**
+     * Hash (FNV-1a de 64 bits) dos valores de uma linha, para saber se a
+     * linha mudou sem guardar a linha anterior. As coordenadas entram com 8
+     * casas decimais, como são gravadas, para que o valor lido do BD e o
+     * convertido do CSV deem o mesmo hash.
+     */
+    static long hash(Object[] valores) {
+        long hash = FNV_BASE;
+        for (Object valor : valores) {
+            String texto = valor == null ? "\u0000"
+                    : valor instanceof BigDecimal decimal ? decimal.setScale(8, RoundingMode.HALF_EVEN).toPlainString()
+                    : valor.toString();
+            for (int i = 0; i < texto.length(); i++) {
+                hash = (hash ^ texto.charAt(i)) * FNV_PRIMO;
+            }
+            hash = (hash ^ SEPARADOR_HASH) * FNV_PRIMO;
+        }
+        return hash;
+    }
+
+    /**
+     * Valor do campo, ou null se estiver vazio ou não existir na linha
+     */
+    private static String campo(String[] campos, int posicao) {
+        if (posicao >= campos.length || campos[posicao].isEmpty()) {
+            return null;
+        }
+        return campos[posicao];
+    }
+
+    /**
+     * Código IBGE do município como inteiro, ou null se vazio ou não numérico
+     */
+    static Integer codigoMunicipio(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valor.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String texto(String[] campos, int posicao) {
+        String valor = campo(campos, posicao);
+        return valor == null ? "0" : valor;
+    }
+
+    /**
+     * Coordenada arredondada a 8 casas decimais (0 se vazia)
+     */
+    private static BigDecimal coordenada(String valor) {
+        if (valor == null) {
+            return BigDecimal.ZERO;
+        }
+        try {
+            return new BigDecimal(valor.trim().replace(',', '.')).setScale(8, RoundingMode.HALF_EVEN);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Coordenada inválida: " + valor, e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.municipios.etl;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Importação incremental: aplica às tabelas em uso só as diferenças entre
+ * o CSV de estabelecimentos e o que já está gravado, pelo CNES.
+ *
+ * O hash de cada linha gravada é calculado ao ler ubs_estabelecimentos; cada
+ * linha do CSV com hash diferente vira um UPDATE, cada CNES novo um INSERT
+ * e cada CNES que deixou de vir no CSV um DELETE. Os totais de todos os
+ * municípios são calculados em memória (os profissionais não são gravados
+ * no BD), mas só são gravados os que mudaram. Tudo numa única transação,
+ * confirmada pelo chamador: o servidor vê o estado anterior ou o novo.
+ *
+ * Os municípios tocados (linhas inseridas, alteradas, removidas ou totais
+ * diferentes) são os que o servidor tem de reler.
+ */
+final class ImportacaoIncremental {
+
+    private static final String SQL_ATUAIS = "SELECT cnes, ibge_municipio, nome, logradouro, bairro, "
+            + "latitude, longitude, cep, eh_ubs FROM ubs_estabelecimentos";
+
+    private static final String SQL_ATUALIZAR = "UPDATE ubs_estabelecimentos SET ibge_municipio = ?, nome = ?, "
+            + "logradouro = ?, bairro = ?, latitude = ?, longitude = ?, cep = ?, eh_ubs = ? WHERE cnes = ?";
+
+    private static final String SQL_APAGAR = "DELETE FROM ubs_estabelecimentos WHERE cnes = ?";
+
+    private static final String SQL_TOTAIS =
+            "SELECT ibge_municipio, total_ubs, total_medicos, total_enfermeiros FROM ubs_totais_municipio";
+
+    private static final String SQL_INSERIR_TOTAIS = "INSERT INTO ubs_totais_municipio "
+            + "(ibge_municipio, total_ubs, total_medicos, total_enfermeiros) VALUES (?, ?, ?, ?)";
+
+    private static final String SQL_ATUALIZAR_TOTAIS = "UPDATE ubs_totais_municipio "
+            + "SET total_ubs = ?, total_medicos = ?, total_enfermeiros = ? WHERE ibge_municipio = ?";
+
+    private static final String SQL_APAGAR_TOTAIS = "DELETE FROM ubs_totais_municipio WHERE ibge_municipio = ?";
+
+    // Profissional guardado num long: município (14 bits) << 50 | tipo << 49 | 49 bits do hash do código.
+    // Só é preciso que valores iguais fiquem lado a lado ao ordenar, por isso o bit de sinal também serve
+    private static final int BITS_PROFISSIONAL = 49;
+    private static final int DESLOCAMENTO_MUNICIPIO = BITS_PROFISSIONAL + 1;
+    private static final long MASCARA_PROFISSIONAL = (1L << BITS_PROFISSIONAL) - 1;
+    private static final int MUNICIPIOS_MAX = 1 << (Long.SIZE - DESLOCAMENTO_MUNICIPIO);
+
+    /**
+     * Estado de um CNES: hash e município da linha gravada; visto passa a
+     * true quando o CNES aparece no CSV
+     */
+    private static final class Registo {
+        long hash;
+        int municipio;
+        boolean visto;
+
+        Registo(long hash, int municipio) {
+            this.hash = hash;
+            this.municipio = municipio;
+        }
+    }
+
+    /**
+     * Linha convertida do CSV, com o hash já calculado na thread de conversão
+     */
+    private record LinhaComHash(Object[] valores, long hash) {
+    }
+
+    private final Connection conexao;
+    private final int linhasPorLote;
+
+    private final Map<String, Registo> registos = new HashMap<>();
+    private final List<Integer> municipios = new ArrayList<>();
+    private final Map<Integer, Integer> indiceMunicipio = new HashMap<>();
+    private final BitSet tocados = new BitSet();
+
+    private long[] profissionais = new long[1 << 16];
+    private int totalProfissionais;
+
+    private long inseridos;
+    private long atualizados;
+    private long apagados;
+    private int totaisAlterados;
+
+    ImportacaoIncremental(Connection conexao, int linhasPorLote) {
+        this.conexao = conexao;
+        this.linhasPorLote = Math.max(1, linhasPorLote);
+    }
+
+    /**
+     * Lê ubs_estabelecimentos e guarda o hash e o município de cada CNES
+     *
+     * @return quantidade de estabelecimentos gravados
+     */
+    int lerAtuais() throws SQLException {
+        try (PreparedStatement pstmt = conexao.prepareStatement(SQL_ATUAIS)) {
+            if ("MySQL".equalsIgnoreCase(conexao.getMetaData().getDatabaseProductName())) {
+                // Lê as linhas em streaming em vez de trazer a tabela inteira de uma vez
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // Mesmos tipos e ordem das linhas de ConversoresCsv.estabelecimentos
+                    int municipio = rs.getInt(2);
+                    int ehUbs = rs.getInt(9);
+                    Integer ehUbsOuNulo = rs.wasNull() ? null : ehUbs;
+                    Object[] valores = {
+                            rs.getString(1), municipio, rs.getString(3), rs.getString(4), rs.getString(5),
+                            rs.getBigDecimal(6), rs.getBigDecimal(7), rs.getString(8), ehUbsOuNulo
+                    };
+                    registos.put(rs.getString(1), new Registo(ConversoresCsv.hash(valores), indice(municipio)));
+                }
+            }
+        }
+        return registos.size();
+    }
+
+    /**
+     * Compara o CSV de estabelecimentos com o estado lido e grava as
+     * diferenças (sem confirmar a transação)
+     *
+     * @return quantidade de linhas lidas
+     */
+    long aplicarEstabelecimentos(ProcessamentoParalelo processamento, LeitorCsv leitor)
+            throws IOException, SQLException {
+        Function<String, Object[]> converter = ConversoresCsv.estabelecimentos(';',
+                leitor.posicoes(ConversoresCsv.COLUNAS_ESTABELECIMENTOS_CSV));
+        long lidas;
+        try (InsercaoEmLotes insercao = new InsercaoEmLotes(conexao, TabelasCarga.ESTABELECIMENTOS,
+                TabelasCarga.COLUNAS_ESTABELECIMENTOS, linhasPorLote, false);
+             Lote atualizacao = new Lote(SQL_ATUALIZAR)) {
+            lidas = processamento.processar(leitor, linha -> {
+                Object[] valores = converter.apply(linha);
+                return valores == null ? null : new LinhaComHash(valores, ConversoresCsv.hash(valores));
+            }, linha -> {
+                Object[] valores = linha.valores();
+                String cnes = (String) valores[0];
+                int municipio = indice((Integer) valores[1]);
+                Registo registo = registos.get(cnes);
+                if (registo == null) {
+                    registo = new Registo(linha.hash(), municipio);
+                    registo.visto = true;
+                    registos.put(cnes, registo);
+                    insercao.aceitar(valores);
+                    tocados.set(municipio);
+                    inseridos++;
+                } else if (!registo.visto) {
+                    // Só a primeira linha de cada CNES conta, como na carga completa
+                    registo.visto = true;
+                    if (registo.hash != linha.hash()) {
+                        // Parâmetros do UPDATE: colunas depois do CNES e, no fim, o CNES
+                        Object[] parametros = Arrays.copyOfRange(valores, 1, valores.length + 1);
+                        parametros[parametros.length - 1] = cnes;
+                        atualizacao.adicionar(parametros);
+                        tocados.set(registo.municipio);
+                        tocados.set(municipio);
+                        registo.hash = linha.hash();
+                        registo.municipio = municipio;
+                        atualizados++;
+                    }
+                }
+            });
+            insercao.terminar();
+        }
+
+        try (Lote remocao = new Lote(SQL_APAGAR)) {
+            var iterador = registos.entrySet().iterator();
+            while (iterador.hasNext()) {
+                var entrada = iterador.next();
+                if (!entrada.getValue().visto) {
+                    remocao.adicionar(entrada.getKey());
+                    tocados.set(entrada.getValue().municipio);
+                    iterador.remove();
+                    apagados++;
+                }
+            }
+        }
+        return lidas;
+    }
+
+    /**
+     * Lê o CSV de profissionais e guarda os médicos e enfermeiros dos
+     * estabelecimentos que ficaram na tabela
+     *
+     * @return quantidade de linhas lidas
+     */
+    long lerProfissionais(ProcessamentoParalelo processamento, LeitorCsv leitor) throws IOException, SQLException {
+        Function<String, Object[]> converter = ConversoresCsv.profissionais(',',
+                leitor.posicoes(ConversoresCsv.COLUNAS_PROFISSIONAIS_CSV));
+        return processamento.processar(leitor, converter, linha -> {
+            Registo registo = registos.get((String) linha[0]);
+            if (registo == null) {
+                return;
+            }
+            long tipo = ConversoresCsv.ENFERMEIRO.equals(linha[2]) ? 1 : 0;
+            long codigo = ConversoresCsv.hash(new Object[]{linha[1]}) & MASCARA_PROFISSIONAL;
+            if (totalProfissionais == profissionais.length) {
+                profissionais = Arrays.copyOf(profissionais, totalProfissionais * 2);
+            }
+            profissionais[totalProfissionais++] =
+                    (long) registo.municipio << DESLOCAMENTO_MUNICIPIO | tipo << BITS_PROFISSIONAL | codigo;
+        });
+    }
+
+    /**
+     * Calcula os totais de todos os municípios e grava os que mudaram
+     *
+     * @return quantidade de municípios com totais gravados
+     */
+    int atualizarTotais() throws SQLException {
+        int n = municipios.size();
+        int[] totalUbs = new int[n];
+        int[] totalMedicos = new int[n];
+        int[] totalEnfermeiros = new int[n];
+        for (Registo registo : registos.values()) {
+            totalUbs[registo.municipio]++;
+        }
+        // Profissionais distintos por município e tipo: iguais ficam lado a lado depois de ordenar
+        Arrays.sort(profissionais, 0, totalProfissionais);
+        for (int i = 0; i < totalProfissionais; i++) {
+            long valor = profissionais[i];
+            if (i > 0 && profissionais[i - 1] == valor) {
+                continue;
+            }
+            int municipio = (int) (valor >>> DESLOCAMENTO_MUNICIPIO);
+            if ((valor >>> BITS_PROFISSIONAL & 1) == 0) {
+                totalMedicos[municipio]++;
+            } else {
+                totalEnfermeiros[municipio]++;
+            }
+        }
+
+        Map<Integer, int[]> gravados = new HashMap<>();
+        try (PreparedStatement pstmt = conexao.prepareStatement(SQL_TOTAIS);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                gravados.put(rs.getInt(1), new int[]{rs.getInt(2), rs.getInt(3), rs.getInt(4)});
+            }
+        }
+
+        try (Lote insercao = new Lote(SQL_INSERIR_TOTAIS);
+             Lote atualizacao = new Lote(SQL_ATUALIZAR_TOTAIS);
+             Lote remocao = new Lote(SQL_APAGAR_TOTAIS)) {
+            for (int m = 0; m < n; m++) {
+                int codigo = municipios.get(m);
+                int[] atual = gravados.remove(codigo);
+                if (totalUbs[m] == 0) {
+                    // Como na carga completa, só há totais para municípios com estabelecimentos
+                    if (atual != null) {
+                        remocao.adicionar(codigo);
+                        totaisAlterados(m);
+                    }
+                    continue;
+                }
+                if (atual == null) {
+                    insercao.adicionar(codigo, totalUbs[m], totalMedicos[m], totalEnfermeiros[m]);
+                    totaisAlterados(m);
+                } else if (atual[0] != totalUbs[m] || atual[1] != totalMedicos[m] || atual[2] != totalEnfermeiros[m]) {
+                    atualizacao.adicionar(totalUbs[m], totalMedicos[m], totalEnfermeiros[m], codigo);
+                    totaisAlterados(m);
+                }
+            }
+            // Totais de municípios sem nenhum estabelecimento, antes ou agora
+            for (int codigo : gravados.keySet()) {
+                remocao.adicionar(codigo);
+                totaisAlterados(indice(codigo));
+            }
+        }
+        return totaisAlterados;
+    }
+
+    /**
+     * Códigos dos municípios com alguma alteração, para o servidor reler
+     */
+    List<Integer> getMunicipiosTocados() {
+        List<Integer> codigos = new ArrayList<>();
+        for (int m = tocados.nextSetBit(0); m >= 0; m = tocados.nextSetBit(m + 1)) {
+            codigos.add(municipios.get(m));
+        }
+        return codigos;
+    }
+
+    long getInseridos() {
+        return inseridos;
+    }
+
+    long getAtualizados() {
+        return atualizados;
+    }
+
+    long getApagados() {
+        return apagados;
+    }
+
+    private void totaisAlterados(int municipio) {
+        tocados.set(municipio);
+        totaisAlterados++;
+    }
+
+    private int indice(int codigo) {
+        Integer indice = indiceMunicipio.get(codigo);
+        if (indice == null) {
+            if (municipios.size() == MUNICIPIOS_MAX) {
+                throw new IllegalStateException("Mais de " + MUNICIPIOS_MAX + " códigos de município distintos");
+            }
+            indice = municipios.size();
+            indiceMunicipio.put(codigo, indice);
+            municipios.add(codigo);
+        }
+        return indice;
+    }
+
+    /**
+     * Comando executado em lotes de JDBC (addBatch)
+     */
+    private final class Lote implements AutoCloseable {
+        private final PreparedStatement pstmt;
+        private int pendentes;
+
+        Lote(String sql) throws SQLException {
+            this.pstmt = conexao.prepareStatement(sql);
+        }
+
+        void adicionar(Object... parametros) throws SQLException {
+            for (int i = 0; i < parametros.length; i++) {
+                pstmt.setObject(i + 1, parametros[i]);
+            }
+            pstmt.addBatch();
+            if (++pendentes == linhasPorLote) {
+                pstmt.executeBatch();
+                pendentes = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (pendentes > 0) {
+                    pstmt.executeBatch();
+                }
+            } finally {
+                pstmt.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.municipios.etl;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Carga dos CSVs do CNES e do Censo 2022 para o MySQL, com as mesmas
+ * regras de scripts_ETL/importar_dados.py, mas sem carregar os ficheiros
+ * para memória.
+ *
+ * Cada CSV é lido em blocos e as linhas são convertidas (e classificadas
+ * UBS/Outros) em várias threads. Na carga completa as linhas são gravadas
+ * com INSERTs de várias linhas nas tabelas _carga, os totais são calculados
+ * no próprio MySQL e as tabelas são trocadas de uma vez (ver TabelasCarga).
+ * No modo incremental só as diferenças por CNES são aplicadas às tabelas
+ * em uso (ver ImportacaoIncremental). No fim o servidor em execução é
+ * avisado para reler os dados. Os valores abaixo podem ser sobrepostos
+ * com -D na linha de comando (ex: -Detl.threads=8).
+ */
+public final class ImportarDados {
+
+    // Mesmos valores por omissão do DatabaseConnector do servidor
+    private static final String DB_URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/soap_ubs_db");
+    private static final String DB_USER = System.getProperty("db.user", "Pedro");
+    private static final String DB_PASSWORD = System.getProperty("db.password", "admin");
+
+    // completo: recria as três tabelas; incremental: aplica só as diferenças de estabelecimentos e totais
+    private static final boolean INCREMENTAL =
+            "incremental".equalsIgnoreCase(System.getProperty("etl.modo", "completo"));
+
+    // Pasta com os CSVs
+    private static final Path PASTA = Path.of(System.getProperty("etl.pasta", "."));
+
+    // Threads que convertem as linhas (a leitura e a gravação ficam na thread principal)
+    private static final int THREADS = Integer.getInteger("etl.threads", Runtime.getRuntime().availableProcessors());
+
+    // Linhas do CSV entregues de cada vez a uma thread
+    private static final int LINHAS_POR_BLOCO = Integer.getInteger("etl.linhasPorBloco", 5_000);
+
+    // Linhas gravadas por INSERT
+    private static final int LINHAS_POR_INSERT = Integer.getInteger("etl.linhasPorInsert", 500);
+
+    private static final String ARQUIVO_ESTABELECIMENTOS = "Estabelecimentos.csv";
+    private static final String ARQUIVO_PROFISSIONAIS = "EstabelecimentoProfissionais.csv";
+    private static final String ARQUIVO_DEMOGRAFIA = "Agregados_por_municipios_demografia_BR.csv";
+
+    private ImportarDados() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println("======================================================================");
+        System.out.println("  ETL - ESTABELECIMENTOS, PROFISSIONAIS E DEMOGRAFIA");
+        System.out.println("======================================================================");
+        System.out.printf("Modo: %s | pasta: %s | threads: %d | %,d linhas por bloco | %,d linhas por INSERT%n",
+                INCREMENTAL ? "incremental" : "completo", PASTA.toAbsolutePath().normalize(),
+                THREADS, LINHAS_POR_BLOCO, LINHAS_POR_INSERT);
+
+        long inicio = System.nanoTime();
+        long linhas = 0;
+        try (Connection conexao = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+             ProcessamentoParalelo processamento = new ProcessamentoParalelo(THREADS, LINHAS_POR_BLOCO)) {
+            System.out.println("✓ Conectado a " + DB_URL);
+            conexao.setAutoCommit(false);
+
+            // Só começa se todos os ficheiros existirem: a troca final é de todas as tabelas
+            String[] arquivos = INCREMENTAL
+                    ? new String[]{ARQUIVO_ESTABELECIMENTOS, ARQUIVO_PROFISSIONAIS}
+                    : new String[]{ARQUIVO_ESTABELECIMENTOS, ARQUIVO_PROFISSIONAIS, ARQUIVO_DEMOGRAFIA};
+            for (String arquivo : arquivos) {
+                if (!Files.isRegularFile(PASTA.resolve(arquivo))) {
+                    throw new IOException("'" + arquivo + "' não encontrado em " + PASTA.toAbsolutePath().normalize());
+                }
+            }
+
+            if (INCREMENTAL) {
+                linhas = importarIncremental(conexao, processamento);
+            } else {
+                linhas = importarCompleto(conexao, processamento);
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("✗ Erro na importação: " + e.getMessage());
+            System.err.println("  As tabelas em uso não foram alteradas.");
+            System.exit(1);
+        }
+
+        long total = ms(inicio);
+        System.out.println();
+        System.out.printf("🎉 Importação concluída: %,d linhas lidas em %,d ms (%,.0f linhas/s)%n",
+                linhas, total, porSegundo(linhas, total));
+    }
+
+    /**
+     * Carga nas tabelas _carga e troca com as tabelas em uso
+     *
+     * @return quantidade de linhas lidas dos CSVs
+     */
+    private static long importarCompleto(Connection conexao, ProcessamentoParalelo processamento)
+            throws IOException, SQLException {
+        long linhas = 0;
+        TabelasCarga.preparar(conexao);
+        System.out.println("✓ Tabelas de carga criadas");
+
+        linhas += carregar(conexao, processamento, "Estabelecimentos",
+                ARQUIVO_ESTABELECIMENTOS, ';', StandardCharsets.UTF_8,
+                ConversoresCsv.COLUNAS_ESTABELECIMENTOS_CSV, ConversoresCsv::estabelecimentos,
+                TabelasCarga.ESTABELECIMENTOS + TabelasCarga.CARGA, TabelasCarga.COLUNAS_ESTABELECIMENTOS, true);
+
+        linhas += carregar(conexao, processamento, "Profissionais (médicos e enfermeiros)",
+                ARQUIVO_PROFISSIONAIS, ',', StandardCharsets.UTF_8,
+                ConversoresCsv.COLUNAS_PROFISSIONAIS_CSV, ConversoresCsv::profissionais,
+                TabelasCarga.PROFISSIONAIS, TabelasCarga.COLUNAS_PROFISSIONAIS, false);
+
+        linhas += carregar(conexao, processamento, "Demografia (Censo 2022)",
+                ARQUIVO_DEMOGRAFIA, ';', StandardCharsets.ISO_8859_1,
+                ConversoresCsv.COLUNAS_DEMOGRAFIA_CSV, ConversoresCsv::demografia,
+                TabelasCarga.DEMOGRAFIA + TabelasCarga.CARGA, TabelasCarga.COLUNAS_DEMOGRAFIA, true);
+
+        long t = System.nanoTime();
+        int municipios = TabelasCarga.calcularTotais(conexao);
+        System.out.printf("✓ Totais: %,d municípios em %,d ms%n", municipios, ms(t));
+
+        t = System.nanoTime();
+        TabelasCarga.trocar(conexao);
+        System.out.printf("✓ Troca das tabelas em %,d ms%n", ms(t));
+
+        NotificacaoServidor.tudoAlterado();
+        return linhas;
+    }
+
+    /**
+     * Aplica às tabelas em uso só as diferenças de estabelecimentos e totais,
+     * numa transação, e avisa o servidor dos municípios alterados
+     *
+     * @return quantidade de linhas lidas dos CSVs
+     */
+    private static long importarIncremental(Connection conexao, ProcessamentoParalelo processamento)
+            throws IOException, SQLException {
+        TabelasCarga.verificarChaveInteira(conexao);
+        ImportacaoIncremental importacao = new ImportacaoIncremental(conexao, LINHAS_POR_INSERT);
+        long t = System.nanoTime();
+        int atuais = importacao.lerAtuais();
+        System.out.printf("✓ Estado atual: %,d estabelecimentos no BD, lidos em %,d ms%n", atuais, ms(t));
+
+        long linhas;
+        boolean confirmado = false;
+        try {
+            t = System.nanoTime();
+            long lidas;
+            try (LeitorCsv leitor = new LeitorCsv(PASTA.resolve(ARQUIVO_ESTABELECIMENTOS), ';', StandardCharsets.UTF_8)) {
+                lidas = importacao.aplicarEstabelecimentos(processamento, leitor);
+            }
+            long duracao = ms(t);
+            System.out.printf("✓ Estabelecimentos: %,d linhas lidas; %,d novos, %,d alterados, %,d removidos "
+                            + "em %,d ms (%,.0f linhas/s)%n", lidas, importacao.getInseridos(),
+                    importacao.getAtualizados(), importacao.getApagados(), duracao, porSegundo(lidas, duracao));
+            linhas = lidas;
+
+            t = System.nanoTime();
+            try (LeitorCsv leitor = new LeitorCsv(PASTA.resolve(ARQUIVO_PROFISSIONAIS), ',', StandardCharsets.UTF_8)) {
+                lidas = importacao.lerProfissionais(processamento, leitor);
+            }
+            duracao = ms(t);
+            System.out.printf("✓ Profissionais (médicos e enfermeiros): %,d linhas lidas em %,d ms (%,.0f linhas/s)%n",
+                    lidas, duracao, porSegundo(lidas, duracao));
+            linhas += lidas;
+
+            t = System.nanoTime();
+            int totais = importacao.atualizarTotais();
+            System.out.printf("✓ Totais: %,d municípios alterados em %,d ms%n", totais, ms(t));
+
+            conexao.commit();
+            confirmado = true;
+        } finally {
+            if (!confirmado) {
+                conexao.rollback();
+            }
+        }
+        List<Integer> municipios = importacao.getMunicipiosTocados();
+        System.out.printf("✓ Alterações confirmadas em %,d municípios%n", municipios.size());
+
+        NotificacaoServidor.municipiosAlterados(municipios);
+        return linhas;
+    }
+
+    /**
+     * Lê um CSV, converte as linhas em paralelo e grava-as na tabela indicada
+     *
+     * @param deduplicar mantém só a primeira linha de cada valor da primeira coluna
+     * @return quantidade de linhas lidas
+     */
+    private static long carregar(Connection conexao, ProcessamentoParalelo processamento, String descricao,
+                                 String arquivo, char separador, Charset codificacao, String[] colunasCsv,
+                                 FabricaConversor conversor, String tabela, String[] colunas, boolean deduplicar)
+            throws IOException, SQLException {
+        long inicio = System.nanoTime();
+        long lidas;
+        long gravadas;
+        try (LeitorCsv leitor = new LeitorCsv(PASTA.resolve(arquivo), separador, codificacao);
+             InsercaoEmLotes insercao = new InsercaoEmLotes(conexao, tabela, colunas, LINHAS_POR_INSERT, true)) {
+            Function<String, Object[]> converter = conversor.criar(separador, leitor.posicoes(colunasCsv));
+            ProcessamentoParalelo.Destino<Object[]> destino = insercao;
+            if (deduplicar) {
+                ChavesVistas vistas = new ChavesVistas();
+                destino = linha -> {
+                    if (vistas.adicionar(String.valueOf(linha[0]))) {
+                        insercao.aceitar(linha);
+                    }
+                };
+            }
+            lidas = processamento.processar(leitor, converter, destino);
+            insercao.terminar();
+            gravadas = insercao.getGravadas();
+        }
+        long duracao = ms(inicio);
+        System.out.printf("✓ %s: %,d linhas lidas, %,d gravadas (%,d descartadas) em %,d ms (%,.0f linhas/s)%n",
+                descricao, lidas, gravadas, lidas - gravadas, duracao, porSegundo(lidas, duracao));
+        return lidas;
+    }
+
+    /**
+     * Cria o conversor de um CSV a partir do separador e das posições das colunas
+     */
+    private interface FabricaConversor {
+        Function<String, Object[]> criar(char separador, int[] posicoes);
+    }
+
+    private static long ms(long inicioNanos) {
+        return (System.nanoTime() - inicioNanos) / 1_000_000;
+    }
+
+    private static double porSegundo(long linhas, long ms) {
+        return ms == 0 ? linhas : linhas * 1000.0 / ms;
+    }
+}
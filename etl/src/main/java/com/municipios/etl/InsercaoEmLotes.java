@@ -0,0 +1,99 @@
+package com.municipios.etl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Gravação de linhas com INSERTs de várias linhas
+ * (INSERT ... VALUES (...), (...), ...), em vez de um INSERT por linha.
+ *
+ * Na carga completa cada INSERT é confirmado logo a seguir: como a carga é
+ * feita numa tabela de staging, uma falha a meio não afeta as tabelas em
+ * uso. No modo incremental a confirmação fica para o fim da transação.
+ */
+final class InsercaoEmLotes implements ProcessamentoParalelo.Destino<Object[]>, AutoCloseable {
+
+    private final Connection conexao;
+    private final String tabela;
+    private final String[] colunas;
+    private final int linhasPorInsert;
+    private final boolean confirmarCadaInsert;
+    private final PreparedStatement completo;
+    private final Object[][] pendentes;
+    private int quantidade;
+    private long gravadas;
+
+    InsercaoEmLotes(Connection conexao, String tabela, String[] colunas, int linhasPorInsert,
+                    boolean confirmarCadaInsert) throws SQLException {
+        this.conexao = conexao;
+        this.tabela = tabela;
+        this.colunas = colunas;
+        this.linhasPorInsert = Math.max(1, linhasPorInsert);
+        this.confirmarCadaInsert = confirmarCadaInsert;
+        this.pendentes = new Object[this.linhasPorInsert][];
+        this.completo = conexao.prepareStatement(sql(this.linhasPorInsert));
+    }
+
+    @Override
+    public void aceitar(Object[] linha) throws SQLException {
+        pendentes[quantidade++] = linha;
+        if (quantidade == linhasPorInsert) {
+            gravar(completo);
+        }
+    }
+
+    /**
+     * Grava as linhas que ainda não completaram um INSERT
+     */
+    void terminar() throws SQLException {
+        if (quantidade > 0) {
+            try (PreparedStatement resto = conexao.prepareStatement(sql(quantidade))) {
+                gravar(resto);
+            }
+        }
+    }
+
+    long getGravadas() {
+        return gravadas;
+    }
+
+    private void gravar(PreparedStatement insert) throws SQLException {
+        int parametro = 1;
+        for (int i = 0; i < quantidade; i++) {
+            for (Object valor : pendentes[i]) {
+                insert.setObject(parametro++, valor);
+            }
+            pendentes[i] = null;
+        }
+        insert.executeUpdate();
+        if (confirmarCadaInsert) {
+            conexao.commit();
+        }
+        gravadas += quantidade;
+        quantidade = 0;
+    }
+
+    private String sql(int linhas) {
+        StringBuilder valores = new StringBuilder("(");
+        for (int c = 0; c < colunas.length; c++) {
+            valores.append(c == 0 ? "?" : ", ?");
+        }
+        valores.append(')');
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tabela)
+                .append(" (").append(String.join(", ", colunas)).append(") VALUES ");
+        for (int l = 0; l < linhas; l++) {
+            if (l > 0) {
+                sql.append(", ");
+            }
+            sql.append(valores);
+        }
+        return sql.toString();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        completo.close();
+    }
+}
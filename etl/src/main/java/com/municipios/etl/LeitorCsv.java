@@ -0,0 +1,113 @@
+package com.municipios.etl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitura de um CSV linha a linha, sem carregar o ficheiro para memória.
+ *
+ * O cabeçalho é lido na abertura e as colunas passam a ser procuradas pelo
+ * nome, como no usecols do pandas. Os campos entre aspas podem conter o
+ * separador e aspas duplicadas (""), mas não quebras de linha.
+ */
+final class LeitorCsv implements AutoCloseable {
+
+    private static final int BUFFER = 1 << 20;
+
+    private final BufferedReader leitor;
+    private final Map<String, Integer> colunas = new HashMap<>();
+
+    LeitorCsv(Path arquivo, char separador, Charset codificacao) throws IOException {
+        this.leitor = new BufferedReader(Files.newBufferedReader(arquivo, codificacao), BUFFER);
+        String cabecalho = leitor.readLine();
+        if (cabecalho == null) {
+            throw new IOException("Ficheiro vazio: " + arquivo);
+        }
+        if (!cabecalho.isEmpty() && cabecalho.charAt(0) == '\uFEFF') {
+            cabecalho = cabecalho.substring(1);
+        }
+        String[] nomes = dividir(cabecalho, separador);
+        for (int i = 0; i < nomes.length; i++) {
+            colunas.putIfAbsent(nomes[i].trim(), i);
+        }
+    }
+
+    /**
+     * Posição das colunas pedidas, pela ordem pedida
+     *
+     * @throws IOException se alguma coluna não existir no cabeçalho
+     */
+    int[] posicoes(String... nomes) throws IOException {
+        int[] posicoes = new int[nomes.length];
+        for (int i = 0; i < nomes.length; i++) {
+            Integer posicao = colunas.get(nomes[i]);
+            if (posicao == null) {
+                throw new IOException("Coluna ausente no cabeçalho: " + nomes[i]);
+            }
+            posicoes[i] = posicao;
+        }
+        return posicoes;
+    }
+
+    /**
+     * Próxima linha de dados, ainda por dividir (null no fim do ficheiro)
+     */
+    String proximaLinha() throws IOException {
+        return leitor.readLine();
+    }
+
+    /**
+     * Divide uma linha nos seus campos, tirando as aspas à volta dos campos citados
+     */
+    static String[] dividir(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        int n = linha.length();
+        int i = 0;
+        while (true) {
+            int fim;
+            if (i < n && linha.charAt(i) == '"') {
+                // Campo entre aspas: vai até à aspa que não está duplicada
+                StringBuilder campo = new StringBuilder();
+                i++;
+                while (i < n) {
+                    char c = linha.charAt(i++);
+                    if (c != '"') {
+                        campo.append(c);
+                    } else if (i < n && linha.charAt(i) == '"') {
+                        campo.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                fim = fimDoCampo(linha, separador, i);
+                campo.append(linha, i, fim);
+                campos.add(campo.toString());
+            } else {
+                fim = fimDoCampo(linha, separador, i);
+                campos.add(linha.substring(i, fim));
+            }
+            if (fim >= n) {
+                return campos.toArray(new String[0]);
+            }
+            i = fim + 1;
+        }
+    }
+
+    private static int fimDoCampo(String linha, char separador, int inicio) {
+        int fim = linha.indexOf(separador, inicio);
+        return fim < 0 ? linha.length() : fim;
+    }
+
+    @Override
+    public void close() throws IOException {
+        leitor.close();
+    }
+}
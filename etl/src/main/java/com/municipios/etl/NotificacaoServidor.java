@@ -0,0 +1,99 @@
+package com.municipios.etl;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Avisa o ServidorSOAP em execução (POST /admin/invalidar) de que os dados
+ * mudaram, para que releia o snapshot sem reiniciar. Se o servidor não
+ * estiver a correr, só fica o aviso no log: os dados já estão gravados e
+ * serão lidos no próximo arranque.
+ */
+final class NotificacaoServidor {
+
+    private static final String SERVIDOR = System.getProperty("etl.servidor", "http://localhost:8080");
+    private static final boolean NOTIFICAR = Boolean.parseBoolean(System.getProperty("etl.notificar", "true"));
+    private static final String CAMINHO = "/admin/invalidar";
+
+    // A resposta só chega depois de o servidor montar o novo snapshot
+    private static final Duration TEMPO_MAXIMO = Duration.ofMinutes(5);
+
+    // Corpo que pede a recarga completa do snapshot
+    private static final String TODOS = "*";
+
+    // Com a fila do servidor cheia a resposta é 503 + Retry-After: repete-se o aviso
+    private static final int TENTATIVAS = 3;
+
+    private NotificacaoServidor() {
+    }
+
+    /**
+     * Pede a releitura só dos municípios indicados (códigos IBGE de 6 dígitos)
+     */
+    static void municipiosAlterados(List<Integer> municipios) {
+        List<String> validos = municipios.stream()
+                .filter(codigo -> codigo >= 100_000 && codigo <= 999_999)
+                .map(String::valueOf)
+                .toList();
+        if (validos.isEmpty()) {
+            System.out.println("✓ Nenhum município alterado: servidor não notificado");
+            return;
+        }
+        enviar(String.join(",", validos), validos.size() + " municípios");
+    }
+
+    /**
+     * Pede a recarga completa (depois da carga completa)
+     */
+    static void tudoAlterado() {
+        enviar(TODOS, "recarga completa");
+    }
+
+    private static void enviar(String corpo, String descricao) {
+        if (!NOTIFICAR) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest pedido = HttpRequest.newBuilder(URI.create(SERVIDOR + CAMINHO))
+                .timeout(TEMPO_MAXIMO)
+                .header("Content-Type", "text/plain; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+        try {
+            HttpResponse<String> resposta = cliente.send(pedido, HttpResponse.BodyHandlers.ofString());
+            for (int tentativa = 1; resposta.statusCode() == 503 && tentativa < TENTATIVAS; tentativa++) {
+                Thread.sleep(esperaMs(resposta));
+                resposta = cliente.send(pedido, HttpResponse.BodyHandlers.ofString());
+            }
+            if (resposta.statusCode() == 200) {
+                System.out.printf("✓ Servidor notificado (%s) em %,d ms: %s%n",
+                        descricao, (System.nanoTime() - inicio) / 1_000_000, resposta.body().trim());
+            } else {
+                System.out.println("⚠ Servidor respondeu " + resposta.statusCode() + " à notificação: "
+                        + resposta.body().trim());
+            }
+        } catch (IOException e) {
+            System.out.println("⚠ Servidor não notificado (" + SERVIDOR + "): " + e
+                    + ". Os dados serão lidos no próximo arranque ou recarga.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Espera pedida pelo servidor no Retry-After (segundos), 1 s se faltar
+     */
+    private static long esperaMs(HttpResponse<String> resposta) {
+        try {
+            return Math.max(1, Long.parseLong(resposta.headers().firstValue("Retry-After").orElse("1").trim())) * 1000;
+        } catch (NumberFormatException e) {
+            return 1000;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.municipios.etl;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Conversão das linhas de um CSV em várias threads, com entrega pela ordem
+ * do ficheiro.
+ *
+ * A thread que chama lê blocos de linhas e entrega-os ao pool; os blocos
+ * convertidos são consumidos pela mesma ordem em que foram lidos (a
+ * deduplicação "fica a primeira" depende disso). Nunca há mais do que
+ * BLOCOS_POR_THREAD blocos por thread em voo, pelo que a memória usada não
+ * depende do tamanho do ficheiro.
+ */
+final class ProcessamentoParalelo implements AutoCloseable {
+
+    private static final int BLOCOS_POR_THREAD = 4;
+
+    /**
+     * Recebe as linhas convertidas, pela ordem do ficheiro
+     */
+    interface Destino<T> {
+        void aceitar(T linha) throws SQLException;
+    }
+
+    private final ExecutorService pool;
+    private final int threads;
+    private final int linhasPorBloco;
+
+    ProcessamentoParalelo(int threads, int linhasPorBloco) {
+        this.threads = Math.max(1, threads);
+        this.linhasPorBloco = Math.max(1, linhasPorBloco);
+        this.pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "etl-conversao");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Lê o CSV até ao fim, converte cada linha no pool e entrega ao destino as
+     * que não foram descartadas (conversor devolveu null).
+     *
+     * @return quantidade de linhas de dados lidas
+     */
+    <T> long processar(LeitorCsv leitor, Function<String, T> conversor, Destino<T> destino)
+            throws IOException, SQLException {
+        ArrayDeque<Future<List<T>>> pendentes = new ArrayDeque<>();
+        long lidas = 0;
+        try {
+            while (true) {
+                List<String> bloco = new ArrayList<>(linhasPorBloco);
+                String linha;
+                while (bloco.size() < linhasPorBloco && (linha = leitor.proximaLinha()) != null) {
+                    if (!linha.isEmpty()) {
+                        bloco.add(linha);
+                    }
+                }
+                if (bloco.isEmpty()) {
+                    break;
+                }
+                lidas += bloco.size();
+                pendentes.add(pool.submit(() -> converter(bloco, conversor)));
+                while (pendentes.size() >= threads * BLOCOS_POR_THREAD) {
+                    entregar(pendentes.poll(), destino);
+                }
+            }
+            while (!pendentes.isEmpty()) {
+                entregar(pendentes.poll(), destino);
+            }
+        } finally {
+            pendentes.forEach(f -> f.cancel(true));
+        }
+        return lidas;
+    }
+
+    private static <T> List<T> converter(List<String> bloco, Function<String, T> conversor) {
+        List<T> convertidas = new ArrayList<>(bloco.size());
+        for (String linha : bloco) {
+            T convertida = conversor.apply(linha);
+            if (convertida != null) {
+                convertidas.add(convertida);
+            }
+        }
+        return convertidas;
+    }
+
+    private static <T> void entregar(Future<List<T>> bloco, Destino<T> destino) throws IOException, SQLException {
+        List<T> convertidas;
+        try {
+            convertidas = bloco.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Conversão interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha ao converter linhas: " + e.getCause(), e.getCause());
+        }
+        for (T linha : convertidas) {
+            destino.aceitar(linha);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,178 @@
+package com.municipios.etl;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Tabelas de staging (sufixo _carga) e troca com as tabelas em uso.
+ *
+ * A carga é toda feita nas tabelas _carga, que o servidor não lê. No fim,
+ * um único RENAME TABLE troca as três tabelas de uma vez: o servidor vê os
+ * dados antigos ou os novos, nunca tabelas vazias ou meio carregadas.
+ *
+ * O código do município é um INT, e ubs_estabelecimentos tem a chave
+ * primária (ibge_municipio, cnes): no InnoDB as linhas ficam agrupadas por
+ * município e já ordenadas pelo CNES, e a listagem de um município lê um só
+ * intervalo da chave primária, sem ida ao índice secundário.
+ */
+final class TabelasCarga {
+
+    static final String ESTABELECIMENTOS = "ubs_estabelecimentos";
+    static final String TOTAIS = "ubs_totais_municipio";
+    static final String DEMOGRAFIA = "demografia_municipio";
+
+    // Tabela de trabalho com os médicos e enfermeiros; não é trocada
+    static final String PROFISSIONAIS = "profissionais_carga";
+
+    static final String CARGA = "_carga";
+    private static final String ANTIGA = "_antiga";
+
+    private static final String[] TROCADAS = {ESTABELECIMENTOS, TOTAIS, DEMOGRAFIA};
+
+    static final String[] COLUNAS_ESTABELECIMENTOS = {"cnes", "ibge_municipio", "nome", "logradouro",
+            "bairro", "latitude", "longitude", "cep", "eh_ubs"};
+
+    static final String[] COLUNAS_PROFISSIONAIS = {"cnes", "profissional", "tipo"};
+
+    static final String[] COLUNAS_DEMOGRAFIA = {"ibge_municipio", "municipio_nome", "populacao_total",
+            "populacao_homens", "populacao_mulheres", "faixa_0_10", "faixa_11_20", "faixa_21_30", "faixa_40_mais"};
+
+    private static final String OPCOES_MYSQL = " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+
+    private TabelasCarga() {
+    }
+
+    /**
+     * Apaga restos de uma carga anterior interrompida e cria as tabelas
+     * _carga vazias (e as tabelas finais, se ainda não existirem).
+     */
+    static void preparar(Connection conexao) throws SQLException {
+        boolean mysql = ehMySql(conexao);
+        try (Statement st = conexao.createStatement()) {
+            for (String tabela : TROCADAS) {
+                st.execute("DROP TABLE IF EXISTS " + tabela + CARGA);
+                st.execute("DROP TABLE IF EXISTS " + tabela + ANTIGA);
+            }
+            st.execute("DROP TABLE IF EXISTS " + PROFISSIONAIS);
+
+            // Mesmas definições de criar_tabelas() em scripts_ETL/importar_dados.py
+            for (String sufixo : new String[]{CARGA, ""}) {
+                String seNaoExistir = sufixo.isEmpty() ? "IF NOT EXISTS " : "";
+                st.execute("CREATE TABLE " + seNaoExistir + DEMOGRAFIA + sufixo + " ("
+                        + "ibge_municipio INT PRIMARY KEY, "
+                        + "municipio_nome VARCHAR(255), "
+                        + "populacao_total BIGINT, "
+                        + "populacao_homens BIGINT, "
+                        + "populacao_mulheres BIGINT, "
+                        + "faixa_0_10 BIGINT, "
+                        + "faixa_11_20 BIGINT, "
+                        + "faixa_21_30 BIGINT, "
+                        + "faixa_40_mais BIGINT)" + opcoes(mysql));
+                st.execute("CREATE TABLE " + seNaoExistir + ESTABELECIMENTOS + sufixo + " ("
+                        + "cnes VARCHAR(15) NOT NULL, "
+                        + "ibge_municipio INT NOT NULL, "
+                        + "nome VARCHAR(255), "
+                        + "logradouro VARCHAR(255), "
+                        + "bairro VARCHAR(100), "
+                        + "latitude DECIMAL(12, 9), "
+                        + "longitude DECIMAL(12, 9), "
+                        + "cep VARCHAR(9), "
+                        + "eh_ubs TINYINT(1), "
+                        + "PRIMARY KEY (ibge_municipio, cnes), "
+                        + "UNIQUE (cnes))" + opcoes(mysql));
+                st.execute("CREATE TABLE " + seNaoExistir + TOTAIS + sufixo + " ("
+                        + "ibge_municipio INT PRIMARY KEY, "
+                        + "total_ubs INT, "
+                        + "total_medicos INT, "
+                        + "total_enfermeiros INT)" + opcoes(mysql));
+            }
+            st.execute("CREATE TABLE " + PROFISSIONAIS + " ("
+                    + "cnes VARCHAR(15), "
+                    + "profissional VARCHAR(32), "
+                    + "tipo CHAR(1))" + opcoes(mysql));
+        }
+        conexao.commit();
+    }
+
+    /**
+     * Preenche ubs_totais_municipio_carga a partir dos estabelecimentos e
+     * profissionais já carregados: total de estabelecimentos por município e
+     * profissionais distintos de cada tipo nesses estabelecimentos.
+     *
+     * @return quantidade de municípios gravados
+     */
+    static int calcularTotais(Connection conexao) throws SQLException {
+        String sql = "INSERT INTO " + TOTAIS + CARGA
+                + " (ibge_municipio, total_ubs, total_medicos, total_enfermeiros)"
+                + " SELECT e.ibge_municipio, COUNT(DISTINCT e.cnes),"
+                + " COUNT(DISTINCT CASE WHEN p.tipo = '" + ConversoresCsv.MEDICO + "' THEN p.profissional END),"
+                + " COUNT(DISTINCT CASE WHEN p.tipo = '" + ConversoresCsv.ENFERMEIRO + "' THEN p.profissional END)"
+                + " FROM " + ESTABELECIMENTOS + CARGA + " e"
+                + " LEFT JOIN " + PROFISSIONAIS + " p ON p.cnes = e.cnes"
+                + " GROUP BY e.ibge_municipio";
+        try (Statement st = conexao.createStatement()) {
+            // Índice criado só depois da carga, que assim não o tem de manter linha a linha
+            st.execute("CREATE INDEX idx_profissionais_cnes ON " + PROFISSIONAIS + " (cnes)");
+            int municipios = st.executeUpdate(sql);
+            st.execute("DROP TABLE " + PROFISSIONAIS);
+            conexao.commit();
+            return municipios;
+        }
+    }
+
+    /**
+     * Põe as tabelas _carga no lugar das tabelas em uso e apaga as antigas.
+     *
+     * No MySQL a troca é um único RENAME TABLE, atómico. Noutros bancos (H2
+     * nos testes locais) as tabelas são renomeadas uma a uma.
+     */
+    static void trocar(Connection conexao) throws SQLException {
+        boolean mysql = ehMySql(conexao);
+        try (Statement st = conexao.createStatement()) {
+            if (mysql) {
+                StringBuilder renomear = new StringBuilder("RENAME TABLE ");
+                for (int i = 0; i < TROCADAS.length; i++) {
+                    String tabela = TROCADAS[i];
+                    renomear.append(i == 0 ? "" : ", ")
+                            .append(tabela).append(" TO ").append(tabela).append(ANTIGA).append(", ")
+                            .append(tabela).append(CARGA).append(" TO ").append(tabela);
+                }
+                st.execute(renomear.toString());
+            } else {
+                for (String tabela : TROCADAS) {
+                    st.execute("ALTER TABLE " + tabela + " RENAME TO " + tabela + ANTIGA);
+                    st.execute("ALTER TABLE " + tabela + CARGA + " RENAME TO " + tabela);
+                }
+            }
+            for (String tabela : TROCADAS) {
+                st.execute("DROP TABLE " + tabela + ANTIGA);
+            }
+        }
+        conexao.commit();
+    }
+
+    /**
+     * Falha se as tabelas em uso ainda forem do esquema com ibge_municipio
+     * VARCHAR (o modo incremental não as altera; a carga completa recria-as)
+     */
+    static void verificarChaveInteira(Connection conexao) throws SQLException {
+        try (Statement st = conexao.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ibge_municipio FROM " + ESTABELECIMENTOS + " WHERE 1 = 0")) {
+            if (rs.getMetaData().getColumnType(1) != Types.INTEGER) {
+                throw new SQLException(ESTABELECIMENTOS + ".ibge_municipio ainda não é INT: "
+                        + "faça uma carga completa (-Detl.modo=completo) para recriar as tabelas");
+            }
+        }
+    }
+
+    private static String opcoes(boolean mysql) {
+        return mysql ? OPCOES_MYSQL : "";
+    }
+
+    private static boolean ehMySql(Connection conexao) throws SQLException {
+        return "MySQL".equalsIgnoreCase(conexao.getMetaData().getDatabaseProductName());
+    }
+}
@@ -15,4 +15,4 @@ echo ""
 echo "======================================================================"
 echo ""
 
-java -jar target/soap-servidor-1.0.0.jar
+java $JAVA_OPTS -jar target/soap-servidor-1.0.0.jar
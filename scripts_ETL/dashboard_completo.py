@@ -159,6 +159,55 @@ def listar_ubs_municipio(municipio_id, municipio_nome):
     
     return dados
 
+def obter_totais_regionais(uf):
+    """Obtém os totais do Brasil e da UF (indicadores por habitante já calculados)"""
+    xml = fazer_requisicao_soap('obterTotaisRegionais', {'uf': uf})
+    if not xml:
+        return None
+    
+    root = ET.fromstring(xml)
+    ns = {'ns2': 'http://service.soap.municipios.com/'}
+    
+    ret = root.find('.//ns2:obterTotaisRegionaisResponse/return', ns)
+    if ret is None or ret.find('erro') is not None:
+        return None
+    
+    def ler(elemento):
+        return {
+            'sigla': elemento.find('sigla').text if elemento.find('sigla') is not None else uf,
+            'populacaoTotal': int(elemento.find('populacaoTotal').text or 0),
+            'ubsPor10MilHabitantes': float(elemento.find('ubsPor10MilHabitantes').text or 0),
+            'medicosPorMilHabitantes': float(elemento.find('medicosPorMilHabitantes').text or 0),
+            'enfermeirosPorMilHabitantes': float(elemento.find('enfermeirosPorMilHabitantes').text or 0)
+        }
+    
+    ufs = ret.findall('ufs')
+    return {
+        'nacional': ler(ret.find('nacional')),
+        'uf': ler(ufs[0]) if ufs else None
+    }
+
+def obter_posicoes_municipio(municipio_id):
+    """Posição do município na UF em cada indicador por habitante (ranking do maior para o menor)"""
+    posicoes = {}
+    for indicador in ('UBS_POR_10MIL_HAB', 'MEDICOS_POR_MIL_HAB', 'ENFERMEIROS_POR_MIL_HAB'):
+        xml = fazer_requisicao_soap('compararMunicipios', {
+            'municipioIds': f'<item>{municipio_id}</item>',
+            'indicador': indicador
+        })
+        if not xml:
+            return None
+        
+        root = ET.fromstring(xml)
+        ns = {'ns2': 'http://service.soap.municipios.com/'}
+        
+        item = root.find('.//ns2:compararMunicipiosResponse/return/item', ns)
+        if item is None or item.find('erro') is not None:
+            return None
+        posicoes[indicador] = f"{item.find('posicaoUF').text}º/{item.find('totalUF').text}"
+    
+    return posicoes
+
 def consultar_cep(cep):
     """Consulta um CEP"""
     xml = fazer_requisicao_soap('consultarCEP', {'cep': cep})
@@ -382,8 +431,8 @@ def criar_dashboard_completo(municipio_id, municipio_nome, uf):
     
     return fig, dados_pop, dados_ubs
 
-def gerar_relatorio_texto(municipio_nome, uf, dados_pop, dados_ubs):
-    """Gera relatório em texto"""
+def gerar_relatorio_texto(municipio_nome, uf, dados_pop, dados_ubs, totais=None, posicoes=None):
+    """Gera relatório em texto (com a comparação com a UF e o Brasil, se houver totais, e as posições na UF)"""
     
     razao_ubs_pop = (dados_ubs['totalSomenteUbs'] / dados_pop['populacaoTotal'] * 10000) if dados_pop['populacaoTotal'] > 0 else 0
     razao_medico_pop = (dados_ubs['totalMedicos'] / dados_pop['populacaoTotal'] * 1000) if dados_pop['populacaoTotal'] > 0 else 0
@@ -391,6 +440,29 @@ def gerar_relatorio_texto(municipio_nome, uf, dados_pop, dados_ubs):
     
     ubs_com_geo = sum(1 for u in dados_ubs['ubs'] if u['latitude'] != 0 and u['longitude'] != 0)
     
+    comparacao = ''
+    posicoes_uf = ''
+    if posicoes and not (totais and totais['uf']):
+        # Sem os totais da UF, as posições no ranking aparecem sozinhas
+        posicoes_uf = f"""
+🏆 POSIÇÃO NA UF ({uf})
+{'─'*80}
+    UBS por 10.000 hab:           {posicoes.get('UBS_POR_10MIL_HAB', '-'):>12}
+    Médicos por 1.000 hab:        {posicoes.get('MEDICOS_POR_MIL_HAB', '-'):>12}
+    Enfermeiros por 1.000 hab:    {posicoes.get('ENFERMEIROS_POR_MIL_HAB', '-'):>12}
+"""
+    if totais and totais['uf']:
+        regiao_uf, brasil = totais['uf'], totais['nacional']
+        posicoes = posicoes or {}
+        comparacao = f"""
+🗺️ COMPARAÇÃO COM A UF E O BRASIL
+{'─'*80}
+                                  {'Município':>12} {regiao_uf['sigla']:>12} {'Brasil':>12} {'Posição UF':>12}
+    UBS por 10.000 hab:           {razao_ubs_pop:>12.2f} {regiao_uf['ubsPor10MilHabitantes']:>12.2f} {brasil['ubsPor10MilHabitantes']:>12.2f} {posicoes.get('UBS_POR_10MIL_HAB', '-'):>12}
+    Médicos por 1.000 hab:        {razao_medico_pop:>12.2f} {regiao_uf['medicosPorMilHabitantes']:>12.2f} {brasil['medicosPorMilHabitantes']:>12.2f} {posicoes.get('MEDICOS_POR_MIL_HAB', '-'):>12}
+    Enfermeiros por 1.000 hab:    {razao_enf_pop:>12.2f} {regiao_uf['enfermeirosPorMilHabitantes']:>12.2f} {brasil['enfermeirosPorMilHabitantes']:>12.2f} {posicoes.get('ENFERMEIROS_POR_MIL_HAB', '-'):>12}
+"""
+    
     relatorio = f"""
 {'='*80}
                 RELATÓRIO COMPLETO DE SAÚDE MUNICIPAL
@@ -432,7 +504,7 @@ def gerar_relatorio_texto(municipio_nome, uf, dados_pop, dados_ubs):
     Médicos por UBS:              {dados_ubs['totalMedicos']/dados_ubs['totalSomenteUbs'] if dados_ubs['totalSomenteUbs'] > 0 else 0:>15.2f}
     Enfermeiros por UBS:          {dados_ubs['totalEnfermeiros']/dados_ubs['totalSomenteUbs'] if dados_ubs['totalSomenteUbs'] > 0 else 0:>15.2f}
     Profissionais por UBS:        {(dados_ubs['totalMedicos']+dados_ubs['totalEnfermeiros'])/dados_ubs['totalSomenteUbs'] if dados_ubs['totalSomenteUbs'] > 0 else 0:>15.2f}
-
+{comparacao}{posicoes_uf}
 {'='*80}
 Relatório gerado em: {datetime.now().strftime('%d/%m/%Y às %H:%M:%S')}
 {'='*80}
@@ -502,7 +574,9 @@ def main():
     fig, dados_pop, dados_ubs = resultado
     
     # Exibir relatório
-    relatorio = gerar_relatorio_texto(municipio_selecionado['nome'], uf, dados_pop, dados_ubs)
+    totais = obter_totais_regionais(uf)
+    posicoes = obter_posicoes_municipio(municipio_selecionado['id'])
+    relatorio = gerar_relatorio_texto(municipio_selecionado['nome'], uf, dados_pop, dados_ubs, totais, posicoes)
     print(relatorio)
     
     # Salvar arquivos
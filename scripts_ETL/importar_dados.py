@@ -2,6 +2,7 @@ import pandas as pd
 import mysql.connector
 from mysql.connector import errorcode
 import sys
+import unicodedata
 
 # --- CONFIGURAÇÃO DO BANCO ---
 DB_CONFIG = {
@@ -24,6 +25,21 @@ CBO_ENFERMEIROS = [
 ]
 # ----------------------------------
 
+def normalizar_nome(nome):
+    """Nome em maiúsculas e sem acentos (ex: 'Unidade Básica' -> 'UNIDADE BASICA')"""
+    if not isinstance(nome, str):
+        return ''
+    decomposto = unicodedata.normalize('NFD', nome)
+    return ''.join(c for c in decomposto if unicodedata.category(c) != 'Mn').upper()
+
+def classificar_ubs(nome):
+    """
+    1 se o nome indica uma Unidade Básica de Saúde, 0 caso contrário.
+    Mesma regra de ClassificadorEstabelecimento.ehUbs no servidor.
+    """
+    normalizado = normalizar_nome(nome)
+    return 1 if 'UBS' in normalizado or 'UNIDADE BASICA' in normalizado else 0
+
 def conectar_bd():
     """Tenta conectar ao banco de dados"""
     try:
@@ -47,11 +63,22 @@ def criar_tabelas(conn):
     tabelas_criadas = []
     
     try:
+        # Bancos criados com ibge_municipio VARCHAR: as tabelas são recriadas com a
+        # chave INT (limpar_tabelas esvazia-as a seguir de qualquer forma)
+        cursor.execute("""
+            SELECT TABLE_NAME FROM information_schema.COLUMNS
+            WHERE TABLE_SCHEMA = DATABASE() AND COLUMN_NAME = 'ibge_municipio' AND DATA_TYPE <> 'int'
+              AND TABLE_NAME IN ('demografia_municipio', 'ubs_estabelecimentos', 'ubs_totais_municipio');
+        """)
+        for (tabela,) in cursor.fetchall():
+            cursor.execute(f"DROP TABLE {tabela};")
+            print(f"... {tabela}: ibge_municipio passa a INT (tabela recriada)")
+
         # Tabela de Demografia
         try:
             cursor.execute("""
                 CREATE TABLE IF NOT EXISTS demografia_municipio (
-                    ibge_municipio VARCHAR(10) PRIMARY KEY,
+                    ibge_municipio INT PRIMARY KEY,
                     municipio_nome VARCHAR(255),
                     populacao_total BIGINT,
                     populacao_homens BIGINT,
@@ -71,14 +98,17 @@ def criar_tabelas(conn):
         try:
             cursor.execute("""
                 CREATE TABLE IF NOT EXISTS ubs_estabelecimentos (
-                    cnes VARCHAR(15) PRIMARY KEY,
-                    ibge_municipio VARCHAR(10),
+                    cnes VARCHAR(15) NOT NULL,
+                    ibge_municipio INT NOT NULL,
                     nome VARCHAR(255),
                     logradouro VARCHAR(255),
                     bairro VARCHAR(100),
                     latitude DECIMAL(12, 9),
                     longitude DECIMAL(12, 9),
-                    cep VARCHAR(9)
+                    cep VARCHAR(9),
+                    eh_ubs TINYINT(1),
+                    PRIMARY KEY (ibge_municipio, cnes),
+                    UNIQUE KEY uk_cnes (cnes)
                 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
             """)
             if cursor.rowcount == 0:
@@ -86,20 +116,20 @@ def criar_tabelas(conn):
         except mysql.connector.Error:
             pass  # Tabela já existe
         
-        # Criar índice se não existir
+        # Bancos criados antes da coluna eh_ubs
         try:
-            cursor.execute("""
-                CREATE INDEX IF NOT EXISTS idx_ibge_municipio 
-                ON ubs_estabelecimentos (ibge_municipio);
-            """)
+            cursor.execute("ALTER TABLE ubs_estabelecimentos ADD COLUMN eh_ubs TINYINT(1);")
         except mysql.connector.Error:
-            pass  # Índice já existe ou sintaxe não suportada
-        
+            pass  # Coluna já existe
+
+        # Sem índice em ibge_municipio: a chave primária (ibge_municipio, cnes) agrupa
+        # as linhas por município e serve a listagem sem ida a um índice secundário
+
         # Tabela de Totais
         try:
             cursor.execute("""
                 CREATE TABLE IF NOT EXISTS ubs_totais_municipio (
-                    ibge_municipio VARCHAR(10) PRIMARY KEY,
+                    ibge_municipio INT PRIMARY KEY,
                     total_ubs INT,
                     total_medicos INT,
                     total_enfermeiros INT
@@ -169,17 +199,22 @@ def importar_estabelecimentos(conn):
         'CEP': 'cep'
     }, inplace=True)
 
+    df['ibge_municipio'] = pd.to_numeric(df['ibge_municipio'], errors='coerce')
     df.dropna(subset=['cnes', 'ibge_municipio'], inplace=True)
+    df['ibge_municipio'] = df['ibge_municipio'].astype(int)
     df.drop_duplicates(subset=['cnes'], inplace=True)
     df = df.fillna(0) 
 
+    # Classificação UBS/Outros feita uma vez aqui, e não a cada requisição no servidor
+    df['eh_ubs'] = df['nome'].map(classificar_ubs)
+
     cursor = conn.cursor()
     
     sql = """
         INSERT INTO ubs_estabelecimentos 
-        (cnes, ibge_municipio, nome, logradouro, bairro, latitude, longitude, cep)
-        VALUES (%s, %s, %s, %s, %s, %s, %s, %s) AS new_data
-        ON DUPLICATE KEY UPDATE nome=new_data.nome;
+        (cnes, ibge_municipio, nome, logradouro, bairro, latitude, longitude, cep, eh_ubs)
+        VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s) AS new_data
+        ON DUPLICATE KEY UPDATE nome=new_data.nome, eh_ubs=new_data.eh_ubs;
     """
     
     total = 0
@@ -187,13 +222,14 @@ def importar_estabelecimentos(conn):
         for row in df.itertuples(index=False):
             data = (
                 row.cnes,
-                row.ibge_municipio,
+                int(row.ibge_municipio),
                 row.nome,
                 row.logradouro,
                 row.bairro,
                 round(float(row.latitude), 8) if row.latitude else 0.0,
                 round(float(row.longitude), 8) if row.longitude else 0.0,
-                str(row.cep).replace('.0', '')
+                str(row.cep).replace('.0', ''),
+                int(row.eh_ubs)
             )
             cursor.execute(sql, data)
             total += 1
@@ -281,7 +317,7 @@ def calcular_e_importar_totais(conn, df_estab):
     try:
         for row in df_final_totals.itertuples(index=False):
             data = (
-                row.ibge_municipio,
+                int(row.ibge_municipio),
                 int(row.total_ubs),
                 int(row.total_medicos),
                 int(row.total_enfermeiros)
@@ -344,7 +380,7 @@ def importar_demografia_simulada(conn):
     # --- Processamento dos Dados ---
     
     # 1. Converter CD_MUN de 7 dígitos para 6 (ex: 1100015 -> 110001)
-    df['ibge_municipio'] = df['CD_MUN'].astype(str).str[:6]
+    df['ibge_municipio'] = df['CD_MUN'].astype(str).str[:6].astype(int)
     
     # 2. Calcular Faixas Etárias (conforme solicitado)
     df['faixa_0_10'] = df['V01018'] + df['V01032'] # 0-9 anos (aprox 0-10)
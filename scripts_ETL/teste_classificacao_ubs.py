@@ -1,82 +1,169 @@
 """
-Script de teste rápido para verificar a classificação de UBS
+Teste de regressão da classificação de UBS.
+
+A classificação passou a ser calculada uma vez no ETL (coluna eh_ubs) em vez
+de a cada requisição no servidor. Este script confirma que a separação nova
+coincide com a regra antiga (upper + contains):
+
+1. Offline: classificar_ubs() contra a regra antiga numa lista fixa de nomes.
+2. Online: para cada município, compara a separação devolvida por
+   listarEstabelecimentosPorTipo com a regra antiga aplicada à lista
+   completa de listarUBSMunicipio.
+
+Estabelecimentos que eram UBS e deixaram de ser fazem o teste falhar.
+Os que passaram a ser UBS só por causa da normalização de acentos
+(ex: "UNIDADE BÀSICA") são listados como aviso.
+
+Uso: python teste_classificacao_ubs.py [codigo_ibge_7_digitos ...]
 """
 
+import sys
 import requests
 from xml.etree import ElementTree as ET
 
+from importar_dados import classificar_ubs
+
 SOAP_URL = "http://0.0.0.0:8080/ws/municipios"
 
-def testar_classificacao_ubs():
-    """Testa a classificação de estabelecimentos"""
-    
-    # Fazer requisição
-    soap_request = '''<?xml version="1.0" encoding="UTF-8"?>
-<soap:Envelope xmlns:soap="http://schemas.xmlsoap.org/soap/envelope/" 
+# Manaus, São Paulo, Rio de Janeiro
+MUNICIPIOS_PADRAO = ['1302603', '3550308', '3304557']
+
+NOMES_AMOSTRA = [
+    'UBS VILA NOVA',
+    'Ubs Centro',
+    'UNIDADE BASICA DE SAUDE JOSE ALVES',
+    'UNIDADE BÁSICA DE SAÚDE MARIA DAS DORES',
+    'Unidade Básica de Saúde Santa Luzia',
+    'unidade basica de saude rural',
+    'HOSPITAL MUNICIPAL',
+    'CENTRO DE SAUDE ESCOLA',
+    'POLICLINICA UBSF',
+    'CLINICA SUBSEDE',
+    'PRONTO SOCORRO',
+    '',
+]
+
+
+def classificar_legado(nome):
+    """Regra usada pelo servidor antes da coluna eh_ubs"""
+    nome_upper = (nome or '').upper()
+    return 'UBS' in nome_upper or 'UNIDADE BASICA' in nome_upper or 'UNIDADE BÁSICA' in nome_upper
+
+
+def chamar_soap(operacao, municipio_id):
+    soap_request = f'''<?xml version="1.0" encoding="UTF-8"?>
+<soap:Envelope xmlns:soap="http://schemas.xmlsoap.org/soap/envelope/"
                xmlns:ser="http://service.soap.municipios.com/">
   <soap:Body>
-    <ser:listarUBSMunicipio>
-      <municipioId>1302603</municipioId>
-      <municipioNome>Manaus</municipioNome>
-    </ser:listarUBSMunicipio>
+    <ser:{operacao}>
+      <municipioId>{municipio_id}</municipioId>
+      <municipioNome></municipioNome>
+    </ser:{operacao}>
   </soap:Body>
 </soap:Envelope>'''
-    
+
     headers = {
         'Content-Type': 'text/xml; charset=utf-8',
         'SOAPAction': '""'
     }
-    
-    response = requests.post(SOAP_URL, data=soap_request, headers=headers)
-    root = ET.fromstring(response.text)
-    
+
+    response = requests.post(SOAP_URL, data=soap_request.encode('utf-8'), headers=headers)
+    root = ET.fromstring(response.content)
+
     ns = {'ns2': 'http://service.soap.municipios.com/'}
-    ret = root.find('.//ns2:listarUBSMunicipioResponse/return', ns)
-    
+    return root.find(f'.//ns2:{operacao}Response/return', ns)
+
+
+def estabelecimentos(elemento, tag):
+    """Dicionário cnes -> nome dos elementos <tag> de uma resposta"""
+    resultado = {}
+    for item in elemento.findall(tag):
+        resultado[item.findtext('cnes')] = item.findtext('nome') or ''
+    return resultado
+
+
+def comparar(nomes_por_cnes, novos_ubs, titulo):
+    """
+    Compara um conjunto de CNES classificados como UBS com a regra antiga.
+    Devolve o número de perdas (UBS pela regra antiga que deixaram de ser).
+    """
+    perdas = []
+    ganhos = []
+    for cnes, nome in nomes_por_cnes.items():
+        antigo = classificar_legado(nome)
+        novo = cnes in novos_ubs
+        if antigo and not novo:
+            perdas.append(nome)
+        elif novo and not antigo:
+            ganhos.append(nome)
+
+    if perdas:
+        print(f"   ❌ {titulo}: {len(perdas)} UBS pela regra antiga classificadas como Outros")
+        for nome in perdas[:10]:
+            print(f"      - {nome}")
+    if ganhos:
+        print(f"   ⚠️  {titulo}: {len(ganhos)} passaram a UBS (normalização de acentos)")
+        for nome in ganhos[:10]:
+            print(f"      - {nome}")
+    if not perdas and not ganhos:
+        print(f"   ✅ {titulo}: separação idêntica à regra antiga")
+    return len(perdas)
+
+
+def testar_amostra():
+    print("\n📋 AMOSTRA FIXA (offline)")
+    nomes = {str(i): nome for i, nome in enumerate(NOMES_AMOSTRA)}
+    novos_ubs = {cnes for cnes, nome in nomes.items() if classificar_ubs(nome)}
+    return comparar(nomes, novos_ubs, "classificar_ubs")
+
+
+def testar_municipio(municipio_id):
+    dados = chamar_soap('listarUBSMunicipio', municipio_id)
+    por_tipo = chamar_soap('listarEstabelecimentosPorTipo', municipio_id)
+
+    todos = estabelecimentos(dados, 'listaUbs')
+    ubs_servidor = estabelecimentos(por_tipo, 'estabelecimentosUBS')
+    outros_servidor = estabelecimentos(por_tipo, 'estabelecimentosOutros')
+
+    print(f"\n🏙️  MUNICÍPIO {municipio_id}: {len(todos)} estabelecimentos "
+          f"({len(ubs_servidor)} UBS / {len(outros_servidor)} outros no servidor)")
+
+    falhas = 0
+    if set(ubs_servidor) | set(outros_servidor) != set(todos):
+        print("   ❌ A separação por tipo não cobre exatamente a lista completa")
+        falhas += 1
+
+    falhas += comparar(todos, set(ubs_servidor), "servidor (eh_ubs)")
+
+    novos_ubs = {cnes for cnes, nome in todos.items() if classificar_ubs(nome)}
+    falhas += comparar(todos, novos_ubs, "ETL (classificar_ubs)")
+    return falhas
+
+
+def testar_classificacao_ubs(municipios):
     print("=" * 80)
-    print("TESTE DE CLASSIFICAÇÃO DE ESTABELECIMENTOS - MANAUS")
+    print("TESTE DE REGRESSÃO DA CLASSIFICAÇÃO DE ESTABELECIMENTOS")
     print("=" * 80)
-    
-    total_ubs = 0
-    total_outros = 0
-    
-    exemplos_ubs = []
-    exemplos_outros = []
-    
-    for item in ret.findall('listaUbs'):
-        nome = item.find('nome').text or ''
-        nome_upper = nome.upper()
-        
-        if 'UBS' in nome_upper or 'UNIDADE BASICA' in nome_upper or 'UNIDADE BÁSICA' in nome_upper:
-            total_ubs += 1
-            if len(exemplos_ubs) < 5:
-                exemplos_ubs.append(nome)
-        else:
-            total_outros += 1
-            if len(exemplos_outros) < 5:
-                exemplos_outros.append(nome)
-    
-    total = total_ubs + total_outros
-    
-    print(f"\n📊 RESUMO:")
-    print(f"   Total de Estabelecimentos: {total}")
-    print(f"   ├─ UBS: {total_ubs} ({total_ubs/total*100:.1f}%)")
-    print(f"   └─ Outros: {total_outros} ({total_outros/total*100:.1f}%)")
-    
-    print(f"\n✅ EXEMPLOS DE UBS ({len(exemplos_ubs)}):")
-    for i, nome in enumerate(exemplos_ubs, 1):
-        print(f"   {i}. {nome}")
-    
-    print(f"\n⚠️  EXEMPLOS DE OUTROS ESTABELECIMENTOS ({len(exemplos_outros)}):")
-    for i, nome in enumerate(exemplos_outros, 1):
-        print(f"   {i}. {nome}")
-    
+
+    falhas = testar_amostra()
+    for municipio_id in municipios:
+        falhas += testar_municipio(municipio_id)
+
     print("\n" + "=" * 80)
+    if falhas:
+        print(f"❌ {falhas} divergência(s) em relação à regra antiga")
+    else:
+        print("✅ Nenhum estabelecimento deixou de ser classificado como UBS")
+    print("=" * 80)
+    return falhas == 0
+
 
 if __name__ == "__main__":
     try:
-        testar_classificacao_ubs()
+        ok = testar_classificacao_ubs(sys.argv[1:] or MUNICIPIOS_PADRAO)
+        sys.exit(0 if ok else 1)
     except Exception as e:
         print(f"❌ Erro: {e}")
         import traceback
         traceback.print_exc()
+        sys.exit(1)
@@ -0,0 +1,122 @@
+"""
+Teste de concorrência: N chamadas iguais em simultâneo devem gerar uma
+única ida ao serviço externo.
+
+O script sobe um ViaCEP falso e lento na porta 8099 que conta as
+requisições recebidas. O servidor SOAP tem de ser iniciado a apontar para ele:
+
+    JAVA_OPTS="-Dviacep.url=http://localhost:8099" ./iniciar_servidor.sh
+
+Cada execução usa um CEP diferente, para não ser respondida pelo cache de CEP.
+
+Uso: python teste_coalescencia.py [numero_de_chamadas]
+"""
+
+import json
+import random
+import sys
+import threading
+import time
+from concurrent.futures import ThreadPoolExecutor
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+import requests
+
+SOAP_URL = "http://0.0.0.0:8080/ws/municipios"
+PORTA_VIACEP_FALSO = 8099
+ATRASO_VIACEP_S = 1.0
+
+chamadas_viacep = 0
+trava = threading.Lock()
+
+
+class ViaCepFalso(BaseHTTPRequestHandler):
+    """Responde /ws/<cep>/json/ com atraso, contando as chamadas"""
+
+    def do_GET(self):
+        global chamadas_viacep
+        with trava:
+            chamadas_viacep += 1
+
+        time.sleep(ATRASO_VIACEP_S)
+        cep = self.path.strip('/').split('/')[1]
+        corpo = json.dumps({
+            'cep': f'{cep[:5]}-{cep[5:]}',
+            'logradouro': 'Rua de Teste',
+            'complemento': '',
+            'bairro': 'Centro',
+            'localidade': 'Manaus',
+            'uf': 'AM'
+        }).encode('utf-8')
+
+        self.send_response(200)
+        self.send_header('Content-Type', 'application/json; charset=utf-8')
+        self.send_header('Content-Length', str(len(corpo)))
+        self.end_headers()
+        self.wfile.write(corpo)
+
+    def log_message(self, format, *args):
+        pass
+
+
+def consultar_cep(cep):
+    soap_request = f'''<?xml version="1.0" encoding="UTF-8"?>
+<soap:Envelope xmlns:soap="http://schemas.xmlsoap.org/soap/envelope/"
+               xmlns:ser="http://service.soap.municipios.com/">
+  <soap:Body>
+    <ser:consultarCEP>
+      <cep>{cep}</cep>
+    </ser:consultarCEP>
+  </soap:Body>
+</soap:Envelope>'''
+
+    headers = {
+        'Content-Type': 'text/xml; charset=utf-8',
+        'SOAPAction': '""'
+    }
+    response = requests.post(SOAP_URL, data=soap_request.encode('utf-8'), headers=headers)
+    return 'Rua de Teste' in response.text
+
+
+def testar_coalescencia(n):
+    servidor = ThreadingHTTPServer(('0.0.0.0', PORTA_VIACEP_FALSO), ViaCepFalso)
+    threading.Thread(target=servidor.serve_forever, daemon=True).start()
+
+    cep = f'{random.randint(10000000, 99999999)}'
+    print("=" * 80)
+    print(f"TESTE DE COALESCÊNCIA: {n} chamadas simultâneas de consultarCEP({cep})")
+    print("=" * 80)
+
+    barreira = threading.Barrier(n)
+
+    def chamar(_):
+        barreira.wait()
+        return consultar_cep(cep)
+
+    inicio = time.time()
+    with ThreadPoolExecutor(max_workers=n) as executor:
+        respostas = list(executor.map(chamar, range(n)))
+    duracao = time.time() - inicio
+    servidor.shutdown()
+
+    corretas = sum(respostas)
+    print(f"\n   Respostas corretas:      {corretas}/{n}")
+    print(f"   Chamadas ao ViaCEP:      {chamadas_viacep}")
+    print(f"   Tempo total:             {duracao:.2f}s (ViaCEP demora {ATRASO_VIACEP_S:.1f}s)")
+
+    ok = corretas == n and chamadas_viacep == 1
+    print("\n" + "=" * 80)
+    print("✅ Uma única ida ao ViaCEP" if ok else "❌ As chamadas não foram agrupadas")
+    print("=" * 80)
+    return ok
+
+
+if __name__ == "__main__":
+    try:
+        n = int(sys.argv[1]) if len(sys.argv) > 1 else 50
+        sys.exit(0 if testar_coalescencia(n) else 1)
+    except Exception as e:
+        print(f"❌ Erro: {e}")
+        import traceback
+        traceback.print_exc()
+        sys.exit(1)
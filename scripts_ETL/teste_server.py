@@ -50,3 +50,135 @@ try:
 except Exception as e:
     print("Erro:", e)
 
+
+# ---------------------------
+# Teste 5: listarEstabelecimentosPaginado (percorre todas as páginas)
+# ---------------------------
+try:
+    print("\n=== Teste: listarEstabelecimentosPaginado ===")
+    municipio_id = 1302603
+    cursor = ""
+    cnes_vistos = []
+    while True:
+        pagina = client.service.listarEstabelecimentosPaginado(municipio_id, "UBS", 20, cursor)
+        if pagina.erro:
+            raise RuntimeError(pagina.erro)
+        cnes_vistos += [e.cnes for e in pagina.estabelecimentos]
+        if not pagina.proximoCursor:
+            break
+        cursor = pagina.proximoCursor
+    print(f"{len(cnes_vistos)} UBS de {pagina.totalEstabelecimentos} em páginas de 20")
+    assert len(cnes_vistos) == pagina.totalEstabelecimentos
+    assert cnes_vistos == sorted(set(cnes_vistos)), "páginas fora de ordem ou repetidas"
+except Exception as e:
+    print("Erro:", e)
+
+
+# ---------------------------
+# Teste 6: listarEstabelecimentosProximos (centro de Manaus)
+# ---------------------------
+try:
+    print("\n=== Teste: listarEstabelecimentosProximos ===")
+    resultado = client.service.listarEstabelecimentosProximos(-3.119, -60.021, "UBS", 0, 5)
+    if resultado.erro:
+        raise RuntimeError(resultado.erro)
+    distancias = [p.distanciaKm for p in resultado.estabelecimentos]
+    for p in resultado.estabelecimentos:
+        print(f"{p.distanciaKm:8.3f} km  {p.estabelecimento.nome}")
+    assert distancias == sorted(distancias), "resultados fora de ordem de distância"
+except Exception as e:
+    print("Erro:", e)
+
+
+# ---------------------------
+# Teste 7: buscarEstabelecimentosPorNome (sem acentos e com um erro de digitação)
+# ---------------------------
+try:
+    print("\n=== Teste: buscarEstabelecimentosPorNome ===")
+    resultado = client.service.buscarEstabelecimentosPorNome("unidade basca", "", 0, "", 5)
+    if resultado.erro:
+        raise RuntimeError(resultado.erro)
+    print(f"{resultado.totalEncontrados} encontrados")
+    for e in resultado.estabelecimentos or []:
+        marca = "~" if e.aproximado else " "
+        print(f"{marca} {e.estabelecimento.cnes}  {e.estabelecimento.nome}  ({e.municipioNome})")
+
+    resultado = client.service.buscarEstabelecimentosPorNome("ubs", "AM", 0, "", 5)
+    if resultado.erro:
+        raise RuntimeError(resultado.erro)
+    print(f"{resultado.totalEncontrados} encontrados no AM")
+    for e in resultado.estabelecimentos or []:
+        print(f"  {e.estabelecimento.cnes}  {e.estabelecimento.nome}  ({e.municipioNome} - {e.ufSigla}, {e.municipioId})")
+    assert all(e.ufSigla == "AM" and e.municipioId // 100_000 == 13 for e in resultado.estabelecimentos or []), \
+        "estabelecimento fora do AM"
+except Exception as e:
+    print("Erro:", e)
+
+
+# ---------------------------
+# Teste 8: autocompletarMunicipios (sem acentos)
+# ---------------------------
+try:
+    print("\n=== Teste: autocompletarMunicipios ===")
+    sugestoes = client.service.autocompletarMunicipios("sao pa", 5) or []
+    for m in sugestoes:
+        print(f"{m.id}  {m.nome} - {m.ufSigla}")
+    assert sugestoes, "nenhuma sugestão para \"sao pa\""
+    assert all("SÃO PA" in m.nome.upper() for m in sugestoes), "sugestão sem o texto digitado"
+except Exception as e:
+    print("Erro:", e)
+
+
+# ---------------------------
+# Teste 9: obterTotaisRegionais (país e UFs)
+# ---------------------------
+try:
+    print("\n=== Teste: obterTotaisRegionais ===")
+    resultado = client.service.obterTotaisRegionais("")
+    if resultado.erro:
+        raise RuntimeError(resultado.erro)
+    for t in [resultado.nacional] + list(resultado.ufs or []):
+        print(f"{t.sigla}  {t.populacaoTotal:>12,} hab  {t.totalUbs:>6} UBS  "
+              f"{t.ubsPor10MilHabitantes:>5} UBS/10 mil  {t.medicosPorMilHabitantes:>5} méd./mil")
+    assert sum(t.totalEstabelecimentos for t in resultado.ufs or []) == resultado.nacional.totalEstabelecimentos, \
+        "soma das UFs diferente do total nacional"
+
+    resultado = client.service.obterTotaisRegionais("am")
+    if resultado.erro:
+        raise RuntimeError(resultado.erro)
+    ufs = list(resultado.ufs or [])
+    print(f"Só AM: {[(t.codigoUF, t.sigla, t.nome) for t in ufs]}")
+    assert len(ufs) == 1 and ufs[0].codigoUF == 13 and ufs[0].sigla == "AM", "totais do AM ausentes"
+except Exception as e:
+    print("Erro:", e)
+
+
+# ---------------------------
+# Teste 10: listarRankingMunicipios e compararMunicipios
+# ---------------------------
+try:
+    print("\n=== Teste: listarRankingMunicipios ===")
+    ranking = client.service.listarRankingMunicipios("MEDICOS_POR_MIL_HAB", "", "DESC", 5)
+    if ranking.erro:
+        raise RuntimeError(ranking.erro)
+    itens = list(ranking.municipios or [])
+    for m in itens:
+        print(f"{m.posicao:>3}. {m.municipioNome} - {m.ufSigla}  {m.valor} méd./mil")
+    assert all(a.valor >= b.valor for a, b in zip(itens, itens[1:])), "ranking fora de ordem"
+
+    ranking = client.service.listarRankingMunicipios("UBS", "am", "DESC", 5)
+    if ranking.erro:
+        raise RuntimeError(ranking.erro)
+    itens = list(ranking.municipios or [])
+    print(f"Top UBS no AM: {[(m.municipioId, m.municipioNome) for m in itens]}")
+    assert itens and all(m.ufSigla == "AM" and m.municipioId // 100_000 == 13 for m in itens), "ranking fora do AM"
+
+    print("\n=== Teste: compararMunicipios ===")
+    for c in client.service.compararMunicipios([1302603, 3550308], "UBS_POR_10MIL_HAB") or []:
+        if c.erro:
+            print(f"{c.municipioId}: {c.erro}")
+            continue
+        print(f"{c.municipioNome}: {c.valor} UBS/10 mil (UF {c.valorUF}, Brasil {c.valorNacional}); "
+              f"{c.posicaoUF}º de {c.totalUF} na UF, {c.posicaoNacional}º de {c.totalNacional} no país")
+except Exception as e:
+    print("Erro:", e)
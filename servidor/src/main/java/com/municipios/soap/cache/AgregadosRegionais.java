@@ -0,0 +1,149 @@
+package com.municipios.soap.cache;
+
+import java.util.Arrays;
+
+/**
+ * Totais de população, estabelecimentos, médicos e enfermeiros por UF e do
+ * país, somados uma vez ao montar o snapshot. A UF é o código IBGE de 2
+ * dígitos (os 2 primeiros do código do município), usado como posição dos
+ * arrays; a posição 0 guarda o total nacional.
+ *
+ * Médicos e enfermeiros são a soma dos totais de cada município: um
+ * profissional que trabalha em dois municípios conta em ambos.
+ */
+public final class AgregadosRegionais {
+
+    public static final int NACIONAL = 0;
+
+    private static final int POSICOES = 100;
+
+    private final int[] municipios = new int[POSICOES];
+    private final long[] populacaoTotal = new long[POSICOES];
+    private final long[] populacaoHomens = new long[POSICOES];
+    private final long[] populacaoMulheres = new long[POSICOES];
+    private final int[] estabelecimentos = new int[POSICOES];
+    private final int[] ubs = new int[POSICOES];
+    private final int[] medicos = new int[POSICOES];
+    private final int[] enfermeiros = new int[POSICOES];
+
+    // Códigos das UFs com algum município, por ordem
+    private final int[] ufs;
+
+    private AgregadosRegionais(TabelaEstabelecimentos tabela, TabelaDemografia demografia) {
+        int e = 0;
+        int d = 0;
+        int totalEstabelecimentos = tabela.getTotalMunicipios();
+        int totalDemografia = demografia.getTotalMunicipios();
+        // Os dois diretórios estão ordenados pelo código: percorridos juntos, cada município conta uma vez
+        while (e < totalEstabelecimentos || d < totalDemografia) {
+            int codigo = e == totalEstabelecimentos ? demografia.codigo(d)
+                    : d == totalDemografia ? tabela.codigo(e)
+                    : Math.min(tabela.codigo(e), demografia.codigo(d));
+            int uf = ufDoMunicipio(codigo);
+            somar(NACIONAL, municipios, 1);
+            somar(uf, municipios, 1);
+            if (e < totalEstabelecimentos && tabela.codigo(e) == codigo) {
+                int linhas = tabela.fim(e) - tabela.inicio(e);
+                int soUbs = tabela.inicioOutros(e) - tabela.inicio(e);
+                for (int posicao : new int[]{NACIONAL, uf}) {
+                    somar(posicao, estabelecimentos, linhas);
+                    somar(posicao, ubs, soUbs);
+                    somar(posicao, medicos, tabela.totalMedicos(e));
+                    somar(posicao, enfermeiros, tabela.totalEnfermeiros(e));
+                }
+                e++;
+            }
+            if (d < totalDemografia && demografia.codigo(d) == codigo) {
+                for (int posicao : new int[]{NACIONAL, uf}) {
+                    if (posicao >= 0) {
+                        populacaoTotal[posicao] += demografia.populacaoTotal(d);
+                        populacaoHomens[posicao] += demografia.populacaoHomens(d);
+                        populacaoMulheres[posicao] += demografia.populacaoMulheres(d);
+                    }
+                }
+                d++;
+            }
+        }
+
+        int[] comMunicipios = new int[POSICOES];
+        int n = 0;
+        for (int uf = 1; uf < POSICOES; uf++) {
+            if (municipios[uf] > 0) {
+                comMunicipios[n++] = uf;
+            }
+        }
+        ufs = Arrays.copyOf(comMunicipios, n);
+    }
+
+    static AgregadosRegionais construir(TabelaEstabelecimentos tabela, TabelaDemografia demografia) {
+        return new AgregadosRegionais(tabela, demografia);
+    }
+
+    /**
+     * Heap estimado dos totais (ver TamanhoHeap)
+     */
+    long bytesEstimados() {
+        return TamanhoHeap.de(municipios) + TamanhoHeap.de(populacaoTotal) + TamanhoHeap.de(populacaoHomens)
+                + TamanhoHeap.de(populacaoMulheres) + TamanhoHeap.de(estabelecimentos) + TamanhoHeap.de(ubs)
+                + TamanhoHeap.de(medicos) + TamanhoHeap.de(enfermeiros) + TamanhoHeap.de(ufs);
+    }
+
+    /**
+     * Código da UF (2 dígitos) do município de 6 dígitos, ou -1 se o código
+     * não tiver esse formato (só entra no total nacional)
+     */
+    static int ufDoMunicipio(int ibgeMunicipio6Digitos) {
+        int uf = ibgeMunicipio6Digitos / 10_000;
+        return uf >= 1 && uf < POSICOES && ibgeMunicipio6Digitos >= 100_000 ? uf : -1;
+    }
+
+    private static void somar(int posicao, int[] coluna, int valor) {
+        if (posicao >= 0) {
+            coluna[posicao] += valor;
+        }
+    }
+
+    /**
+     * Códigos das UFs com algum município, por ordem (array partilhado, não alterar)
+     */
+    public int[] getUfs() {
+        return ufs;
+    }
+
+    // --- Totais da UF (código de 2 dígitos) ou do país (NACIONAL); 0 para UFs sem dados ---
+
+    public int municipios(int uf) {
+        return municipios[uf];
+    }
+
+    public long populacaoTotal(int uf) {
+        return populacaoTotal[uf];
+    }
+
+    public long populacaoHomens(int uf) {
+        return populacaoHomens[uf];
+    }
+
+    public long populacaoMulheres(int uf) {
+        return populacaoMulheres[uf];
+    }
+
+    public int estabelecimentos(int uf) {
+        return estabelecimentos[uf];
+    }
+
+    /**
+     * Estabelecimentos classificados como UBS (eh_ubs = 1)
+     */
+    public int ubs(int uf) {
+        return ubs[uf];
+    }
+
+    public int medicos(int uf) {
+        return medicos[uf];
+    }
+
+    public int enfermeiros(int uf) {
+        return enfermeiros[uf];
+    }
+}
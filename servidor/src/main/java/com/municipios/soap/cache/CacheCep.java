@@ -0,0 +1,129 @@
+package com.municipios.soap.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.municipios.soap.model.Endereco;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache das respostas do ViaCEP, indexado pelo CEP normalizado (8 dígitos).
+ * Guarda endereços encontrados e CEPs inexistentes com validades diferentes;
+ * falhas de rede nunca são guardadas.
+ */
+public class CacheCep {
+
+    // --- CONFIGURAÇÃO (sobreponível com -D) ---
+
+    // Número máximo de CEPs em memória
+    private static final long MAXIMO = Long.getLong("cep.cache.max", 10_000L);
+
+    // Validade de um endereço encontrado
+    private static final long TTL_ENCONTRADO_MIN = Long.getLong("cep.cache.ttlMin", 24 * 60L);
+
+    // Validade de um CEP inexistente (resposta "erro" do ViaCEP)
+    private static final long TTL_NAO_ENCONTRADO_MIN = Long.getLong("cep.cache.ttlNaoEncontradoMin", 60L);
+
+    // ------------------------------------------
+
+    /**
+     * Valor devolvido por obter() para CEPs que o ViaCEP não conhece.
+     */
+    public static final Endereco NAO_ENCONTRADO = new Endereco();
+
+    private final Cache<String, Endereco> cache;
+
+    public CacheCep() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(MAXIMO)
+                .expireAfter(new Expiry<String, Endereco>() {
+                    @Override
+                    public long expireAfterCreate(String cep, Endereco endereco, long agora) {
+                        long minutos = endereco == NAO_ENCONTRADO ? TTL_NAO_ENCONTRADO_MIN : TTL_ENCONTRADO_MIN;
+                        return TimeUnit.MINUTES.toNanos(minutos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String cep, Endereco endereco, long agora, long restante) {
+                        return expireAfterCreate(cep, endereco, agora);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String cep, Endereco endereco, long agora, long restante) {
+                        return restante;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Remove tudo o que não for dígito e valida o tamanho.
+     *
+     * @return o CEP com 8 dígitos, ou null se o formato for inválido
+     */
+    public static String normalizar(String cep) {
+        if (cep == null) {
+            return null;
+        }
+        StringBuilder digitos = new StringBuilder(8);
+        for (int i = 0; i < cep.length(); i++) {
+            char c = cep.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            }
+        }
+        return digitos.length() == 8 ? digitos.toString() : null;
+    }
+
+    /**
+     * @return uma cópia do endereço em cache, NAO_ENCONTRADO, ou null se o CEP não estiver em cache
+     */
+    public Endereco obter(String cepNormalizado) {
+        Endereco endereco = cache.getIfPresent(cepNormalizado);
+        if (endereco == null || endereco == NAO_ENCONTRADO) {
+            return endereco;
+        }
+        return copiar(endereco);
+    }
+
+    public void guardar(String cepNormalizado, Endereco endereco) {
+        cache.put(cepNormalizado, copiar(endereco));
+    }
+
+    public void guardarNaoEncontrado(String cepNormalizado) {
+        cache.put(cepNormalizado, NAO_ENCONTRADO);
+    }
+
+    /**
+     * Acertos, falhas e remoções desde o arranque.
+     */
+    public CacheStats estatisticas() {
+        return cache.stats();
+    }
+
+    public long tamanho() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Resumo da configuração para exibir no arranque.
+     */
+    public static String descricaoConfiguracao() {
+        return String.format("max=%,d, ttl=%dmin, ttlNãoEncontrado=%dmin",
+                MAXIMO, TTL_ENCONTRADO_MIN, TTL_NAO_ENCONTRADO_MIN);
+    }
+
+    private static Endereco copiar(Endereco origem) {
+        Endereco copia = new Endereco();
+        copia.setCep(origem.getCep());
+        copia.setLogradouro(origem.getLogradouro());
+        copia.setComplemento(origem.getComplemento());
+        copia.setBairro(origem.getBairro());
+        copia.setLocalidade(origem.getLocalidade());
+        copia.setUf(origem.getUf());
+        return copia;
+    }
+}
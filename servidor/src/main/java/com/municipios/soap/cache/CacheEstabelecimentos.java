@@ -0,0 +1,220 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.database.DatabaseConnector;
+import com.municipios.soap.database.MapeadorDemografia;
+import com.municipios.soap.database.MapeadorUBS;
+import com.municipios.soap.metricas.Medidor;
+import com.municipios.soap.metricas.Metricas;
+import com.municipios.soap.model.DadosPopulacionais;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantém em memória um snapshot das tabelas de estabelecimentos e de
+ * demografia, em colunas (ver TabelaEstabelecimentos).
+ * As tabelas só mudam entre execuções do ETL, por isso são lidas uma vez
+ * no arranque e trocadas atomicamente a cada recarga. Depois de um ETL
+ * incremental basta reler os municípios alterados (atualizarMunicipios).
+ */
+public class CacheEstabelecimentos {
+
+    // Intervalo de recarga automática (0 = apenas no arranque)
+    private static final long RECARGA_MINUTOS = Long.getLong("snapshot.recargaMinutos", 0L);
+
+    // Acima desta quantidade de municípios, uma atualização parcial passa a recarga completa
+    private static final int PARCIAL_MAX_MUNICIPIOS = Integer.getInteger("snapshot.parcialMaxMunicipios", 1000);
+
+    private static final String SQL_ESTABELECIMENTOS =
+            "SELECT e.ibge_municipio, " + MapeadorUBS.COLUNAS + " FROM ubs_estabelecimentos e";
+
+    private static final String ORDEM_ESTABELECIMENTOS = " ORDER BY e.ibge_municipio, e.cnes";
+
+    private static final String SQL_TOTAIS =
+            "SELECT ibge_municipio, total_ubs, total_medicos, total_enfermeiros FROM ubs_totais_municipio";
+
+    private static final String SQL_DEMOGRAFIA =
+            "SELECT ibge_municipio, municipio_nome, " + MapeadorDemografia.COLUNAS + " FROM demografia_municipio";
+
+    private static final int[] SEM_FILTRO = new int[0];
+
+    private static final Medidor BD_SNAPSHOT = Metricas.JDBC.medidor("snapshot");
+
+    private final AtomicReference<SnapshotEstabelecimentos> atual = new AtomicReference<>();
+
+    /**
+     * Snapshot em uso, ou null se ainda não foi possível carregar do banco.
+     */
+    public SnapshotEstabelecimentos atual() {
+        return atual.get();
+    }
+
+    /**
+     * Lê as tabelas e troca o snapshot em uso. Em caso de erro o snapshot
+     * anterior (se houver) continua a ser servido.
+     *
+     * @return true se o novo snapshot foi instalado
+     */
+    public synchronized boolean recarregar() {
+        long inicio = System.nanoTime();
+
+        SnapshotEstabelecimentos novo;
+        long inicioConsulta = BD_SNAPSHOT.iniciar();
+        boolean sucesso = false;
+        try (Connection conn = DatabaseConnector.connect()) {
+            if (conn == null) {
+                System.err.println("Conexão com BD nula ao carregar snapshot de estabelecimentos.");
+                return false;
+            }
+            novo = carregar(conn);
+            sucesso = true;
+        } catch (SQLException e) {
+            System.err.println("Erro de SQL ao carregar snapshot de estabelecimentos: " + e.getMessage());
+            return false;
+        } finally {
+            BD_SNAPSHOT.terminar(inicioConsulta, sucesso);
+        }
+
+        atual.set(novo);
+
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.printf("✓ Snapshot de estabelecimentos: %,d registros em %,d municípios (%,d textos distintos), "
+                        + "demografia de %,d municípios, %,d ms, ~%,d KB de heap%n",
+                novo.getTotalEstabelecimentos(), novo.getTotalMunicipios(), novo.getTotalTextos(),
+                novo.getTotalDemografia(), duracaoMs, novo.getBytesEstimados() / 1024);
+        System.out.printf("✓ Índice espacial: %,d estabelecimentos com coordenadas em %,d células%n",
+                novo.getIndiceEspacial().getTotalPontos(), novo.getIndiceEspacial().getTotalCelulas());
+        System.out.printf("✓ Índice de nomes: %,d palavras distintas%n", novo.getIndiceNomes().getTotalPalavras());
+        return true;
+    }
+
+    /**
+     * Relê do banco só os estabelecimentos e totais dos municípios indicados
+     * (após um ETL incremental) e troca o snapshot; os restantes municípios
+     * são copiados do snapshot em uso. Sem snapshot carregado, ou com
+     * municípios demais, faz a recarga completa.
+     *
+     * @param municipios códigos IBGE de 6 dígitos
+     * @return true se o novo snapshot foi instalado
+     */
+    public synchronized boolean atualizarMunicipios(int[] municipios) {
+        int[] codigos = Arrays.stream(municipios).sorted().distinct().toArray();
+        SnapshotEstabelecimentos anterior = atual.get();
+        if (anterior == null || codigos.length > PARCIAL_MAX_MUNICIPIOS) {
+            return recarregar();
+        }
+        if (codigos.length == 0) {
+            return true;
+        }
+        long inicio = System.nanoTime();
+
+        TabelaEstabelecimentos.Construtor estabelecimentos =
+                new TabelaEstabelecimentos.Construtor().copiar(anterior.getEstabelecimentos(), codigos);
+        long inicioConsulta = BD_SNAPSHOT.iniciar();
+        boolean sucesso = false;
+        try (Connection conn = DatabaseConnector.connect()) {
+            if (conn == null) {
+                System.err.println("Conexão com BD nula ao atualizar o snapshot de estabelecimentos.");
+                return false;
+            }
+            lerTotais(conn, SQL_TOTAIS + emMunicipios("ibge_municipio", codigos.length), codigos, estabelecimentos);
+            lerEstabelecimentos(conn, SQL_ESTABELECIMENTOS + emMunicipios("e.ibge_municipio", codigos.length)
+                    + ORDEM_ESTABELECIMENTOS, codigos, estabelecimentos);
+            sucesso = true;
+        } catch (SQLException e) {
+            System.err.println("Erro de SQL ao atualizar o snapshot de estabelecimentos: " + e.getMessage());
+            return false;
+        } finally {
+            BD_SNAPSHOT.terminar(inicioConsulta, sucesso);
+        }
+
+        SnapshotEstabelecimentos novo = anterior.comEstabelecimentos(estabelecimentos.construir());
+        atual.set(novo);
+        System.out.printf("✓ Snapshot de estabelecimentos atualizado: %,d municípios relidos do BD, "
+                        + "%,d registros no total, %,d ms, ~%,d KB de heap%n",
+                codigos.length, novo.getTotalEstabelecimentos(), (System.nanoTime() - inicio) / 1_000_000,
+                novo.getBytesEstimados() / 1024);
+        return true;
+    }
+
+    /**
+     * Agenda recargas periódicas se -Dsnapshot.recargaMinutos > 0.
+     */
+    public void agendarRecarga() {
+        if (RECARGA_MINUTOS <= 0) {
+            return;
+        }
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-recarga");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(this::recarregar, RECARGA_MINUTOS, RECARGA_MINUTOS, TimeUnit.MINUTES);
+        System.out.println("✓ Recarga do snapshot a cada " + RECARGA_MINUTOS + " min");
+    }
+
+    private SnapshotEstabelecimentos carregar(Connection conn) throws SQLException {
+        TabelaEstabelecimentos.Construtor estabelecimentos = new TabelaEstabelecimentos.Construtor();
+        lerTotais(conn, SQL_TOTAIS, SEM_FILTRO, estabelecimentos);
+        lerEstabelecimentos(conn, SQL_ESTABELECIMENTOS + ORDEM_ESTABELECIMENTOS, SEM_FILTRO, estabelecimentos);
+
+        TabelaDemografia.Construtor demografia = new TabelaDemografia.Construtor();
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_DEMOGRAFIA);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                DadosPopulacionais dados = new DadosPopulacionais();
+                dados.setMunicipioNome(rs.getString(2));
+                MapeadorDemografia.preencher(dados, rs, 3);
+                demografia.adicionar(rs.getInt(1), dados);
+            }
+        }
+
+        return new SnapshotEstabelecimentos(estabelecimentos.construir(), demografia.construir());
+    }
+
+    private static void lerTotais(Connection conn, String sql, int[] municipios,
+                                  TabelaEstabelecimentos.Construtor estabelecimentos) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            preencherCodigos(pstmt, municipios);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    estabelecimentos.totais(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+                }
+            }
+        }
+    }
+
+    private static void lerEstabelecimentos(Connection conn, String sql, int[] municipios,
+                                            TabelaEstabelecimentos.Construtor estabelecimentos) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if ("MySQL".equals(conn.getMetaData().getDatabaseProductName())) {
+                // Lê as linhas em streaming em vez de trazer a tabela inteira de uma vez
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+            }
+            preencherCodigos(pstmt, municipios);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    MapeadorUBS.adicionar(estabelecimentos, rs.getInt(1), rs, 2);
+                }
+            }
+        }
+    }
+
+    private static String emMunicipios(String coluna, int quantidade) {
+        return " WHERE " + coluna + " IN (" + String.join(", ", Collections.nCopies(quantidade, "?")) + ")";
+    }
+
+    private static void preencherCodigos(PreparedStatement pstmt, int[] municipios) throws SQLException {
+        for (int i = 0; i < municipios.length; i++) {
+            pstmt.setInt(i + 1, municipios[i]);
+        }
+    }
+}
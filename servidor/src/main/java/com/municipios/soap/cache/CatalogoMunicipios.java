@@ -0,0 +1,259 @@
+package com.municipios.soap.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.model.Municipio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Collator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Catálogo de municípios do IBGE por UF, lido uma vez no arranque a partir
+ * de um ficheiro binário (recurso /catalogo/municipios.bin).
+ *
+ * Formato (DataOutputStream, big-endian):
+ * <pre>
+ * int    MAGIC ("MUNI")
+ * short  versão do formato
+ * UTF    versão dos dados (ex: "IBGE 2024-06-01")
+ * short  número de UFs
+ *   por UF: UTF sigla, UTF nome, short quantidade,
+ *           quantidade x (int id IBGE de 7 dígitos, UTF nome)
+ * </pre>
+ * O ficheiro é gerado pela API de localidades do IBGE com GeradorCatalogo.
+ */
+public final class CatalogoMunicipios {
+
+    public static final String RECURSO = "/catalogo/municipios.bin";
+
+    private static final int MAGIC = 0x4D554E49;
+    private static final short VERSAO_FORMATO = 1;
+
+    private static final Municipio[] SEM_MUNICIPIOS = new Municipio[0];
+
+    // Sigla da UF -> municípios ordenados por nome
+    private final Map<String, Municipio[]> porUF;
+    private final String versao;
+    private final int totalMunicipios;
+
+    // Todos os municípios, ordenados pelo código de 6 dígitos (sem o dígito verificador)
+    private final int[] codigos;
+    private final Municipio[] porCodigo;
+
+    private final IndiceMunicipios indice;
+
+    private CatalogoMunicipios(Map<String, Municipio[]> porUF, String versao) {
+        this.porUF = Collections.unmodifiableMap(porUF);
+        this.versao = versao;
+        int total = 0;
+        for (Municipio[] municipios : porUF.values()) {
+            total += municipios.length;
+        }
+        this.totalMunicipios = total;
+
+        Municipio[] todos = new Municipio[total];
+        int n = 0;
+        for (Municipio[] municipios : porUF.values()) {
+            System.arraycopy(municipios, 0, todos, n, municipios.length);
+            n += municipios.length;
+        }
+        Arrays.sort(todos, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        this.porCodigo = todos;
+        this.codigos = new int[total];
+        for (int i = 0; i < total; i++) {
+            codigos[i] = todos[i].getId() / 10;
+        }
+        this.indice = new IndiceMunicipios(todos);
+    }
+
+    /**
+     * Carrega o catálogo de -Dcatalogo.arquivo, se definido, ou do recurso
+     * embutido no JAR.
+     *
+     * @return o catálogo, ou null se não existir ou estiver inválido
+     */
+    public static CatalogoMunicipios carregar() {
+        String arquivo = System.getProperty("catalogo.arquivo");
+        try {
+            if (arquivo != null) {
+                try (InputStream in = Files.newInputStream(Paths.get(arquivo))) {
+                    return ler(in);
+                }
+            }
+            try (InputStream in = CatalogoMunicipios.class.getResourceAsStream(RECURSO)) {
+                return in != null ? ler(in) : null;
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao ler catálogo de municípios: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static CatalogoMunicipios ler(InputStream entrada) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(entrada));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("ficheiro não é um catálogo de municípios");
+        }
+        short formato = in.readShort();
+        if (formato != VERSAO_FORMATO) {
+            throw new IOException("versão de formato não suportada: " + formato);
+        }
+        String versao = in.readUTF();
+
+        int totalUFs = in.readShort();
+        Map<String, Municipio[]> porUF = new TreeMap<>();
+        for (int i = 0; i < totalUFs; i++) {
+            String sigla = in.readUTF();
+            String nomeUF = in.readUTF();
+            Municipio[] municipios = new Municipio[in.readShort()];
+            for (int j = 0; j < municipios.length; j++) {
+                Municipio municipio = new Municipio();
+                municipio.setId(in.readInt());
+                municipio.setNome(in.readUTF());
+                municipio.setUfSigla(sigla);
+                municipio.setUfNome(nomeUF);
+                municipios[j] = municipio;
+            }
+            porUF.put(sigla, municipios);
+        }
+        return new CatalogoMunicipios(porUF, versao);
+    }
+
+    public void escrever(OutputStream saida) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(saida));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSAO_FORMATO);
+        out.writeUTF(versao);
+        out.writeShort(porUF.size());
+        for (Map.Entry<String, Municipio[]> uf : porUF.entrySet()) {
+            Municipio[] municipios = uf.getValue();
+            out.writeUTF(uf.getKey());
+            out.writeUTF(municipios.length > 0 ? municipios[0].getUfNome() : "");
+            out.writeShort(municipios.length);
+            for (Municipio municipio : municipios) {
+                out.writeInt(municipio.getId());
+                out.writeUTF(municipio.getNome());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Monta o catálogo completo a partir da API de localidades do IBGE
+     * (uma única requisição com todos os municípios).
+     */
+    public static CatalogoMunicipios daApi(ClienteHttp clienteHttp, String ibgeUrl) throws IOException {
+        JsonArray jsonArray = clienteHttp.getJson(ibgeUrl + "/api/v1/localidades/municipios", JsonArray.class);
+
+        Map<String, List<Municipio>> agrupados = new TreeMap<>();
+        for (JsonElement element : jsonArray) {
+            Municipio municipio = converter(element.getAsJsonObject());
+            agrupados.computeIfAbsent(municipio.getUfSigla(), k -> new ArrayList<>()).add(municipio);
+        }
+
+        Collator collator = Collator.getInstance(Locale.of("pt", "BR"));
+        Map<String, Municipio[]> porUF = new TreeMap<>();
+        for (Map.Entry<String, List<Municipio>> uf : agrupados.entrySet()) {
+            Municipio[] municipios = uf.getValue().toArray(SEM_MUNICIPIOS);
+            Arrays.sort(municipios, (a, b) -> collator.compare(a.getNome(), b.getNome()));
+            porUF.put(uf.getKey(), municipios);
+        }
+        return new CatalogoMunicipios(porUF, "IBGE " + LocalDate.now());
+    }
+
+    /**
+     * Converte um município do JSON da API de localidades.
+     * Alguns municípios recentes vêm sem microrregião; nesse caso a UF é
+     * lida da região imediata.
+     */
+    public static Municipio converter(JsonObject munJson) {
+        Municipio municipio = new Municipio();
+        municipio.setId(munJson.get("id").getAsInt()); // API usa 7 dígitos
+        municipio.setNome(munJson.get("nome").getAsString());
+
+        JsonObject ufJson;
+        JsonElement microrregiao = munJson.get("microrregiao");
+        if (microrregiao != null && microrregiao.isJsonObject()) {
+            ufJson = microrregiao.getAsJsonObject()
+                    .getAsJsonObject("mesorregiao")
+                    .getAsJsonObject("UF");
+        } else {
+            ufJson = munJson.getAsJsonObject("regiao-imediata")
+                    .getAsJsonObject("regiao-intermediaria")
+                    .getAsJsonObject("UF");
+        }
+
+        municipio.setUfSigla(ufJson.get("sigla").getAsString());
+        municipio.setUfNome(ufJson.get("nome").getAsString());
+        return municipio;
+    }
+
+    /**
+     * Municípios da UF ordenados por nome (array partilhado, não alterar).
+     * UF desconhecida devolve um array vazio.
+     */
+    public Municipio[] municipiosPorUF(String uf) {
+        Municipio[] municipios = uf != null ? porUF.get(uf.trim().toUpperCase()) : null;
+        return municipios != null ? municipios : SEM_MUNICIPIOS;
+    }
+
+    /**
+     * Município pelo código IBGE de 6 dígitos (objeto partilhado, não alterar), ou null
+     */
+    public Municipio municipio(int ibgeMunicipio6Digitos) {
+        int posicao = Arrays.binarySearch(codigos, ibgeMunicipio6Digitos);
+        return posicao >= 0 ? porCodigo[posicao] : null;
+    }
+
+    /**
+     * Municípios de todas as UFs cujo nome, ou uma palavra do nome, começa
+     * pelo prefixo, sem distinguir maiúsculas nem acentos; os mais
+     * relevantes primeiro (objetos partilhados, não alterar)
+     */
+    public Municipio[] autocompletar(String prefixo, int quantidade) {
+        return indice.autocompletar(prefixo, quantidade);
+    }
+
+    public String getVersao() {
+        return versao;
+    }
+
+    public int getTotalUFs() {
+        return porUF.size();
+    }
+
+    public int getTotalMunicipios() {
+        return totalMunicipios;
+    }
+
+    /**
+     * Grava o catálogo num ficheiro (cria as pastas se necessário).
+     */
+    public void gravar(Path destino) throws IOException {
+        if (destino.getParent() != null) {
+            Files.createDirectories(destino.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(destino)) {
+            escrever(out);
+        }
+    }
+}
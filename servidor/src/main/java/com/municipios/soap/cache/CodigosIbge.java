@@ -0,0 +1,109 @@
+package com.municipios.soap.cache;
+
+import java.util.Locale;
+
+/**
+ * Tabela fixa das 27 UFs (código IBGE de 2 dígitos, sigla e nome) e o
+ * dígito verificador do código de município, para as operações que só
+ * precisam disto não dependerem do catálogo de municípios.
+ */
+public final class CodigosIbge {
+
+    private static final String[] SIGLAS = new String[100];
+    private static final String[] NOMES = new String[100];
+
+    static {
+        uf(11, "RO", "Rondônia");
+        uf(12, "AC", "Acre");
+        uf(13, "AM", "Amazonas");
+        uf(14, "RR", "Roraima");
+        uf(15, "PA", "Pará");
+        uf(16, "AP", "Amapá");
+        uf(17, "TO", "Tocantins");
+        uf(21, "MA", "Maranhão");
+        uf(22, "PI", "Piauí");
+        uf(23, "CE", "Ceará");
+        uf(24, "RN", "Rio Grande do Norte");
+        uf(25, "PB", "Paraíba");
+        uf(26, "PE", "Pernambuco");
+        uf(27, "AL", "Alagoas");
+        uf(28, "SE", "Sergipe");
+        uf(29, "BA", "Bahia");
+        uf(31, "MG", "Minas Gerais");
+        uf(32, "ES", "Espírito Santo");
+        uf(33, "RJ", "Rio de Janeiro");
+        uf(35, "SP", "São Paulo");
+        uf(41, "PR", "Paraná");
+        uf(42, "SC", "Santa Catarina");
+        uf(43, "RS", "Rio Grande do Sul");
+        uf(50, "MS", "Mato Grosso do Sul");
+        uf(51, "MT", "Mato Grosso");
+        uf(52, "GO", "Goiás");
+        uf(53, "DF", "Distrito Federal");
+    }
+
+    // Municípios cujo dígito verificador não segue o cálculo (código de 6 dígitos * 10 + dígito)
+    private static final int[] EXCECOES = {
+            2201919, 2201988, 2202251, 2611533, 3117836, 3152131, 4305871, 5203939, 5203962
+    };
+
+    private CodigosIbge() {
+    }
+
+    private static void uf(int codigo, String sigla, String nome) {
+        SIGLAS[codigo] = sigla;
+        NOMES[codigo] = nome;
+    }
+
+    /**
+     * Código IBGE (2 dígitos) da UF pela sigla, ou 0 se a UF for desconhecida
+     */
+    public static int codigoUF(String sigla) {
+        if (sigla == null) {
+            return 0;
+        }
+        String procurada = sigla.trim().toUpperCase(Locale.ROOT);
+        for (int codigo = 0; codigo < SIGLAS.length; codigo++) {
+            if (procurada.equals(SIGLAS[codigo])) {
+                return codigo;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sigla da UF de código IBGE (2 dígitos), ou null se não existir
+     */
+    public static String siglaUF(int codigoUF) {
+        return codigoUF > 0 && codigoUF < SIGLAS.length ? SIGLAS[codigoUF] : null;
+    }
+
+    /**
+     * Nome da UF de código IBGE (2 dígitos), ou null se não existir
+     */
+    public static String nomeUF(int codigoUF) {
+        return codigoUF > 0 && codigoUF < NOMES.length ? NOMES[codigoUF] : null;
+    }
+
+    /**
+     * ID IBGE de 7 dígitos a partir do código de 6 dígitos usado no BD: o
+     * 7.º é o dígito verificador (pesos 1,2,1,2,1,2, somando os algarismos
+     * de cada produto), salvo os poucos municípios em que o IBGE não o segue
+     */
+    public static int idMunicipio(int ibgeMunicipio6Digitos) {
+        for (int excecao : EXCECOES) {
+            if (excecao / 10 == ibgeMunicipio6Digitos) {
+                return excecao;
+            }
+        }
+        int soma = 0;
+        int resto = ibgeMunicipio6Digitos;
+        // Da direita para a esquerda, o último algarismo tem peso 2
+        for (int i = 0; i < 6; i++) {
+            int produto = resto % 10 * (i % 2 == 0 ? 2 : 1);
+            soma += produto > 9 ? produto - 9 : produto;
+            resto /= 10;
+        }
+        return ibgeMunicipio6Digitos * 10 + (10 - soma % 10) % 10;
+    }
+}
@@ -0,0 +1,123 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.model.UBS;
+
+/**
+ * Estabelecimentos e totais de um município: uma vista sobre o intervalo
+ * do município numa TabelaEstabelecimentos. Os métodos que devolvem UBS
+ * criam objetos novos a cada chamada, que podem ir direto para a resposta.
+ *
+ * Onde há filtro de tipo, apenasUbs é TRUE para só as UBS (eh_ubs = 1),
+ * FALSE para os restantes e null para todos.
+ */
+public final class EstabelecimentosMunicipio {
+
+    private static final UBS[] SEM_ESTABELECIMENTOS = new UBS[0];
+
+    public static final EstabelecimentosMunicipio VAZIO = new EstabelecimentosMunicipio(null, -1);
+
+    private final TabelaEstabelecimentos tabela;
+    private final int posicao;
+
+    EstabelecimentosMunicipio(TabelaEstabelecimentos tabela, int posicao) {
+        this.tabela = tabela;
+        this.posicao = posicao;
+    }
+
+    /**
+     * Todos os estabelecimentos, ordenados por CNES
+     */
+    public UBS[] getTodos() {
+        return listar(null, 0, quantidade(null));
+    }
+
+    /**
+     * Apenas os classificados como UBS (eh_ubs = 1), ordenados por CNES
+     */
+    public UBS[] getUbs() {
+        return listar(Boolean.TRUE, 0, quantidade(Boolean.TRUE));
+    }
+
+    /**
+     * Os restantes estabelecimentos, ordenados por CNES
+     */
+    public UBS[] getOutros() {
+        return listar(Boolean.FALSE, 0, quantidade(Boolean.FALSE));
+    }
+
+    /**
+     * Quantos estabelecimentos passam no filtro de tipo
+     */
+    public int quantidade(Boolean apenasUbs) {
+        if (tabela == null) {
+            return 0;
+        }
+        return fimLista(apenasUbs) - inicioLista(apenasUbs);
+    }
+
+    /**
+     * Os estabelecimentos nas posições [de, ate) da lista filtrada, por CNES
+     */
+    public UBS[] listar(Boolean apenasUbs, int de, int ate) {
+        if (tabela == null || de >= ate) {
+            return SEM_ESTABELECIMENTOS;
+        }
+        UBS[] lista = new UBS[ate - de];
+        int base = inicioLista(apenasUbs) + de;
+        for (int i = 0; i < lista.length; i++) {
+            lista[i] = tabela.estabelecimento(linha(apenasUbs, base + i));
+        }
+        return lista;
+    }
+
+    /**
+     * Posição, na lista filtrada, do primeiro estabelecimento com CNES maior
+     * do que o indicado
+     */
+    public int primeiroApos(Boolean apenasUbs, String cnes) {
+        if (tabela == null) {
+            return 0;
+        }
+        int base = inicioLista(apenasUbs);
+        int inicio = 0;
+        int fim = fimLista(apenasUbs) - base;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (tabela.cnes(linha(apenasUbs, base + meio)).compareTo(cnes) <= 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    /**
+     * total_ubs de ubs_totais_municipio (0 se o município não constar da tabela)
+     */
+    public int getTotalUbs() {
+        return tabela != null ? tabela.totalUbs(posicao) : 0;
+    }
+
+    public int getTotalMedicos() {
+        return tabela != null ? tabela.totalMedicos(posicao) : 0;
+    }
+
+    public int getTotalEnfermeiros() {
+        return tabela != null ? tabela.totalEnfermeiros(posicao) : 0;
+    }
+
+    // Sem filtro a lista é o intervalo de linhas; com filtro, a parte correspondente de porTipo
+
+    private int inicioLista(Boolean apenasUbs) {
+        return Boolean.FALSE.equals(apenasUbs) ? tabela.inicioOutros(posicao) : tabela.inicio(posicao);
+    }
+
+    private int fimLista(Boolean apenasUbs) {
+        return Boolean.TRUE.equals(apenasUbs) ? tabela.inicioOutros(posicao) : tabela.fim(posicao);
+    }
+
+    private int linha(Boolean apenasUbs, int i) {
+        return apenasUbs == null ? i : tabela.porTipo(i);
+    }
+}
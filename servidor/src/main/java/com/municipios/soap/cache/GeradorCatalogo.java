@@ -0,0 +1,28 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.service.MunicipioWebServiceImpl;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Gera o catálogo binário de municípios a partir da API do IBGE.
+ * É a única etapa que acede à rede; o servidor apenas lê o ficheiro gerado.
+ *
+ * Uso (a partir de servidor/):
+ *   java -cp target/soap-servidor-1.0.0.jar com.municipios.soap.cache.GeradorCatalogo \
+ *        src/main/resources/catalogo/municipios.bin
+ */
+public class GeradorCatalogo {
+
+    public static void main(String[] args) throws Exception {
+        Path destino = Paths.get(args.length > 0 ? args[0] : "src/main/resources/catalogo/municipios.bin");
+        try (ClienteHttp clienteHttp = new ClienteHttp()) {
+            CatalogoMunicipios catalogo = CatalogoMunicipios.daApi(clienteHttp, MunicipioWebServiceImpl.IBGE_URL);
+            catalogo.gravar(destino);
+            System.out.printf("✓ %,d municípios em %d UFs gravados em %s (%s)%n",
+                    catalogo.getTotalMunicipios(), catalogo.getTotalUFs(), destino, catalogo.getVersao());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.municipios.soap.cache;
+
+import java.util.Locale;
+
+/**
+ * Indicadores de saúde por município usados nos rankings. Os totais são
+ * contagens; os restantes são por habitante e ficam indefinidos (NaN) em
+ * municípios sem população.
+ */
+public enum Indicador {
+    POPULACAO(0),
+    ESTABELECIMENTOS(0),
+    UBS(0),
+    MEDICOS(0),
+    ENFERMEIROS(0),
+    UBS_POR_10MIL_HAB(10_000),
+    MEDICOS_POR_MIL_HAB(1_000),
+    ENFERMEIROS_POR_MIL_HAB(1_000);
+
+    // Habitantes por unidade do indicador, ou 0 para as contagens
+    private final int base;
+
+    Indicador(int base) {
+        this.base = base;
+    }
+
+    /**
+     * @return o indicador, ou null se vier vazio ou não for reconhecido
+     */
+    public static Indicador ler(String valor) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Valor do indicador a partir dos totais de um município ou de uma
+     * região; NaN se for por habitante e não houver população
+     */
+    double calcular(long populacao, int estabelecimentos, int ubs, int medicos, int enfermeiros) {
+        switch (this) {
+            case POPULACAO:
+                return populacao;
+            case ESTABELECIMENTOS:
+                return estabelecimentos;
+            case UBS:
+                return ubs;
+            case MEDICOS:
+                return medicos;
+            case ENFERMEIROS:
+                return enfermeiros;
+            default:
+                if (populacao <= 0) {
+                    return Double.NaN;
+                }
+                int quantidade = this == UBS_POR_10MIL_HAB ? ubs : this == MEDICOS_POR_MIL_HAB ? medicos : enfermeiros;
+                return quantidade * (double) base / populacao;
+        }
+    }
+
+    /**
+     * Valor do indicador para a UF (ou NACIONAL) dos agregados
+     */
+    public double calcular(AgregadosRegionais agregados, int uf) {
+        return calcular(agregados.populacaoTotal(uf), agregados.estabelecimentos(uf), agregados.ubs(uf),
+                agregados.medicos(uf), agregados.enfermeiros(uf));
+    }
+
+    public boolean isPorHabitante() {
+        return base > 0;
+    }
+}
@@ -0,0 +1,427 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.model.EstabelecimentoProximo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Índice espacial dos estabelecimentos com coordenadas: uma grelha regular
+ * de latitude/longitude em que só as células com pontos são guardadas.
+ *
+ * Os pontos (linhas da TabelaEstabelecimentos) ficam em arrays paralelos,
+ * ordenados pela chave da célula (linha * colunas + coluna), e as chaves
+ * das células não vazias num array ordenado; uma linha da grelha é, por
+ * isso, um intervalo contíguo de chaves e encontra-se com uma busca binária.
+ *
+ * A busca dos K mais próximos percorre anéis de células à volta da origem
+ * e para quando a distância mínima possível até ao anel seguinte já é maior
+ * do que o K-ésimo candidato (ou do que o raio pedido). Não trata a linha de
+ * data (180°), que não atravessa o território dos dados.
+ *
+ * Imutável: é montado com o snapshot e partilhado entre requisições.
+ */
+public final class IndiceEspacial {
+
+    // Lado das células, em graus (0,1° ≈ 11 km de latitude)
+    private static final double CELULA_GRAUS =
+            Double.parseDouble(System.getProperty("espacial.celulaGraus", "0.1"));
+
+    // Raio médio da Terra (IUGG)
+    private static final double RAIO_TERRA_KM = 6371.0088;
+
+    private static final EstabelecimentoProximo[] NENHUM = new EstabelecimentoProximo[0];
+
+    private final TabelaEstabelecimentos tabela;
+    private final double celula;
+    private final int colunas;
+
+    // Células não vazias: pontos da célula i estão em [inicioCelula[i], inicioCelula[i + 1])
+    private final long[] celulas;
+    private final int[] inicioCelula;
+
+    // Pontos, em radianos, ordenados por célula, e a linha de cada um na tabela
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cossenosLatitude;
+    private final int[] linhas;
+
+    // Retângulo de células ocupadas e o menor cosseno de latitude dos pontos
+    private final int linhaMin;
+    private final int linhaMax;
+    private final int colunaMin;
+    private final int colunaMax;
+    private final double menorCosseno;
+
+    // Centro (média das coordenadas) dos estabelecimentos de cada CEP e de cada prefixo de 5 dígitos
+    private final Centros centrosCep;
+    private final Centros centrosPrefixo;
+
+    private IndiceEspacial(TabelaEstabelecimentos tabela, double celula) {
+        this.tabela = tabela;
+        this.celula = celula;
+        this.colunas = (int) Math.ceil(360 / celula) + 1;
+
+        // Só as linhas com coordenadas (colunas vazias ou 0,0 ficam de fora)
+        int linhasTabela = tabela.getTotalLinhas();
+        long[] ordem = new long[linhasTabela];
+        int total = 0;
+        for (int linha = 0; linha < linhasTabela; linha++) {
+            double lat = tabela.latitude(linha);
+            double lon = tabela.longitude(linha);
+            if (Double.isNaN(lat) || Double.isNaN(lon) || Math.abs(lat) > 90 || Math.abs(lon) > 180
+                    || (lat == 0 && lon == 0)) {
+                continue;
+            }
+            ordem[total++] = chave(linha(lat), coluna(lon)) << 32 | linha;
+        }
+        Arrays.sort(ordem, 0, total);
+
+        latitudes = new double[total];
+        longitudes = new double[total];
+        cossenosLatitude = new double[total];
+        linhas = new int[total];
+        long[] chaves = new long[total];
+        int[] inicios = new int[total + 1];
+        int nCelulas = 0;
+        int lMin = Integer.MAX_VALUE, lMax = Integer.MIN_VALUE, cMin = Integer.MAX_VALUE, cMax = Integer.MIN_VALUE;
+        double cossenoMin = 1;
+
+        for (int p = 0; p < total; p++) {
+            long chave = ordem[p] >>> 32;
+            int linha = (int) ordem[p];
+            if (nCelulas == 0 || chaves[nCelulas - 1] != chave) {
+                chaves[nCelulas] = chave;
+                inicios[nCelulas] = p;
+                nCelulas++;
+                int l = (int) (chave / colunas);
+                int col = (int) (chave % colunas);
+                lMin = Math.min(lMin, l);
+                lMax = Math.max(lMax, l);
+                cMin = Math.min(cMin, col);
+                cMax = Math.max(cMax, col);
+            }
+            latitudes[p] = Math.toRadians(tabela.latitude(linha));
+            longitudes[p] = Math.toRadians(tabela.longitude(linha));
+            cossenosLatitude[p] = Math.cos(latitudes[p]);
+            cossenoMin = Math.min(cossenoMin, cossenosLatitude[p]);
+            linhas[p] = linha;
+        }
+        inicios[nCelulas] = total;
+        celulas = Arrays.copyOf(chaves, nCelulas);
+        inicioCelula = Arrays.copyOf(inicios, nCelulas + 1);
+        linhaMin = lMin;
+        linhaMax = lMax;
+        colunaMin = cMin;
+        colunaMax = cMax;
+        menorCosseno = cossenoMin;
+
+        // Centros por CEP: mesma técnica, ordenando (cep, ponto); os prefixos saem na mesma ordem
+        long[] porCep = new long[total];
+        int comCep = 0;
+        for (int p = 0; p < total; p++) {
+            String cep = CacheCep.normalizar(tabela.cep(linhas[p]));
+            if (cep != null && Integer.parseInt(cep) > 0) {
+                porCep[comCep++] = (long) Integer.parseInt(cep) << 32 | p;
+            }
+        }
+        Arrays.sort(porCep, 0, comCep);
+        centrosCep = new Centros(comCep);
+        centrosPrefixo = new Centros(comCep);
+        for (int i = 0; i < comCep; i++) {
+            int cep = (int) (porCep[i] >>> 32);
+            int p = (int) porCep[i];
+            double lat = tabela.latitude(linhas[p]);
+            double lon = tabela.longitude(linhas[p]);
+            centrosCep.adicionar(cep, lat, lon);
+            centrosPrefixo.adicionar(cep / 1000, lat, lon);
+        }
+        centrosCep.fechar();
+        centrosPrefixo.fechar();
+    }
+
+    /**
+     * Índice das linhas com coordenadas da tabela
+     */
+    public static IndiceEspacial construir(TabelaEstabelecimentos tabela) {
+        return new IndiceEspacial(tabela, CELULA_GRAUS);
+    }
+
+    /**
+     * Os estabelecimentos mais próximos da coordenada, do mais próximo para o
+     * mais distante.
+     *
+     * @param latitude   em graus, -90 a 90
+     * @param longitude  em graus, -180 a 180
+     * @param quantidade máximo de estabelecimentos devolvidos
+     * @param raioKm     distância máxima (0 ou negativo = sem limite)
+     * @param apenasUbs  TRUE só UBS, FALSE só os restantes, null todos
+     */
+    public EstabelecimentoProximo[] buscar(double latitude, double longitude, int quantidade,
+                                           double raioKm, Boolean apenasUbs) {
+        if (celulas.length == 0 || quantidade <= 0) {
+            return NENHUM;
+        }
+        double raio = raioKm > 0 ? raioKm : Double.POSITIVE_INFINITY;
+        double lat0 = Math.toRadians(latitude);
+        double lon0 = Math.toRadians(longitude);
+        double cos0 = Math.cos(lat0);
+        double cossenoLimite = Math.min(menorCosseno, cos0);
+        int l0 = linha(latitude);
+        int c0 = coluna(longitude);
+        Candidatos candidatos = new Candidatos(quantidade);
+
+        for (int d = 0; ; d++) {
+            int lIni = l0 - d;
+            int lFim = l0 + d;
+            int cIni = c0 - d;
+            int cFim = c0 + d;
+            for (int l = Math.max(lIni, linhaMin); l <= Math.min(lFim, linhaMax); l++) {
+                if (l == lIni || l == lFim) {
+                    visitar(l, Math.max(cIni, colunaMin), Math.min(cFim, colunaMax),
+                            lat0, lon0, cos0, raio, apenasUbs, candidatos);
+                } else {
+                    if (cIni >= colunaMin) {
+                        visitar(l, cIni, cIni, lat0, lon0, cos0, raio, apenasUbs, candidatos);
+                    }
+                    if (cFim <= colunaMax) {
+                        visitar(l, cFim, cFim, lat0, lon0, cos0, raio, apenasUbs, candidatos);
+                    }
+                }
+            }
+
+            if (lIni <= linhaMin && lFim >= linhaMax && cIni <= colunaMin && cFim >= colunaMax) {
+                break; // todas as células ocupadas já foram visitadas
+            }
+            // Um ponto fora dos anéis 0..d está a mais de d células da origem em latitude ou longitude
+            double minimoSeguinte = distanciaMinimaKm(d * celula, cossenoLimite);
+            if (minimoSeguinte > raio || (candidatos.cheio() && candidatos.pior() <= minimoSeguinte)) {
+                break;
+            }
+        }
+        return candidatos.ordenados(tabela, linhas);
+    }
+
+    /**
+     * Centro dos estabelecimentos com este CEP, em graus {latitude, longitude}, ou null
+     *
+     * @param cep CEP normalizado (8 dígitos)
+     */
+    public double[] centroCep(String cep) {
+        return centrosCep.procurar(Integer.parseInt(cep));
+    }
+
+    /**
+     * Centro dos estabelecimentos cujo CEP começa pelos mesmos 5 dígitos, ou null
+     *
+     * @param cep CEP normalizado (8 dígitos)
+     */
+    public double[] centroPrefixoCep(String cep) {
+        return centrosPrefixo.procurar(Integer.parseInt(cep) / 1000);
+    }
+
+    public int getTotalPontos() {
+        return linhas.length;
+    }
+
+    public int getTotalCelulas() {
+        return celulas.length;
+    }
+
+    /**
+     * Heap estimado da grelha e dos centros de CEP (ver TamanhoHeap)
+     */
+    long bytesEstimados() {
+        return TamanhoHeap.de(celulas) + TamanhoHeap.de(inicioCelula) + TamanhoHeap.de(latitudes)
+                + TamanhoHeap.de(longitudes) + TamanhoHeap.de(cossenosLatitude) + TamanhoHeap.de(linhas)
+                + centrosCep.bytesEstimados() + centrosPrefixo.bytesEstimados();
+    }
+
+    private void visitar(int linha, int colunaIni, int colunaFim, double lat0, double lon0, double cos0,
+                         double raio, Boolean apenasUbs, Candidatos candidatos) {
+        if (colunaIni > colunaFim) {
+            return;
+        }
+        long chaveFim = chave(linha, colunaFim);
+        for (int i = primeiraCelula(chave(linha, colunaIni)); i < celulas.length && celulas[i] <= chaveFim; i++) {
+            for (int p = inicioCelula[i]; p < inicioCelula[i + 1]; p++) {
+                if (apenasUbs != null && tabela.ehUbs(linhas[p]) != apenasUbs) {
+                    continue;
+                }
+                double distancia = haversineKm(lat0, lon0, cos0, latitudes[p], longitudes[p], cossenosLatitude[p]);
+                if (distancia <= raio) {
+                    candidatos.oferecer(distancia, p);
+                }
+            }
+        }
+    }
+
+    /**
+     * Posição da primeira célula com chave maior ou igual à indicada
+     */
+    private int primeiraCelula(long chave) {
+        int inicio = 0;
+        int fim = celulas.length;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (celulas[meio] < chave) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private int linha(double latitude) {
+        return (int) Math.floor((latitude + 90) / celula);
+    }
+
+    private int coluna(double longitude) {
+        return (int) Math.floor((longitude + 180) / celula);
+    }
+
+    private long chave(int linha, int coluna) {
+        return (long) linha * colunas + coluna;
+    }
+
+    private static double haversineKm(double lat1, double lon1, double cos1,
+                                      double lat2, double lon2, double cos2) {
+        double senoLat = Math.sin((lat2 - lat1) / 2);
+        double senoLon = Math.sin((lon2 - lon1) / 2);
+        double a = senoLat * senoLat + cos1 * cos2 * senoLon * senoLon;
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Menor distância possível entre dois pontos separados por pelo menos
+     * "graus" de latitude ou de longitude, com |latitude| limitada pelo
+     * cosseno indicado: hav(d) >= cos(lat1)·cos(lat2)·hav(Δlon), e a
+     * separação em latitude dá sempre uma distância maior.
+     */
+    private static double distanciaMinimaKm(double graus, double cossenoLimite) {
+        double metade = Math.toRadians(Math.min(graus, 180)) / 2;
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1, cossenoLimite * Math.sin(metade)));
+    }
+
+    /**
+     * Os K melhores candidatos vistos até agora (heap de máximo pela distância)
+     */
+    private static final class Candidatos {
+        private final double[] distancias;
+        private final int[] pontos;
+        private int tamanho;
+
+        Candidatos(int capacidade) {
+            distancias = new double[capacidade];
+            pontos = new int[capacidade];
+        }
+
+        boolean cheio() {
+            return tamanho == distancias.length;
+        }
+
+        double pior() {
+            return distancias[0];
+        }
+
+        void oferecer(double distancia, int ponto) {
+            if (!cheio()) {
+                int i = tamanho++;
+                while (i > 0) {
+                    int pai = (i - 1) / 2;
+                    if (distancias[pai] >= distancia) {
+                        break;
+                    }
+                    distancias[i] = distancias[pai];
+                    pontos[i] = pontos[pai];
+                    i = pai;
+                }
+                distancias[i] = distancia;
+                pontos[i] = ponto;
+            } else if (distancia < distancias[0]) {
+                int i = 0;
+                while (true) {
+                    int filho = 2 * i + 1;
+                    if (filho >= tamanho) {
+                        break;
+                    }
+                    if (filho + 1 < tamanho && distancias[filho + 1] > distancias[filho]) {
+                        filho++;
+                    }
+                    if (distancias[filho] <= distancia) {
+                        break;
+                    }
+                    distancias[i] = distancias[filho];
+                    pontos[i] = pontos[filho];
+                    i = filho;
+                }
+                distancias[i] = distancia;
+                pontos[i] = ponto;
+            }
+        }
+
+        EstabelecimentoProximo[] ordenados(TabelaEstabelecimentos tabela, int[] linhas) {
+            EstabelecimentoProximo[] resultado = new EstabelecimentoProximo[tamanho];
+            for (int i = 0; i < tamanho; i++) {
+                // Precisão de metro: o resto seria ruído das próprias coordenadas
+                resultado[i] = new EstabelecimentoProximo(tabela.estabelecimento(linhas[pontos[i]]),
+                        Math.round(distancias[i] * 1000) / 1000.0);
+            }
+            Arrays.sort(resultado, Comparator.comparingDouble(EstabelecimentoProximo::getDistanciaKm)
+                    .thenComparing(proximo -> proximo.getEstabelecimento().getCnes()));
+            return resultado;
+        }
+    }
+
+    /**
+     * Médias de coordenadas por chave, acumuladas por ordem crescente de
+     * chave, em arrays paralelos
+     */
+    private static final class Centros {
+        private int[] chaves;
+        private double[] latitudes;
+        private double[] longitudes;
+        private int tamanho;
+        private int pontosNaChave;
+
+        Centros(int capacidade) {
+            chaves = new int[capacidade];
+            latitudes = new double[capacidade];
+            longitudes = new double[capacidade];
+        }
+
+        void adicionar(int chave, double latitude, double longitude) {
+            if (tamanho == 0 || chaves[tamanho - 1] != chave) {
+                chaves[tamanho] = chave;
+                latitudes[tamanho] = latitude;
+                longitudes[tamanho] = longitude;
+                tamanho++;
+                pontosNaChave = 1;
+                return;
+            }
+            int i = tamanho - 1;
+            pontosNaChave++;
+            latitudes[i] += (latitude - latitudes[i]) / pontosNaChave;
+            longitudes[i] += (longitude - longitudes[i]) / pontosNaChave;
+        }
+
+        /**
+         * Corta os arrays ao tamanho usado
+         */
+        void fechar() {
+            chaves = Arrays.copyOf(chaves, tamanho);
+            latitudes = Arrays.copyOf(latitudes, tamanho);
+            longitudes = Arrays.copyOf(longitudes, tamanho);
+        }
+
+        long bytesEstimados() {
+            return TamanhoHeap.de(chaves) + TamanhoHeap.de(latitudes) + TamanhoHeap.de(longitudes);
+        }
+
+        double[] procurar(int chave) {
+            int i = Arrays.binarySearch(chaves, chave);
+            return i >= 0 ? new double[]{latitudes[i], longitudes[i]} : null;
+        }
+    }
+}
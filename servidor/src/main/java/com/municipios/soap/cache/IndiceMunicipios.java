@@ -0,0 +1,125 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.model.Municipio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Índice de nomes de municípios de todas as UFs para autocompletar.
+ *
+ * Cada nome é normalizado uma vez (maiúsculas, sem acentos nem apóstrofos,
+ * palavras separadas por um espaço: "Sant'Ana do Livramento" ->
+ * "SANTANA DO LIVRAMENTO"). O índice é um único int[] com uma entrada por
+ * início de palavra (município << 8 | posição), ordenado pelo texto a
+ * partir dessa posição; os nomes que têm uma palavra a começar pelo que foi
+ * digitado formam, por isso, um intervalo contíguo, achado por busca binária.
+ *
+ * Imutável: é montado com o catálogo ou, sem ele, com a demografia do
+ * snapshot.
+ */
+final class IndiceMunicipios {
+
+    private static final Municipio[] NENHUM = new Municipio[0];
+
+    private final Municipio[] municipios;
+    private final String[] nomes;
+    private final int[] entradas;
+
+    IndiceMunicipios(Municipio[] municipios) {
+        this.municipios = municipios;
+        this.nomes = new String[municipios.length];
+        List<Integer> inicios = new ArrayList<>();
+        for (int m = 0; m < municipios.length; m++) {
+            nomes[m] = normalizar(municipios[m].getNome());
+            for (int i = 0; i < nomes[m].length(); i++) {
+                if (i == 0 || nomes[m].charAt(i - 1) == ' ') {
+                    inicios.add(m << 8 | Math.min(i, 255));
+                }
+            }
+        }
+        Integer[] ordem = inicios.toArray(new Integer[0]);
+        Arrays.sort(ordem, (a, b) -> sufixo(a).compareTo(sufixo(b)));
+        this.entradas = Arrays.stream(ordem).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Nome em maiúsculas, sem acentos nem apóstrofos, com as palavras
+     * separadas por um espaço
+     */
+    static String normalizar(String nome) {
+        if (nome == null) {
+            return "";
+        }
+        return String.join(" ", IndiceNomes.palavras(nome.replace("'", "").replace("’", "")));
+    }
+
+    /**
+     * Municípios com o nome, ou uma palavra do nome, a começar pelo prefixo.
+     * Vêm primeiro o nome igual ao digitado, depois os nomes que começam pelo
+     * prefixo e por fim os que só têm uma palavra a começar por ele; em cada
+     * grupo, os nomes mais curtos e depois por ordem alfabética e UF.
+     */
+    Municipio[] autocompletar(String prefixo, int quantidade) {
+        String termo = normalizar(prefixo);
+        if (termo.isEmpty() || quantidade <= 0) {
+            return NENHUM;
+        }
+
+        // Primeira entrada com texto >= termo
+        int inicio = 0;
+        int fim = entradas.length;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (sufixo(entradas[meio]).compareTo(termo) < 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+
+        // Melhor grupo de cada município: 1 nome igual, 2 prefixo do nome, 3 prefixo de outra palavra (0 = ainda não visto)
+        int[] grupo = new int[municipios.length];
+        List<Integer> encontrados = new ArrayList<>();
+        for (int e = inicio; e < entradas.length; e++) {
+            int m = entradas[e] >>> 8;
+            int posicao = entradas[e] & 0xFF;
+            if (!nomes[m].startsWith(termo, posicao)) {
+                break;
+            }
+            int g = posicao > 0 ? 3 : nomes[m].length() == termo.length() ? 1 : 2;
+            if (grupo[m] == 0) {
+                encontrados.add(m);
+                grupo[m] = g;
+            } else {
+                grupo[m] = Math.min(grupo[m], g);
+            }
+        }
+
+        encontrados.sort(Comparator.<Integer>comparingInt(m -> grupo[m])
+                .thenComparingInt(m -> nomes[m].length())
+                .thenComparing(m -> nomes[m])
+                .thenComparing(m -> municipios[m].getUfSigla()));
+        int total = Math.min(quantidade, encontrados.size());
+        Municipio[] resultado = new Municipio[total];
+        for (int i = 0; i < total; i++) {
+            resultado[i] = municipios[encontrados.get(i)];
+        }
+        return resultado;
+    }
+
+    /**
+     * Heap estimado das entradas, dos nomes normalizados e dos objetos
+     * Municipio (sem as Strings partilhadas com a origem; ver TamanhoHeap)
+     */
+    long bytesEstimados() {
+        return TamanhoHeap.de(entradas) + TamanhoHeap.de(nomes) + TamanhoHeap.referencias(municipios.length)
+                + municipios.length * TamanhoHeap.objeto(4 + 3 * 4);
+    }
+
+    private String sufixo(int entrada) {
+        return nomes[entrada >>> 8].substring(entrada & 0xFF);
+    }
+}
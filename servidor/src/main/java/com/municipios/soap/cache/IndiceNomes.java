@@ -0,0 +1,466 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.database.ClassificadorEstabelecimento;
+import com.municipios.soap.model.UBS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice dos nomes dos estabelecimentos, para busca por prefixo e com erros
+ * de digitação, sem distinguir maiúsculas nem acentos.
+ *
+ * Os nomes (em maiúsculas e sem acentos) são partidos em palavras de letras
+ * e algarismos. As palavras distintas ficam num array ordenado, por isso as
+ * que começam por um termo são um intervalo contíguo (busca binária). As
+ * listas invertidas vão de palavra para nomes distintos e de nome para
+ * linhas da TabelaEstabelecimentos, estas por ordem crescente, ou seja, por
+ * município e CNES: um município ou uma UF é um intervalo de linhas.
+ *
+ * Para os erros de digitação há uma lista invertida de bigramas das
+ * palavras (com um marcador de início). Uma palavra a d edições do termo
+ * partilha com ele pelo menos (bigramas do termo - 2d) bigramas, e só as
+ * palavras que chegam a esse mínimo são comparadas com a distância de
+ * Levenshtein.
+ *
+ * Imutável: é montado com o snapshot e partilhado entre requisições.
+ */
+public final class IndiceNomes {
+
+    // Símbolos das palavras: '$' (início), A-Z e 0-9
+    private static final int SIMBOLOS = 37;
+    private static final int TOTAL_BIGRAMAS = SIMBOLOS * SIMBOLOS;
+
+    // Só as primeiras palavras do termo são usadas
+    private static final int MAX_PALAVRAS_TERMO = 8;
+
+    // Custo de uma palavra do termo: 0 igual, 1 prefixo; cada edição soma ERRO
+    private static final int CUSTO_PREFIXO = 1;
+    private static final int ERRO = 16;
+
+    private final TabelaEstabelecimentos tabela;
+
+    // Palavras distintas, ordenadas; os nomes da palavra p estão em [inicioNomesPalavra[p], inicioNomesPalavra[p + 1])
+    private final String[] palavras;
+    private final int[] inicioNomesPalavra;
+    private final int[] nomesPalavra;
+
+    // Nomes distintos: as suas palavras e as suas linhas (ordenadas)
+    private final int[] inicioPalavrasNome;
+    private final int[] palavrasNome;
+    private final int[] inicioLinhasNome;
+    private final int[] linhasNome;
+
+    // Bigrama -> palavras que o contêm
+    private final int[] inicioBigrama;
+    private final int[] palavrasBigrama;
+
+    private IndiceNomes(TabelaEstabelecimentos tabela) {
+        this.tabela = tabela;
+        int linhas = tabela.getTotalLinhas();
+
+        // Nomes distintos (pelo índice no dicionário) e as linhas de cada um
+        int[] nomeDoTexto = new int[tabela.getTotalTextos()];
+        Arrays.fill(nomeDoTexto, -1);
+        int[] textoDoNome = new int[Math.max(16, linhas)];
+        int[] nomeDaLinha = new int[linhas];
+        int nomes = 0;
+        for (int linha = 0; linha < linhas; linha++) {
+            int texto = tabela.nome(linha);
+            if (nomeDoTexto[texto] < 0) {
+                nomeDoTexto[texto] = nomes;
+                textoDoNome[nomes++] = texto;
+            }
+            nomeDaLinha[linha] = nomeDoTexto[texto];
+        }
+        inicioLinhasNome = new int[nomes + 1];
+        for (int linha = 0; linha < linhas; linha++) {
+            inicioLinhasNome[nomeDaLinha[linha] + 1]++;
+        }
+        for (int n = 0; n < nomes; n++) {
+            inicioLinhasNome[n + 1] += inicioLinhasNome[n];
+        }
+        linhasNome = new int[linhas];
+        int[] proxima = Arrays.copyOf(inicioLinhasNome, nomes);
+        for (int linha = 0; linha < linhas; linha++) {
+            linhasNome[proxima[nomeDaLinha[linha]]++] = linha;
+        }
+
+        // Palavras de cada nome (sem repetir), com identificadores provisórios
+        Map<String, Integer> provisorio = new HashMap<>();
+        List<String> distintas = new ArrayList<>();
+        inicioPalavrasNome = new int[nomes + 1];
+        int[] palavrasDosNomes = new int[Math.max(16, nomes * 4)];
+        int total = 0;
+        for (int n = 0; n < nomes; n++) {
+            inicioPalavrasNome[n] = total;
+            for (String palavra : palavras(tabela.texto(textoDoNome[n]))) {
+                Integer id = provisorio.get(palavra);
+                if (id == null) {
+                    id = distintas.size();
+                    provisorio.put(palavra, id);
+                    distintas.add(palavra);
+                }
+                if (contem(palavrasDosNomes, inicioPalavrasNome[n], total, id)) {
+                    continue;
+                }
+                if (total == palavrasDosNomes.length) {
+                    palavrasDosNomes = Arrays.copyOf(palavrasDosNomes, total * 2);
+                }
+                palavrasDosNomes[total++] = id;
+            }
+        }
+        inicioPalavrasNome[nomes] = total;
+
+        // Ordena as palavras e troca os identificadores provisórios pela posição na ordem
+        palavras = distintas.toArray(new String[0]);
+        Arrays.sort(palavras);
+        int[] posicao = new int[palavras.length];
+        for (int p = 0; p < palavras.length; p++) {
+            posicao[provisorio.get(palavras[p])] = p;
+        }
+        palavrasNome = new int[total];
+        for (int i = 0; i < total; i++) {
+            palavrasNome[i] = posicao[palavrasDosNomes[i]];
+        }
+
+        // Palavra -> nomes
+        inicioNomesPalavra = new int[palavras.length + 1];
+        for (int i = 0; i < total; i++) {
+            inicioNomesPalavra[palavrasNome[i] + 1]++;
+        }
+        for (int p = 0; p < palavras.length; p++) {
+            inicioNomesPalavra[p + 1] += inicioNomesPalavra[p];
+        }
+        nomesPalavra = new int[total];
+        proxima = Arrays.copyOf(inicioNomesPalavra, palavras.length);
+        for (int n = 0; n < nomes; n++) {
+            for (int i = inicioPalavrasNome[n]; i < inicioPalavrasNome[n + 1]; i++) {
+                nomesPalavra[proxima[palavrasNome[i]]++] = n;
+            }
+        }
+
+        // Bigrama -> palavras
+        int[][] bigramasPalavra = new int[palavras.length][];
+        inicioBigrama = new int[TOTAL_BIGRAMAS + 1];
+        for (int p = 0; p < palavras.length; p++) {
+            bigramasPalavra[p] = bigramas(palavras[p]);
+            for (int b : bigramasPalavra[p]) {
+                inicioBigrama[b + 1]++;
+            }
+        }
+        for (int b = 0; b < TOTAL_BIGRAMAS; b++) {
+            inicioBigrama[b + 1] += inicioBigrama[b];
+        }
+        palavrasBigrama = new int[inicioBigrama[TOTAL_BIGRAMAS]];
+        proxima = Arrays.copyOf(inicioBigrama, TOTAL_BIGRAMAS);
+        for (int p = 0; p < palavras.length; p++) {
+            for (int b : bigramasPalavra[p]) {
+                palavrasBigrama[proxima[b]++] = p;
+            }
+        }
+    }
+
+    public static IndiceNomes construir(TabelaEstabelecimentos tabela) {
+        return new IndiceNomes(tabela);
+    }
+
+    public int getTotalPalavras() {
+        return palavras.length;
+    }
+
+    /**
+     * Heap estimado das palavras e das listas invertidas (ver TamanhoHeap)
+     */
+    long bytesEstimados() {
+        return TamanhoHeap.de(palavras) + TamanhoHeap.de(inicioNomesPalavra) + TamanhoHeap.de(nomesPalavra)
+                + TamanhoHeap.de(inicioPalavrasNome) + TamanhoHeap.de(palavrasNome)
+                + TamanhoHeap.de(inicioLinhasNome) + TamanhoHeap.de(linhasNome)
+                + TamanhoHeap.de(inicioBigrama) + TamanhoHeap.de(palavrasBigrama);
+    }
+
+    /**
+     * Palavras do texto, em maiúsculas e sem acentos; qualquer caráter que
+     * não seja letra (A-Z) ou algarismo separa palavras.
+     */
+    public static List<String> palavras(String texto) {
+        String normalizado = ClassificadorEstabelecimento.normalizar(texto);
+        List<String> palavras = new ArrayList<>();
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean valido = i < normalizado.length() && simbolo(normalizado.charAt(i)) > 0;
+            if (valido && inicio < 0) {
+                inicio = i;
+            } else if (!valido && inicio >= 0) {
+                palavras.add(normalizado.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return palavras;
+    }
+
+    /**
+     * Estabelecimentos cujo nome contém todas as palavras do termo, cada uma
+     * como palavra inteira, prefixo de palavra ou com até 1 (termos de 4 a 6
+     * letras) ou 2 (7 ou mais) erros de digitação. Vêm primeiro os que têm
+     * menos erros, depois menos prefixos, depois nomes com menos palavras, e
+     * por fim por município e CNES.
+     *
+     * @param termo        texto digitado (deve ter pelo menos uma palavra)
+     * @param municipioDe  menor código de 6 dígitos abrangido
+     * @param municipioAte código de 6 dígitos a partir do qual a busca para (exclusivo)
+     * @param apenasUbs    TRUE só UBS, FALSE só os restantes, null todos
+     * @param quantidade   máximo de estabelecimentos devolvidos
+     */
+    public Encontrados buscar(String termo, int municipioDe, int municipioAte, Boolean apenasUbs, int quantidade) {
+        List<String> termos = palavras(termo);
+        if (termos.size() > MAX_PALAVRAS_TERMO) {
+            termos = termos.subList(0, MAX_PALAVRAS_TERMO);
+        }
+        if (termos.isEmpty()) {
+            return new Encontrados(tabela, new long[0], 0);
+        }
+
+        // Palavras que correspondem a cada termo, com o custo; o termo com menos nomes abre a busca
+        List<Map<Integer, Integer>> custos = new ArrayList<>(termos.size());
+        int base = 0;
+        long menorQuantidade = Long.MAX_VALUE;
+        for (int t = 0; t < termos.size(); t++) {
+            Map<Integer, Integer> correspondencias = correspondencias(termos.get(t));
+            custos.add(correspondencias);
+            long quantidadeNomes = 0;
+            for (int p : correspondencias.keySet()) {
+                quantidadeNomes += inicioNomesPalavra[p + 1] - inicioNomesPalavra[p];
+            }
+            if (quantidadeNomes < menorQuantidade) {
+                menorQuantidade = quantidadeNomes;
+                base = t;
+            }
+        }
+
+        Map<Integer, Integer> nomes = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entrada : custos.get(base).entrySet()) {
+            int p = entrada.getKey();
+            for (int i = inicioNomesPalavra[p]; i < inicioNomesPalavra[p + 1]; i++) {
+                nomes.merge(nomesPalavra[i], entrada.getValue(), Math::min);
+            }
+        }
+
+        int linhaDe = tabela.primeiraLinha(municipioDe);
+        int linhaAte = tabela.primeiraLinha(municipioAte);
+        long[] achados = new long[16];
+        int total = 0;
+        for (Map.Entry<Integer, Integer> entrada : nomes.entrySet()) {
+            int nome = entrada.getKey();
+            int custo = custoNome(nome, custos, base, entrada.getValue());
+            if (custo < 0) {
+                continue;
+            }
+            int palavrasNoNome = Math.min(255, inicioPalavrasNome[nome + 1] - inicioPalavrasNome[nome]);
+            int fim = inicioLinhasNome[nome + 1];
+            int i = Arrays.binarySearch(linhasNome, inicioLinhasNome[nome], fim, linhaDe);
+            for (i = i >= 0 ? i : -i - 1; i < fim && linhasNome[i] < linhaAte; i++) {
+                int linha = linhasNome[i];
+                if (apenasUbs != null && tabela.ehUbs(linha) != apenasUbs) {
+                    continue;
+                }
+                if (total == achados.length) {
+                    achados = Arrays.copyOf(achados, total * 2);
+                }
+                achados[total++] = (long) custo << 40 | (long) palavrasNoNome << 32 | linha;
+            }
+        }
+
+        Arrays.sort(achados, 0, total);
+        return new Encontrados(tabela, Arrays.copyOf(achados, Math.min(total, quantidade)), total);
+    }
+
+    /**
+     * Soma dos custos das palavras do termo no nome, ou -1 se alguma não
+     * aparecer no nome
+     */
+    private int custoNome(int nome, List<Map<Integer, Integer>> custos, int base, int custoBase) {
+        int soma = custoBase;
+        for (int t = 0; t < custos.size(); t++) {
+            if (t == base) {
+                continue;
+            }
+            Map<Integer, Integer> correspondencias = custos.get(t);
+            int melhor = -1;
+            for (int i = inicioPalavrasNome[nome]; i < inicioPalavrasNome[nome + 1]; i++) {
+                Integer custo = correspondencias.get(palavrasNome[i]);
+                if (custo != null && (melhor < 0 || custo < melhor)) {
+                    melhor = custo;
+                }
+            }
+            if (melhor < 0) {
+                return -1;
+            }
+            soma += melhor;
+        }
+        return soma;
+    }
+
+    /**
+     * Palavras do índice que correspondem ao termo, com o custo de cada uma
+     */
+    private Map<Integer, Integer> correspondencias(String termo) {
+        Map<Integer, Integer> custos = new HashMap<>();
+        int p = Arrays.binarySearch(palavras, termo);
+        for (p = p >= 0 ? p : -p - 1; p < palavras.length && palavras[p].startsWith(termo); p++) {
+            custos.put(p, palavras[p].length() == termo.length() ? 0 : CUSTO_PREFIXO);
+        }
+
+        int erros = errosPermitidos(termo.length());
+        if (erros == 0) {
+            return custos;
+        }
+        int[] bigramas = bigramas(termo);
+        int minimo = Math.max(1, bigramas.length - 2 * erros);
+        int[] comuns = new int[palavras.length];
+        for (int b : bigramas) {
+            for (int i = inicioBigrama[b]; i < inicioBigrama[b + 1]; i++) {
+                int candidata = palavrasBigrama[i];
+                if (++comuns[candidata] == minimo && !custos.containsKey(candidata)) {
+                    int custo = custoAproximado(termo, palavras[candidata], erros);
+                    if (custo >= 0) {
+                        custos.put(candidata, custo);
+                    }
+                }
+            }
+        }
+        return custos;
+    }
+
+    private static int errosPermitidos(int comprimento) {
+        return comprimento <= 3 ? 0 : comprimento <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Custo do termo contra a palavra inteira ou contra um prefixo dela, com
+     * no máximo "erros" edições (Levenshtein); -1 se passar disso
+     */
+    private static int custoAproximado(String termo, String palavra, int erros) {
+        int n = termo.length();
+        int m = Math.min(palavra.length(), n + erros);
+        if (m < n - erros) {
+            return -1;
+        }
+        int[] anterior = new int[m + 1];
+        int[] atual = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            atual[0] = i;
+            char c = termo.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int substituicao = anterior[j - 1] + (c == palavra.charAt(j - 1) ? 0 : 1);
+                atual[j] = Math.min(substituicao, Math.min(anterior[j], atual[j - 1]) + 1);
+            }
+            int[] troca = anterior;
+            anterior = atual;
+            atual = troca;
+        }
+        // anterior[j] = distância entre o termo e os j primeiros carateres da palavra
+        if (m == palavra.length() && anterior[m] <= erros) {
+            return anterior[m] * ERRO;
+        }
+        int prefixo = Integer.MAX_VALUE;
+        for (int j = Math.max(0, n - erros); j <= m; j++) {
+            prefixo = Math.min(prefixo, anterior[j]);
+        }
+        return prefixo <= erros ? prefixo * ERRO + CUSTO_PREFIXO : -1;
+    }
+
+    /**
+     * Bigramas distintos de "$" + palavra
+     */
+    private static int[] bigramas(String palavra) {
+        int[] bigramas = new int[palavra.length()];
+        int total = 0;
+        int anterior = 0;
+        for (int i = 0; i < palavra.length(); i++) {
+            int atual = simbolo(palavra.charAt(i));
+            int bigrama = anterior * SIMBOLOS + atual;
+            if (!contem(bigramas, 0, total, bigrama)) {
+                bigramas[total++] = bigrama;
+            }
+            anterior = atual;
+        }
+        return Arrays.copyOf(bigramas, total);
+    }
+
+    /**
+     * 1-26 para A-Z, 27-36 para 0-9, 0 para os restantes
+     */
+    private static int simbolo(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return 0;
+    }
+
+    private static boolean contem(int[] valores, int de, int ate, int valor) {
+        for (int i = de; i < ate; i++) {
+            if (valores[i] == valor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resultado de uma busca: os primeiros estabelecimentos, por ordem de
+     * relevância, e quantos corresponderam ao todo
+     */
+    public static final class Encontrados {
+        private final TabelaEstabelecimentos tabela;
+        private final long[] achados;
+        private final int total;
+
+        private Encontrados(TabelaEstabelecimentos tabela, long[] achados, int total) {
+            this.tabela = tabela;
+            this.achados = achados;
+            this.total = total;
+        }
+
+        /**
+         * Estabelecimentos que corresponderam ao termo no âmbito pedido
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Estabelecimentos devolvidos (no máximo a quantidade pedida)
+         */
+        public int getQuantidade() {
+            return achados.length;
+        }
+
+        public UBS estabelecimento(int i) {
+            return tabela.estabelecimento((int) achados[i]);
+        }
+
+        /**
+         * Código de 6 dígitos do município do estabelecimento
+         */
+        public int municipio(int i) {
+            return tabela.municipioDaLinha((int) achados[i]);
+        }
+
+        /**
+         * true se alguma palavra só correspondeu com erros de digitação
+         */
+        public boolean aproximado(int i) {
+            return (achados[i] >>> 40) >= ERRO;
+        }
+    }
+}
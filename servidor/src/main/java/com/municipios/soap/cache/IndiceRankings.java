@@ -0,0 +1,211 @@
+package com.municipios.soap.cache;
+
+import java.util.Arrays;
+
+/**
+ * Rankings dos municípios por indicador, já ordenados ao montar o snapshot:
+ * os N primeiros (ou últimos) do país ou de uma UF são lidos diretamente de
+ * um array, sem percorrer nem ordenar municípios na requisição.
+ *
+ * Entram os municípios com estabelecimentos ou com demografia (os mesmos
+ * dos AgregadosRegionais); nos indicadores por habitante ficam de fora os
+ * que não têm população. Para cada indicador há duas ordens, decrescente e
+ * crescente (no empate, o menor código primeiro), cada uma nacional e
+ * agrupada por UF com o início de cada UF, além da posição de cada
+ * município na ordem decrescente do país e da UF.
+ *
+ * Imutável: é montado com o snapshot e partilhado entre requisições.
+ */
+public final class IndiceRankings {
+
+    private static final int POSICOES_UF = 100;
+
+    // Municípios (códigos de 6 dígitos, ordenados); m é a posição aqui
+    private final int[] codigos;
+
+    // Por Indicador.ordinal()
+    private final Ranking[] rankings;
+
+    private static final class Ranking {
+        final double[] valores;       // por m; NaN se indefinido
+        final Ordem decrescente;
+        final Ordem crescente;
+
+        Ranking(double[] valores, int[] codigos) {
+            this.valores = valores;
+            Integer[] definidos = new Integer[codigos.length];
+            int n = 0;
+            for (int m = 0; m < codigos.length; m++) {
+                if (!Double.isNaN(valores[m])) {
+                    definidos[n++] = m;
+                }
+            }
+            definidos = Arrays.copyOf(definidos, n);
+            // Os municípios já estão por ordem do código: a ordenação estável põe o menor primeiro no empate
+            Integer[] maiores = definidos.clone();
+            Arrays.sort(maiores, (a, b) -> Double.compare(valores[b], valores[a]));
+            Arrays.sort(definidos, (a, b) -> Double.compare(valores[a], valores[b]));
+            decrescente = new Ordem(maiores, codigos);
+            crescente = new Ordem(definidos, codigos);
+        }
+    }
+
+    private static final class Ordem {
+        final int[] nacional;         // m pela ordem do ranking
+        final int[] porUF;            // a mesma ordem, agrupada por UF
+        final int[] inicioUF;         // a UF u está em porUF[inicioUF[u], inicioUF[u + 1])
+        final int[] posicaoNacional;  // por m, a partir de 1; 0 se fora do ranking
+        final int[] posicaoUF;
+
+        Ordem(Integer[] ordenados, int[] codigos) {
+            nacional = new int[ordenados.length];
+            posicaoNacional = new int[codigos.length];
+            int[] porUFContagem = new int[POSICOES_UF + 1];
+            for (int i = 0; i < ordenados.length; i++) {
+                nacional[i] = ordenados[i];
+                posicaoNacional[ordenados[i]] = i + 1;
+                int uf = AgregadosRegionais.ufDoMunicipio(codigos[ordenados[i]]);
+                if (uf > 0) {
+                    porUFContagem[uf + 1]++;
+                }
+            }
+
+            // Distribuição pela UF, mantendo a ordem nacional dentro de cada uma
+            inicioUF = new int[POSICOES_UF + 1];
+            for (int uf = 1; uf <= POSICOES_UF; uf++) {
+                inicioUF[uf] = inicioUF[uf - 1] + porUFContagem[uf];
+            }
+            porUF = new int[inicioUF[POSICOES_UF]];
+            posicaoUF = new int[codigos.length];
+            int[] proxima = Arrays.copyOf(inicioUF, POSICOES_UF);
+            for (int m : nacional) {
+                int uf = AgregadosRegionais.ufDoMunicipio(codigos[m]);
+                if (uf > 0) {
+                    posicaoUF[m] = proxima[uf] - inicioUF[uf] + 1;
+                    porUF[proxima[uf]++] = m;
+                }
+            }
+        }
+
+        long bytesEstimados() {
+            return TamanhoHeap.de(nacional) + TamanhoHeap.de(porUF) + TamanhoHeap.de(inicioUF)
+                    + TamanhoHeap.de(posicaoNacional) + TamanhoHeap.de(posicaoUF);
+        }
+    }
+
+    private IndiceRankings(TabelaEstabelecimentos tabela, TabelaDemografia demografia) {
+        int totalEstabelecimentos = tabela.getTotalMunicipios();
+        int totalDemografia = demografia.getTotalMunicipios();
+        int[] todos = new int[totalEstabelecimentos + totalDemografia];
+        long[] populacao = new long[todos.length];
+        int[] estabelecimentos = new int[todos.length];
+        int[] ubs = new int[todos.length];
+        int[] medicos = new int[todos.length];
+        int[] enfermeiros = new int[todos.length];
+
+        int e = 0;
+        int d = 0;
+        int n = 0;
+        // Mesmo percurso dos AgregadosRegionais: os dois diretórios estão ordenados pelo código
+        while (e < totalEstabelecimentos || d < totalDemografia) {
+            int codigo = e == totalEstabelecimentos ? demografia.codigo(d)
+                    : d == totalDemografia ? tabela.codigo(e)
+                    : Math.min(tabela.codigo(e), demografia.codigo(d));
+            todos[n] = codigo;
+            if (e < totalEstabelecimentos && tabela.codigo(e) == codigo) {
+                estabelecimentos[n] = tabela.fim(e) - tabela.inicio(e);
+                ubs[n] = tabela.inicioOutros(e) - tabela.inicio(e);
+                medicos[n] = tabela.totalMedicos(e);
+                enfermeiros[n] = tabela.totalEnfermeiros(e);
+                e++;
+            }
+            if (d < totalDemografia && demografia.codigo(d) == codigo) {
+                populacao[n] = demografia.populacaoTotal(d);
+                d++;
+            }
+            n++;
+        }
+        codigos = Arrays.copyOf(todos, n);
+
+        Indicador[] indicadores = Indicador.values();
+        rankings = new Ranking[indicadores.length];
+        for (Indicador indicador : indicadores) {
+            double[] valores = new double[n];
+            for (int m = 0; m < n; m++) {
+                valores[m] = indicador.calcular(populacao[m], estabelecimentos[m], ubs[m], medicos[m], enfermeiros[m]);
+            }
+            rankings[indicador.ordinal()] = new Ranking(valores, codigos);
+        }
+    }
+
+    static IndiceRankings construir(TabelaEstabelecimentos tabela, TabelaDemografia demografia) {
+        return new IndiceRankings(tabela, demografia);
+    }
+
+    /**
+     * Heap estimado das ordens de todos os indicadores (ver TamanhoHeap)
+     */
+    long bytesEstimados() {
+        long total = TamanhoHeap.de(codigos);
+        for (Ranking ranking : rankings) {
+            total += TamanhoHeap.de(ranking.valores) + ranking.decrescente.bytesEstimados()
+                    + ranking.crescente.bytesEstimados();
+        }
+        return total;
+    }
+
+    /**
+     * Municípios no ranking do país (uf = AgregadosRegionais.NACIONAL) ou da UF
+     */
+    public int total(Indicador indicador, int uf) {
+        Ordem ordem = rankings[indicador.ordinal()].decrescente;
+        return uf == AgregadosRegionais.NACIONAL ? ordem.nacional.length
+                : ordem.inicioUF[uf + 1] - ordem.inicioUF[uf];
+    }
+
+    /**
+     * Município na posição indicada (a partir de 0, menor do que total) do
+     * ranking do país ou da UF, do maior para o menor valor ou, se
+     * crescente, do menor para o maior
+     *
+     * @return a posição m do município, para codigo(m) e valor(indicador, m)
+     */
+    public int municipio(Indicador indicador, int uf, int posicao, boolean crescente) {
+        Ranking ranking = rankings[indicador.ordinal()];
+        Ordem ordem = crescente ? ranking.crescente : ranking.decrescente;
+        return uf == AgregadosRegionais.NACIONAL ? ordem.nacional[posicao] : ordem.porUF[ordem.inicioUF[uf] + posicao];
+    }
+
+    /**
+     * Posição m do município de 6 dígitos, ou -1 se não estiver no índice
+     */
+    public int procurar(int ibgeMunicipio6Digitos) {
+        int m = Arrays.binarySearch(codigos, ibgeMunicipio6Digitos);
+        return m >= 0 ? m : -1;
+    }
+
+    public int codigo(int m) {
+        return codigos[m];
+    }
+
+    /**
+     * Valor do indicador no município, ou NaN se ficou fora do ranking
+     */
+    public double valor(Indicador indicador, int m) {
+        return rankings[indicador.ordinal()].valores[m];
+    }
+
+    /**
+     * Posição do município no ranking decrescente do país, a partir de 1, ou 0 se ficou fora
+     */
+    public int posicaoNacional(Indicador indicador, int m) {
+        return rankings[indicador.ordinal()].decrescente.posicaoNacional[m];
+    }
+
+    /**
+     * Posição do município no ranking decrescente da sua UF, a partir de 1, ou 0 se ficou fora
+     */
+    public int posicaoUF(Indicador indicador, int m) {
+        return rankings[indicador.ordinal()].decrescente.posicaoUF[m];
+    }
+}
@@ -0,0 +1,122 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.model.DadosPopulacionais;
+import com.municipios.soap.model.Municipio;
+
+/**
+ * Retrato imutável das tabelas ubs_estabelecimentos, ubs_totais_municipio e
+ * demografia_municipio, em colunas indexadas pelo código IBGE de 6 dígitos.
+ */
+public final class SnapshotEstabelecimentos {
+
+    private final TabelaEstabelecimentos estabelecimentos;
+    private final TabelaDemografia demografia;
+    private final IndiceEspacial indiceEspacial;
+    private final IndiceNomes indiceNomes;
+    private final AgregadosRegionais agregados;
+    private final IndiceRankings rankings;
+    private final long carregadoEm;
+
+    SnapshotEstabelecimentos(TabelaEstabelecimentos estabelecimentos, TabelaDemografia demografia) {
+        this.estabelecimentos = estabelecimentos;
+        this.demografia = demografia;
+        this.indiceEspacial = IndiceEspacial.construir(estabelecimentos);
+        this.indiceNomes = IndiceNomes.construir(estabelecimentos);
+        this.agregados = AgregadosRegionais.construir(estabelecimentos, demografia);
+        this.rankings = IndiceRankings.construir(estabelecimentos, demografia);
+        this.carregadoEm = System.currentTimeMillis();
+    }
+
+    /**
+     * Novo snapshot com outra tabela de estabelecimentos e a mesma demografia
+     */
+    SnapshotEstabelecimentos comEstabelecimentos(TabelaEstabelecimentos novos) {
+        return new SnapshotEstabelecimentos(novos, demografia);
+    }
+
+    /**
+     * Tabela de estabelecimentos, para copiar numa atualização parcial
+     */
+    TabelaEstabelecimentos getEstabelecimentos() {
+        return estabelecimentos;
+    }
+
+    /**
+     * Estabelecimentos e totais do município (vazio se não houver registos)
+     */
+    public EstabelecimentosMunicipio municipio(int ibgeMunicipio6Digitos) {
+        return estabelecimentos.municipio(ibgeMunicipio6Digitos);
+    }
+
+    /**
+     * Linha de demografia_municipio do município (sem municipioId), ou null
+     */
+    public DadosPopulacionais demografia(int ibgeMunicipio6Digitos) {
+        return demografia.municipio(ibgeMunicipio6Digitos);
+    }
+
+    /**
+     * Municípios de demografia_municipio cujo nome, ou uma palavra do nome,
+     * começa pelo prefixo (objetos partilhados, não alterar)
+     */
+    public Municipio[] autocompletarMunicipios(String prefixo, int quantidade) {
+        return demografia.autocompletar(prefixo, quantidade);
+    }
+
+    /**
+     * Estabelecimentos com coordenadas, de todos os municípios, indexados por posição
+     */
+    public IndiceEspacial getIndiceEspacial() {
+        return indiceEspacial;
+    }
+
+    /**
+     * Nomes dos estabelecimentos de todos os municípios, por palavra
+     */
+    public IndiceNomes getIndiceNomes() {
+        return indiceNomes;
+    }
+
+    /**
+     * Totais por UF e do país, somados ao montar o snapshot
+     */
+    public AgregadosRegionais getAgregados() {
+        return agregados;
+    }
+
+    /**
+     * Municípios ordenados por cada indicador, no país e por UF
+     */
+    public IndiceRankings getRankings() {
+        return rankings;
+    }
+
+    public int getTotalEstabelecimentos() {
+        return estabelecimentos.getTotalLinhas();
+    }
+
+    public int getTotalMunicipios() {
+        return estabelecimentos.getTotalMunicipios();
+    }
+
+    public int getTotalTextos() {
+        return estabelecimentos.getTotalTextos();
+    }
+
+    public int getTotalDemografia() {
+        return demografia.getTotalMunicipios();
+    }
+
+    /**
+     * Heap ocupado pelo snapshot, estimado pelos comprimentos dos arrays de
+     * todas as tabelas e índices, sem forçar GC
+     */
+    public long getBytesEstimados() {
+        return estabelecimentos.bytesEstimados() + demografia.bytesEstimados() + indiceEspacial.bytesEstimados()
+                + indiceNomes.bytesEstimados() + agregados.bytesEstimados() + rankings.bytesEstimados();
+    }
+
+    public long getCarregadoEm() {
+        return carregadoEm;
+    }
+}
@@ -0,0 +1,165 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.model.DadosPopulacionais;
+import com.municipios.soap.model.Municipio;
+
+import java.util.Arrays;
+
+/**
+ * demografia_municipio em colunas int[], indexadas pelo código IBGE de 6
+ * dígitos (ordenado, busca binária). Os DadosPopulacionais só são criados
+ * ao montar a resposta.
+ *
+ * Os nomes também formam um IndiceMunicipios, para autocompletar quando o
+ * servidor não tem o catálogo de municípios.
+ */
+public final class TabelaDemografia {
+
+    private final int[] codigos;
+    private final String[] nomes;
+    private final int[] populacaoTotal;
+    private final int[] populacaoHomens;
+    private final int[] populacaoMulheres;
+    private final int[] faixa0a10;
+    private final int[] faixa11a20;
+    private final int[] faixa21a30;
+    private final int[] faixa40Mais;
+
+    private final IndiceMunicipios indiceMunicipios;
+
+    private TabelaDemografia(Construtor c) {
+        int n = c.linhas;
+        long[] ordem = new long[n];
+        for (int i = 0; i < n; i++) {
+            ordem[i] = (long) c.codigos[i] << 32 | i;
+        }
+        Arrays.sort(ordem);
+
+        codigos = new int[n];
+        nomes = new String[n];
+        populacaoTotal = new int[n];
+        populacaoHomens = new int[n];
+        populacaoMulheres = new int[n];
+        faixa0a10 = new int[n];
+        faixa11a20 = new int[n];
+        faixa21a30 = new int[n];
+        faixa40Mais = new int[n];
+        for (int i = 0; i < n; i++) {
+            int origem = (int) ordem[i];
+            DadosPopulacionais dados = c.dados[origem];
+            codigos[i] = c.codigos[origem];
+            nomes[i] = dados.getMunicipioNome();
+            populacaoTotal[i] = dados.getPopulacaoTotal();
+            populacaoHomens[i] = dados.getPopulacaoHomens();
+            populacaoMulheres[i] = dados.getPopulacaoMulheres();
+            faixa0a10[i] = dados.getFaixa0a10();
+            faixa11a20[i] = dados.getFaixa11a20();
+            faixa21a30[i] = dados.getFaixa21a30();
+            faixa40Mais[i] = dados.getFaixa40Mais();
+        }
+        indiceMunicipios = new IndiceMunicipios(municipios());
+    }
+
+    /**
+     * Municípios com nome e de uma UF conhecida, com o ID de 7 dígitos e a
+     * UF tirados do código
+     */
+    private Municipio[] municipios() {
+        Municipio[] municipios = new Municipio[codigos.length];
+        int n = 0;
+        for (int i = 0; i < codigos.length; i++) {
+            int uf = codigos[i] / 10_000;
+            if (nomes[i] != null && CodigosIbge.siglaUF(uf) != null) {
+                municipios[n++] = new Municipio(CodigosIbge.idMunicipio(codigos[i]), nomes[i],
+                        CodigosIbge.siglaUF(uf), CodigosIbge.nomeUF(uf));
+            }
+        }
+        return Arrays.copyOf(municipios, n);
+    }
+
+    /**
+     * Dados do município (com municipioNome da tabela e sem municipioId), ou
+     * null se não houver linha
+     */
+    public DadosPopulacionais municipio(int ibgeMunicipio6Digitos) {
+        int i = Arrays.binarySearch(codigos, ibgeMunicipio6Digitos);
+        if (i < 0) {
+            return null;
+        }
+        DadosPopulacionais dados = new DadosPopulacionais();
+        dados.setMunicipioNome(nomes[i]);
+        dados.setPopulacaoTotal(populacaoTotal[i]);
+        dados.setPopulacaoHomens(populacaoHomens[i]);
+        dados.setPopulacaoMulheres(populacaoMulheres[i]);
+        dados.setFaixa0a10(faixa0a10[i]);
+        dados.setFaixa11a20(faixa11a20[i]);
+        dados.setFaixa21a30(faixa21a30[i]);
+        dados.setFaixa40Mais(faixa40Mais[i]);
+        return dados;
+    }
+
+    /**
+     * Municípios cujo nome, ou uma palavra do nome, começa pelo prefixo;
+     * ver CatalogoMunicipios.autocompletar (objetos partilhados, não alterar)
+     */
+    public Municipio[] autocompletar(String prefixo, int quantidade) {
+        return indiceMunicipios.autocompletar(prefixo, quantidade);
+    }
+
+    public int getTotalMunicipios() {
+        return codigos.length;
+    }
+
+    /**
+     * Heap estimado das colunas e do índice de nomes (ver TamanhoHeap)
+     */
+    long bytesEstimados() {
+        return TamanhoHeap.de(codigos) + TamanhoHeap.de(nomes) + TamanhoHeap.de(populacaoTotal)
+                + TamanhoHeap.de(populacaoHomens) + TamanhoHeap.de(populacaoMulheres) + TamanhoHeap.de(faixa0a10)
+                + TamanhoHeap.de(faixa11a20) + TamanhoHeap.de(faixa21a30) + TamanhoHeap.de(faixa40Mais)
+                + indiceMunicipios.bytesEstimados();
+    }
+
+    // --- Acesso por posição (0..getTotalMunicipios()-1, ordem do código), para os agregados ---
+
+    int codigo(int i) {
+        return codigos[i];
+    }
+
+    int populacaoTotal(int i) {
+        return populacaoTotal[i];
+    }
+
+    int populacaoHomens(int i) {
+        return populacaoHomens[i];
+    }
+
+    int populacaoMulheres(int i) {
+        return populacaoMulheres[i];
+    }
+
+    /**
+     * Recolhe as linhas lidas do BD; cada DadosPopulacionais é só um
+     * transporte até à conversão em colunas
+     */
+    public static final class Construtor {
+        private int[] codigos = new int[1024];
+        private DadosPopulacionais[] dados = new DadosPopulacionais[1024];
+        private int linhas;
+
+        public Construtor adicionar(int ibgeMunicipio6Digitos, DadosPopulacionais linha) {
+            if (linhas == codigos.length) {
+                codigos = Arrays.copyOf(codigos, linhas * 2);
+                dados = Arrays.copyOf(dados, linhas * 2);
+            }
+            codigos[linhas] = ibgeMunicipio6Digitos;
+            dados[linhas] = linha;
+            linhas++;
+            return this;
+        }
+
+        public TabelaDemografia construir() {
+            return new TabelaDemografia(this);
+        }
+    }
+}
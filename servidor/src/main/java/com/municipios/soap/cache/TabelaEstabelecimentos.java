@@ -0,0 +1,415 @@
+package com.municipios.soap.cache;
+
+import com.municipios.soap.database.MapeadorUBS;
+import com.municipios.soap.model.UBS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Linhas de ubs_estabelecimentos (e totais de ubs_totais_municipio) em
+ * colunas de tipos primitivos, agrupadas por município.
+ *
+ * - latitude/longitude em double[] (NaN quando a coluna está vazia);
+ * - CNES e CEP no formato habitual (7 e 8 dígitos) guardados como int; os
+ *   valores fora desse formato vão para o dicionário, com índice negativo;
+ * - nome, logradouro e bairro como índices de um dicionário de textos, em
+ *   que cada texto repetido (bairros, "RUA ...", nomes comuns) existe uma vez;
+ * - eh_ubs num BitSet.
+ *
+ * As linhas de cada município são contíguas e ordenadas por CNES; "porTipo"
+ * guarda, para o mesmo intervalo, as UBS e depois os restantes, também por
+ * CNES. Os objetos UBS só são criados ao montar a resposta, e cada chamada
+ * devolve objetos novos.
+ */
+public final class TabelaEstabelecimentos {
+
+    // Diretório de municípios (códigos de 6 dígitos, ordenados)
+    private final int[] codigos;
+    private final int[] inicio;        // codigos.length + 1 posições
+    private final int[] inicioOutros;  // em porTipo, onde acabam as UBS do município
+    private final int[] totalUbs;
+    private final int[] totalMedicos;
+    private final int[] totalEnfermeiros;
+
+    // Colunas, uma posição por linha
+    private final int[] cnes;
+    private final int[] nome;
+    private final int[] logradouro;
+    private final int[] bairro;
+    private final int[] cep;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final BitSet ehUbs;
+    private final int[] porTipo;
+
+    private final String[] dicionario;
+
+    private TabelaEstabelecimentos(Construtor c) {
+        int linhas = c.linhas;
+
+        // Ordena as linhas por (município, CNES), como o ORDER BY das consultas; as linhas
+        // já chegam nessa ordem do BD, e aí a ordenação é uma só passagem
+        Integer[] ordem = new Integer[linhas];
+        for (int i = 0; i < linhas; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, (a, b) -> {
+            int comparacao = Integer.compare(c.municipio[a], c.municipio[b]);
+            if (comparacao != 0) {
+                return comparacao;
+            }
+            // CNES com 7 dígitos: a ordem numérica é a mesma do texto
+            if (c.cnes[a] >= 0 && c.cnes[b] >= 0) {
+                return Integer.compare(c.cnes[a], c.cnes[b]);
+            }
+            return c.textoCnes(a).compareTo(c.textoCnes(b));
+        });
+
+        cnes = new int[linhas];
+        nome = new int[linhas];
+        logradouro = new int[linhas];
+        bairro = new int[linhas];
+        cep = new int[linhas];
+        latitude = new double[linhas];
+        longitude = new double[linhas];
+        ehUbs = new BitSet(linhas);
+        for (int i = 0; i < linhas; i++) {
+            int origem = ordem[i];
+            cnes[i] = c.cnes[origem];
+            nome[i] = c.nome[origem];
+            logradouro[i] = c.logradouro[origem];
+            bairro[i] = c.bairro[origem];
+            cep[i] = c.cep[origem];
+            latitude[i] = c.latitude[origem];
+            longitude[i] = c.longitude[origem];
+            ehUbs.set(i, c.ehUbs.get(origem));
+        }
+
+        // Municípios com linhas e/ou com totais
+        int[] todosCodigos = new int[linhas + c.totais.size()];
+        int n = 0;
+        for (int i = 0; i < linhas; i++) {
+            int codigo = c.municipio[ordem[i]];
+            if (n == 0 || todosCodigos[n - 1] != codigo) {
+                todosCodigos[n++] = codigo;
+            }
+        }
+        for (int codigo : c.totais.keySet()) {
+            todosCodigos[n++] = codigo;
+        }
+        codigos = Arrays.stream(todosCodigos, 0, n).sorted().distinct().toArray();
+
+        int m = codigos.length;
+        inicio = new int[m + 1];
+        inicioOutros = new int[m];
+        totalUbs = new int[m];
+        totalMedicos = new int[m];
+        totalEnfermeiros = new int[m];
+        porTipo = new int[linhas];
+        int linha = 0;
+        for (int p = 0; p < m; p++) {
+            inicio[p] = linha;
+            while (linha < linhas && c.municipio[ordem[linha]] == codigos[p]) {
+                linha++;
+            }
+            int destino = inicio[p];
+            for (int i = inicio[p]; i < linha; i++) {
+                if (ehUbs.get(i)) {
+                    porTipo[destino++] = i;
+                }
+            }
+            inicioOutros[p] = destino;
+            for (int i = inicio[p]; i < linha; i++) {
+                if (!ehUbs.get(i)) {
+                    porTipo[destino++] = i;
+                }
+            }
+            int[] totais = c.totais.get(codigos[p]);
+            if (totais != null) {
+                totalUbs[p] = totais[0];
+                totalMedicos[p] = totais[1];
+                totalEnfermeiros[p] = totais[2];
+            }
+        }
+        inicio[m] = linhas;
+
+        dicionario = c.textos.toArray(new String[0]);
+    }
+
+    /**
+     * Estabelecimentos e totais do município (vazio se não houver registos)
+     */
+    public EstabelecimentosMunicipio municipio(int ibgeMunicipio6Digitos) {
+        int posicao = Arrays.binarySearch(codigos, ibgeMunicipio6Digitos);
+        return posicao >= 0 ? new EstabelecimentosMunicipio(this, posicao) : EstabelecimentosMunicipio.VAZIO;
+    }
+
+    public int getTotalLinhas() {
+        return cnes.length;
+    }
+
+    public int getTotalMunicipios() {
+        return codigos.length;
+    }
+
+    public int getTotalTextos() {
+        return dicionario.length;
+    }
+
+    /**
+     * Heap estimado das colunas e do dicionário (ver TamanhoHeap)
+     */
+    long bytesEstimados() {
+        return TamanhoHeap.de(codigos) + TamanhoHeap.de(inicio) + TamanhoHeap.de(inicioOutros)
+                + TamanhoHeap.de(totalUbs) + TamanhoHeap.de(totalMedicos) + TamanhoHeap.de(totalEnfermeiros)
+                + TamanhoHeap.de(cnes) + TamanhoHeap.de(nome) + TamanhoHeap.de(logradouro) + TamanhoHeap.de(bairro)
+                + TamanhoHeap.de(cep) + TamanhoHeap.de(latitude) + TamanhoHeap.de(longitude)
+                + TamanhoHeap.de(ehUbs) + TamanhoHeap.de(porTipo) + TamanhoHeap.de(dicionario);
+    }
+
+    // --- Acesso por linha (usado por EstabelecimentosMunicipio e IndiceEspacial) ---
+
+    /**
+     * Cria o objeto de resposta da linha
+     */
+    UBS estabelecimento(int linha) {
+        UBS ubs = new UBS();
+        ubs.setCnes(cnes(linha));
+        ubs.setNome(dicionario[nome[linha]]);
+        ubs.setEndereco(MapeadorUBS.endereco(dicionario[logradouro[linha]], dicionario[bairro[linha]]));
+        ubs.setCep(cep(linha));
+        // Coluna vazia sai como "0.0", tal como em MapeadorUBS.mapear
+        ubs.setLatitude(String.valueOf(Double.isNaN(latitude[linha]) ? 0.0 : latitude[linha]));
+        ubs.setLongitude(String.valueOf(Double.isNaN(longitude[linha]) ? 0.0 : longitude[linha]));
+        return ubs;
+    }
+
+    /**
+     * Índice do nome da linha no dicionário de textos
+     */
+    int nome(int linha) {
+        return nome[linha];
+    }
+
+    String texto(int indice) {
+        return dicionario[indice];
+    }
+
+    /**
+     * Código de 6 dígitos do município da linha
+     */
+    int municipioDaLinha(int linha) {
+        int posicao = Arrays.binarySearch(inicio, linha);
+        if (posicao < 0) {
+            posicao = -posicao - 2;
+        } else {
+            // Municípios sem linhas têm o mesmo início do seguinte
+            while (inicio[posicao + 1] == linha) {
+                posicao++;
+            }
+        }
+        return codigos[posicao];
+    }
+
+    /**
+     * Primeira linha dos municípios com código maior ou igual ao indicado
+     * (as linhas de um intervalo de códigos são contíguas)
+     */
+    int primeiraLinha(int ibgeMunicipio6Digitos) {
+        int posicao = Arrays.binarySearch(codigos, ibgeMunicipio6Digitos);
+        return inicio[posicao >= 0 ? posicao : -posicao - 1];
+    }
+
+    String cnes(int linha) {
+        return decodificar(cnes[linha], Construtor.DIGITOS_CNES);
+    }
+
+    String cep(int linha) {
+        return decodificar(cep[linha], Construtor.DIGITOS_CEP);
+    }
+
+    double latitude(int linha) {
+        return latitude[linha];
+    }
+
+    double longitude(int linha) {
+        return longitude[linha];
+    }
+
+    boolean ehUbs(int linha) {
+        return ehUbs.get(linha);
+    }
+
+    // --- Intervalos do município na posição p do diretório ---
+
+    int codigo(int p) {
+        return codigos[p];
+    }
+
+    int inicio(int p) {
+        return inicio[p];
+    }
+
+    int fim(int p) {
+        return inicio[p + 1];
+    }
+
+    int inicioOutros(int p) {
+        return inicioOutros[p];
+    }
+
+    /**
+     * Linha na posição i de porTipo (UBS e depois os restantes, por município)
+     */
+    int porTipo(int i) {
+        return porTipo[i];
+    }
+
+    int totalUbs(int p) {
+        return totalUbs[p];
+    }
+
+    int totalMedicos(int p) {
+        return totalMedicos[p];
+    }
+
+    int totalEnfermeiros(int p) {
+        return totalEnfermeiros[p];
+    }
+
+    private String decodificar(int valor, int digitos) {
+        if (valor < 0) {
+            return dicionario[-valor - 1];
+        }
+        char[] texto = new char[digitos];
+        for (int i = digitos - 1; i >= 0; i--) {
+            texto[i] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+        return new String(texto);
+    }
+
+    /**
+     * Recolhe as linhas lidas do BD, em qualquer ordem
+     */
+    public static final class Construtor {
+        static final int DIGITOS_CNES = 7;
+        static final int DIGITOS_CEP = 8;
+
+        private int[] municipio = new int[1024];
+        private int[] cnes = new int[1024];
+        private int[] nome = new int[1024];
+        private int[] logradouro = new int[1024];
+        private int[] bairro = new int[1024];
+        private int[] cep = new int[1024];
+        private double[] latitude = new double[1024];
+        private double[] longitude = new double[1024];
+        private final BitSet ehUbs = new BitSet();
+        private int linhas;
+
+        private final Map<Integer, int[]> totais = new HashMap<>();
+
+        // O null também é um texto (coluna vazia); o HashMap aceita-o como chave
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> textos = new ArrayList<>();
+
+        public Construtor totais(int ibgeMunicipio6Digitos, int totalUbs, int totalMedicos, int totalEnfermeiros) {
+            totais.put(ibgeMunicipio6Digitos, new int[]{totalUbs, totalMedicos, totalEnfermeiros});
+            return this;
+        }
+
+        public boolean temTotais(int ibgeMunicipio6Digitos) {
+            return totais.containsKey(ibgeMunicipio6Digitos);
+        }
+
+        public Construtor adicionar(int ibgeMunicipio6Digitos, String cnes, String nome, String logradouro,
+                                    String bairro, String cep, double latitude, double longitude, boolean ehUbs) {
+            if (linhas == municipio.length) {
+                int capacidade = linhas * 2;
+                this.municipio = Arrays.copyOf(this.municipio, capacidade);
+                this.cnes = Arrays.copyOf(this.cnes, capacidade);
+                this.nome = Arrays.copyOf(this.nome, capacidade);
+                this.logradouro = Arrays.copyOf(this.logradouro, capacidade);
+                this.bairro = Arrays.copyOf(this.bairro, capacidade);
+                this.cep = Arrays.copyOf(this.cep, capacidade);
+                this.latitude = Arrays.copyOf(this.latitude, capacidade);
+                this.longitude = Arrays.copyOf(this.longitude, capacidade);
+            }
+            this.municipio[linhas] = ibgeMunicipio6Digitos;
+            this.cnes[linhas] = codificarNumero(cnes, DIGITOS_CNES);
+            this.nome[linhas] = indice(nome);
+            this.logradouro[linhas] = indice(logradouro);
+            this.bairro[linhas] = indice(bairro);
+            this.cep[linhas] = codificarNumero(cep, DIGITOS_CEP);
+            this.latitude[linhas] = latitude;
+            this.longitude[linhas] = longitude;
+            this.ehUbs.set(linhas, ehUbs);
+            linhas++;
+            return this;
+        }
+
+        /**
+         * Copia as linhas e os totais da tabela, exceto os dos municípios
+         * indicados (códigos de 6 dígitos, ordenados), que serão relidos do BD
+         */
+        public Construtor copiar(TabelaEstabelecimentos origem, int[] exceto) {
+            for (int p = 0; p < origem.codigos.length; p++) {
+                int codigo = origem.codigos[p];
+                if (Arrays.binarySearch(exceto, codigo) >= 0) {
+                    continue;
+                }
+                totais(codigo, origem.totalUbs[p], origem.totalMedicos[p], origem.totalEnfermeiros[p]);
+                for (int linha = origem.inicio[p]; linha < origem.inicio[p + 1]; linha++) {
+                    adicionar(codigo, origem.cnes(linha), origem.dicionario[origem.nome[linha]],
+                            origem.dicionario[origem.logradouro[linha]], origem.dicionario[origem.bairro[linha]],
+                            origem.cep(linha), origem.latitude[linha], origem.longitude[linha],
+                            origem.ehUbs.get(linha));
+                }
+            }
+            return this;
+        }
+
+        public TabelaEstabelecimentos construir() {
+            return new TabelaEstabelecimentos(this);
+        }
+
+        private int indice(String texto) {
+            Integer indice = indices.get(texto);
+            if (indice == null) {
+                indice = textos.size();
+                indices.put(texto, indice);
+                textos.add(texto);
+            }
+            return indice;
+        }
+
+        /**
+         * O número, se o texto tiver exatamente "digitos" algarismos;
+         * senão -(índice no dicionário) - 1
+         */
+        private int codificarNumero(String texto, int digitos) {
+            if (texto != null && texto.length() == digitos) {
+                int valor = 0;
+                for (int i = 0; i < digitos; i++) {
+                    char ch = texto.charAt(i);
+                    if (ch < '0' || ch > '9') {
+                        return -indice(texto) - 1;
+                    }
+                    valor = valor * 10 + (ch - '0');
+                }
+                return valor;
+            }
+            return -indice(texto) - 1;
+        }
+
+        private String textoCnes(int linha) {
+            int valor = cnes[linha];
+            return valor < 0 ? String.valueOf(textos.get(-valor - 1)) : String.format("%07d", valor);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.municipios.soap.cache;
+
+import java.util.BitSet;
+
+/**
+ * Estimativa do heap ocupado pelos arrays do snapshot, a partir dos
+ * comprimentos (HotSpot de 64 bits com compressed oops: cabeçalho de 16
+ * bytes por array, referências de 4 bytes). Não força GC nem percorre o
+ * heap, por isso pode ser calculada em cada recarga.
+ */
+final class TamanhoHeap {
+
+    private static final int CABECALHO_ARRAY = 16;
+    private static final int CABECALHO_OBJETO = 12;
+    private static final int REFERENCIA = 4;
+
+    private TamanhoHeap() {
+    }
+
+    static long de(int[] array) {
+        return alinhar(CABECALHO_ARRAY + 4L * array.length);
+    }
+
+    static long de(long[] array) {
+        return alinhar(CABECALHO_ARRAY + 8L * array.length);
+    }
+
+    static long de(double[] array) {
+        return alinhar(CABECALHO_ARRAY + 8L * array.length);
+    }
+
+    static long de(BitSet bits) {
+        return alinhar(CABECALHO_OBJETO + 8) + alinhar(CABECALHO_ARRAY + bits.size() / 8);
+    }
+
+    /**
+     * O array de referências e as Strings (1 byte por caráter, Latin-1);
+     * Strings repetidas contam uma vez por posição
+     */
+    static long de(String[] array) {
+        long total = referencias(array.length);
+        for (String texto : array) {
+            if (texto != null) {
+                total += alinhar(CABECALHO_OBJETO + 12) + alinhar(CABECALHO_ARRAY + texto.length());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Array de referências com esse comprimento, sem os objetos apontados
+     */
+    static long referencias(int comprimento) {
+        return alinhar(CABECALHO_ARRAY + (long) REFERENCIA * comprimento);
+    }
+
+    /**
+     * Objeto com esses bytes de campos, sem o que os campos apontam
+     */
+    static long objeto(int bytesCampos) {
+        return alinhar(CABECALHO_OBJETO + bytesCampos);
+    }
+
+    private static long alinhar(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,41 @@
+package com.municipios.soap.database;
+
+import java.text.Normalizer;
+
+/**
+ * Classifica um estabelecimento como UBS a partir do nome.
+ * A mesma regra é aplicada pelo ETL (scripts_ETL/importar_dados.py) ao
+ * preencher a coluna ubs_estabelecimentos.eh_ubs; aqui ela só é usada
+ * para linhas em que a coluna ainda está vazia.
+ */
+public final class ClassificadorEstabelecimento {
+
+    private ClassificadorEstabelecimento() {
+    }
+
+    /**
+     * Nome em maiúsculas e sem acentos (ex: "Unidade Básica" -> "UNIDADE BASICA")
+     */
+    public static String normalizar(String nome) {
+        if (nome == null) {
+            return "";
+        }
+        String decomposto = Normalizer.normalize(nome, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposto.length());
+        for (int i = 0; i < decomposto.length(); i++) {
+            char c = decomposto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(Character.toUpperCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * true se o nome indica uma Unidade Básica de Saúde
+     */
+    public static boolean ehUbs(String nome) {
+        String normalizado = normalizar(nome);
+        return normalizado.contains("UBS") || normalizado.contains("UNIDADE BASICA");
+    }
+}
@@ -1,45 +1,181 @@
 package com.municipios.soap.database;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Pool de conexões JDBC (HikariCP) partilhado por todas as chamadas SOAP.
+ * Os valores abaixo podem ser sobrepostos com -D na linha de comando
+ * (ex: -Ddb.pool.max=40).
+ */
 public class DatabaseConnector {
 
     // --- CONFIGURE OS SEUS DADOS AQUI ---
 
     // URL de conexão JDBC. 'soap_ubs_db' é o nome do banco de dados que criámos.
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/soap_ubs_db";
+    private static final String DB_URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/soap_ubs_db");
 
     // O utilizador que criámos no MySQL
-    private static final String DB_USER = "Pedro";
+    private static final String DB_USER = System.getProperty("db.user", "Pedro");
 
     // ⚠️ Altere para a senha que definiu para o 'Pedro'
-    private static final String DB_PASSWORD = "admin";
+    private static final String DB_PASSWORD = System.getProperty("db.password", "admin");
+
+    // ------------------------------------
+
+    // --- CONFIGURAÇÃO DO POOL ---
+
+    // Conexões mantidas abertas mesmo sem carga
+    private static final int POOL_MIN = Integer.getInteger("db.pool.min", 2);
+
+    // Limite de conexões simultâneas com o MySQL
+    private static final int POOL_MAX = Integer.getInteger("db.pool.max", 20);
+
+    // Conexões ociosas acima do mínimo são fechadas após este tempo
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 300_000L);
+
+    // Tempo máximo de espera por uma conexão livre antes de falhar
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("db.pool.borrowTimeoutMs", 2_000L);
+
+    // Quantidade de PreparedStatements mantidos em cache por conexão
+    private static final int POOL_STMT_CACHE = Integer.getInteger("db.pool.stmtCache", 250);
 
     // ------------------------------------
 
+    private static volatile HikariDataSource dataSource;
+
+    // Métricas de empréstimo (medidas em connect())
+    private static final LongAdder EMPRESTIMOS = new LongAdder();
+    private static final LongAdder FALHAS = new LongAdder();
+    private static final LongAdder LATENCIA_TOTAL_NANOS = new LongAdder();
+    private static final LongAccumulator LATENCIA_MAX_NANOS = new LongAccumulator(Long::max, 0L);
+    private static final AtomicLong ULTIMA_FALHA_MS = new AtomicLong();
+
     /**
-     * Tenta estabelecer uma conexão com o banco de dados MySQL.
-     * @return um objeto Connection ou null se a conexão falhar.
+     * Obtém uma conexão do pool. A conexão DEVE ser fechada (try-with-resources)
+     * para voltar ao pool.
+     * @return um objeto Connection ou null se nenhuma conexão ficar disponível
+     * dentro do tempo limite (db.pool.borrowTimeoutMs).
      */
     public static Connection connect() {
-        Connection conn = null;
+        long inicio = System.nanoTime();
         try {
-            // 1. Registar o driver do MySQL
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            Connection conn = getDataSource().getConnection();
+            long latencia = System.nanoTime() - inicio;
+            EMPRESTIMOS.increment();
+            LATENCIA_TOTAL_NANOS.add(latencia);
+            LATENCIA_MAX_NANOS.accumulate(latencia);
+            return conn;
+        } catch (SQLException e) {
+            FALHAS.increment();
+            ULTIMA_FALHA_MS.set(System.currentTimeMillis());
+            System.err.println("Erro de SQL ao obter conexão do pool: " + e.getMessage());
+            return null;
+        }
+    }
 
-            // 2. Tentar obter a conexão
-            conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    /**
+     * Cria o pool antecipadamente (chamado no arranque do servidor).
+     * Não falha se o MySQL estiver indisponível: as conexões são abertas
+     * em segundo plano e cada connect() falha rapidamente até lá.
+     */
+    public static void iniciar() {
+        getDataSource();
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Erro de SQL ao conectar ao MySQL: " + e.getMessage());
-            e.printStackTrace();
-        } catch (ClassNotFoundException e) {
-            System.err.println("Erro: Driver JDBC do MySQL (mysql-connector-java) não encontrado.");
-            System.err.println("Verifique se a dependência está no pom.xml do servidor.");
-            e.printStackTrace();
+    /**
+     * Fecha todas as conexões do pool.
+     */
+    public static synchronized void fechar() {
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    /**
+     * Retorna um retrato das estatísticas atuais do pool.
+     */
+    public static EstatisticasPool estatisticas() {
+        HikariDataSource ds = dataSource;
+        HikariPoolMXBean pool = ds != null ? ds.getHikariPoolMXBean() : null;
+
+        EstatisticasPool stats = new EstatisticasPool();
+        stats.setMinimo(POOL_MIN);
+        stats.setMaximo(POOL_MAX);
+        if (pool != null) {
+            stats.setAtivas(pool.getActiveConnections());
+            stats.setOciosas(pool.getIdleConnections());
+            stats.setTotal(pool.getTotalConnections());
+            stats.setAguardando(pool.getThreadsAwaitingConnection());
+        }
+        long emprestimos = EMPRESTIMOS.sum();
+        stats.setEmprestimos(emprestimos);
+        stats.setFalhas(FALHAS.sum());
+        stats.setLatenciaMediaMs(emprestimos == 0 ? 0.0 : LATENCIA_TOTAL_NANOS.sum() / (double) emprestimos / 1_000_000.0);
+        stats.setLatenciaMaxMs(LATENCIA_MAX_NANOS.get() / 1_000_000.0);
+        stats.setUltimaFalhaMs(ULTIMA_FALHA_MS.get());
+        return stats;
+    }
+
+    /**
+     * Resumo da configuração do pool para exibir no arranque.
+     */
+    public static String descricaoConfiguracao() {
+        return String.format("min=%d, max=%d, idleTimeout=%dms, borrowTimeout=%dms, stmtCache=%d",
+                POOL_MIN, POOL_MAX, POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS, POOL_STMT_CACHE);
+    }
+
+    private static HikariDataSource getDataSource() {
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            synchronized (DatabaseConnector.class) {
+                ds = dataSource;
+                if (ds == null) {
+                    ds = new HikariDataSource(criarConfiguracao());
+                    dataSource = ds;
+                }
+            }
+        }
+        return ds;
+    }
+
+    private static HikariConfig criarConfiguracao() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("soap-ubs-db");
+        config.setJdbcUrl(DB_URL);
+        config.setUsername(DB_USER);
+        config.setPassword(DB_PASSWORD);
+
+        config.setMinimumIdle(POOL_MIN);
+        config.setMaximumPoolSize(POOL_MAX);
+        config.setIdleTimeout(POOL_IDLE_TIMEOUT_MS);
+        config.setConnectionTimeout(POOL_BORROW_TIMEOUT_MS);
+        config.setMaxLifetime(30 * 60_000L);
+        config.setKeepaliveTime(2 * 60_000L);
+
+        // Conexões ociosas são validadas (Connection.isValid) antes de serem entregues
+        config.setValidationTimeout(Math.min(1_000L, POOL_BORROW_TIMEOUT_MS));
+
+        // Não impede o arranque do servidor se o MySQL estiver em baixo
+        config.setInitializationFailTimeout(-1);
+
+        if (DB_URL.startsWith("jdbc:mysql:")) {
+            // Cache de PreparedStatements no driver (Connector/J)
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(POOL_STMT_CACHE));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("cacheServerConfiguration", "true");
+            config.addDataSourceProperty("useLocalSessionState", "true");
         }
-        return conn;
+        return config;
     }
-}
\ No newline at end of file
+}
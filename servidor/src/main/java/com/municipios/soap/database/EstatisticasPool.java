@@ -0,0 +1,115 @@
+package com.municipios.soap.database;
+
+/**
+ * Retrato das estatísticas do pool de conexões
+ */
+public class EstatisticasPool {
+    private int minimo;
+    private int maximo;
+    private int ativas;
+    private int ociosas;
+    private int total;
+    private int aguardando;
+    private long emprestimos;
+    private long falhas;
+    private double latenciaMediaMs;
+    private double latenciaMaxMs;
+    private long ultimaFalhaMs;
+
+    public EstatisticasPool() {
+    }
+
+    public int getMinimo() {
+        return minimo;
+    }
+
+    public void setMinimo(int minimo) {
+        this.minimo = minimo;
+    }
+
+    public int getMaximo() {
+        return maximo;
+    }
+
+    public void setMaximo(int maximo) {
+        this.maximo = maximo;
+    }
+
+    public int getAtivas() {
+        return ativas;
+    }
+
+    public void setAtivas(int ativas) {
+        this.ativas = ativas;
+    }
+
+    public int getOciosas() {
+        return ociosas;
+    }
+
+    public void setOciosas(int ociosas) {
+        this.ociosas = ociosas;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getAguardando() {
+        return aguardando;
+    }
+
+    public void setAguardando(int aguardando) {
+        this.aguardando = aguardando;
+    }
+
+    public long getEmprestimos() {
+        return emprestimos;
+    }
+
+    public void setEmprestimos(long emprestimos) {
+        this.emprestimos = emprestimos;
+    }
+
+    public long getFalhas() {
+        return falhas;
+    }
+
+    public void setFalhas(long falhas) {
+        this.falhas = falhas;
+    }
+
+    public double getLatenciaMediaMs() {
+        return latenciaMediaMs;
+    }
+
+    public void setLatenciaMediaMs(double latenciaMediaMs) {
+        this.latenciaMediaMs = latenciaMediaMs;
+    }
+
+    public double getLatenciaMaxMs() {
+        return latenciaMaxMs;
+    }
+
+    public void setLatenciaMaxMs(double latenciaMaxMs) {
+        this.latenciaMaxMs = latenciaMaxMs;
+    }
+
+    public long getUltimaFalhaMs() {
+        return ultimaFalhaMs;
+    }
+
+    public void setUltimaFalhaMs(long ultimaFalhaMs) {
+        this.ultimaFalhaMs = ultimaFalhaMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ativas=%d, ociosas=%d, total=%d, aguardando=%d, emprestimos=%d, falhas=%d, latenciaMedia=%.2fms, latenciaMax=%.2fms",
+                ativas, ociosas, total, aguardando, emprestimos, falhas, latenciaMediaMs, latenciaMaxMs);
+    }
+}
@@ -0,0 +1,39 @@
+package com.municipios.soap.database;
+
+import com.municipios.soap.model.DadosPopulacionais;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Lê os números da população de demografia_municipio.
+ * As colunas são lidas por posição, na ordem de COLUNAS.
+ */
+public final class MapeadorDemografia {
+
+    /**
+     * Colunas esperadas pelo mapeador
+     */
+    public static final String COLUNAS =
+            "populacao_total, populacao_homens, populacao_mulheres, " +
+            "faixa_0_10, faixa_11_20, faixa_21_30, faixa_40_mais";
+
+    private MapeadorDemografia() {
+    }
+
+    /**
+     * Preenche os números da população (não o id nem o nome) a partir da
+     * linha atual do ResultSet.
+     *
+     * @param primeiraColuna posição (1-based) da coluna populacao_total
+     */
+    public static void preencher(DadosPopulacionais dados, ResultSet rs, int primeiraColuna) throws SQLException {
+        dados.setPopulacaoTotal(rs.getInt(primeiraColuna));
+        dados.setPopulacaoHomens(rs.getInt(primeiraColuna + 1));
+        dados.setPopulacaoMulheres(rs.getInt(primeiraColuna + 2));
+        dados.setFaixa0a10(rs.getInt(primeiraColuna + 3));
+        dados.setFaixa11a20(rs.getInt(primeiraColuna + 4));
+        dados.setFaixa21a30(rs.getInt(primeiraColuna + 5));
+        dados.setFaixa40Mais(rs.getInt(primeiraColuna + 6));
+    }
+}
@@ -0,0 +1,105 @@
+package com.municipios.soap.database;
+
+import com.municipios.soap.cache.TabelaEstabelecimentos;
+import com.municipios.soap.model.UBS;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converte linhas de ubs_estabelecimentos em objetos UBS.
+ * As colunas são lidas por posição, na ordem de COLUNAS.
+ */
+public final class MapeadorUBS {
+
+    /**
+     * Colunas esperadas pelo mapeador (tabela com alias "e")
+     */
+    public static final String COLUNAS =
+            "e.cnes, e.nome, e.logradouro, e.bairro, e.cep, e.latitude, e.longitude, e.eh_ubs";
+
+    /**
+     * Quantidade de colunas em COLUNAS
+     */
+    public static final int TOTAL_COLUNAS = 8;
+
+    private MapeadorUBS() {
+    }
+
+    /**
+     * Lê a linha atual do ResultSet a partir da coluna indicada.
+     *
+     * @param rs             ResultSet posicionado numa linha
+     * @param primeiraColuna posição (1-based) da coluna e.cnes
+     */
+    public static UBS mapear(ResultSet rs, int primeiraColuna) throws SQLException {
+        UBS ubs = new UBS();
+        ubs.setCnes(rs.getString(primeiraColuna));
+        ubs.setNome(rs.getString(primeiraColuna + 1));
+        ubs.setEndereco(endereco(rs.getString(primeiraColuna + 2), rs.getString(primeiraColuna + 3)));
+        ubs.setCep(rs.getString(primeiraColuna + 4));
+        ubs.setLatitude(String.valueOf(rs.getDouble(primeiraColuna + 5)));
+        ubs.setLongitude(String.valueOf(rs.getDouble(primeiraColuna + 6)));
+        return ubs;
+    }
+
+    /**
+     * Lê a linha atual do ResultSet para a tabela colunar, sem criar o objeto UBS.
+     *
+     * @param primeiraColuna posição (1-based) da coluna e.cnes
+     */
+    public static void adicionar(TabelaEstabelecimentos.Construtor tabela, int ibgeMunicipio6Digitos,
+                                 ResultSet rs, int primeiraColuna) throws SQLException {
+        String nome = rs.getString(primeiraColuna + 1);
+        tabela.adicionar(ibgeMunicipio6Digitos, rs.getString(primeiraColuna), nome,
+                rs.getString(primeiraColuna + 2), rs.getString(primeiraColuna + 3),
+                rs.getString(primeiraColuna + 4),
+                latitude(rs, primeiraColuna), longitude(rs, primeiraColuna),
+                ehUbs(rs, primeiraColuna, nome));
+    }
+
+    /**
+     * Texto do campo "endereco" da UBS
+     */
+    public static String endereco(String logradouro, String bairro) {
+        return logradouro + " - " + bairro;
+    }
+
+    /**
+     * Lê a coluna e.latitude da linha atual como número (NaN se estiver vazia)
+     *
+     * @param primeiraColuna posição (1-based) da coluna e.cnes
+     */
+    public static double latitude(ResultSet rs, int primeiraColuna) throws SQLException {
+        return lerCoordenada(rs, primeiraColuna + 5);
+    }
+
+    /**
+     * Lê a coluna e.longitude da linha atual como número (NaN se estiver vazia)
+     *
+     * @param primeiraColuna posição (1-based) da coluna e.cnes
+     */
+    public static double longitude(ResultSet rs, int primeiraColuna) throws SQLException {
+        return lerCoordenada(rs, primeiraColuna + 6);
+    }
+
+    private static double lerCoordenada(ResultSet rs, int coluna) throws SQLException {
+        double valor = rs.getDouble(coluna);
+        return rs.wasNull() ? Double.NaN : valor;
+    }
+
+    /**
+     * Lê a coluna e.eh_ubs da linha atual. Se estiver vazia (linha gravada
+     * antes de o ETL preencher a coluna), classifica pelo nome.
+     *
+     * @param primeiraColuna posição (1-based) da coluna e.cnes
+     * @param nome           nome já lido da linha
+     */
+    public static boolean ehUbs(ResultSet rs, int primeiraColuna, String nome) throws SQLException {
+        int ehUbs = rs.getInt(primeiraColuna + 7);
+        if (rs.wasNull()) {
+            return ClassificadorEstabelecimento.ehUbs(nome);
+        }
+        return ehUbs != 0;
+    }
+}
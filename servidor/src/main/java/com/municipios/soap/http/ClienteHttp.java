@@ -0,0 +1,151 @@
+package com.municipios.soap.http;
+
+import com.google.gson.Gson;
+import com.municipios.soap.metricas.Medidor;
+import com.municipios.soap.metricas.Metricas;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente HTTP partilhado para as APIs REST externas (IBGE, ViaCEP).
+ * Mantém as conexões abertas (keep-alive) num pool por host e lê o
+ * corpo das respostas diretamente para o Gson, sem passar por String.
+ * Cada chamada é medida em Metricas.HTTP_SAIDA.
+ */
+public class ClienteHttp implements Closeable {
+
+    // --- CONFIGURAÇÃO (sobreponível com -D) ---
+
+    // Limite total de conexões abertas
+    private static final int POOL_MAX = Integer.getInteger("http.pool.max", 100);
+
+    // Limite de conexões por host (ex: servicodados.ibge.gov.br)
+    private static final int POOL_MAX_POR_HOST = Integer.getInteger("http.pool.maxPorHost", 20);
+
+    // Tempo para estabelecer a conexão TCP/TLS
+    private static final int TIMEOUT_CONEXAO_MS = Integer.getInteger("http.timeout.conexaoMs", 2_000);
+
+    // Tempo máximo sem receber dados do servidor remoto
+    private static final int TIMEOUT_LEITURA_MS = Integer.getInteger("http.timeout.leituraMs", 5_000);
+
+    // Tempo máximo à espera de uma conexão livre no pool
+    private static final int TIMEOUT_POOL_MS = Integer.getInteger("http.timeout.poolMs", 1_000);
+
+    // Keep-alive usado quando o servidor não indica um
+    private static final long KEEP_ALIVE_PADRAO_MS = Long.getLong("http.keepAliveMs", 30_000L);
+
+    // ------------------------------------------
+
+    private final PoolingHttpClientConnectionManager gestorConexoes;
+    private final CloseableHttpClient httpClient;
+    private final Gson gson = new Gson();
+
+    public ClienteHttp() {
+        this.gestorConexoes = new PoolingHttpClientConnectionManager(5, TimeUnit.MINUTES);
+        gestorConexoes.setMaxTotal(POOL_MAX);
+        gestorConexoes.setDefaultMaxPerRoute(POOL_MAX_POR_HOST);
+        gestorConexoes.setValidateAfterInactivity(2_000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(TIMEOUT_CONEXAO_MS)
+                .setSocketTimeout(TIMEOUT_LEITURA_MS)
+                .setConnectionRequestTimeout(TIMEOUT_POOL_MS)
+                .build();
+
+        ConnectionKeepAliveStrategy keepAlive = (response, context) -> {
+            long duracao = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duracao > 0 ? duracao : KEEP_ALIVE_PADRAO_MS;
+        };
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(gestorConexoes)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAlive)
+                .evictExpiredConnections()
+                .evictIdleConnections(KEEP_ALIVE_PADRAO_MS, TimeUnit.MILLISECONDS)
+                .setUserAgent("soap-municipios/1.0")
+                .build();
+    }
+
+    /**
+     * Faz uma requisição GET e converte o corpo JSON no tipo pedido.
+     * O corpo é lido em streaming e a conexão volta ao pool no fim.
+     *
+     * @throws IOException em falha de rede, timeout ou status HTTP fora de 2xx
+     */
+    public <T> T getJson(String url, Class<T> tipo) throws IOException {
+        HttpGet request = new HttpGet(url);
+        request.setHeader("Accept", "application/json");
+
+        // Uma série de métricas por host de destino (IBGE, ViaCEP)
+        String host = request.getURI().getHost();
+        Medidor medidor = Metricas.HTTP_SAIDA.medidor(host != null ? host : "desconhecido");
+        long inicio = medidor.iniciar();
+        boolean sucesso = false;
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int status = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+
+            if (status < 200 || status >= 300) {
+                EntityUtils.consume(entity);
+                throw new IOException("HTTP " + status + " ao chamar " + url);
+            }
+            if (entity == null) {
+                throw new IOException("Resposta sem corpo de " + url);
+            }
+
+            Charset charset = ContentType.getOrDefault(entity).getCharset();
+            if (charset == null) {
+                charset = StandardCharsets.UTF_8;
+            }
+
+            // Fechar o reader consome o resto do corpo e devolve a conexão ao pool
+            try (Reader reader = new InputStreamReader(entity.getContent(), charset)) {
+                T resultado = gson.fromJson(reader, tipo);
+                sucesso = true;
+                return resultado;
+            }
+        } finally {
+            medidor.terminar(inicio, sucesso);
+        }
+    }
+
+    /**
+     * Estatísticas atuais do pool de conexões de saída.
+     */
+    public PoolStats estatisticas() {
+        return gestorConexoes.getTotalStats();
+    }
+
+    /**
+     * Resumo da configuração para exibir no arranque.
+     */
+    public static String descricaoConfiguracao() {
+        return String.format("max=%d, maxPorHost=%d, conexão=%dms, leitura=%dms, pool=%dms",
+                POOL_MAX, POOL_MAX_POR_HOST, TIMEOUT_CONEXAO_MS, TIMEOUT_LEITURA_MS, TIMEOUT_POOL_MS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.municipios.soap.metricas;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências com limites fixos, no formato dos histogramas do
+ * Prometheus. Cada intervalo é um LongAdder: registar não usa locks nem
+ * aloca memória (a não ser as células internas do LongAdder, criadas uma
+ * vez na primeira contenção).
+ */
+public final class Histograma {
+
+    // Limites superiores dos intervalos, em segundos (de 0,5 ms a 10 s)
+    static final double[] LIMITES_SEGUNDOS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final long[] LIMITES_NANOS = new long[LIMITES_SEGUNDOS.length];
+
+    static {
+        for (int i = 0; i < LIMITES_SEGUNDOS.length; i++) {
+            LIMITES_NANOS[i] = Math.round(LIMITES_SEGUNDOS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    // Um intervalo por limite e o último para +Inf (contagens não acumuladas)
+    private final LongAdder[] intervalos = new LongAdder[LIMITES_NANOS.length + 1];
+    private final LongAdder somaNanos = new LongAdder();
+
+    Histograma() {
+        for (int i = 0; i < intervalos.length; i++) {
+            intervalos[i] = new LongAdder();
+        }
+    }
+
+    void registar(long nanos) {
+        int i = 0;
+        while (i < LIMITES_NANOS.length && nanos > LIMITES_NANOS[i]) {
+            i++;
+        }
+        intervalos[i].increment();
+        somaNanos.add(nanos);
+    }
+
+    /**
+     * Contagens acumuladas por limite (a última é o total, +Inf)
+     */
+    long[] acumulados() {
+        long[] acumulados = new long[intervalos.length];
+        long soma = 0;
+        for (int i = 0; i < intervalos.length; i++) {
+            soma += intervalos[i].sum();
+            acumulados[i] = soma;
+        }
+        return acumulados;
+    }
+
+    double somaSegundos() {
+        return somaNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.municipios.soap.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contagem, erros, chamadas em curso e histograma de latência de uma
+ * operação. Uso:
+ * <pre>
+ * long inicio = medidor.iniciar();
+ * boolean sucesso = false;
+ * try {
+ *     ...
+ *     sucesso = true;
+ * } finally {
+ *     medidor.terminar(inicio, sucesso);
+ * }
+ * </pre>
+ * Os medidores são criados uma vez (campos static final) e reutilizados;
+ * nenhum dos métodos abaixo aloca memória nem usa locks.
+ */
+public final class Medidor {
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder erros = new LongAdder();
+    private final LongAdder emCurso = new LongAdder();
+    private final Histograma latencia = new Histograma();
+
+    Medidor() {
+    }
+
+    /**
+     * Marca o início de uma chamada.
+     *
+     * @return o instante de início, a passar a terminar()
+     */
+    public long iniciar() {
+        emCurso.increment();
+        return System.nanoTime();
+    }
+
+    public void terminar(long inicio, boolean sucesso) {
+        if (!sucesso) {
+            erros.increment();
+        }
+        latencia.registar(System.nanoTime() - inicio);
+        total.increment();
+        emCurso.decrement();
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    long getErros() {
+        return erros.sum();
+    }
+
+    long getEmCurso() {
+        return emCurso.sum();
+    }
+
+    Histograma getLatencia() {
+        return latencia;
+    }
+}
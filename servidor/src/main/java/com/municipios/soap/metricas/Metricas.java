@@ -0,0 +1,162 @@
+package com.municipios.soap.metricas;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registo das métricas do servidor, exportadas no formato de texto do
+ * Prometheus (ver MetricasHandler).
+ *
+ * Há três famílias de medidores (operações SOAP, chamadas HTTP de saída e
+ * consultas ao BD), cada uma com uma label, e valores avulsos (tamanho de
+ * pools e caches) lidos só no momento da exportação.
+ */
+public final class Metricas {
+
+    public static final Familia SOAP = new Familia("soap_requisicoes", "operacao",
+            "Operações SOAP recebidas");
+    public static final Familia HTTP_SAIDA = new Familia("http_saida_requisicoes", "destino",
+            "Chamadas HTTP às APIs externas (IBGE, ViaCEP)");
+    public static final Familia JDBC = new Familia("jdbc_consultas", "consulta",
+            "Consultas ao BD");
+
+    private static final Familia[] FAMILIAS = {SOAP, HTTP_SAIDA, JDBC};
+
+    private static final List<Valor> VALORES = new CopyOnWriteArrayList<>();
+
+    private Metricas() {
+    }
+
+    /**
+     * Regista um valor lido a cada exportação.
+     *
+     * @param tipo "gauge" ou "counter"
+     */
+    public static void registar(String nome, String tipo, String ajuda, DoubleSupplier leitura) {
+        VALORES.add(new Valor(nome, tipo, ajuda, leitura));
+    }
+
+    /**
+     * Todas as métricas no formato de texto do Prometheus (versão 0.0.4).
+     */
+    public static String exportar() {
+        StringBuilder sb = new StringBuilder(8192);
+        for (Familia familia : FAMILIAS) {
+            familia.exportar(sb);
+        }
+        for (Valor valor : VALORES) {
+            cabecalho(sb, valor.nome, valor.tipo, valor.ajuda);
+            sb.append(valor.nome).append(' ').append(numero(valor.leitura.getAsDouble())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void cabecalho(StringBuilder sb, String nome, String tipo, String ajuda) {
+        sb.append("# HELP ").append(nome).append(' ').append(ajuda).append('\n');
+        sb.append("# TYPE ").append(nome).append(' ').append(tipo).append('\n');
+    }
+
+    private static String numero(double valor) {
+        if (valor == Math.rint(valor) && !Double.isInfinite(valor)) {
+            return Long.toString((long) valor);
+        }
+        return decimal(valor);
+    }
+
+    private static String decimal(double valor) {
+        return BigDecimal.valueOf(valor).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escapar(String valor) {
+        return valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Conjunto de medidores com o mesmo nome e uma label (ex: operacao="consultarCEP").
+     */
+    public static final class Familia {
+
+        private final String nome;
+        private final String label;
+        private final String ajuda;
+        private final ConcurrentMap<String, Medidor> medidores = new ConcurrentHashMap<>();
+
+        private Familia(String nome, String label, String ajuda) {
+            this.nome = nome;
+            this.label = label;
+            this.ajuda = ajuda;
+        }
+
+        /**
+         * Medidor para o valor da label, criado na primeira chamada.
+         * Quando já existe, a leitura é um get sem locks nem alocação.
+         */
+        public Medidor medidor(String valorLabel) {
+            Medidor medidor = medidores.get(valorLabel);
+            return medidor != null ? medidor : medidores.computeIfAbsent(valorLabel, k -> new Medidor());
+        }
+
+        private void exportar(StringBuilder sb) {
+            Map<String, Medidor> ordenados = new TreeMap<>(medidores);
+            if (ordenados.isEmpty()) {
+                return;
+            }
+
+            cabecalho(sb, nome + "_total", "counter", ajuda);
+            for (Map.Entry<String, Medidor> e : ordenados.entrySet()) {
+                linha(sb, nome + "_total", e.getKey(), e.getValue().getTotal());
+            }
+            cabecalho(sb, nome + "_erros_total", "counter", ajuda + " que terminaram em erro");
+            for (Map.Entry<String, Medidor> e : ordenados.entrySet()) {
+                linha(sb, nome + "_erros_total", e.getKey(), e.getValue().getErros());
+            }
+            cabecalho(sb, nome + "_em_curso", "gauge", ajuda + " ainda em curso");
+            for (Map.Entry<String, Medidor> e : ordenados.entrySet()) {
+                linha(sb, nome + "_em_curso", e.getKey(), e.getValue().getEmCurso());
+            }
+
+            String histograma = nome + "_duracao_segundos";
+            cabecalho(sb, histograma, "histogram", ajuda + " (duração em segundos)");
+            for (Map.Entry<String, Medidor> e : ordenados.entrySet()) {
+                String valorLabel = escapar(e.getKey());
+                Histograma latencia = e.getValue().getLatencia();
+                long[] acumulados = latencia.acumulados();
+                for (int i = 0; i < acumulados.length; i++) {
+                    String limite = i < Histograma.LIMITES_SEGUNDOS.length
+                            ? decimal(Histograma.LIMITES_SEGUNDOS[i]) : "+Inf";
+                    sb.append(histograma).append("_bucket{").append(label).append("=\"").append(valorLabel)
+                            .append("\",le=\"").append(limite).append("\"} ").append(acumulados[i]).append('\n');
+                }
+                sb.append(histograma).append("_sum{").append(label).append("=\"").append(valorLabel).append("\"} ")
+                        .append(numero(latencia.somaSegundos())).append('\n');
+                sb.append(histograma).append("_count{").append(label).append("=\"").append(valorLabel).append("\"} ")
+                        .append(acumulados[acumulados.length - 1]).append('\n');
+            }
+        }
+
+        private void linha(StringBuilder sb, String metrica, String valorLabel, long valor) {
+            sb.append(metrica).append('{').append(label).append("=\"").append(escapar(valorLabel)).append("\"} ")
+                    .append(valor).append('\n');
+        }
+    }
+
+    private static final class Valor {
+        private final String nome;
+        private final String tipo;
+        private final String ajuda;
+        private final DoubleSupplier leitura;
+
+        Valor(String nome, String tipo, String ajuda, DoubleSupplier leitura) {
+            this.nome = nome;
+            this.tipo = tipo;
+            this.ajuda = ajuda;
+            this.leitura = leitura;
+        }
+    }
+}
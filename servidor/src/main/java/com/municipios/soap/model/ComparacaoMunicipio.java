@@ -0,0 +1,129 @@
+package com.municipios.soap.model;
+
+/**
+ * Item da resposta de compararMunicipios: o valor do indicador no município,
+ * a posição dele na UF e no país (do maior para o menor valor) e o valor
+ * do indicador na UF e no país inteiros.
+ */
+public class ComparacaoMunicipio {
+    private int municipioId;
+    private String municipioNome;
+    private String ufSigla;
+    private String indicador;
+    private double valor;
+    private int posicaoUF;
+    private int totalUF;
+    private int posicaoNacional;
+    private int totalNacional;
+    private double valorUF;
+    private double valorNacional;
+    private String erro;
+
+    public ComparacaoMunicipio() {
+    }
+
+    public int getMunicipioId() {
+        return municipioId;
+    }
+
+    public void setMunicipioId(int municipioId) {
+        this.municipioId = municipioId;
+    }
+
+    public String getMunicipioNome() {
+        return municipioNome;
+    }
+
+    public void setMunicipioNome(String municipioNome) {
+        this.municipioNome = municipioNome;
+    }
+
+    public String getUfSigla() {
+        return ufSigla;
+    }
+
+    public void setUfSigla(String ufSigla) {
+        this.ufSigla = ufSigla;
+    }
+
+    public String getIndicador() {
+        return indicador;
+    }
+
+    public void setIndicador(String indicador) {
+        this.indicador = indicador;
+    }
+
+    /**
+     * Valor do indicador no município (por habitante com 2 casas decimais)
+     */
+    public double getValor() {
+        return valor;
+    }
+
+    public void setValor(double valor) {
+        this.valor = valor;
+    }
+
+    /**
+     * Posição na UF, a partir de 1 (0 se o município ficou fora do ranking, p. ex. sem população)
+     */
+    public int getPosicaoUF() {
+        return posicaoUF;
+    }
+
+    public void setPosicaoUF(int posicaoUF) {
+        this.posicaoUF = posicaoUF;
+    }
+
+    public int getTotalUF() {
+        return totalUF;
+    }
+
+    public void setTotalUF(int totalUF) {
+        this.totalUF = totalUF;
+    }
+
+    public int getPosicaoNacional() {
+        return posicaoNacional;
+    }
+
+    public void setPosicaoNacional(int posicaoNacional) {
+        this.posicaoNacional = posicaoNacional;
+    }
+
+    public int getTotalNacional() {
+        return totalNacional;
+    }
+
+    public void setTotalNacional(int totalNacional) {
+        this.totalNacional = totalNacional;
+    }
+
+    /**
+     * Valor do indicador na UF inteira (para os por habitante, total da UF sobre a população da UF)
+     */
+    public double getValorUF() {
+        return valorUF;
+    }
+
+    public void setValorUF(double valorUF) {
+        this.valorUF = valorUF;
+    }
+
+    public double getValorNacional() {
+        return valorNacional;
+    }
+
+    public void setValorNacional(double valorNacional) {
+        this.valorNacional = valorNacional;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+}
@@ -0,0 +1,62 @@
+package com.municipios.soap.model;
+
+/**
+ * Item da resposta de buscarEstabelecimentosPorNome: o estabelecimento e o
+ * município a que pertence.
+ */
+public class EstabelecimentoEncontrado {
+    private UBS estabelecimento;
+    private int municipioId;
+    private String municipioNome;
+    private String ufSigla;
+    private boolean aproximado;
+
+    public EstabelecimentoEncontrado() {
+    }
+
+    public UBS getEstabelecimento() {
+        return estabelecimento;
+    }
+
+    public void setEstabelecimento(UBS estabelecimento) {
+        this.estabelecimento = estabelecimento;
+    }
+
+    /**
+     * ID IBGE de 7 dígitos do município
+     */
+    public int getMunicipioId() {
+        return municipioId;
+    }
+
+    public void setMunicipioId(int municipioId) {
+        this.municipioId = municipioId;
+    }
+
+    public String getMunicipioNome() {
+        return municipioNome;
+    }
+
+    public void setMunicipioNome(String municipioNome) {
+        this.municipioNome = municipioNome;
+    }
+
+    public String getUfSigla() {
+        return ufSigla;
+    }
+
+    public void setUfSigla(String ufSigla) {
+        this.ufSigla = ufSigla;
+    }
+
+    /**
+     * true se o nome só corresponde ao termo com erros de digitação
+     */
+    public boolean isAproximado() {
+        return aproximado;
+    }
+
+    public void setAproximado(boolean aproximado) {
+        this.aproximado = aproximado;
+    }
+}
@@ -0,0 +1,34 @@
+package com.municipios.soap.model;
+
+/**
+ * Item da resposta de listarEstabelecimentosProximos: o estabelecimento e a
+ * distância em linha reta (haversine) até à origem da busca.
+ */
+public class EstabelecimentoProximo {
+    private UBS estabelecimento;
+    private double distanciaKm;
+
+    public EstabelecimentoProximo() {
+    }
+
+    public EstabelecimentoProximo(UBS estabelecimento, double distanciaKm) {
+        this.estabelecimento = estabelecimento;
+        this.distanciaKm = distanciaKm;
+    }
+
+    public UBS getEstabelecimento() {
+        return estabelecimento;
+    }
+
+    public void setEstabelecimento(UBS estabelecimento) {
+        this.estabelecimento = estabelecimento;
+    }
+
+    public double getDistanciaKm() {
+        return distanciaKm;
+    }
+
+    public void setDistanciaKm(double distanciaKm) {
+        this.distanciaKm = distanciaKm;
+    }
+}
@@ -0,0 +1,65 @@
+package com.municipios.soap.model;
+
+/**
+ * Item da resposta de listarRankingMunicipios: o município, a posição e o
+ * valor do indicador.
+ */
+public class MunicipioRanking {
+    private int posicao;
+    private int municipioId;
+    private String municipioNome;
+    private String ufSigla;
+    private double valor;
+
+    public MunicipioRanking() {
+    }
+
+    /**
+     * Posição no ranking pedido, a partir de 1
+     */
+    public int getPosicao() {
+        return posicao;
+    }
+
+    public void setPosicao(int posicao) {
+        this.posicao = posicao;
+    }
+
+    /**
+     * ID IBGE de 7 dígitos do município
+     */
+    public int getMunicipioId() {
+        return municipioId;
+    }
+
+    public void setMunicipioId(int municipioId) {
+        this.municipioId = municipioId;
+    }
+
+    public String getMunicipioNome() {
+        return municipioNome;
+    }
+
+    public void setMunicipioNome(String municipioNome) {
+        this.municipioNome = municipioNome;
+    }
+
+    public String getUfSigla() {
+        return ufSigla;
+    }
+
+    public void setUfSigla(String ufSigla) {
+        this.ufSigla = ufSigla;
+    }
+
+    /**
+     * Valor do indicador (por habitante com 2 casas decimais)
+     */
+    public double getValor() {
+        return valor;
+    }
+
+    public void setValor(double valor) {
+        this.valor = valor;
+    }
+}
@@ -0,0 +1,81 @@
+package com.municipios.soap.model;
+
+/**
+ * Página da resposta de listarEstabelecimentosPaginado.
+ * Se "proximoCursor" vier vazio, esta é a última página; se "erro" estiver
+ * preenchido, a lista vem vazia.
+ */
+public class PaginaEstabelecimentos {
+    private UBS[] estabelecimentos;
+    private String proximoCursor;
+    private int totalEstabelecimentos;
+    private int totalUbs;
+    private int totalMedicos;
+    private int totalEnfermeiros;
+    private String erro;
+
+    public PaginaEstabelecimentos() {
+    }
+
+    public UBS[] getEstabelecimentos() {
+        return estabelecimentos;
+    }
+
+    public void setEstabelecimentos(UBS[] estabelecimentos) {
+        this.estabelecimentos = estabelecimentos;
+    }
+
+    /**
+     * Cursor a enviar no pedido da página seguinte (null na última página)
+     */
+    public String getProximoCursor() {
+        return proximoCursor;
+    }
+
+    public void setProximoCursor(String proximoCursor) {
+        this.proximoCursor = proximoCursor;
+    }
+
+    /**
+     * Estabelecimentos do município que passam no filtro de tipo (todas as páginas)
+     */
+    public int getTotalEstabelecimentos() {
+        return totalEstabelecimentos;
+    }
+
+    public void setTotalEstabelecimentos(int totalEstabelecimentos) {
+        this.totalEstabelecimentos = totalEstabelecimentos;
+    }
+
+    public int getTotalUbs() {
+        return totalUbs;
+    }
+
+    public void setTotalUbs(int totalUbs) {
+        this.totalUbs = totalUbs;
+    }
+
+    public int getTotalMedicos() {
+        return totalMedicos;
+    }
+
+    public void setTotalMedicos(int totalMedicos) {
+        this.totalMedicos = totalMedicos;
+    }
+
+    public int getTotalEnfermeiros() {
+        return totalEnfermeiros;
+    }
+
+    public void setTotalEnfermeiros(int totalEnfermeiros) {
+        this.totalEnfermeiros = totalEnfermeiros;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+}
@@ -0,0 +1,42 @@
+package com.municipios.soap.model;
+
+/**
+ * Resposta de buscarEstabelecimentosPorNome. Os estabelecimentos vêm do
+ * mais para o menos relevante; se "erro" estiver preenchido, a lista vem vazia.
+ */
+public class ResultadoBuscaEstabelecimentos {
+    private int totalEncontrados;
+    private EstabelecimentoEncontrado[] estabelecimentos;
+    private String erro;
+
+    public ResultadoBuscaEstabelecimentos() {
+    }
+
+    /**
+     * Quantos estabelecimentos correspondem ao termo, incluindo os que
+     * ficaram de fora da lista por causa da quantidade pedida
+     */
+    public int getTotalEncontrados() {
+        return totalEncontrados;
+    }
+
+    public void setTotalEncontrados(int totalEncontrados) {
+        this.totalEncontrados = totalEncontrados;
+    }
+
+    public EstabelecimentoEncontrado[] getEstabelecimentos() {
+        return estabelecimentos;
+    }
+
+    public void setEstabelecimentos(EstabelecimentoEncontrado[] estabelecimentos) {
+        this.estabelecimentos = estabelecimentos;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+}
@@ -0,0 +1,38 @@
+package com.municipios.soap.model;
+
+/**
+ * Item da resposta de obterDadosPopulacionaisLote.
+ * Se "erro" estiver preenchido, "dados" pode vir vazio ou com a estimativa genérica.
+ */
+public class ResultadoDadosPopulacionais {
+    private int municipioId;
+    private String erro;
+    private DadosPopulacionais dados;
+
+    public ResultadoDadosPopulacionais() {
+    }
+
+    public int getMunicipioId() {
+        return municipioId;
+    }
+
+    public void setMunicipioId(int municipioId) {
+        this.municipioId = municipioId;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+
+    public DadosPopulacionais getDados() {
+        return dados;
+    }
+
+    public void setDados(DadosPopulacionais dados) {
+        this.dados = dados;
+    }
+}
@@ -0,0 +1,38 @@
+package com.municipios.soap.model;
+
+/**
+ * Item da resposta de listarUBSMunicipioLote.
+ * Se "erro" estiver preenchido, "dados" vem vazio.
+ */
+public class ResultadoDadosUBS {
+    private int municipioId;
+    private String erro;
+    private DadosUBS dados;
+
+    public ResultadoDadosUBS() {
+    }
+
+    public int getMunicipioId() {
+        return municipioId;
+    }
+
+    public void setMunicipioId(int municipioId) {
+        this.municipioId = municipioId;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+
+    public DadosUBS getDados() {
+        return dados;
+    }
+
+    public void setDados(DadosUBS dados) {
+        this.dados = dados;
+    }
+}
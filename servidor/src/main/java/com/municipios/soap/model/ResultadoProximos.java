@@ -0,0 +1,67 @@
+package com.municipios.soap.model;
+
+/**
+ * Resposta de listarEstabelecimentosProximos e listarEstabelecimentosProximosCEP.
+ * Os estabelecimentos vêm do mais próximo para o mais distante; se "erro"
+ * estiver preenchido, a lista vem vazia.
+ */
+public class ResultadoProximos {
+    private double latitude;
+    private double longitude;
+    private String origem;
+    private EstabelecimentoProximo[] estabelecimentos;
+    private String erro;
+
+    public ResultadoProximos() {
+    }
+
+    /**
+     * Latitude da origem usada na busca
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    /**
+     * Longitude da origem usada na busca
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * De onde veio a origem: "COORDENADAS", "CEP" (centro dos estabelecimentos
+     * com esse CEP) ou "PREFIXO_CEP" (centro dos CEPs com os mesmos 5 dígitos)
+     */
+    public String getOrigem() {
+        return origem;
+    }
+
+    public void setOrigem(String origem) {
+        this.origem = origem;
+    }
+
+    public EstabelecimentoProximo[] getEstabelecimentos() {
+        return estabelecimentos;
+    }
+
+    public void setEstabelecimentos(EstabelecimentoProximo[] estabelecimentos) {
+        this.estabelecimentos = estabelecimentos;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+}
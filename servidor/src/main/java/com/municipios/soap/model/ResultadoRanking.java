@@ -0,0 +1,74 @@
+package com.municipios.soap.model;
+
+/**
+ * Resposta de listarRankingMunicipios: os primeiros municípios do ranking
+ * pedido. Se "erro" estiver preenchido, a lista vem vazia.
+ */
+public class ResultadoRanking {
+    private String indicador;
+    private String uf;
+    private String ordem;
+    private int totalMunicipios;
+    private MunicipioRanking[] municipios;
+    private String erro;
+
+    public ResultadoRanking() {
+    }
+
+    public String getIndicador() {
+        return indicador;
+    }
+
+    public void setIndicador(String indicador) {
+        this.indicador = indicador;
+    }
+
+    /**
+     * Sigla da UF do ranking, ou vazio para todo o país
+     */
+    public String getUf() {
+        return uf;
+    }
+
+    public void setUf(String uf) {
+        this.uf = uf;
+    }
+
+    /**
+     * "DESC" (maiores valores primeiro) ou "ASC"
+     */
+    public String getOrdem() {
+        return ordem;
+    }
+
+    public void setOrdem(String ordem) {
+        this.ordem = ordem;
+    }
+
+    /**
+     * Municípios no ranking, incluindo os que ficaram de fora da lista
+     */
+    public int getTotalMunicipios() {
+        return totalMunicipios;
+    }
+
+    public void setTotalMunicipios(int totalMunicipios) {
+        this.totalMunicipios = totalMunicipios;
+    }
+
+    public MunicipioRanking[] getMunicipios() {
+        return municipios;
+    }
+
+    public void setMunicipios(MunicipioRanking[] municipios) {
+        this.municipios = municipios;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+}
@@ -0,0 +1,38 @@
+package com.municipios.soap.model;
+
+/**
+ * Resposta de obterTotaisRegionais: o total nacional e as UFs pedidas, por
+ * ordem do código IBGE. Se "erro" estiver preenchido, o resto vem vazio.
+ */
+public class ResultadoTotaisRegionais {
+    private TotaisRegiao nacional;
+    private TotaisRegiao[] ufs;
+    private String erro;
+
+    public ResultadoTotaisRegionais() {
+    }
+
+    public TotaisRegiao getNacional() {
+        return nacional;
+    }
+
+    public void setNacional(TotaisRegiao nacional) {
+        this.nacional = nacional;
+    }
+
+    public TotaisRegiao[] getUfs() {
+        return ufs;
+    }
+
+    public void setUfs(TotaisRegiao[] ufs) {
+        this.ufs = ufs;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
+    public void setErro(String erro) {
+        this.erro = erro;
+    }
+}
@@ -0,0 +1,158 @@
+package com.municipios.soap.model;
+
+/**
+ * Totais de uma UF ou do país (codigoUF 0, sigla "BR"), com os indicadores
+ * por habitante. Médicos e enfermeiros somam os totais de cada município.
+ */
+public class TotaisRegiao {
+    private int codigoUF;
+    private String sigla;
+    private String nome;
+    private int municipios;
+    private long populacaoTotal;
+    private long populacaoHomens;
+    private long populacaoMulheres;
+    private int totalEstabelecimentos;
+    private int totalUbs;
+    private int totalOutros;
+    private int totalMedicos;
+    private int totalEnfermeiros;
+    private double ubsPor10MilHabitantes;
+    private double medicosPorMilHabitantes;
+    private double enfermeirosPorMilHabitantes;
+
+    public TotaisRegiao() {
+    }
+
+    /**
+     * Código IBGE (2 dígitos) da UF, ou 0 para o total nacional
+     */
+    public int getCodigoUF() {
+        return codigoUF;
+    }
+
+    public void setCodigoUF(int codigoUF) {
+        this.codigoUF = codigoUF;
+    }
+
+    /**
+     * Sigla da UF ("BR" no total nacional; vazia se o código não for de uma das 27 UFs)
+     */
+    public String getSigla() {
+        return sigla;
+    }
+
+    public void setSigla(String sigla) {
+        this.sigla = sigla;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * Municípios com estabelecimentos ou com demografia
+     */
+    public int getMunicipios() {
+        return municipios;
+    }
+
+    public void setMunicipios(int municipios) {
+        this.municipios = municipios;
+    }
+
+    public long getPopulacaoTotal() {
+        return populacaoTotal;
+    }
+
+    public void setPopulacaoTotal(long populacaoTotal) {
+        this.populacaoTotal = populacaoTotal;
+    }
+
+    public long getPopulacaoHomens() {
+        return populacaoHomens;
+    }
+
+    public void setPopulacaoHomens(long populacaoHomens) {
+        this.populacaoHomens = populacaoHomens;
+    }
+
+    public long getPopulacaoMulheres() {
+        return populacaoMulheres;
+    }
+
+    public void setPopulacaoMulheres(long populacaoMulheres) {
+        this.populacaoMulheres = populacaoMulheres;
+    }
+
+    public int getTotalEstabelecimentos() {
+        return totalEstabelecimentos;
+    }
+
+    public void setTotalEstabelecimentos(int totalEstabelecimentos) {
+        this.totalEstabelecimentos = totalEstabelecimentos;
+    }
+
+    public int getTotalUbs() {
+        return totalUbs;
+    }
+
+    public void setTotalUbs(int totalUbs) {
+        this.totalUbs = totalUbs;
+    }
+
+    public int getTotalOutros() {
+        return totalOutros;
+    }
+
+    public void setTotalOutros(int totalOutros) {
+        this.totalOutros = totalOutros;
+    }
+
+    public int getTotalMedicos() {
+        return totalMedicos;
+    }
+
+    public void setTotalMedicos(int totalMedicos) {
+        this.totalMedicos = totalMedicos;
+    }
+
+    public int getTotalEnfermeiros() {
+        return totalEnfermeiros;
+    }
+
+    public void setTotalEnfermeiros(int totalEnfermeiros) {
+        this.totalEnfermeiros = totalEnfermeiros;
+    }
+
+    /**
+     * UBS por 10.000 habitantes (0 sem população)
+     */
+    public double getUbsPor10MilHabitantes() {
+        return ubsPor10MilHabitantes;
+    }
+
+    public void setUbsPor10MilHabitantes(double ubsPor10MilHabitantes) {
+        this.ubsPor10MilHabitantes = ubsPor10MilHabitantes;
+    }
+
+    public double getMedicosPorMilHabitantes() {
+        return medicosPorMilHabitantes;
+    }
+
+    public void setMedicosPorMilHabitantes(double medicosPorMilHabitantes) {
+        this.medicosPorMilHabitantes = medicosPorMilHabitantes;
+    }
+
+    public double getEnfermeirosPorMilHabitantes() {
+        return enfermeirosPorMilHabitantes;
+    }
+
+    public void setEnfermeirosPorMilHabitantes(double enfermeirosPorMilHabitantes) {
+        this.enfermeirosPorMilHabitantes = enfermeirosPorMilHabitantes;
+    }
+}
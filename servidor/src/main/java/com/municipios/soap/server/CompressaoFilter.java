@@ -0,0 +1,343 @@
+package com.municipios.soap.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Filtro HTTP de compressão gzip.
+ *
+ * Respostas: comprimidas quando o cliente envia "Accept-Encoding: gzip", o
+ * conteúdo é XML/texto ou Fast Infoset e o corpo tem pelo menos
+ * soap.gzip.minBytes. O JAX-WS envia as respostas sem Content-Length, por
+ * isso os primeiros bytes ficam num buffer do tamanho do limite: se o corpo
+ * terminar antes, segue sem compressão; se não, a compressão começa e o
+ * resto é comprimido à medida que é escrito (sem guardar o corpo inteiro).
+ *
+ * Pedidos: corpos com "Content-Encoding: gzip" (úteis nas operações em lote)
+ * são descomprimidos antes de chegarem ao JAX-WS.
+ */
+public class CompressaoFilter extends Filter {
+
+    // Corpos menores do que isto não compensam o cabeçalho gzip nem o CPU
+    private static final int MIN_BYTES = Integer.getInteger("soap.gzip.minBytes", 1024);
+
+    // 1 (mais rápido) a 9 (menor); em XML repetitivo o nível 1 já reduz ~90%
+    private static final int NIVEL = Integer.getInteger("soap.gzip.nivel", Deflater.BEST_SPEED);
+
+    private static final int BUFFER_GZIP = 8192;
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String codificacaoPedido = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        boolean pedidoGzip = false;
+        if (codificacaoPedido != null && !codificacaoPedido.trim().equalsIgnoreCase("identity")) {
+            pedidoGzip = ehGzip(codificacaoPedido.trim());
+            if (!pedidoGzip) {
+                exchange.getResponseHeaders().set("Accept-Encoding", "gzip");
+                exchange.sendResponseHeaders(415, -1);
+                exchange.close();
+                return;
+            }
+        }
+
+        // O construtor do GZIPInputStream lê só o cabeçalho gzip; o resto é
+        // descomprimido à medida que o JAX-WS lê o pedido
+        InputStream entrada = null;
+        if (pedidoGzip) {
+            try {
+                entrada = new GZIPInputStream(exchange.getRequestBody(), BUFFER_GZIP);
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(400, -1);
+                exchange.close();
+                return;
+            }
+        }
+
+        boolean aceitaGzip = aceitaGzip(exchange.getRequestHeaders().get("Accept-Encoding"));
+        if (!pedidoGzip && !aceitaGzip) {
+            chain.doFilter(exchange);
+            return;
+        }
+        chain.doFilter(new TrocaComprimida(exchange, entrada, aceitaGzip));
+    }
+
+    @Override
+    public String description() {
+        return "Compressão gzip";
+    }
+
+    public static String descricaoConfiguracao() {
+        return String.format("minBytes=%d, nível=%d", MIN_BYTES, NIVEL);
+    }
+
+    private static boolean ehGzip(String codificacao) {
+        return codificacao.equalsIgnoreCase("gzip") || codificacao.equalsIgnoreCase("x-gzip");
+    }
+
+    /**
+     * Interpreta Accept-Encoding (ex: "gzip, deflate;q=0.5, *;q=0").
+     * "gzip;q=0" recusa explicitamente; "*" só conta se gzip não for listado.
+     */
+    static boolean aceitaGzip(List<String> valores) {
+        if (valores == null) {
+            return false;
+        }
+        Boolean curinga = null;
+        for (String valor : valores) {
+            for (String item : valor.split(",")) {
+                String[] partes = item.split(";");
+                String codificacao = partes[0].trim();
+                double q = 1.0;
+                for (int i = 1; i < partes.length; i++) {
+                    String parametro = partes[i].trim().toLowerCase(Locale.ROOT);
+                    if (parametro.startsWith("q=")) {
+                        try {
+                            q = Double.parseDouble(parametro.substring(2));
+                        } catch (NumberFormatException e) {
+                            q = 0;
+                        }
+                    }
+                }
+                if (ehGzip(codificacao)) {
+                    return q > 0;
+                }
+                if (codificacao.equals("*")) {
+                    curinga = q > 0;
+                }
+            }
+        }
+        return Boolean.TRUE.equals(curinga);
+    }
+
+    private static boolean compressivel(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String tipo = contentType.toLowerCase(Locale.ROOT);
+        return tipo.startsWith("text/") || tipo.startsWith("application/xml")
+                || tipo.startsWith("application/soap+xml") || tipo.contains("+xml")
+                || tipo.startsWith("application/fastinfoset") || tipo.startsWith("application/soap+fastinfoset");
+    }
+
+    /**
+     * HttpExchange que delega tudo no original, exceto o corpo do pedido
+     * (descomprimido) e o envio da resposta (comprimida quando compensa).
+     */
+    private static final class TrocaComprimida extends HttpExchange {
+
+        private final HttpExchange original;
+        private final InputStream entrada;
+        private final boolean aceitaGzip;
+
+        private OutputStream saida;
+        private int status = -1;
+
+        /**
+         * @param entrada corpo do pedido já descomprimido, ou null se veio sem compressão
+         */
+        TrocaComprimida(HttpExchange original, InputStream entrada, boolean aceitaGzip) {
+            this.original = original;
+            this.entrada = entrada;
+            this.aceitaGzip = aceitaGzip;
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return entrada != null ? entrada : original.getRequestBody();
+        }
+
+        @Override
+        public void sendResponseHeaders(int codigo, long tamanho) throws IOException {
+            status = codigo;
+            Headers cabecalhos = original.getResponseHeaders();
+            boolean comCorpo = tamanho >= 0 && codigo != 204 && codigo != 304;
+            if (!aceitaGzip || !comCorpo || cabecalhos.containsKey("Content-Encoding")
+                    || !compressivel(cabecalhos.getFirst("Content-Type"))) {
+                original.sendResponseHeaders(codigo, tamanho);
+                return;
+            }
+
+            cabecalhos.add("Vary", "Accept-Encoding");
+            if (tamanho > 0 && tamanho < MIN_BYTES) {
+                original.sendResponseHeaders(codigo, tamanho);
+                return;
+            }
+            SaidaComprimida comprimida = new SaidaComprimida(original, codigo);
+            if (tamanho >= MIN_BYTES) {
+                comprimida.iniciarGzip();
+            }
+            saida = comprimida;
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return saida != null ? saida : original.getResponseBody();
+        }
+
+        @Override
+        public int getResponseCode() {
+            return status != -1 ? status : original.getResponseCode();
+        }
+
+        @Override
+        public void close() {
+            if (saida != null) {
+                try {
+                    saida.close();
+                } catch (IOException e) {
+                    // A conexão já caiu; o close do original liberta os recursos
+                }
+            }
+            original.close();
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            return original.getRequestHeaders();
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return original.getResponseHeaders();
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return original.getRequestURI();
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return original.getRequestMethod();
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return original.getHttpContext();
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return original.getRemoteAddress();
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return original.getLocalAddress();
+        }
+
+        @Override
+        public String getProtocol() {
+            return original.getProtocol();
+        }
+
+        @Override
+        public Object getAttribute(String nome) {
+            return original.getAttribute(nome);
+        }
+
+        @Override
+        public void setAttribute(String nome, Object valor) {
+            original.setAttribute(nome, valor);
+        }
+
+        @Override
+        public void setStreams(InputStream entrada, OutputStream saida) {
+            original.setStreams(entrada, saida);
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return original.getPrincipal();
+        }
+    }
+
+    /**
+     * Corpo da resposta com os cabeçalhos adiados: guarda até MIN_BYTES e só
+     * então decide entre enviar tal como está ou comprimir.
+     */
+    private static final class SaidaComprimida extends OutputStream {
+
+        private final HttpExchange original;
+        private final int status;
+        private final byte[] inicio = new byte[MIN_BYTES];
+        private int tamanhoInicio;
+        private OutputStream gzip;
+        private boolean fechada;
+
+        SaidaComprimida(HttpExchange original, int status) {
+            this.original = original;
+            this.status = status;
+        }
+
+        void iniciarGzip() throws IOException {
+            Headers cabecalhos = original.getResponseHeaders();
+            cabecalhos.remove("Content-Length");
+            cabecalhos.set("Content-Encoding", "gzip");
+            original.sendResponseHeaders(status, 0); // chunked: o tamanho final não é conhecido
+            gzip = new GZIPOutputStream(original.getResponseBody(), BUFFER_GZIP) {
+                {
+                    def.setLevel(NIVEL);
+                }
+            };
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (gzip == null && tamanhoInicio + len <= inicio.length) {
+                System.arraycopy(b, off, inicio, tamanhoInicio, len);
+                tamanhoInicio += len;
+                return;
+            }
+            if (gzip == null) {
+                iniciarGzip();
+                gzip.write(inicio, 0, tamanhoInicio);
+            }
+            gzip.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Antes do limite não há nada a enviar: os cabeçalhos ainda não foram decididos
+            if (gzip != null) {
+                gzip.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fechada) {
+                return;
+            }
+            fechada = true;
+            if (gzip != null) {
+                gzip.close();
+                return;
+            }
+            // Corpo pequeno: segue sem compressão, já com o tamanho exato
+            original.sendResponseHeaders(status, tamanhoInicio == 0 ? -1 : tamanhoInicio);
+            try (OutputStream out = original.getResponseBody()) {
+                out.write(inicio, 0, tamanhoInicio);
+            }
+        }
+    }
+}
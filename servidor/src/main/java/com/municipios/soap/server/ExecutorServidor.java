@@ -0,0 +1,107 @@
+package com.municipios.soap.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cria o executor que atende as requisições do HttpServer.
+ *
+ * Modos (propriedade -Dsoap.executor):
+ * - virtual: uma virtual thread por requisição (padrão)
+ * - pool: pool fixo de threads de plataforma com fila limitada
+ *   (-Dsoap.pool.threads, -Dsoap.pool.fila)
+ */
+public class ExecutorServidor {
+
+    public static final String MODO_VIRTUAL = "virtual";
+    public static final String MODO_POOL = "pool";
+
+    private static final String MODO = System.getProperty("soap.executor", MODO_VIRTUAL).trim().toLowerCase();
+    private static final int POOL_THREADS = Integer.getInteger("soap.pool.threads", 64);
+    private static final int POOL_FILA = Integer.getInteger("soap.pool.fila", 256);
+
+    private static final LongAdder REJEITADAS = new LongAdder();
+
+    /**
+     * Cria o executor de acordo com o modo configurado.
+     */
+    public static ExecutorService criar() {
+        switch (MODO) {
+            case MODO_VIRTUAL:
+                return Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("soap-vt-", 0).factory());
+            case MODO_POOL:
+                return new ThreadPoolExecutor(
+                        POOL_THREADS, POOL_THREADS,
+                        60L, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(POOL_FILA),
+                        new FabricaThreads("soap-worker-"),
+                        new RejeicaoComFalhaSOAP());
+            default:
+                throw new IllegalArgumentException("Modo de executor inválido: '" + MODO +
+                        "' (use '" + MODO_VIRTUAL + "' ou '" + MODO_POOL + "')");
+        }
+    }
+
+    /**
+     * Descrição do modo escolhido para exibir no arranque.
+     */
+    public static String descricao() {
+        if (MODO_POOL.equals(MODO)) {
+            return "pool de threads (threads=" + POOL_THREADS + ", fila=" + POOL_FILA + ")";
+        }
+        return "virtual threads (uma por requisição)";
+    }
+
+    /**
+     * Total de requisições recusadas por fila cheia desde o arranque.
+     */
+    public static long totalRejeitadas() {
+        return REJEITADAS.sum();
+    }
+
+    /**
+     * Com a fila cheia, a requisição corre na própria thread do dispatcher
+     * marcada como rejeitada: o SobrecargaFilter responde logo com uma
+     * falha SOAP (503 nas métricas e na invalidação), sem chegar ao
+     * serviço.
+     */
+    private static class RejeicaoComFalhaSOAP implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable tarefa, ThreadPoolExecutor executor) {
+            REJEITADAS.increment();
+            if (executor.isShutdown()) {
+                return;
+            }
+            SobrecargaFilter.marcarRejeitada();
+            try {
+                tarefa.run();
+            } finally {
+                SobrecargaFilter.limparMarcacao();
+            }
+        }
+    }
+
+    private static class FabricaThreads implements ThreadFactory {
+        private final String prefixo;
+        private final AtomicInteger contador = new AtomicInteger();
+
+        FabricaThreads(String prefixo) {
+            this.prefixo = prefixo;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefixo + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
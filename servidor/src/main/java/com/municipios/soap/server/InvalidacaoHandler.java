@@ -0,0 +1,85 @@
+package com.municipios.soap.server;
+
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Responde POST /admin/invalidar, chamado pelo ETL depois de gravar no BD.
+ *
+ * O corpo traz os códigos IBGE de 6 dígitos dos municípios alterados,
+ * separados por vírgulas, espaços ou linhas; só esses são relidos para o
+ * snapshot. Um corpo "*" pede a recarga completa (após a carga completa).
+ * Por omissão só aceita pedidos da própria máquina (-Dsoap.admin.remoto=true
+ * para aceitar de outras).
+ */
+public class InvalidacaoHandler implements HttpHandler {
+
+    private static final boolean REMOTO = Boolean.getBoolean("soap.admin.remoto");
+
+    // Limite do corpo: chega para os 5.570 municípios
+    private static final int CORPO_MAX = 64 * 1024;
+
+    private final CacheEstabelecimentos cacheEstabelecimentos;
+
+    public InvalidacaoHandler(CacheEstabelecimentos cacheEstabelecimentos) {
+        this.cacheEstabelecimentos = cacheEstabelecimentos;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            responder(exchange, 405, "Use POST");
+            return;
+        }
+        if (!REMOTO && !exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+            responder(exchange, 403, "Apenas pedidos locais");
+            return;
+        }
+
+        String corpo;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] lido = in.readNBytes(CORPO_MAX + 1);
+            if (lido.length > CORPO_MAX) {
+                responder(exchange, 413, "Corpo maior do que " + CORPO_MAX + " bytes");
+                return;
+            }
+            corpo = new String(lido, StandardCharsets.UTF_8).trim();
+        }
+
+        if ("*".equals(corpo)) {
+            boolean ok = cacheEstabelecimentos.recarregar();
+            responder(exchange, ok ? 200 : 503, ok ? "Snapshot recarregado" : "Falha ao recarregar o snapshot");
+            return;
+        }
+
+        String[] partes = corpo.isEmpty() ? new String[0] : corpo.split("[,\\s]+");
+        int[] municipios = new int[partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            if (!partes[i].matches("\\d{6}")) {
+                responder(exchange, 400, "Código IBGE inválido (esperados 6 dígitos): " + partes[i]);
+                return;
+            }
+            municipios[i] = Integer.parseInt(partes[i]);
+        }
+        boolean ok = cacheEstabelecimentos.atualizarMunicipios(municipios);
+        responder(exchange, ok ? 200 : 503, ok
+                ? municipios.length + " municípios atualizados"
+                : "Falha ao atualizar o snapshot");
+    }
+
+    private static void responder(HttpExchange exchange, int status, String mensagem) throws IOException {
+        byte[] corpo = (mensagem + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, corpo.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+}
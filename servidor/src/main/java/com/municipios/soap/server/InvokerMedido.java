@@ -0,0 +1,60 @@
+package com.municipios.soap.server;
+
+import com.municipios.soap.metricas.Medidor;
+import com.municipios.soap.metricas.Metricas;
+
+import javax.jws.WebMethod;
+import javax.xml.ws.WebServiceContext;
+import javax.xml.ws.spi.Invoker;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Invoker JAX-WS que chama a implementação do serviço e mede cada operação
+ * (Metricas.SOAP, com a label operacao = nome do método).
+ *
+ * Uma operação conta como erro quando lança exceção (o cliente recebe um
+ * SOAP fault). Respostas degradadas (estimativa genérica, "CEP não
+ * encontrado") contam como sucesso; as falhas de BD e das APIs externas
+ * que as provocam aparecem em Metricas.JDBC e Metricas.HTTP_SAIDA.
+ */
+class InvokerMedido extends Invoker {
+
+    private final Object implementacao;
+    // Só lido depois do construtor: não precisa de sincronização
+    private final Map<String, Medidor> medidores = new HashMap<>();
+
+    InvokerMedido(Object implementacao, Class<?> interfaceServico) {
+        this.implementacao = implementacao;
+        for (Method metodo : interfaceServico.getMethods()) {
+            if (metodo.isAnnotationPresent(WebMethod.class)) {
+                medidores.put(metodo.getName(), Metricas.SOAP.medidor(metodo.getName()));
+            }
+        }
+    }
+
+    @Override
+    public void inject(WebServiceContext contexto) {
+        // A implementação não usa WebServiceContext
+    }
+
+    @Override
+    public Object invoke(Method metodo, Object... args) throws IllegalAccessException, InvocationTargetException {
+        Medidor medidor = medidores.get(metodo.getName());
+        if (medidor == null) {
+            return metodo.invoke(implementacao, args);
+        }
+
+        long inicio = medidor.iniciar();
+        boolean sucesso = false;
+        try {
+            Object resultado = metodo.invoke(implementacao, args);
+            sucesso = true;
+            return resultado;
+        } finally {
+            medidor.terminar(inicio, sucesso);
+        }
+    }
+}
@@ -1,19 +1,48 @@
 package com.municipios.soap.server;
 
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.cache.CatalogoMunicipios;
+import com.municipios.soap.cache.SnapshotEstabelecimentos;
+import com.municipios.soap.database.DatabaseConnector;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.metricas.Metricas;
+import com.municipios.soap.service.MunicipioWebService;
 import com.municipios.soap.service.MunicipioWebServiceImpl;
 import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
+import com.sun.xml.ws.api.fastinfoset.FastInfosetFeature;
 
 import javax.xml.ws.Endpoint;
+import javax.xml.ws.spi.Provider;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Classe principal para inicializar o servidor SOAP
  */
 public class ServidorSOAP {
 
-    private static final String URL = "http://0.0.0.0:8080/ws/municipios";
+    private static final int PORTA = Integer.getInteger("soap.porta", 8080);
+    private static final String CAMINHO = "/ws/municipios";
+    private static final String CAMINHO_METRICAS = "/metrics";
+    private static final String CAMINHO_INVALIDACAO = "/admin/invalidar";
+    private static final String URL = "http://0.0.0.0:" + PORTA + CAMINHO;
+
+    // Conexões TCP pendentes aceites pelo sistema operativo
+    private static final int BACKLOG = Integer.getInteger("soap.backlog", 512);
+
+    // Fast Infoset (XML binário) só é usado quando o cliente o pede em Accept/Content-Type
+    private static final boolean FAST_INFOSET = Boolean.parseBoolean(System.getProperty("soap.fastinfoset", "true"));
 
     public static void main(String[] args) {
+        // O HttpServer do JDK deixa o algoritmo de Nagle ligado por omissão, o que
+        // atrasa ~40 ms as respostas escritas em mais de um segmento
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
         System.out.println("======================================================================");
         System.out.println("  SERVIDOR SOAP - MUNICÍPIOS E UBS");
         System.out.println("======================================================================");
@@ -23,17 +52,94 @@ public class ServidorSOAP {
         System.out.println();
 
         try {
-            // Publicar o Web Service
-            Endpoint endpoint = Endpoint.publish(URL, new MunicipioWebServiceImpl());
-
-            // Adicionar filtro CORS
-            HttpContext context = (HttpContext) endpoint.getProperties().get("com.sun.xml.ws.http.HttpContext");
-            if (context != null) {
-                HttpServer server = context.getServer();
-                context.getFilters().add(new CORSFilter());
-                System.out.println("✓ Filtro CORS configurado!");
+            // Iniciar o pool de conexões com o MySQL
+            DatabaseConnector.iniciar();
+            System.out.println("✓ Pool de conexões JDBC: " + DatabaseConnector.descricaoConfiguracao());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                System.out.println("Pool de conexões JDBC: " + DatabaseConnector.estatisticas());
+                DatabaseConnector.fechar();
+            }));
+
+            // Carregar estabelecimentos em memória (leitura sem BD no caminho principal)
+            CacheEstabelecimentos cacheEstabelecimentos = new CacheEstabelecimentos();
+            if (!cacheEstabelecimentos.recarregar()) {
+                System.out.println("⚠ Snapshot de estabelecimentos indisponível: consultas irão ao BD.");
+            }
+            cacheEstabelecimentos.agendarRecarga();
+
+            // Cliente HTTP partilhado para IBGE e ViaCEP
+            ClienteHttp clienteHttp = new ClienteHttp();
+            System.out.println("✓ Cliente HTTP externo: " + ClienteHttp.descricaoConfiguracao());
+
+            // Catálogo de municípios embutido; a API do IBGE só é usada se pedida (-Dcatalogo.atualizar=true)
+            CatalogoMunicipios catalogo = CatalogoMunicipios.carregar();
+            if (Boolean.getBoolean("catalogo.atualizar")) {
+                try {
+                    catalogo = CatalogoMunicipios.daApi(clienteHttp, MunicipioWebServiceImpl.IBGE_URL);
+                } catch (Exception e) {
+                    System.out.println("⚠ Falha ao atualizar o catálogo pela API do IBGE: " + e.getMessage());
+                }
+            }
+            if (catalogo != null) {
+                System.out.printf("✓ Catálogo de municípios: %,d municípios em %d UFs (%s)%n",
+                        catalogo.getTotalMunicipios(), catalogo.getTotalUFs(), catalogo.getVersao());
+            } else {
+                System.out.println("⚠ Catálogo de municípios indisponível: listarMunicipiosPorUF irá à API do IBGE.");
+            }
+
+            // Cache das consultas ao ViaCEP
+            CacheCep cacheCep = new CacheCep();
+            System.out.println("✓ Cache de CEP: " + CacheCep.descricaoConfiguracao());
+
+            // Criar o HttpServer com o executor escolhido (-Dsoap.executor)
+            ExecutorService executor = ExecutorServidor.criar();
+            HttpServer server = HttpServer.create(new InetSocketAddress(PORTA), BACKLOG);
+            server.setExecutor(executor);
+            System.out.println("✓ Executor de requisições: " + ExecutorServidor.descricao());
+
+            // Adicionar filtros (sobrecarga primeiro, para recusar sem trabalho extra)
+            HttpContext context = server.createContext(CAMINHO);
+            context.getFilters().add(new SobrecargaFilter());
+            context.getFilters().add(new CORSFilter());
+            System.out.println("✓ Filtro CORS configurado!");
+            if (Boolean.parseBoolean(System.getProperty("soap.gzip", "true"))) {
+                context.getFilters().add(new CompressaoFilter());
+                System.out.println("✓ Compressão gzip: " + CompressaoFilter.descricaoConfiguracao());
             }
 
+            // Publicar o Web Service no contexto criado, com cada operação medida pelo InvokerMedido
+            MunicipioWebServiceImpl servico = new MunicipioWebServiceImpl(clienteHttp, cacheEstabelecimentos, catalogo, cacheCep);
+            Endpoint endpoint = Provider.provider().createEndpoint(null, MunicipioWebServiceImpl.class,
+                    new InvokerMedido(servico, MunicipioWebService.class), new FastInfosetFeature(FAST_INFOSET));
+            endpoint.publish(context);
+            System.out.println("✓ Fast Infoset: " + (FAST_INFOSET ? "disponível (application/fastinfoset)" : "desligado"));
+
+            // Métricas no formato Prometheus, no mesmo HttpServer
+            registarMetricas(servico, cacheEstabelecimentos, clienteHttp, cacheCep);
+            // Com a fila cheia, a recolha recebe 503 em vez de correr na thread do dispatcher
+            HttpContext metricas = server.createContext(CAMINHO_METRICAS, new MetricasHandler());
+            metricas.getFilters().add(SobrecargaFilter.textoSimples());
+            System.out.println("✓ Métricas em http://0.0.0.0:" + PORTA + CAMINHO_METRICAS);
+
+            // Aviso do ETL com os municípios a reler para o snapshot; com a fila cheia
+            // recebe 503, em vez de recarregar o snapshot na thread do dispatcher
+            HttpContext invalidacao = server.createContext(CAMINHO_INVALIDACAO, new InvalidacaoHandler(cacheEstabelecimentos));
+            invalidacao.getFilters().add(SobrecargaFilter.textoSimples());
+            System.out.println("✓ Invalidação do snapshot em POST http://0.0.0.0:" + PORTA + CAMINHO_INVALIDACAO);
+            server.start();
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                endpoint.stop();
+                server.stop(1);
+                executor.shutdown();
+                System.out.println("Cache de CEP: " + cacheCep.tamanho() + " entradas, " + cacheCep.estatisticas());
+                try {
+                    clienteHttp.close();
+                } catch (IOException e) {
+                    System.err.println("Erro ao fechar o cliente HTTP: " + e.getMessage());
+                }
+            }));
+
             System.out.println("✓ Servidor iniciado com sucesso!");
             System.out.println();
             System.out.println("WSDL disponível em: " + URL + "?wsdl");
@@ -53,4 +159,49 @@ public class ServidorSOAP {
             System.exit(1);
         }
     }
+
+    /**
+     * Valores lidos a cada pedido a /metrics: pools, caches e coalescência.
+     */
+    private static void registarMetricas(MunicipioWebServiceImpl servico, CacheEstabelecimentos cacheEstabelecimentos,
+                                         ClienteHttp clienteHttp, CacheCep cacheCep) {
+        Metricas.registar("soap_executor_rejeitadas_total", "counter",
+                "Requisições recusadas com a fila do executor cheia", ExecutorServidor::totalRejeitadas);
+
+        Metricas.registar("jdbc_pool_conexoes_ativas", "gauge",
+                "Conexões JDBC emprestadas", () -> DatabaseConnector.estatisticas().getAtivas());
+        Metricas.registar("jdbc_pool_conexoes_ociosas", "gauge",
+                "Conexões JDBC livres no pool", () -> DatabaseConnector.estatisticas().getOciosas());
+        Metricas.registar("jdbc_pool_threads_aguardando", "gauge",
+                "Threads à espera de uma conexão JDBC", () -> DatabaseConnector.estatisticas().getAguardando());
+        Metricas.registar("jdbc_pool_falhas_total", "counter",
+                "Pedidos de conexão JDBC que falharam", () -> DatabaseConnector.estatisticas().getFalhas());
+
+        Metricas.registar("http_saida_pool_conexoes_ativas", "gauge",
+                "Conexões HTTP de saída em uso", () -> clienteHttp.estatisticas().getLeased());
+        Metricas.registar("http_saida_pool_conexoes_livres", "gauge",
+                "Conexões HTTP de saída abertas e livres", () -> clienteHttp.estatisticas().getAvailable());
+        Metricas.registar("http_saida_pool_pendentes", "gauge",
+                "Pedidos à espera de uma conexão HTTP de saída", () -> clienteHttp.estatisticas().getPending());
+
+        Metricas.registar("cache_cep_entradas", "gauge",
+                "CEPs no cache", cacheCep::tamanho);
+        Metricas.registar("cache_cep_acertos_total", "counter",
+                "Consultas de CEP respondidas pelo cache", () -> cacheCep.estatisticas().hitCount());
+        Metricas.registar("cache_cep_falhas_total", "counter",
+                "Consultas de CEP que não estavam no cache", () -> cacheCep.estatisticas().missCount());
+
+        Metricas.registar("coalescencia_buscas_total", "counter",
+                "Buscas ao BD ou a APIs externas efetivamente executadas",
+                () -> servico.getRequisicoesEmCurso().totalBuscas());
+        Metricas.registar("coalescencia_juntadas_total", "counter",
+                "Chamadas que aproveitaram uma busca igual já em curso",
+                () -> servico.getRequisicoesEmCurso().totalJuntadas());
+
+        Metricas.registar("snapshot_estabelecimentos", "gauge",
+                "Estabelecimentos no snapshot em memória", () -> {
+                    SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+                    return snapshot != null ? snapshot.getTotalEstabelecimentos() : 0;
+                });
+    }
 }
@@ -0,0 +1,80 @@
+package com.municipios.soap.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Filtro HTTP que responde imediatamente quando a requisição foi recusada
+ * pelo executor (fila cheia): com uma falha SOAP no endpoint do Web
+ * Service, com 503 em texto simples nos restantes contextos. Sem ele, a
+ * requisição recusada correria inteira na thread do dispatcher.
+ */
+public class SobrecargaFilter extends Filter {
+
+    private static final ThreadLocal<Boolean> REJEITADA = new ThreadLocal<>();
+
+    private static final byte[] FALHA_SOAP = ("<?xml version='1.0' encoding='UTF-8'?>"
+            + "<S:Envelope xmlns:S=\"http://schemas.xmlsoap.org/soap/envelope/\"><S:Body><S:Fault>"
+            + "<faultcode>S:Server</faultcode>"
+            + "<faultstring>Servidor sobrecarregado: fila de requisições cheia, tente novamente</faultstring>"
+            + "</S:Fault></S:Body></S:Envelope>").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] TEXTO = "Servidor sobrecarregado: fila de requisições cheia, tente novamente\n"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final int status;
+    private final String tipoConteudo;
+    private final byte[] corpo;
+
+    /**
+     * Falha SOAP (HTTP 500), para o endpoint do Web Service
+     */
+    public SobrecargaFilter() {
+        this(500, "text/xml; charset=utf-8", FALHA_SOAP);
+    }
+
+    private SobrecargaFilter(int status, String tipoConteudo, byte[] corpo) {
+        this.status = status;
+        this.tipoConteudo = tipoConteudo;
+        this.corpo = corpo;
+    }
+
+    /**
+     * HTTP 503 em texto simples, para os contextos que não são SOAP
+     */
+    public static SobrecargaFilter textoSimples() {
+        return new SobrecargaFilter(503, "text/plain; charset=utf-8", TEXTO);
+    }
+
+    static void marcarRejeitada() {
+        REJEITADA.set(Boolean.TRUE);
+    }
+
+    static void limparMarcacao() {
+        REJEITADA.remove();
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if (REJEITADA.get() == null) {
+            chain.doFilter(exchange);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", tipoConteudo);
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(status, corpo.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(corpo);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Sobrecarga Filter";
+    }
+}
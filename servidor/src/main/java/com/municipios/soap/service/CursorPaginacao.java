@@ -0,0 +1,94 @@
+package com.municipios.soap.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Cursor de listarEstabelecimentosPaginado: guarda o último CNES entregue
+ * (paginação por chave, "cnes > último") e os totais lidos na primeira
+ * página, para que as seguintes não voltem a contá-los no BD.
+ *
+ * Para o cliente é uma string opaca (Base64 URL-safe); o município e o
+ * filtro de tipo vão dentro dela, e um cursor usado noutro pedido é recusado.
+ */
+final class CursorPaginacao {
+
+    /**
+     * Filtro de tipo de estabelecimento
+     */
+    enum Tipo {
+        TODOS, UBS, OUTROS;
+
+        /**
+         * @return o filtro, TODOS se vier vazio, ou null se não for reconhecido
+         */
+        static Tipo ler(String valor) {
+            if (valor == null || valor.trim().isEmpty()) {
+                return TODOS;
+            }
+            try {
+                return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final String VERSAO = "1";
+    private static final String SEPARADOR = ":";
+    private static final int CAMPOS = 8;
+
+    final int municipio;
+    final Tipo tipo;
+    final String ultimoCnes;
+    final int total;
+    final int totalUbs;
+    final int totalMedicos;
+    final int totalEnfermeiros;
+
+    CursorPaginacao(int municipio, Tipo tipo, String ultimoCnes,
+                    int total, int totalUbs, int totalMedicos, int totalEnfermeiros) {
+        this.municipio = municipio;
+        this.tipo = tipo;
+        this.ultimoCnes = ultimoCnes;
+        this.total = total;
+        this.totalUbs = totalUbs;
+        this.totalMedicos = totalMedicos;
+        this.totalEnfermeiros = totalEnfermeiros;
+    }
+
+    /**
+     * O mesmo cursor, posicionado depois do CNES indicado
+     */
+    CursorPaginacao apos(String cnes) {
+        return new CursorPaginacao(municipio, tipo, cnes, total, totalUbs, totalMedicos, totalEnfermeiros);
+    }
+
+    String codificar() {
+        String texto = String.join(SEPARADOR, VERSAO, String.valueOf(municipio), tipo.name(), ultimoCnes,
+                String.valueOf(total), String.valueOf(totalUbs),
+                String.valueOf(totalMedicos), String.valueOf(totalEnfermeiros));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return o cursor, ou null se o texto não for um cursor válido
+     */
+    static CursorPaginacao ler(String cursor) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] campos = texto.split(SEPARADOR, -1);
+            if (campos.length != CAMPOS || !VERSAO.equals(campos[0]) || campos[3].isEmpty()) {
+                return null;
+            }
+            Tipo tipo = Tipo.valueOf(campos[2]);
+            return new CursorPaginacao(Integer.parseInt(campos[1]), tipo, campos[3],
+                    Integer.parseInt(campos[4]), Integer.parseInt(campos[5]),
+                    Integer.parseInt(campos[6]), Integer.parseInt(campos[7]));
+        } catch (IllegalArgumentException e) {
+            // Base64, número ou tipo inválidos (NumberFormatException é uma IllegalArgumentException)
+            return null;
+        }
+    }
+}
@@ -24,6 +24,19 @@ public interface MunicipioWebService {
     @WebMethod
     Municipio[] listarMunicipiosPorUF(@WebParam(name = "uf") String uf);
 
+    /**
+     * Autocompleta nomes de municípios de todas as UFs
+     *
+     * @param prefixo    Começo do nome ou de uma palavra do nome (sem distinguir acentos)
+     * @param quantidade Municípios a devolver (0 = padrão do servidor)
+     * @return Municípios por ordem de relevância
+     */
+    @WebMethod
+    Municipio[] autocompletarMunicipios(
+            @WebParam(name = "prefixo") String prefixo,
+            @WebParam(name = "quantidade") int quantidade
+    );
+
     /**
      * Obtém dados populacionais de um município
      *
@@ -71,4 +84,143 @@ public interface MunicipioWebService {
             @WebParam(name = "municipioId") int municipioId,
             @WebParam(name = "municipioNome") String municipioNome
     );
+
+    /**
+     * Lista os estabelecimentos de um município em páginas, por ordem de CNES
+     *
+     * @param municipioId   ID do município no IBGE (7 dígitos)
+     * @param tipo          "UBS", "OUTROS" ou vazio para todos
+     * @param tamanhoPagina Estabelecimentos por página (0 = padrão do servidor)
+     * @param cursor        proximoCursor da página anterior, ou vazio para a primeira página
+     * @return A página pedida, os totais do município e o cursor da página seguinte
+     */
+    @WebMethod
+    PaginaEstabelecimentos listarEstabelecimentosPaginado(
+            @WebParam(name = "municipioId") int municipioId,
+            @WebParam(name = "tipo") String tipo,
+            @WebParam(name = "tamanhoPagina") int tamanhoPagina,
+            @WebParam(name = "cursor") String cursor
+    );
+
+    /**
+     * Lista os estabelecimentos mais próximos de uma coordenada, em todo o país
+     *
+     * @param latitude   Latitude da origem, em graus
+     * @param longitude  Longitude da origem, em graus
+     * @param tipo       "UBS", "OUTROS" ou vazio para todos
+     * @param raioKm     Distância máxima em km (0 = sem limite)
+     * @param quantidade Estabelecimentos a devolver (0 = padrão do servidor)
+     * @return Os estabelecimentos por ordem de distância
+     */
+    @WebMethod
+    ResultadoProximos listarEstabelecimentosProximos(
+            @WebParam(name = "latitude") double latitude,
+            @WebParam(name = "longitude") double longitude,
+            @WebParam(name = "tipo") String tipo,
+            @WebParam(name = "raioKm") double raioKm,
+            @WebParam(name = "quantidade") int quantidade
+    );
+
+    /**
+     * Lista os estabelecimentos mais próximos de um CEP
+     *
+     * @param cep        CEP de origem (8 dígitos, com ou sem hífen)
+     * @param tipo       "UBS", "OUTROS" ou vazio para todos
+     * @param raioKm     Distância máxima em km (0 = sem limite)
+     * @param quantidade Estabelecimentos a devolver (0 = padrão do servidor)
+     * @return Os estabelecimentos por ordem de distância
+     */
+    @WebMethod
+    ResultadoProximos listarEstabelecimentosProximosCEP(
+            @WebParam(name = "cep") String cep,
+            @WebParam(name = "tipo") String tipo,
+            @WebParam(name = "raioKm") double raioKm,
+            @WebParam(name = "quantidade") int quantidade
+    );
+
+    /**
+     * Busca estabelecimentos pelo nome, sem distinguir maiúsculas nem acentos,
+     * por prefixo de palavra e tolerando erros de digitação
+     *
+     * @param termo       Palavras (ou começos de palavras) do nome
+     * @param uf          Sigla da UF, ou vazio para todo o país
+     * @param municipioId ID do município no IBGE (7 dígitos), ou 0; tem prioridade sobre a UF
+     * @param tipo        "UBS", "OUTROS" ou vazio para todos
+     * @param quantidade  Estabelecimentos a devolver (0 = padrão do servidor)
+     * @return Os estabelecimentos por ordem de relevância
+     */
+    @WebMethod
+    ResultadoBuscaEstabelecimentos buscarEstabelecimentosPorNome(
+            @WebParam(name = "termo") String termo,
+            @WebParam(name = "uf") String uf,
+            @WebParam(name = "municipioId") int municipioId,
+            @WebParam(name = "tipo") String tipo,
+            @WebParam(name = "quantidade") int quantidade
+    );
+
+    /**
+     * Obtém dados populacionais de vários municípios numa só requisição
+     *
+     * @param municipioIds IDs dos municípios no IBGE (7 dígitos)
+     * @return Um resultado por ID, na mesma ordem; erros vêm no próprio item
+     */
+    @WebMethod
+    ResultadoDadosPopulacionais[] obterDadosPopulacionaisLote(
+            @WebParam(name = "municipioIds") int[] municipioIds
+    );
+
+    /**
+     * Lista UBS de vários municípios numa só requisição
+     *
+     * @param municipioIds IDs dos municípios no IBGE (7 dígitos)
+     * @return Um resultado por ID, na mesma ordem; erros vêm no próprio item
+     */
+    @WebMethod
+    ResultadoDadosUBS[] listarUBSMunicipioLote(
+            @WebParam(name = "municipioIds") int[] municipioIds
+    );
+
+    /**
+     * Obtém os totais de população, estabelecimentos, médicos e enfermeiros
+     * do país e por UF, com os indicadores por habitante
+     *
+     * @param uf Sigla da UF, ou vazio para todas
+     * @return O total nacional e as UFs pedidas
+     */
+    @WebMethod
+    ResultadoTotaisRegionais obterTotaisRegionais(
+            @WebParam(name = "uf") String uf
+    );
+
+    /**
+     * Lista os municípios com os maiores (ou menores) valores de um indicador
+     *
+     * @param indicador  POPULACAO, ESTABELECIMENTOS, UBS, MEDICOS, ENFERMEIROS,
+     *                   UBS_POR_10MIL_HAB, MEDICOS_POR_MIL_HAB ou ENFERMEIROS_POR_MIL_HAB
+     * @param uf         Sigla da UF, ou vazio para todo o país
+     * @param ordem      "DESC" ou vazio para os maiores valores primeiro, "ASC" para os menores
+     * @param quantidade Municípios a devolver (0 = padrão do servidor)
+     * @return Os municípios por ordem do ranking
+     */
+    @WebMethod
+    ResultadoRanking listarRankingMunicipios(
+            @WebParam(name = "indicador") String indicador,
+            @WebParam(name = "uf") String uf,
+            @WebParam(name = "ordem") String ordem,
+            @WebParam(name = "quantidade") int quantidade
+    );
+
+    /**
+     * Compara municípios num indicador: o valor de cada um, a posição na UF
+     * e no país e o valor da UF e do país
+     *
+     * @param municipioIds IDs dos municípios no IBGE (7 dígitos)
+     * @param indicador    Um dos indicadores de listarRankingMunicipios
+     * @return Um resultado por ID, na mesma ordem; erros vêm no próprio item
+     */
+    @WebMethod
+    ComparacaoMunicipio[] compararMunicipios(
+            @WebParam(name = "municipioIds") int[] municipioIds,
+            @WebParam(name = "indicador") String indicador
+    );
 }
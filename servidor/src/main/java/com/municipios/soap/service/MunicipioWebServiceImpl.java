@@ -1,21 +1,41 @@
 package com.municipios.soap.service;
 
 import com.municipios.soap.model.*;
+import com.municipios.soap.cache.AgregadosRegionais;
+import com.municipios.soap.cache.CacheCep;
+import com.municipios.soap.cache.CacheEstabelecimentos;
+import com.municipios.soap.cache.CatalogoMunicipios;
+import com.municipios.soap.cache.CodigosIbge;
+import com.municipios.soap.cache.IndiceEspacial;
+import com.municipios.soap.cache.IndiceRankings;
+import com.municipios.soap.cache.Indicador;
+import com.municipios.soap.cache.IndiceNomes;
+import com.municipios.soap.cache.SnapshotEstabelecimentos;
+import com.municipios.soap.cache.TabelaEstabelecimentos;
+import com.municipios.soap.cache.EstabelecimentosMunicipio;
+import com.municipios.soap.database.ClassificadorEstabelecimento;
 import com.municipios.soap.database.DatabaseConnector;
+import com.municipios.soap.database.MapeadorDemografia;
+import com.municipios.soap.database.MapeadorUBS;
+import com.municipios.soap.http.ClienteHttp;
+import com.municipios.soap.metricas.Medidor;
+import com.municipios.soap.metricas.Metricas;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 
 import javax.jws.WebService;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 // --- Imports Adicionados para o Banco de Dados ---
 import java.sql.Connection;
@@ -31,50 +51,157 @@ import java.sql.SQLException;
 @WebService(endpointInterface = "com.municipios.soap.service.MunicipioWebService")
 public class MunicipioWebServiceImpl implements MunicipioWebService {
 
-    private final Gson gson = new Gson();
+    // URLs base das APIs externas (sobreponíveis para apontar para um servidor local)
+    public static final String IBGE_URL = System.getProperty("ibge.url", "https://servicodados.ibge.gov.br");
+    private static final String VIACEP_URL = System.getProperty("viacep.url", "https://viacep.com.br");
 
-    /**
-     * (Sem alterações)
-     * Busca a lista de municípios na API REST do IBGE.
-     */
-    @Override
-    public Municipio[] listarMunicipiosPorUF(String uf) {
-        List<Municipio> municipios = new ArrayList<>();
+    // Totais e estabelecimentos do município numa só consulta (totais repetidos em cada linha).
+    // O ETL só grava totais para municípios com estabelecimentos, por isso o LEFT JOIN basta.
+    // A chave primária é (ibge_municipio, cnes): um só intervalo, já pela ordem do CNES.
+    private static final String SQL_ESTABELECIMENTOS_MUNICIPIO =
+            "SELECT t.total_ubs, t.total_medicos, t.total_enfermeiros, " + MapeadorUBS.COLUNAS + " " +
+            "FROM ubs_estabelecimentos e " +
+            "LEFT JOIN ubs_totais_municipio t ON t.ibge_municipio = e.ibge_municipio " +
+            "WHERE e.ibge_municipio = ? ORDER BY e.cnes";
 
-        try {
-            String url = "https://servicodados.ibge.gov.br/api/v1/localidades/estados/" +
-                    uf.toUpperCase() + "/municipios";
+    // Mesma consulta de SQL_ESTABELECIMENTOS_MUNICIPIO para vários municípios (falta o IN)
+    private static final String SQL_ESTABELECIMENTOS_LOTE =
+            "SELECT e.ibge_municipio, t.total_ubs, t.total_medicos, t.total_enfermeiros, " + MapeadorUBS.COLUNAS + " " +
+            "FROM ubs_estabelecimentos e " +
+            "LEFT JOIN ubs_totais_municipio t ON t.ibge_municipio = e.ibge_municipio " +
+            "WHERE e.ibge_municipio IN ";
 
-            String jsonResponse = fazerRequisicaoHTTP(url);
-            JsonArray jsonArray = gson.fromJson(jsonResponse, JsonArray.class);
+    // Página de listarEstabelecimentosPaginado por chave: só as linhas depois do último CNES entregue
+    private static final String SQL_PAGINA =
+            "SELECT " + MapeadorUBS.COLUNAS + " FROM ubs_estabelecimentos e " +
+            "WHERE e.ibge_municipio = ? AND e.cnes > ?";
 
-            for (JsonElement element : jsonArray) {
-                JsonObject munJson = element.getAsJsonObject();
+    private static final String SQL_TOTAIS_MUNICIPIO =
+            "SELECT total_ubs, total_medicos, total_enfermeiros FROM ubs_totais_municipio WHERE ibge_municipio = ?";
 
-                Municipio municipio = new Municipio();
-                municipio.setId(munJson.get("id").getAsInt()); // API usa 7 dígitos
-                municipio.setNome(munJson.get("nome").getAsString());
+    private static final String SQL_CONTAGEM_POR_TIPO =
+            "SELECT e.eh_ubs, COUNT(*) FROM ubs_estabelecimentos e WHERE e.ibge_municipio = ? GROUP BY e.eh_ubs";
 
-                JsonObject ufJson = munJson.getAsJsonObject("microrregiao")
-                        .getAsJsonObject("mesorregiao")
-                        .getAsJsonObject("UF");
+    // Linhas sem eh_ubs são classificadas pelo nome, como em MapeadorUBS.ehUbs
+    private static final String SQL_NOMES_SEM_TIPO =
+            "SELECT e.nome FROM ubs_estabelecimentos e WHERE e.ibge_municipio = ? AND e.eh_ubs IS NULL";
 
-                municipio.setUfSigla(ufJson.get("sigla").getAsString());
-                municipio.setUfNome(ufJson.get("nome").getAsString());
+    // Tamanho de página quando o cliente não o indica, e o máximo aceite
+    private static final int PAGINA_PADRAO = Integer.getInteger("soap.pagina.padrao", 50);
+    private static final int PAGINA_MAX = Integer.getInteger("soap.pagina.max", 500);
 
-                municipios.add(municipio);
-            }
+    // Estabelecimentos devolvidos por listarEstabelecimentosProximos quando o cliente não indica, e o máximo
+    private static final int PROXIMOS_PADRAO = Integer.getInteger("soap.proximos.padrao", 10);
+    private static final int PROXIMOS_MAX = Integer.getInteger("soap.proximos.max", 100);
+
+    // Municípios devolvidos por autocompletarMunicipios quando o cliente não indica, e o máximo
+    private static final int AUTOCOMPLETAR_PADRAO = Integer.getInteger("soap.autocompletar.padrao", 10);
+    private static final int AUTOCOMPLETAR_MAX = Integer.getInteger("soap.autocompletar.max", 50);
+
+    // Estabelecimentos devolvidos por buscarEstabelecimentosPorNome quando o cliente não indica, e o máximo
+    private static final int BUSCA_PADRAO = Integer.getInteger("soap.busca.padrao", 20);
+    private static final int BUSCA_MAX = Integer.getInteger("soap.busca.max", 100);
+
+    // Municípios devolvidos por listarRankingMunicipios quando o cliente não indica, e o máximo
+    private static final int RANKING_PADRAO = Integer.getInteger("soap.ranking.padrao", 10);
+    private static final int RANKING_MAX = Integer.getInteger("soap.ranking.max", 100);
+
+    // Máximo de IDs aceites numa operação em lote (a maior UF, MG, tem 853 municípios)
+    private static final int LOTE_MAX = Integer.getInteger("soap.lote.max", 1000);
 
+    // Máximo de parâmetros por cláusula IN (...)
+    private static final int LOTE_IN_MAX = 500;
+
+    // Consultas ao BD medidas em Metricas.JDBC
+    private static final Medidor BD_DEMOGRAFIA = Metricas.JDBC.medidor("demografia");
+    private static final Medidor BD_DEMOGRAFIA_LOTE = Metricas.JDBC.medidor("demografia_lote");
+    private static final Medidor BD_ESTABELECIMENTOS = Metricas.JDBC.medidor("estabelecimentos");
+    private static final Medidor BD_ESTABELECIMENTOS_LOTE = Metricas.JDBC.medidor("estabelecimentos_lote");
+    private static final Medidor BD_ESTABELECIMENTOS_PAGINA = Metricas.JDBC.medidor("estabelecimentos_pagina");
+
+    private final ClienteHttp clienteHttp;
+    private final CacheEstabelecimentos cacheEstabelecimentos;
+    private final CatalogoMunicipios catalogo;
+    private final CacheCep cacheCep;
+
+    // Chamadas iguais em simultâneo partilham a mesma ida ao BD / API externa
+    private final RequisicoesEmCurso requisicoesEmCurso = new RequisicoesEmCurso();
+
+    public MunicipioWebServiceImpl() {
+        this(new ClienteHttp(), new CacheEstabelecimentos(), CatalogoMunicipios.carregar(), new CacheCep());
+    }
+
+    /**
+     * @param catalogo catálogo de municípios embutido, ou null para usar a API do IBGE
+     */
+    public MunicipioWebServiceImpl(ClienteHttp clienteHttp, CacheEstabelecimentos cacheEstabelecimentos,
+                                   CatalogoMunicipios catalogo, CacheCep cacheCep) {
+        this.clienteHttp = clienteHttp;
+        this.cacheEstabelecimentos = cacheEstabelecimentos;
+        this.catalogo = catalogo;
+        this.cacheCep = cacheCep;
+    }
+
+    /**
+     * Buscas executadas e juntadas (exportadas em /metrics)
+     */
+    public RequisicoesEmCurso getRequisicoesEmCurso() {
+        return requisicoesEmCurso;
+    }
+
+    /**
+     * Lista os municípios da UF a partir do catálogo em memória.
+     * Sem catálogo, busca na API REST do IBGE.
+     */
+    @Override
+    public Municipio[] listarMunicipiosPorUF(String uf) {
+        if (catalogo != null) {
+            Municipio[] municipios = catalogo.municipiosPorUF(uf);
+            return Arrays.copyOf(municipios, municipios.length);
+        }
+
+        try {
+            String sigla = uf.trim().toUpperCase();
+            Municipio[] municipios = requisicoesEmCurso.executar("listarMunicipiosPorUF", sigla,
+                    () -> buscarMunicipiosNaApi(sigla));
+            return Arrays.copyOf(municipios, municipios.length);
         } catch (Exception e) {
             System.err.println("Erro ao buscar municípios: " + e.getMessage());
+            return new Municipio[0];
         }
+    }
 
+    /**
+     * Autocompleta pelo índice de nomes do catálogo ou, sem catálogo, pelo
+     * dos nomes de demografia_municipio no snapshot. Sem nenhum dos dois a
+     * resposta vem vazia.
+     */
+    @Override
+    public Municipio[] autocompletarMunicipios(String prefixo, int quantidade) {
+        int k = quantidade <= 0 ? AUTOCOMPLETAR_PADRAO : Math.min(quantidade, AUTOCOMPLETAR_MAX);
+        if (catalogo != null) {
+            return catalogo.autocompletar(prefixo, k);
+        }
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        return snapshot != null ? snapshot.autocompletarMunicipios(prefixo, k) : new Municipio[0];
+    }
+
+    private Municipio[] buscarMunicipiosNaApi(String uf) throws IOException {
+        String url = IBGE_URL + "/api/v1/localidades/estados/" + uf + "/municipios";
+
+        JsonArray jsonArray = clienteHttp.getJson(url, JsonArray.class);
+
+        List<Municipio> municipios = new ArrayList<>();
+        for (JsonElement element : jsonArray) {
+            municipios.add(CatalogoMunicipios.converter(element.getAsJsonObject()));
+        }
         return municipios.toArray(new Municipio[0]);
     }
 
     /**
      * (Corrigido)
      * Converte o ID de 7 dígitos (municipioId) para 6 dígitos antes de consultar o BD.
+     * Com o snapshot carregado, os números vêm da memória.
      */
     @Override
     public DadosPopulacionais obterDadosPopulacionais(int municipioId, String municipioNome) {
@@ -84,42 +211,60 @@ public class MunicipioWebServiceImpl implements MunicipioWebService {
 
         // --- CORREÇÃO AQUI ---
         // Converte o ID da API (7 dígitos, ex: 2507507) para o ID de 6 dígitos (ex: 250750)
-        String ibgeMunicipio6Digitos = String.valueOf(municipioId / 10);
+        int ibgeMunicipio6Digitos = municipioId / 10;
         // ---------------------
 
-        String sql = "SELECT * FROM demografia_municipio WHERE ibge_municipio = ?";
+        try {
+            SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+            DadosPopulacionais encontrado = snapshot != null
+                    ? snapshot.demografia(ibgeMunicipio6Digitos)
+                    : requisicoesEmCurso.executar("obterDadosPopulacionais",
+                            ibgeMunicipio6Digitos, () -> consultarDemografiaBD(ibgeMunicipio6Digitos));
+            if (encontrado != null) {
+                // Encontra os dados (simulados OU reais do Censo)
+                copiarDemografia(encontrado, dados);
+            } else {
+                // Usa o fallback para municípios não encontrados no BD
+                dados = usarEstimativaGenerica(dados, municipioId);
+            }
+        } catch (Exception e) {
+            System.err.println("Erro de SQL ao buscar dados demográficos: " + e.getMessage());
+            dados = usarEstimativaGenerica(dados, municipioId);
+        }
+        return dados;
+    }
+
+    /**
+     * Linha de demografia_municipio do município (sem id nem nome), ou null se não existir.
+     *
+     * @throws SQLException em erro de SQL ou sem conexão disponível
+     */
+    private DadosPopulacionais consultarDemografiaBD(int ibgeMunicipio6Digitos) throws SQLException {
+        String sql = "SELECT " + MapeadorDemografia.COLUNAS + " FROM demografia_municipio WHERE ibge_municipio = ?";
 
+        long inicio = BD_DEMOGRAFIA.iniciar();
+        boolean sucesso = false;
         try (Connection conn = DatabaseConnector.connect()) {
             if (conn == null) {
-                System.err.println("Conexão com BD nula ao buscar demografia. A usar fallback.");
-                return usarEstimativaGenerica(dados, municipioId);
+                throw new SQLException("Conexão com BD nula");
             }
 
             try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
                 // Usa o ID de 6 dígitos na query
-                pstmt.setString(1, ibgeMunicipio6Digitos);
-                ResultSet rs = pstmt.executeQuery();
-
-                if (rs.next()) {
-                    // Encontra os dados (simulados OU reais do Censo)
-                    dados.setPopulacaoTotal(rs.getInt("populacao_total"));
-                    dados.setPopulacaoHomens(rs.getInt("populacao_homens"));
-                    dados.setPopulacaoMulheres(rs.getInt("populacao_mulheres"));
-                    dados.setFaixa0a10(rs.getInt("faixa_0_10"));
-                    dados.setFaixa11a20(rs.getInt("faixa_11_20"));
-                    dados.setFaixa21a30(rs.getInt("faixa_21_30"));
-                    dados.setFaixa40Mais(rs.getInt("faixa_40_mais"));
-                } else {
-                    // Usa o fallback para municípios não encontrados no BD
-                    dados = usarEstimativaGenerica(dados, municipioId);
+                pstmt.setInt(1, ibgeMunicipio6Digitos);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    DadosPopulacionais dados = null;
+                    if (rs.next()) {
+                        dados = new DadosPopulacionais();
+                        MapeadorDemografia.preencher(dados, rs, 1);
+                    }
+                    sucesso = true;
+                    return dados;
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Erro de SQL ao buscar dados demográficos: " + e.getMessage());
-            e.printStackTrace();
-            dados = usarEstimativaGenerica(dados, municipioId);
+        } finally {
+            BD_DEMOGRAFIA.terminar(inicio, sucesso);
         }
-        return dados;
     }
 
     /**
@@ -138,205 +283,985 @@ public class MunicipioWebServiceImpl implements MunicipioWebService {
         return dados;
     }
 
+    /**
+     * Copia os números da população (não o id nem o nome)
+     */
+    private static void copiarDemografia(DadosPopulacionais origem, DadosPopulacionais destino) {
+        destino.setPopulacaoTotal(origem.getPopulacaoTotal());
+        destino.setPopulacaoHomens(origem.getPopulacaoHomens());
+        destino.setPopulacaoMulheres(origem.getPopulacaoMulheres());
+        destino.setFaixa0a10(origem.getFaixa0a10());
+        destino.setFaixa11a20(origem.getFaixa11a20());
+        destino.setFaixa21a30(origem.getFaixa21a30());
+        destino.setFaixa40Mais(origem.getFaixa40Mais());
+    }
+
 
     /**
-     * (Sem alterações)
-     * Busca o endereço na API REST do ViaCEP.
+     * Busca o endereço na API REST do ViaCEP, com cache por CEP normalizado.
      */
     @Override
     public Endereco consultarCEP(String cep) {
         Endereco endereco = new Endereco();
 
-        try {
-            String cepLimpo = cep.replaceAll("[^0-9]", "");
-            String url = "https://viacep.com.br/ws/" + cepLimpo + "/json/";
-
-            String jsonResponse = fazerRequisicaoHTTP(url);
-            JsonObject jsonObj = gson.fromJson(jsonResponse, JsonObject.class);
+        // Formato inválido é recusado sem chamar o ViaCEP
+        String cepLimpo = CacheCep.normalizar(cep);
+        if (cepLimpo == null) {
+            endereco.setCep(cep);
+            endereco.setLogradouro("CEP inválido: deve ter 8 dígitos");
+            return endereco;
+        }
 
-            if (jsonObj.has("erro")) {
+        Endereco encontrado = cacheCep.obter(cepLimpo);
+        if (encontrado == null) {
+            try {
+                encontrado = requisicoesEmCurso.executar("consultarCEP", cepLimpo, () -> buscarCepNaApi(cepLimpo));
+            } catch (Exception e) {
+                // Falhas de rede não vão para o cache: a próxima chamada tenta de novo
+                System.err.println("Erro ao consultar CEP: " + e.getMessage());
                 endereco.setCep(cep);
-                endereco.setLogradouro("CEP não encontrado");
+                endereco.setLogradouro("Erro: " + e.getMessage());
                 return endereco;
             }
+        }
 
-            endereco.setCep(jsonObj.has("cep") ? jsonObj.get("cep").getAsString() : "");
-            endereco.setLogradouro(jsonObj.has("logradouro") ? jsonObj.get("logradouro").getAsString() : "");
-            endereco.setComplemento(jsonObj.has("complemento") ? jsonObj.get("complemento").getAsString() : "");
-            endereco.setBairro(jsonObj.has("bairro") ? jsonObj.get("bairro").getAsString() : "");
-            endereco.setLocalidade(jsonObj.has("localidade") ? jsonObj.get("localidade").getAsString() : "");
-            endereco.setUf(jsonObj.has("uf") ? jsonObj.get("uf").getAsString() : "");
-
-        } catch (Exception e) {
-            System.err.println("Erro ao consultar CEP: " + e.getMessage());
+        if (encontrado == CacheCep.NAO_ENCONTRADO) {
             endereco.setCep(cep);
-            endereco.setLogradouro("Erro: " + e.getMessage());
+            endereco.setLogradouro("CEP não encontrado");
+            return endereco;
         }
+        return encontrado;
+    }
 
+    /**
+     * Consulta o ViaCEP e guarda a resposta no cache.
+     *
+     * @return o endereço, ou CacheCep.NAO_ENCONTRADO se o CEP não existir
+     */
+    private Endereco buscarCepNaApi(String cepLimpo) throws IOException {
+        String url = VIACEP_URL + "/ws/" + cepLimpo + "/json/";
+
+        JsonObject jsonObj = clienteHttp.getJson(url, JsonObject.class);
+
+        if (jsonObj.has("erro")) {
+            cacheCep.guardarNaoEncontrado(cepLimpo);
+            return CacheCep.NAO_ENCONTRADO;
+        }
+
+        Endereco endereco = new Endereco();
+        endereco.setCep(jsonObj.has("cep") ? jsonObj.get("cep").getAsString() : "");
+        endereco.setLogradouro(jsonObj.has("logradouro") ? jsonObj.get("logradouro").getAsString() : "");
+        endereco.setComplemento(jsonObj.has("complemento") ? jsonObj.get("complemento").getAsString() : "");
+        endereco.setBairro(jsonObj.has("bairro") ? jsonObj.get("bairro").getAsString() : "");
+        endereco.setLocalidade(jsonObj.has("localidade") ? jsonObj.get("localidade").getAsString() : "");
+        endereco.setUf(jsonObj.has("uf") ? jsonObj.get("uf").getAsString() : "");
+        cacheCep.guardar(cepLimpo, endereco);
         return endereco;
     }
 
     /**
-     * (Corrigido)
+     * Serve a partir do snapshot em memória; consulta o BD apenas se o
+     * snapshot ainda não foi carregado.
      * Converte o ID de 7 dígitos (municipioId) para 6 dígitos antes de consultar o BD.
      */
     @Override
     public DadosUBS listarUBSMunicipio(int municipioId, String municipioNome) {
-        DadosUBS dadosUBS = new DadosUBS();
-        List<UBS> listaUbs = new ArrayList<>();
+        EstabelecimentosMunicipio dados = obterEstabelecimentos(municipioId / 10);
+        if (dados == null) {
+            return new DadosUBS(); // Retorna vazio
+        }
+        return montarDadosUBS(dados);
+    }
 
-        // --- CORREÇÃO AQUI ---
-        // Converte o ID da API (7 dígitos, ex: 2507507) para o ID de 6 dígitos (ex: 250750)
-        String ibgeMunicipio6Digitos = String.valueOf(municipioId / 10);
-        // ---------------------
+    /**
+     * Lista estabelecimentos separados por tipo (UBS e Outros).
+     * A classificação vem da coluna eh_ubs, preenchida pelo ETL.
+     */
+    @Override
+    public EstabelecimentosPorTipo listarEstabelecimentosPorTipo(int municipioId, String municipioNome) {
+        EstabelecimentosMunicipio dados = obterEstabelecimentos(municipioId / 10);
+        if (dados == null) {
+            return new EstabelecimentosPorTipo();
+        }
+
+        EstabelecimentosPorTipo resultado = new EstabelecimentosPorTipo();
+        UBS[] ubs = dados.getUbs();
+        UBS[] outros = dados.getOutros();
+        resultado.setEstabelecimentosUBS(Arrays.asList(ubs));
+        resultado.setEstabelecimentosOutros(Arrays.asList(outros));
+        resultado.setTotalUBS(ubs.length);
+        resultado.setTotalOutros(outros.length);
+        resultado.setTotalGeral(ubs.length + outros.length);
+        resultado.setTotalMedicos(dados.getTotalMedicos());
+        resultado.setTotalEnfermeiros(dados.getTotalEnfermeiros());
+        return resultado;
+    }
 
-        String sqlTotais = "SELECT * FROM ubs_totais_municipio WHERE ibge_municipio = ?";
-        String sqlLista = "SELECT * FROM ubs_estabelecimentos WHERE ibge_municipio = ?";
+    /**
+     * Uma página dos estabelecimentos do município, por ordem de CNES. Só a
+     * fatia pedida é copiada do snapshot ou lida do BD ("cnes > último" com
+     * LIMIT); os totais vêm da primeira página e seguem no cursor.
+     */
+    @Override
+    public PaginaEstabelecimentos listarEstabelecimentosPaginado(int municipioId, String tipo,
+                                                                 int tamanhoPagina, String cursor) {
+        PaginaEstabelecimentos pagina = new PaginaEstabelecimentos();
+        pagina.setEstabelecimentos(new UBS[0]);
+        int ibgeMunicipio6Digitos = municipioId / 10;
 
-        try (Connection conn = DatabaseConnector.connect()) {
+        CursorPaginacao.Tipo filtro = CursorPaginacao.Tipo.ler(tipo);
+        if (filtro == null) {
+            pagina.setErro("Tipo inválido (esperado UBS, OUTROS ou vazio): " + tipo);
+            return pagina;
+        }
+        CursorPaginacao anterior = null;
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            anterior = CursorPaginacao.ler(cursor);
+            if (anterior == null || anterior.municipio != ibgeMunicipio6Digitos || anterior.tipo != filtro) {
+                pagina.setErro("Cursor inválido para este município e tipo");
+                return pagina;
+            }
+        }
+        int tamanho = tamanhoPagina <= 0 ? PAGINA_PADRAO : Math.min(tamanhoPagina, PAGINA_MAX);
+
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot != null) {
+            paginarSnapshot(snapshot.municipio(ibgeMunicipio6Digitos), ibgeMunicipio6Digitos, filtro, tamanho,
+                    anterior, pagina);
+            return pagina;
+        }
 
+        try {
+            paginarBD(ibgeMunicipio6Digitos, filtro, tamanho, anterior, pagina);
+        } catch (SQLException e) {
+            System.err.println("Erro de SQL ao buscar página de estabelecimentos: " + e.getMessage());
+            pagina.setErro("Erro ao consultar o BD");
+        }
+        return pagina;
+    }
+
+    private static void paginarSnapshot(EstabelecimentosMunicipio dados, int ibgeMunicipio6Digitos,
+                                        CursorPaginacao.Tipo tipo, int tamanho, CursorPaginacao anterior,
+                                        PaginaEstabelecimentos pagina) {
+        Boolean apenasUbs = tipo == CursorPaginacao.Tipo.TODOS ? null : tipo == CursorPaginacao.Tipo.UBS;
+        int total = dados.quantidade(apenasUbs);
+
+        // O snapshot pode ter sido recarregado entre páginas; a posição é sempre recalculada pelo CNES
+        int inicio = anterior != null ? dados.primeiroApos(apenasUbs, anterior.ultimoCnes) : 0;
+        int fim = Math.min(inicio + tamanho, total);
+        CursorPaginacao estado = new CursorPaginacao(ibgeMunicipio6Digitos, tipo, "", total,
+                dados.getTotalUbs(), dados.getTotalMedicos(), dados.getTotalEnfermeiros());
+        preencherPagina(pagina, dados.listar(apenasUbs, inicio, fim), fim < total, estado);
+    }
+
+    /**
+     * Lê do BD só as linhas da página (mais uma, para saber se há seguinte).
+     * Linhas sem eh_ubs passam no filtro SQL dos dois tipos e são separadas
+     * aqui pelo nome; se isso deixar a página incompleta, lê-se a partir do
+     * último CNES visto.
+     */
+    private void paginarBD(int ibgeMunicipio6Digitos, CursorPaginacao.Tipo tipo, int tamanho,
+                           CursorPaginacao anterior, PaginaEstabelecimentos pagina) throws SQLException {
+        String sql = SQL_PAGINA;
+        if (tipo == CursorPaginacao.Tipo.UBS) {
+            sql += " AND (e.eh_ubs <> 0 OR e.eh_ubs IS NULL)";
+        } else if (tipo == CursorPaginacao.Tipo.OUTROS) {
+            sql += " AND (e.eh_ubs = 0 OR e.eh_ubs IS NULL)";
+        }
+        sql += " ORDER BY e.cnes LIMIT ?";
+
+        long inicio = BD_ESTABELECIMENTOS_PAGINA.iniciar();
+        boolean sucesso = false;
+        try (Connection conn = DatabaseConnector.connect()) {
             if (conn == null) {
-                System.err.println("Conexão com BD nula ao buscar UBS. Verifique o DatabaseConnector.");
-                return new DadosUBS(); // Retorna vazio
+                throw new SQLException("Conexão com BD nula");
             }
+            CursorPaginacao estado = anterior != null ? anterior : contarBD(conn, ibgeMunicipio6Digitos, tipo);
 
-            // 1. Buscar Totais (com ID de 6 dígitos)
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlTotais)) {
-                pstmt.setString(1, ibgeMunicipio6Digitos);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    // Agora deve encontrar os dados REAIS
-                    dadosUBS.setTotalUbs(rs.getInt("total_ubs"));
-                    dadosUBS.setTotalMedicos(rs.getInt("total_medicos"));
-                    dadosUBS.setTotalEnfermeiros(rs.getInt("total_enfermeiros"));
-                } else {
-                    // Município não encontrado no BD de totais
-                    dadosUBS.setTotalUbs(0);
-                    dadosUBS.setTotalMedicos(0);
-                    dadosUBS.setTotalEnfermeiros(0);
+            List<UBS> itens = new ArrayList<>(tamanho + 1);
+            String ultimoLido = anterior != null ? anterior.ultimoCnes : "";
+            boolean fimDasLinhas = false;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                while (itens.size() <= tamanho && !fimDasLinhas) {
+                    int limite = tamanho + 1 - itens.size();
+                    pstmt.setInt(1, ibgeMunicipio6Digitos);
+                    pstmt.setString(2, ultimoLido);
+                    pstmt.setInt(3, limite);
+                    int lidas = 0;
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            lidas++;
+                            UBS estabelecimento = MapeadorUBS.mapear(rs, 1);
+                            ultimoLido = estabelecimento.getCnes();
+                            boolean ehUbs = MapeadorUBS.ehUbs(rs, 1, estabelecimento.getNome());
+                            if (tipo == CursorPaginacao.Tipo.TODOS || ehUbs == (tipo == CursorPaginacao.Tipo.UBS)) {
+                                itens.add(estabelecimento);
+                            }
+                        }
+                    }
+                    fimDasLinhas = lidas < limite;
                 }
             }
 
-            // 2. Buscar Lista de Estabelecimentos (com ID de 6 dígitos)
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlLista)) {
-                pstmt.setString(1, ibgeMunicipio6Digitos);
-                ResultSet rs = pstmt.executeQuery();
+            boolean haMais = itens.size() > tamanho;
+            if (haMais) {
+                itens.remove(tamanho);
+            }
+            preencherPagina(pagina, itens.toArray(new UBS[0]), haMais, estado);
+            sucesso = true;
+        } finally {
+            BD_ESTABELECIMENTOS_PAGINA.terminar(inicio, sucesso);
+        }
+    }
 
+    /**
+     * Totais do município e quantidade de estabelecimentos do tipo pedido
+     * (lidos uma vez, na primeira página)
+     */
+    private static CursorPaginacao contarBD(Connection conn, int ibgeMunicipio6Digitos,
+                                            CursorPaginacao.Tipo tipo) throws SQLException {
+        int totalUbs = 0;
+        int totalMedicos = 0;
+        int totalEnfermeiros = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_TOTAIS_MUNICIPIO)) {
+            pstmt.setInt(1, ibgeMunicipio6Digitos);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    totalUbs = rs.getInt(1);
+                    totalMedicos = rs.getInt(2);
+                    totalEnfermeiros = rs.getInt(3);
+                }
+            }
+        }
+
+        int ubs = 0;
+        int outros = 0;
+        int semTipo = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_CONTAGEM_POR_TIPO)) {
+            pstmt.setInt(1, ibgeMunicipio6Digitos);
+            try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    // Agora deve encontrar as UBSs
-                    UBS ubs = new UBS();
-                    ubs.setCnes(rs.getString("cnes"));
-                    ubs.setNome(rs.getString("nome"));
-                    String endereco = String.format("%s - %s", rs.getString("logradouro"), rs.getString("bairro"));
-                    ubs.setEndereco(endereco);
-                    ubs.setCep(rs.getString("cep"));
-                    ubs.setLatitude(String.valueOf(rs.getDouble("latitude")));
-                    ubs.setLongitude(String.valueOf(rs.getDouble("longitude")));
-                    listaUbs.add(ubs);
+                    int ehUbs = rs.getInt(1);
+                    if (rs.wasNull()) {
+                        semTipo += rs.getInt(2);
+                    } else if (ehUbs != 0) {
+                        ubs += rs.getInt(2);
+                    } else {
+                        outros += rs.getInt(2);
+                    }
+                }
+            }
+        }
+        if (semTipo > 0 && tipo != CursorPaginacao.Tipo.TODOS) {
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_NOMES_SEM_TIPO)) {
+                pstmt.setInt(1, ibgeMunicipio6Digitos);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (ClassificadorEstabelecimento.ehUbs(rs.getString(1))) {
+                            ubs++;
+                        } else {
+                            outros++;
+                        }
+                    }
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Erro de SQL ao buscar dados de UBS: " + e.getMessage());
-            e.printStackTrace();
-            return new DadosUBS(); // Retorna vazio em caso de erro
         }
 
-        dadosUBS.setListaUbs(listaUbs.toArray(new UBS[0]));
-        return dadosUBS;
+        int total;
+        switch (tipo) {
+            case UBS:
+                total = ubs;
+                break;
+            case OUTROS:
+                total = outros;
+                break;
+            default:
+                total = ubs + outros + semTipo;
+        }
+        return new CursorPaginacao(ibgeMunicipio6Digitos, tipo, "", total, totalUbs, totalMedicos, totalEnfermeiros);
+    }
+
+    private static void preencherPagina(PaginaEstabelecimentos pagina, UBS[] itens, boolean haMais,
+                                        CursorPaginacao estado) {
+        pagina.setEstabelecimentos(itens);
+        pagina.setTotalEstabelecimentos(estado.total);
+        pagina.setTotalUbs(estado.totalUbs);
+        pagina.setTotalMedicos(estado.totalMedicos);
+        pagina.setTotalEnfermeiros(estado.totalEnfermeiros);
+        if (haMais && itens.length > 0) {
+            pagina.setProximoCursor(estado.apos(itens[itens.length - 1].getCnes()).codificar());
+        }
     }
 
     /**
-     * Lista estabelecimentos separados por tipo (UBS e Outros)
-     * Classifica baseado no nome do estabelecimento
+     * Os estabelecimentos mais próximos da coordenada, pelo índice espacial
+     * do snapshot. Não há alternativa no BD: sem snapshot a operação
+     * devolve erro em vez de calcular distâncias em SQL.
      */
     @Override
-    public EstabelecimentosPorTipo listarEstabelecimentosPorTipo(int municipioId, String municipioNome) {
-        EstabelecimentosPorTipo resultado = new EstabelecimentosPorTipo();
-        List<UBS> listaUbs = new ArrayList<>();
-        List<UBS> listaOutros = new ArrayList<>();
+    public ResultadoProximos listarEstabelecimentosProximos(double latitude, double longitude, String tipo,
+                                                            double raioKm, int quantidade) {
+        ResultadoProximos resultado = new ResultadoProximos();
+        resultado.setEstabelecimentos(new EstabelecimentoProximo[0]);
+        resultado.setLatitude(latitude);
+        resultado.setLongitude(longitude);
+        resultado.setOrigem("COORDENADAS");
+        if (!(Math.abs(latitude) <= 90) || !(Math.abs(longitude) <= 180)) {
+            resultado.setErro("Coordenadas inválidas: latitude entre -90 e 90, longitude entre -180 e 180");
+            return resultado;
+        }
+        buscarProximos(resultado, tipo, raioKm, quantidade);
+        return resultado;
+    }
 
-        // Converte o ID da API (7 dígitos) para o ID de 6 dígitos
-        String ibgeMunicipio6Digitos = String.valueOf(municipioId / 10);
+    /**
+     * Os estabelecimentos mais próximos do CEP. O ViaCEP não devolve
+     * coordenadas, por isso a origem é o centro dos estabelecimentos com o
+     * mesmo CEP ou, se não houver nenhum, com os mesmos 5 primeiros dígitos.
+     */
+    @Override
+    public ResultadoProximos listarEstabelecimentosProximosCEP(String cep, String tipo, double raioKm,
+                                                               int quantidade) {
+        ResultadoProximos resultado = new ResultadoProximos();
+        resultado.setEstabelecimentos(new EstabelecimentoProximo[0]);
 
-        String sqlTotais = "SELECT * FROM ubs_totais_municipio WHERE ibge_municipio = ?";
-        String sqlLista = "SELECT * FROM ubs_estabelecimentos WHERE ibge_municipio = ?";
+        String cepLimpo = CacheCep.normalizar(cep);
+        if (cepLimpo == null) {
+            resultado.setErro("CEP inválido: deve ter 8 dígitos");
+            return resultado;
+        }
+        IndiceEspacial indice = indiceEspacial(resultado);
+        if (indice == null) {
+            return resultado;
+        }
 
-        try (Connection conn = DatabaseConnector.connect()) {
+        double[] centro = indice.centroCep(cepLimpo);
+        resultado.setOrigem("CEP");
+        if (centro == null) {
+            centro = indice.centroPrefixoCep(cepLimpo);
+            resultado.setOrigem("PREFIXO_CEP");
+        }
+        if (centro == null) {
+            resultado.setOrigem(null);
+            resultado.setErro("Sem estabelecimentos com coordenadas na região do CEP " + cepLimpo);
+            return resultado;
+        }
+        resultado.setLatitude(centro[0]);
+        resultado.setLongitude(centro[1]);
+        buscarProximos(resultado, tipo, raioKm, quantidade);
+        return resultado;
+    }
 
-            if (conn == null) {
-                System.err.println("Conexão com BD nula ao buscar estabelecimentos. Verifique o DatabaseConnector.");
-                return new EstabelecimentosPorTipo();
+    private void buscarProximos(ResultadoProximos resultado, String tipo, double raioKm, int quantidade) {
+        CursorPaginacao.Tipo filtro = CursorPaginacao.Tipo.ler(tipo);
+        if (filtro == null) {
+            resultado.setErro("Tipo inválido (esperado UBS, OUTROS ou vazio): " + tipo);
+            return;
+        }
+        IndiceEspacial indice = indiceEspacial(resultado);
+        if (indice == null) {
+            return;
+        }
+        Boolean apenasUbs = filtro == CursorPaginacao.Tipo.TODOS ? null : filtro == CursorPaginacao.Tipo.UBS;
+        int k = quantidade <= 0 ? PROXIMOS_PADRAO : Math.min(quantidade, PROXIMOS_MAX);
+        resultado.setEstabelecimentos(indice.buscar(resultado.getLatitude(), resultado.getLongitude(),
+                k, raioKm, apenasUbs));
+    }
+
+    /**
+     * Índice do snapshot em uso, ou null (com o erro já no resultado) se o
+     * snapshot ainda não foi carregado
+     */
+    private IndiceEspacial indiceEspacial(ResultadoProximos resultado) {
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot == null) {
+            resultado.setErro("Índice espacial indisponível: snapshot de estabelecimentos não carregado");
+            return null;
+        }
+        return snapshot.getIndiceEspacial();
+    }
+
+    /**
+     * Busca por nome no índice de nomes do snapshot. Tal como a busca por
+     * proximidade, não tem alternativa no BD: sem snapshot devolve erro em
+     * vez de fazer LIKE '%...%' sobre a tabela inteira.
+     */
+    @Override
+    public ResultadoBuscaEstabelecimentos buscarEstabelecimentosPorNome(String termo, String uf, int municipioId,
+                                                                        String tipo, int quantidade) {
+        ResultadoBuscaEstabelecimentos resultado = new ResultadoBuscaEstabelecimentos();
+        resultado.setEstabelecimentos(new EstabelecimentoEncontrado[0]);
+
+        if (IndiceNomes.palavras(termo).isEmpty()) {
+            resultado.setErro("Termo de busca vazio: informe pelo menos uma palavra do nome");
+            return resultado;
+        }
+        CursorPaginacao.Tipo filtro = CursorPaginacao.Tipo.ler(tipo);
+        if (filtro == null) {
+            resultado.setErro("Tipo inválido (esperado UBS, OUTROS ou vazio): " + tipo);
+            return resultado;
+        }
+
+        // Âmbito como intervalo de códigos de 6 dígitos: os da UF começam pelos 2 dígitos dela
+        int de = 0;
+        int ate = Integer.MAX_VALUE;
+        if (municipioId != 0) {
+            if (municipioId < 1_000_000 || municipioId > 9_999_999) {
+                resultado.setErro("ID IBGE inválido (esperados 7 dígitos): " + municipioId);
+                return resultado;
+            }
+            de = municipioId / 10;
+            ate = de + 1;
+        } else if (uf != null && !uf.trim().isEmpty()) {
+            int codigoUF = CodigosIbge.codigoUF(uf);
+            if (codigoUF == 0) {
+                resultado.setErro("UF desconhecida: " + uf);
+                return resultado;
             }
+            de = codigoUF * 10_000;
+            ate = de + 10_000;
+        }
 
-            // 1. Buscar Totais
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlTotais)) {
-                pstmt.setString(1, ibgeMunicipio6Digitos);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    resultado.setTotalMedicos(rs.getInt("total_medicos"));
-                    resultado.setTotalEnfermeiros(rs.getInt("total_enfermeiros"));
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot == null) {
+            resultado.setErro("Índice de nomes indisponível: snapshot de estabelecimentos não carregado");
+            return resultado;
+        }
+        Boolean apenasUbs = filtro == CursorPaginacao.Tipo.TODOS ? null : filtro == CursorPaginacao.Tipo.UBS;
+        int k = quantidade <= 0 ? BUSCA_PADRAO : Math.min(quantidade, BUSCA_MAX);
+        IndiceNomes.Encontrados encontrados = snapshot.getIndiceNomes().buscar(termo, de, ate, apenasUbs, k);
+
+        EstabelecimentoEncontrado[] itens = new EstabelecimentoEncontrado[encontrados.getQuantidade()];
+        for (int i = 0; i < itens.length; i++) {
+            EstabelecimentoEncontrado item = new EstabelecimentoEncontrado();
+            item.setEstabelecimento(encontrados.estabelecimento(i));
+            item.setAproximado(encontrados.aproximado(i));
+            int codigo = encontrados.municipio(i);
+            Municipio municipio = catalogo != null ? catalogo.municipio(codigo) : null;
+            if (municipio != null) {
+                item.setMunicipioId(municipio.getId());
+                item.setMunicipioNome(municipio.getNome());
+                item.setUfSigla(municipio.getUfSigla());
+            } else {
+                // Sem catálogo, o ID e a UF saem do código e o nome vem da demografia
+                item.setMunicipioId(CodigosIbge.idMunicipio(codigo));
+                item.setUfSigla(CodigosIbge.siglaUF(codigo / 10_000));
+                DadosPopulacionais demografia = snapshot.demografia(codigo);
+                item.setMunicipioNome(demografia != null ? demografia.getMunicipioNome() : null);
+            }
+            itens[i] = item;
+        }
+        resultado.setEstabelecimentos(itens);
+        resultado.setTotalEncontrados(encontrados.getTotal());
+        return resultado;
+    }
+
+    /**
+     * Totais do país e por UF, lidos dos agregados que o snapshot soma ao
+     * ser montado: não percorre municípios nem vai ao BD. Sem snapshot
+     * devolve erro, como a busca por nome.
+     */
+    @Override
+    public ResultadoTotaisRegionais obterTotaisRegionais(String uf) {
+        ResultadoTotaisRegionais resultado = new ResultadoTotaisRegionais();
+        resultado.setUfs(new TotaisRegiao[0]);
+
+        int codigoUF = 0;
+        if (uf != null && !uf.trim().isEmpty()) {
+            codigoUF = CodigosIbge.codigoUF(uf);
+            if (codigoUF == 0) {
+                resultado.setErro("UF desconhecida: " + uf);
+                return resultado;
+            }
+        }
+
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot == null) {
+            resultado.setErro("Totais regionais indisponíveis: snapshot de estabelecimentos não carregado");
+            return resultado;
+        }
+        AgregadosRegionais agregados = snapshot.getAgregados();
+
+        TotaisRegiao nacional = montarTotais(agregados, AgregadosRegionais.NACIONAL);
+        nacional.setSigla("BR");
+        nacional.setNome("Brasil");
+        resultado.setNacional(nacional);
+
+        int[] ufs = codigoUF != 0 ? new int[]{codigoUF} : agregados.getUfs();
+        TotaisRegiao[] itens = new TotaisRegiao[ufs.length];
+        for (int i = 0; i < ufs.length; i++) {
+            itens[i] = montarTotais(agregados, ufs[i]);
+            itens[i].setSigla(CodigosIbge.siglaUF(ufs[i]));
+            itens[i].setNome(CodigosIbge.nomeUF(ufs[i]));
+        }
+        resultado.setUfs(itens);
+        return resultado;
+    }
+
+    private static TotaisRegiao montarTotais(AgregadosRegionais agregados, int uf) {
+        TotaisRegiao totais = new TotaisRegiao();
+        totais.setCodigoUF(uf);
+        totais.setMunicipios(agregados.municipios(uf));
+        totais.setPopulacaoTotal(agregados.populacaoTotal(uf));
+        totais.setPopulacaoHomens(agregados.populacaoHomens(uf));
+        totais.setPopulacaoMulheres(agregados.populacaoMulheres(uf));
+        totais.setTotalEstabelecimentos(agregados.estabelecimentos(uf));
+        totais.setTotalUbs(agregados.ubs(uf));
+        totais.setTotalOutros(agregados.estabelecimentos(uf) - agregados.ubs(uf));
+        totais.setTotalMedicos(agregados.medicos(uf));
+        totais.setTotalEnfermeiros(agregados.enfermeiros(uf));
+        long populacao = agregados.populacaoTotal(uf);
+        totais.setUbsPor10MilHabitantes(porHabitantes(agregados.ubs(uf), populacao, 10_000));
+        totais.setMedicosPorMilHabitantes(porHabitantes(agregados.medicos(uf), populacao, 1_000));
+        totais.setEnfermeirosPorMilHabitantes(porHabitantes(agregados.enfermeiros(uf), populacao, 1_000));
+        return totais;
+    }
+
+    /**
+     * Quantidade por cada "base" habitantes, com 2 casas decimais (0 sem população)
+     */
+    private static double porHabitantes(int quantidade, long populacao, int base) {
+        return populacao > 0 ? Math.round(quantidade * (double) base * 100 / populacao) / 100.0 : 0;
+    }
+
+    /**
+     * Ranking lido do IndiceRankings do snapshot, já ordenado por indicador,
+     * no país e por UF: a requisição só copia os primeiros (ou os últimos)
+     * municípios. Sem snapshot devolve erro.
+     */
+    @Override
+    public ResultadoRanking listarRankingMunicipios(String indicador, String uf, String ordem, int quantidade) {
+        ResultadoRanking resultado = new ResultadoRanking();
+        resultado.setMunicipios(new MunicipioRanking[0]);
+
+        Indicador lido = Indicador.ler(indicador);
+        if (lido == null) {
+            resultado.setErro(indicadorInvalido(indicador));
+            return resultado;
+        }
+        resultado.setIndicador(lido.name());
+        String sentido = ordem == null || ordem.trim().isEmpty() ? "DESC" : ordem.trim().toUpperCase();
+        if (!sentido.equals("DESC") && !sentido.equals("ASC")) {
+            resultado.setErro("Ordem inválida (esperado ASC, DESC ou vazio): " + ordem);
+            return resultado;
+        }
+        resultado.setOrdem(sentido);
+
+        int codigoUF = AgregadosRegionais.NACIONAL;
+        if (uf != null && !uf.trim().isEmpty()) {
+            codigoUF = CodigosIbge.codigoUF(uf);
+            if (codigoUF == 0) {
+                resultado.setErro("UF desconhecida: " + uf);
+                return resultado;
+            }
+            resultado.setUf(uf.trim().toUpperCase());
+        }
+
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot == null) {
+            resultado.setErro("Ranking indisponível: snapshot de estabelecimentos não carregado");
+            return resultado;
+        }
+        IndiceRankings rankings = snapshot.getRankings();
+        int total = rankings.total(lido, codigoUF);
+        int k = Math.min(total, quantidade <= 0 ? RANKING_PADRAO : Math.min(quantidade, RANKING_MAX));
+
+        MunicipioRanking[] itens = new MunicipioRanking[k];
+        for (int i = 0; i < k; i++) {
+            int m = rankings.municipio(lido, codigoUF, i, sentido.equals("ASC"));
+            int codigo = rankings.codigo(m);
+            MunicipioRanking item = new MunicipioRanking();
+            item.setPosicao(i + 1);
+            item.setValor(arredondar(rankings.valor(lido, m)));
+            Municipio municipio = catalogo != null ? catalogo.municipio(codigo) : null;
+            if (municipio != null) {
+                item.setMunicipioId(municipio.getId());
+                item.setMunicipioNome(municipio.getNome());
+                item.setUfSigla(municipio.getUfSigla());
+            } else {
+                item.setMunicipioId(CodigosIbge.idMunicipio(codigo));
+                item.setUfSigla(CodigosIbge.siglaUF(codigo / 10_000));
+                DadosPopulacionais demografia = snapshot.demografia(codigo);
+                item.setMunicipioNome(demografia != null ? demografia.getMunicipioNome() : null);
+            }
+            itens[i] = item;
+        }
+        resultado.setMunicipios(itens);
+        resultado.setTotalMunicipios(total);
+        return resultado;
+    }
+
+    /**
+     * Posições e valores lidos do IndiceRankings e dos AgregadosRegionais do
+     * snapshot, sem ordenar nem somar na requisição. Sem snapshot, cada item
+     * traz o erro.
+     */
+    @Override
+    public ComparacaoMunicipio[] compararMunicipios(int[] municipioIds, String indicador) {
+        if (municipioIds == null) {
+            return new ComparacaoMunicipio[0];
+        }
+        Indicador lido = Indicador.ler(indicador);
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+
+        ComparacaoMunicipio[] resultados = new ComparacaoMunicipio[municipioIds.length];
+        for (int i = 0; i < municipioIds.length; i++) {
+            ComparacaoMunicipio resultado = new ComparacaoMunicipio();
+            resultados[i] = resultado;
+            resultado.setMunicipioId(municipioIds[i]);
+            String erro = validarIdLote(municipioIds[i], i);
+            if (erro == null && lido == null) {
+                erro = indicadorInvalido(indicador);
+            }
+            if (erro == null && snapshot == null) {
+                erro = "Comparação indisponível: snapshot de estabelecimentos não carregado";
+            }
+            if (erro != null) {
+                resultado.setErro(erro);
+                continue;
+            }
+            resultado.setIndicador(lido.name());
+
+            int codigo = municipioIds[i] / 10;
+            IndiceRankings rankings = snapshot.getRankings();
+            int m = rankings.procurar(codigo);
+            if (m < 0) {
+                resultado.setErro("Município sem estabelecimentos nem demografia: " + municipioIds[i]);
+                continue;
+            }
+            int codigoUF = municipioIds[i] / 100_000;
+            AgregadosRegionais agregados = snapshot.getAgregados();
+            resultado.setValor(arredondar(rankings.valor(lido, m)));
+            resultado.setPosicaoUF(rankings.posicaoUF(lido, m));
+            resultado.setTotalUF(rankings.total(lido, codigoUF));
+            resultado.setPosicaoNacional(rankings.posicaoNacional(lido, m));
+            resultado.setTotalNacional(rankings.total(lido, AgregadosRegionais.NACIONAL));
+            resultado.setValorUF(arredondar(lido.calcular(agregados, codigoUF)));
+            resultado.setValorNacional(arredondar(lido.calcular(agregados, AgregadosRegionais.NACIONAL)));
+
+            Municipio municipio = catalogo != null ? catalogo.municipio(codigo) : null;
+            if (municipio != null) {
+                resultado.setMunicipioNome(municipio.getNome());
+                resultado.setUfSigla(municipio.getUfSigla());
+            } else {
+                resultado.setUfSigla(CodigosIbge.siglaUF(codigoUF));
+                DadosPopulacionais demografia = snapshot.demografia(codigo);
+                resultado.setMunicipioNome(demografia != null ? demografia.getMunicipioNome() : null);
+            }
+        }
+        return resultados;
+    }
+
+    private static String indicadorInvalido(String indicador) {
+        return "Indicador inválido (esperado um de " + Arrays.toString(Indicador.values()) + "): " + indicador;
+    }
+
+    /**
+     * 2 casas decimais; NaN (indicador por habitante sem população) vira 0
+     */
+    private static double arredondar(double valor) {
+        return Double.isNaN(valor) ? 0 : Math.round(valor * 100) / 100.0;
+    }
+
+    /**
+     * Dados populacionais de vários municípios: do snapshot em memória ou,
+     * sem snapshot, com uma única conexão e consultas IN (...). Municípios
+     * sem registo recebem a mesma estimativa de obterDadosPopulacionais.
+     */
+    @Override
+    public ResultadoDadosPopulacionais[] obterDadosPopulacionaisLote(int[] municipioIds) {
+        if (municipioIds == null) {
+            return new ResultadoDadosPopulacionais[0];
+        }
+
+        ResultadoDadosPopulacionais[] resultados = new ResultadoDadosPopulacionais[municipioIds.length];
+        Set<Integer> codigos = new LinkedHashSet<>();
+        for (int i = 0; i < municipioIds.length; i++) {
+            resultados[i] = new ResultadoDadosPopulacionais();
+            resultados[i].setMunicipioId(municipioIds[i]);
+            String erro = validarIdLote(municipioIds[i], i);
+            if (erro != null) {
+                resultados[i].setErro(erro);
+            } else {
+                codigos.add(municipioIds[i] / 10);
+            }
+        }
+
+        Map<Integer, DadosPopulacionais> encontrados = new HashMap<>();
+        String erroBD = null;
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot != null) {
+            for (int codigo : codigos) {
+                DadosPopulacionais dados = snapshot.demografia(codigo);
+                if (dados != null) {
+                    encontrados.put(codigo, dados);
+                }
+            }
+        } else {
+            try (Connection conn = DatabaseConnector.connect()) {
+                if (conn == null) {
+                    erroBD = "Conexão com BD indisponível";
                 } else {
-                    resultado.setTotalMedicos(0);
-                    resultado.setTotalEnfermeiros(0);
+                    for (List<Integer> parte : dividir(codigos)) {
+                        consultarDemografiaLote(conn, parte, encontrados);
+                    }
                 }
+            } catch (SQLException e) {
+                System.err.println("Erro de SQL ao buscar dados demográficos em lote: " + e.getMessage());
+                erroBD = "Erro ao consultar o BD";
+            }
+        }
+
+        for (ResultadoDadosPopulacionais resultado : resultados) {
+            if (resultado.getErro() != null) {
+                continue;
+            }
+            int municipioId = resultado.getMunicipioId();
+            DadosPopulacionais dados = new DadosPopulacionais();
+            dados.setMunicipioId(municipioId);
+
+            DadosPopulacionais encontrado = encontrados.get(municipioId / 10);
+            if (encontrado != null) {
+                dados.setMunicipioNome(encontrado.getMunicipioNome());
+                copiarDemografia(encontrado, dados);
+            } else {
+                usarEstimativaGenerica(dados, municipioId);
+                resultado.setErro(erroBD);
+            }
+            resultado.setDados(dados);
+        }
+        return resultados;
+    }
+
+    /**
+     * UBS de vários municípios: do snapshot em memória ou, sem snapshot,
+     * com consultas IN (...) numa única conexão.
+     */
+    @Override
+    public ResultadoDadosUBS[] listarUBSMunicipioLote(int[] municipioIds) {
+        if (municipioIds == null) {
+            return new ResultadoDadosUBS[0];
+        }
+
+        ResultadoDadosUBS[] resultados = new ResultadoDadosUBS[municipioIds.length];
+        Set<Integer> codigos = new LinkedHashSet<>();
+        for (int i = 0; i < municipioIds.length; i++) {
+            resultados[i] = new ResultadoDadosUBS();
+            resultados[i].setMunicipioId(municipioIds[i]);
+            String erro = validarIdLote(municipioIds[i], i);
+            if (erro != null) {
+                resultados[i].setErro(erro);
+            } else {
+                codigos.add(municipioIds[i] / 10);
             }
+        }
 
-            // 2. Buscar e Classificar Estabelecimentos
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlLista)) {
-                pstmt.setString(1, ibgeMunicipio6Digitos);
-                ResultSet rs = pstmt.executeQuery();
+        Map<Integer, EstabelecimentosMunicipio> porMunicipio;
+        String erroBD = null;
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot != null) {
+            porMunicipio = new HashMap<>();
+            for (int codigo : codigos) {
+                porMunicipio.put(codigo, snapshot.municipio(codigo));
+            }
+        } else {
+            porMunicipio = consultarEstabelecimentosLoteBD(codigos);
+            if (porMunicipio == null) {
+                erroBD = "Erro ao consultar o BD";
+                porMunicipio = Collections.emptyMap();
+            }
+        }
 
+        for (ResultadoDadosUBS resultado : resultados) {
+            if (resultado.getErro() != null) {
+                continue;
+            }
+            EstabelecimentosMunicipio dados = porMunicipio.get(resultado.getMunicipioId() / 10);
+            if (dados != null) {
+                resultado.setDados(montarDadosUBS(dados));
+            } else {
+                resultado.setErro(erroBD);
+                resultado.setDados(new DadosUBS());
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Mensagem de erro para o ID na posição indicada, ou null se for válido
+     */
+    private static String validarIdLote(int municipioId, int posicao) {
+        if (posicao >= LOTE_MAX) {
+            return "Lote excede o limite de " + LOTE_MAX + " municípios";
+        }
+        if (municipioId < 1_000_000 || municipioId > 9_999_999) {
+            return "ID IBGE inválido (esperados 7 dígitos): " + municipioId;
+        }
+        return null;
+    }
+
+    /**
+     * Divide os códigos em partes de até LOTE_IN_MAX elementos
+     */
+    private static List<List<Integer>> dividir(Collection<Integer> codigos) {
+        List<Integer> todos = new ArrayList<>(codigos);
+        List<List<Integer>> partes = new ArrayList<>();
+        for (int i = 0; i < todos.size(); i += LOTE_IN_MAX) {
+            partes.add(todos.subList(i, Math.min(i + LOTE_IN_MAX, todos.size())));
+        }
+        return partes;
+    }
+
+    /**
+     * "(?, ?, ..., ?)" com n marcadores
+     */
+    private static String marcadores(int n) {
+        return "(" + String.join(", ", Collections.nCopies(n, "?")) + ")";
+    }
+
+    private static void consultarDemografiaLote(Connection conn, List<Integer> codigos,
+                                                Map<Integer, DadosPopulacionais> encontrados) throws SQLException {
+        String sql = "SELECT ibge_municipio, municipio_nome, " + MapeadorDemografia.COLUNAS +
+                " FROM demografia_municipio WHERE ibge_municipio IN " + marcadores(codigos.size());
+
+        long inicio = BD_DEMOGRAFIA_LOTE.iniciar();
+        boolean sucesso = false;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < codigos.size(); i++) {
+                pstmt.setInt(i + 1, codigos.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    UBS estabelecimento = new UBS();
-                    String nome = rs.getString("nome");
-                    
-                    estabelecimento.setCnes(rs.getString("cnes"));
-                    estabelecimento.setNome(nome);
-                    String endereco = String.format("%s - %s", 
-                        rs.getString("logradouro"), 
-                        rs.getString("bairro"));
-                    estabelecimento.setEndereco(endereco);
-                    estabelecimento.setCep(rs.getString("cep"));
-                    estabelecimento.setLatitude(String.valueOf(rs.getDouble("latitude")));
-                    estabelecimento.setLongitude(String.valueOf(rs.getDouble("longitude")));
-
-                    // Classificar por nome
-                    String nomeUpper = nome.toUpperCase();
-                    if (nomeUpper.contains("UBS") || 
-                        nomeUpper.contains("UNIDADE BASICA") || 
-                        nomeUpper.contains("UNIDADE BÁSICA")) {
-                        listaUbs.add(estabelecimento);
-                    } else {
-                        listaOutros.add(estabelecimento);
+                    DadosPopulacionais dados = new DadosPopulacionais();
+                    dados.setMunicipioNome(rs.getString(2));
+                    MapeadorDemografia.preencher(dados, rs, 3);
+                    encontrados.put(rs.getInt(1), dados);
+                }
+            }
+            sucesso = true;
+        } finally {
+            BD_DEMOGRAFIA_LOTE.terminar(inicio, sucesso);
+        }
+    }
+
+    /**
+     * Estabelecimentos de vários municípios numa única conexão.
+     * Municípios sem linhas recebem EstabelecimentosMunicipio.VAZIO.
+     *
+     * @return mapa código de 6 dígitos -> estabelecimentos, ou null em caso de erro de BD
+     */
+    private Map<Integer, EstabelecimentosMunicipio> consultarEstabelecimentosLoteBD(Collection<Integer> codigos) {
+        TabelaEstabelecimentos.Construtor construtor = new TabelaEstabelecimentos.Construtor();
+
+        try (Connection conn = DatabaseConnector.connect()) {
+            if (conn == null) {
+                System.err.println("Conexão com BD nula ao buscar estabelecimentos em lote.");
+                return null;
+            }
+
+            for (List<Integer> parte : dividir(codigos)) {
+                String sql = SQL_ESTABELECIMENTOS_LOTE + marcadores(parte.size()) + " ORDER BY e.ibge_municipio, e.cnes";
+                long inicio = BD_ESTABELECIMENTOS_LOTE.iniciar();
+                boolean sucesso = false;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < parte.size(); i++) {
+                        pstmt.setInt(i + 1, parte.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            int codigo = rs.getInt(1);
+                            if (!construtor.temTotais(codigo)) {
+                                construtor.totais(codigo, rs.getInt(2), rs.getInt(3), rs.getInt(4));
+                            }
+                            MapeadorUBS.adicionar(construtor, codigo, rs, 5);
+                        }
                     }
+                    sucesso = true;
+                } finally {
+                    BD_ESTABELECIMENTOS_LOTE.terminar(inicio, sucesso);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Erro de SQL ao buscar estabelecimentos por tipo: " + e.getMessage());
-            e.printStackTrace();
-            return new EstabelecimentosPorTipo();
+            System.err.println("Erro de SQL ao buscar estabelecimentos em lote: " + e.getMessage());
+            return null;
         }
 
-        // Configurar resultado
-        resultado.setEstabelecimentosUBS(listaUbs);
-        resultado.setEstabelecimentosOutros(listaOutros);
-        resultado.setTotalUBS(listaUbs.size());
-        resultado.setTotalOutros(listaOutros.size());
-        resultado.setTotalGeral(listaUbs.size() + listaOutros.size());
+        TabelaEstabelecimentos tabela = construtor.construir();
+        Map<Integer, EstabelecimentosMunicipio> porMunicipio = new HashMap<>();
+        for (int codigo : codigos) {
+            porMunicipio.put(codigo, tabela.municipio(codigo));
+        }
+        return porMunicipio;
+    }
 
-        return resultado;
+    /**
+     * DadosUBS com os objetos UBS criados para esta resposta
+     */
+    private static DadosUBS montarDadosUBS(EstabelecimentosMunicipio dados) {
+        DadosUBS dadosUBS = new DadosUBS();
+        dadosUBS.setTotalUbs(dados.getTotalUbs());
+        dadosUBS.setTotalMedicos(dados.getTotalMedicos());
+        dadosUBS.setTotalEnfermeiros(dados.getTotalEnfermeiros());
+        dadosUBS.setListaUbs(dados.getTodos());
+        return dadosUBS;
     }
 
     /**
-     * (Sem alterações)
-     * Faz requisição HTTP GET e retorna o corpo da resposta
+     * Estabelecimentos do município a partir do snapshot ou, se ainda não
+     * houver snapshot, do BD.
+     *
+     * @return os dados do município, ou null em caso de erro de BD
      */
-    private String fazerRequisicaoHTTP(String url) throws Exception {
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpGet request = new HttpGet(url);
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                return EntityUtils.toString(response.getEntity(), "UTF-8");
+    private EstabelecimentosMunicipio obterEstabelecimentos(int ibgeMunicipio6Digitos) {
+        SnapshotEstabelecimentos snapshot = cacheEstabelecimentos.atual();
+        if (snapshot != null) {
+            return snapshot.municipio(ibgeMunicipio6Digitos);
+        }
+
+        try {
+            EstabelecimentosMunicipio dados = requisicoesEmCurso.executar("estabelecimentos", ibgeMunicipio6Digitos,
+                    () -> consultarEstabelecimentosBD(ibgeMunicipio6Digitos));
+            if (dados == null) {
+                System.err.println("Conexão com BD nula ao buscar estabelecimentos. Verifique o DatabaseConnector.");
+            }
+            return dados;
+        } catch (Exception e) {
+            System.err.println("Erro de SQL ao buscar estabelecimentos: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Busca os totais e os estabelecimentos do município numa única ida ao BD.
+     *
+     * @return os dados do município, ou null se não houver conexão disponível
+     */
+    private EstabelecimentosMunicipio consultarEstabelecimentosBD(int ibgeMunicipio6Digitos) throws SQLException {
+        long inicio = BD_ESTABELECIMENTOS.iniciar();
+        boolean sucesso = false;
+        try (Connection conn = DatabaseConnector.connect()) {
+            if (conn == null) {
+                return null;
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_ESTABELECIMENTOS_MUNICIPIO)) {
+                pstmt.setInt(1, ibgeMunicipio6Digitos);
+
+                TabelaEstabelecimentos.Construtor construtor = new TabelaEstabelecimentos.Construtor();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (!construtor.temTotais(ibgeMunicipio6Digitos)) {
+                            construtor.totais(ibgeMunicipio6Digitos, rs.getInt(1), rs.getInt(2), rs.getInt(3));
+                        }
+                        MapeadorUBS.adicionar(construtor, ibgeMunicipio6Digitos, rs, 4);
+                    }
+                }
+                sucesso = true;
+                return construtor.construir().municipio(ibgeMunicipio6Digitos);
             }
+        } finally {
+            BD_ESTABELECIMENTOS.terminar(inicio, sucesso);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.municipios.soap.service;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Junta chamadas concorrentes iguais (mesma operação e chave) numa única ida
+ * ao BD ou à API externa: a primeira executa a busca e as restantes esperam
+ * pelo mesmo resultado. Nada é guardado depois de a busca terminar.
+ *
+ * O resultado é partilhado entre as threads, por isso deve ser tratado como
+ * só de leitura (quem precisar de o alterar faz uma cópia).
+ */
+public class RequisicoesEmCurso {
+
+    private final ConcurrentMap<Chave, CompletableFuture<Object>> emCurso = new ConcurrentHashMap<>();
+    private final LongAdder buscas = new LongAdder();
+    private final LongAdder juntadas = new LongAdder();
+
+    /**
+     * Executa a busca, ou espera por uma busca igual já em curso.
+     *
+     * @throws Exception a mesma exceção lançada pela busca, para todas as threads que a aguardavam
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String operacao, Object chave, Callable<T> busca) throws Exception {
+        Chave k = new Chave(operacao, chave);
+        CompletableFuture<Object> novo = new CompletableFuture<>();
+        CompletableFuture<Object> existente = emCurso.putIfAbsent(k, novo);
+
+        if (existente != null) {
+            juntadas.increment();
+            try {
+                return (T) existente.join();
+            } catch (CompletionException e) {
+                throw desembrulhar(e);
+            }
+        }
+
+        buscas.increment();
+        try {
+            T resultado = busca.call();
+            novo.complete(resultado);
+            return resultado;
+        } catch (Throwable t) {
+            novo.completeExceptionally(t);
+            throw t;
+        } finally {
+            emCurso.remove(k, novo);
+        }
+    }
+
+    /**
+     * Buscas efetivamente executadas
+     */
+    public long totalBuscas() {
+        return buscas.sum();
+    }
+
+    /**
+     * Chamadas que aproveitaram uma busca já em curso
+     */
+    public long totalJuntadas() {
+        return juntadas.sum();
+    }
+
+    private static Exception desembrulhar(CompletionException e) {
+        Throwable causa = e.getCause();
+        if (causa instanceof Exception) {
+            return (Exception) causa;
+        }
+        if (causa instanceof Error) {
+            throw (Error) causa;
+        }
+        return e;
+    }
+
+    private static final class Chave {
+        private final String operacao;
+        private final Object valor;
+
+        Chave(String operacao, Object valor) {
+            this.operacao = operacao;
+            this.valor = valor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Chave)) {
+                return false;
+            }
+            Chave outra = (Chave) o;
+            return operacao.equals(outra.operacao) && Objects.equals(valor, outra.valor);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * operacao.hashCode() + Objects.hashCode(valor);
+        }
+    }
+}